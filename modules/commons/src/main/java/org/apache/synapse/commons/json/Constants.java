@@ -116,6 +116,9 @@ public final class Constants {
     /*Property which holds the synapse commons json stream of payload*/
     public static final String ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM = "org.apache.synapse.commons.json.JsonInputStream";
 
+    /*Property which holds the parsed JSON document of the payload, along with the stream it was parsed from*/
+    public static final String ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD = "org.apache.synapse.commons.json.ParsedJsonPayload";
+
     public static final String SYNAPSE_COMMONS_ENABLE_XML_NIL_READ_WRITE = "synapse.commons.enableXmlNilReadWrite";
 
     public static final String SYNAPSE_COMMONS_JSON_DISABLE_AUTO_PRIMITIVE_CUSTOM_REPLACE_REGEX =
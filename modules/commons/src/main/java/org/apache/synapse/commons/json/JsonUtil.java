@@ -35,9 +35,11 @@ import org.apache.synapse.commons.staxon.core.json.JsonXMLInputFactory;
 import org.apache.synapse.commons.staxon.core.json.JsonXMLOutputFactory;
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMDataSource;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMNamespace;
 import org.apache.axiom.om.OMNode;
+import org.apache.axiom.om.OMSourcedElement;
 import org.apache.axiom.om.OMText;
 import org.apache.axiom.om.impl.builder.StAXOMBuilder;
 import org.apache.axiom.om.impl.llom.OMSourcedElementImpl;
@@ -972,6 +974,7 @@ public final class JsonUtil {
     public static InputStream setJsonStream(MessageContext messageContext, InputStream inputStream) {
         InputStream json = toReadOnlyStream(inputStream);
         messageContext.setProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM, json);
+        messageContext.removeProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD);
         return json;
     }
 
@@ -982,6 +985,47 @@ public final class JsonUtil {
      */
     public static void removeJsonStream(MessageContext messageContext) {
         messageContext.removeProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM);
+        messageContext.removeProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD);
+    }
+
+    /**
+     * Returns the parsed JSON document of the payload of this message context, if the payload has been parsed with
+     * {@link #setParsedJsonPayload(MessageContext, InputStream, Object)} and has not been changed since.
+     *
+     * @param messageContext Axis2 Message context
+     * @param jsonStream     the current JSON stream of the payload, as returned by {@link #getJsonPayload(MessageContext)}
+     * @return the parsed JSON document, or null if the current payload has not been parsed
+     */
+    public static Object getParsedJsonPayload(MessageContext messageContext, InputStream jsonStream) {
+        if (messageContext == null || jsonStream == null) {
+            return null;
+        }
+        Object o = messageContext.getProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD);
+        if (o instanceof ParsedJsonPayload) {
+            ParsedJsonPayload parsed = (ParsedJsonPayload) o;
+            // the payload stream is replaced whenever the payload changes, so a document parsed from another
+            // stream is outdated even if the property was copied or the stream was set without this class
+            if (parsed.jsonStream == jsonStream && jsonStream == jsonStream(messageContext, false)) {
+                return parsed.document;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saves the parsed JSON document of the payload of this message context, so that the payload is not parsed again
+     * until it is changed. The document is dropped when the payload is changed through this class.
+     *
+     * @param messageContext Axis2 Message context
+     * @param jsonStream     the JSON stream of the payload from which the document was parsed
+     * @param document       the parsed JSON document, which must not be modified afterwards
+     */
+    public static void setParsedJsonPayload(MessageContext messageContext, InputStream jsonStream, Object document) {
+        if (messageContext == null || jsonStream == null || jsonStream != jsonStream(messageContext, false)) {
+            return;
+        }
+        messageContext.setProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD,
+                new ParsedJsonPayload(jsonStream, document));
     }
 
     /**
@@ -1088,6 +1132,7 @@ public final class JsonUtil {
      */
     public static boolean removeJsonPayload(MessageContext messageContext) {
         messageContext.removeProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM);
+        messageContext.removeProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD);
         messageContext.removeProperty(ORG_APACHE_SYNAPSE_COMMONS_JSON_IS_JSON_OBJECT);
         boolean removeChildren = true;
         if (!removeChildren) { // don't change this.
@@ -1371,6 +1416,26 @@ public final class JsonUtil {
         return b != null && jsonStream(messageContext, false) != null && hasAJsonPayload(b.getFirstElement());
     }
 
+    /**
+     * Returns true if the payload of the provided message context is a JSON stream payload which has not been read
+     * as XML, so the payload body holds nothing but the JSON sourced element of the current JSON stream.
+     *
+     * @param messageContext Axis2 Message context
+     * @return <tt>true</tt> if the payload body can be recreated from the JSON stream alone.
+     */
+    public static boolean hasAnUnexpandedJsonPayload(MessageContext messageContext) {
+        if (!hasAJsonPayload(messageContext)) {
+            return false;
+        }
+        OMElement element = messageContext.getEnvelope().getBody().getFirstElement();
+        if (!(element instanceof OMSourcedElement) || ((OMSourcedElement) element).isExpanded()) {
+            return false;
+        }
+        OMDataSource dataSource = ((OMSourcedElement) element).getDataSource();
+        return dataSource instanceof JsonDataSource
+                && ((JsonDataSource) dataSource).getInputStream() == jsonStream(messageContext, false);
+    }
+
     /**
      * Clones the JSON stream payload contained in the source message context, if any, to the target message context.
      *
@@ -1384,8 +1449,16 @@ public final class JsonUtil {
         }
         InputStream json = jsonStream(sourceMc, true);
         try {
-            byte[] stream = IOUtils.toByteArray(json);
-            getNewJsonPayload(targetMc, new ByteArrayInputStream(stream), true, true);
+            // the content of a JSON stream never changes, so every clone reads the same bytes
+            InputStream stream;
+            if (json instanceof ReadOnlyBIS) {
+                stream = ((ReadOnlyBIS) json).share();
+            } else if (json instanceof ReadOnlyBAIS) {
+                stream = ((ReadOnlyBAIS) json).share();
+            } else {
+                stream = new ByteArrayInputStream(IOUtils.toByteArray(json));
+            }
+            getNewJsonPayload(targetMc, stream, true, true);
         } catch (IOException e) {
             logger.error("#cloneJsonPayload. Could not clone JSON stream. Error>>> " + e.getLocalizedMessage());
             return false;
@@ -1416,6 +1489,9 @@ public final class JsonUtil {
         if (inputStream == null) {
             return null;
         }
+        if (inputStream instanceof ReadOnlyBAIS) {
+            return inputStream;
+        }
         return new ReadOnlyBIS(inputStream);
     }
 
@@ -1495,6 +1571,19 @@ public final class JsonUtil {
         return isObject != null && ((Boolean) isObject);
     }
 
+    /**
+     * A parsed JSON document together with the payload stream it was parsed from.
+     */
+    private static final class ParsedJsonPayload {
+        private final InputStream jsonStream;
+        private final Object document;
+
+        private ParsedJsonPayload(InputStream jsonStream, Object document) {
+            this.jsonStream = jsonStream;
+            this.document = document;
+        }
+    }
+
     /**
      * An Un-closable, Read-Only, Reusable, BufferedInputStream
      */
@@ -1538,6 +1627,49 @@ public final class JsonUtil {
             }
             return 0;
         }
+
+        /**
+         * Reads this stream to the end and returns a new stream over the buffered content, which does not copy it.
+         * The buffer is not changed once the end of the stream is reached.
+         */
+        synchronized ReadOnlyBAIS share() throws IOException {
+            super.reset();
+            byte[] scratch = new byte[8192];
+            while (super.read(scratch, 0, scratch.length) != -1) {
+                // the content is kept in the buffer as the stream is marked at the beginning
+            }
+            super.reset();
+            return new ReadOnlyBAIS(buf, count);
+        }
+    }
+
+    /**
+     * A read only, re-readable input stream over the content of a JSON stream, which can be shared by the clones of
+     * a message.
+     */
+    private static class ReadOnlyBAIS extends ByteArrayInputStream {
+
+        ReadOnlyBAIS(byte[] buf, int length) {
+            super(buf, 0, length);
+        }
+
+        @Override
+        public void close() {
+            reset();
+        }
+
+        @Override
+        public void mark(int readlimit) {
+        }
+
+        @Override
+        public long skip(long n) {
+            return 0;
+        }
+
+        ReadOnlyBAIS share() {
+            return new ReadOnlyBAIS(buf, count);
+        }
     }
 
     /**
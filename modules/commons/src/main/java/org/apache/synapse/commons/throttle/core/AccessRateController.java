@@ -103,6 +103,13 @@ public class AccessRateController {
             accessInformation.setAccessAllowed(true);
             return accessInformation;
         } else if (configuration.getAccessState() == ThrottleConstants.ACCESS_CONTROLLED) {
+            if (ThrottleConstants.TOKEN_BUCKET_ALGORITHM.equals(configuration.getAlgorithm())) {
+                long currentTime = System.currentTimeMillis();
+                CallerContext caller =
+                        throttleContext.getTokenBucketCallerContext(callerID, callerType, currentTime);
+                return checkAccess(caller, throttleContext, configuration, currentTime,
+                        type + " " + callerID, accessInformation);
+            }
             synchronized (lock) {
                 CallerContext caller = throttleContext.getCallerContext(callerID);
                 if (caller == null) {
@@ -110,33 +117,54 @@ public class AccessRateController {
                     //set it in throttle
                     caller = CallerContextFactory.createCaller(callerType, callerID);
                 }
-                if (caller != null) {
-                    long currentTime = System.currentTimeMillis();
-
-                    if (!caller.canAccess(throttleContext, configuration, currentTime)) {
-                        //if current caller cannot access , then perform cleaning
-                        log.info(ACCESS_DENIED_TEMPORALLY);
-                        throttleContext.processCleanList(currentTime);
-                        accessInformation.setAccessAllowed(false);
-                        accessInformation.setFaultReason(ACCESS_DENIED_TEMPORALLY);
-                        return accessInformation;
-                    } else {
-                        if (debugOn) {
-                            log.debug("Access  from " + type + " " + callerID + " is successful.");
-                        }
-                        accessInformation.setAccessAllowed(true);
-                        return accessInformation;
-                    }
-                } else {
-                    if (debugOn) {
-                        log.debug("Caller " + type + " not found! " + callerID);
-                    }
-                    accessInformation.setAccessAllowed(true);
-                    return accessInformation;
-                }
+                return checkAccess(caller, throttleContext, configuration, System.currentTimeMillis(),
+                        type + " " + callerID, accessInformation);
             }
         }
         accessInformation.setAccessAllowed(true);
         return accessInformation;
     }
+
+    /**
+     * Check whether the given caller can access, and fill the access information accordingly
+     *
+     * @param caller            - runtime data of the caller
+     * @param throttleContext   - current states of throttle - RunTime Data
+     * @param configuration     - the configuration of the caller
+     * @param currentTime       - the system current time
+     * @param callerDescription - the type and the id of the caller for logging
+     * @param accessInformation - access information to be filled
+     * @return access information
+     * @throws ThrottleException
+     */
+    private AccessInformation checkAccess(CallerContext caller, ThrottleContext throttleContext,
+                                          CallerConfiguration configuration, long currentTime,
+                                          String callerDescription,
+                                          AccessInformation accessInformation) throws ThrottleException {
+        if (caller != null) {
+            if (!caller.canAccess(throttleContext, configuration, currentTime)) {
+                //if current caller cannot access , then perform cleaning
+                log.info(ACCESS_DENIED_TEMPORALLY);
+                if (!(caller instanceof TokenBucketCallerContext)) {
+                    // token bucket callers are cleaned up by the cleanup task
+                    throttleContext.processCleanList(currentTime);
+                }
+                accessInformation.setAccessAllowed(false);
+                accessInformation.setFaultReason(ACCESS_DENIED_TEMPORALLY);
+                return accessInformation;
+            } else {
+                if (debugOn) {
+                    log.debug("Access  from " + callerDescription + " is successful.");
+                }
+                accessInformation.setAccessAllowed(true);
+                return accessInformation;
+            }
+        } else {
+            if (debugOn) {
+                log.debug("Caller " + callerDescription + " not found! ");
+            }
+            accessInformation.setAccessAllowed(true);
+            return accessInformation;
+        }
+    }
 }
\ No newline at end of file
@@ -37,6 +37,9 @@ public abstract class CallerConfiguration {
     /* The int value that indicate that access is fully denied/allowed or controlled for this IP */
     private int accessState = ThrottleConstants.ACCESS_CONTROLLED;
 
+    /* The algorithm which limits the access rate of a controlled caller */
+    private String algorithm = ThrottleConstants.FIXED_WINDOW_ALGORITHM;
+
     protected CallerConfiguration() {
         super();
 
@@ -133,6 +136,24 @@ public abstract class CallerConfiguration {
         this.accessState = accessState;
     }
 
+    /**
+     * To get the rate limiting algorithm
+     *
+     * @return the rate limiting algorithm, fixed window or token bucket
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * To set the rate limiting algorithm
+     *
+     * @param algorithm the rate limiting algorithm, fixed window or token bucket
+     */
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
     /**
      * To get ID
      *
@@ -101,6 +101,22 @@ public class RoleBasedAccessRateController {
             accessInformation.setAccessAllowed(true);
             return accessInformation;
         } else if (configuration.getAccessState() == ThrottleConstants.ACCESS_CONTROLLED) {
+            if (ThrottleConstants.TOKEN_BUCKET_ALGORITHM.equals(configuration.getAlgorithm())) {
+                long currentTime = System.currentTimeMillis();
+                CallerContext caller = throttleContext.getTokenBucketCallerContext(consumerKey,
+                        ThrottleConstants.ROLE_BASE, currentTime);
+                if (!caller.canAccess(throttleContext, configuration, currentTime)) {
+                    log.info(ACCESS_DENIED_TEMPORALLY);
+                    accessInformation.setAccessAllowed(false);
+                    accessInformation.setFaultReason(ACCESS_DENIED_TEMPORALLY);
+                } else {
+                    if (debugOn) {
+                        log.debug("Access  from " + type + " " + roleID + " is successful.");
+                    }
+                    accessInformation.setAccessAllowed(true);
+                }
+                return accessInformation;
+            }
             synchronized (consumerKey.intern()) {
                 CallerContext caller = throttleContext.getCallerContext(consumerKey);
                 if (caller == null) {
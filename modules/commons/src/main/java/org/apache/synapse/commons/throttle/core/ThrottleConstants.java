@@ -101,6 +101,14 @@ public final class ThrottleConstants {
 
     public static final String MAXIMUM_CONCURRENT_ACCESS_PARAMETER_NAME = "MaximumConcurrentAccess";
 
+    public static final String ALGORITHM_PARAMETER_NAME = "Algorithm";
+
+    /* Rate limiting algorithms of a controlled caller */
+
+    public static final String FIXED_WINDOW_ALGORITHM = "FixedWindow";
+
+    public static final String TOKEN_BUCKET_ALGORITHM = "TokenBucket";
+
     /**
      * This global throttle path can be used to point to an external global throttle policy using
      * the axis.xml
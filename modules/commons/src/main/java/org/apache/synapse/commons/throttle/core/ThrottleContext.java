@@ -62,6 +62,10 @@ public abstract class ThrottleContext {
 
     private ThrottleWindowReplicator throttleWindowReplicator;
 
+    /* Callers limited with a token bucket, which are neither ordered by time windows nor replicated */
+    private final ConcurrentHashMap<String, TokenBucketCallerContext> tokenBucketCallers =
+            new ConcurrentHashMap<String, TokenBucketCallerContext>();
+
     /**
      * default constructor – expects a throttle configuration.
      *
@@ -137,6 +141,27 @@ public abstract class ThrottleContext {
         return null;
     }
 
+    /**
+     * To get the runtime states of a remote caller limited with a token bucket. The caller is
+     * registered if it has not been registered yet.
+     *
+     * @param id          the remote caller id ex: domain , ip
+     * @param type        the type of the caller
+     * @param currentTime the system current time in milliseconds
+     * @return Returns the TokenBucketCallerContext which holds runtime state of a remote caller
+     */
+    public TokenBucketCallerContext getTokenBucketCallerContext(String id, int type, long currentTime) {
+        TokenBucketCallerContext caller = tokenBucketCallers.get(id);
+        if (caller == null) {
+            caller = new TokenBucketCallerContext(id, type, currentTime);
+            TokenBucketCallerContext existing = tokenBucketCallers.putIfAbsent(id, caller);
+            if (existing != null) {
+                caller = existing;
+            }
+        }
+        return caller;
+    }
+
     /**
      * setting callerContext - put callersMap against  time and
      * put time against remote caller id (ip/domain)
@@ -436,6 +461,12 @@ public abstract class ThrottleContext {
      */
     public void cleanupCallers(long time) {
 
+        for (Iterator<TokenBucketCallerContext> it = tokenBucketCallers.values().iterator(); it.hasNext(); ) {
+            if (it.next().isIdle(time)) {
+                it.remove();
+            }
+        }
+
         SortedMap map = ((ConcurrentNavigableMap) callersMap).headMap(new Long(time));
         if (log.isDebugEnabled()) {
             log.debug("CallerMap Size before cleanup process : " + map.size());
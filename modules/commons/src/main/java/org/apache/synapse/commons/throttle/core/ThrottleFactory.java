@@ -510,6 +510,20 @@ public class ThrottleFactory {
                                                     " number for prohibit time ",
                                             ignored);
                                 }
+                            } else if (name.equals(
+                                    ThrottleConstants.
+                                            ALGORITHM_PARAMETER_NAME)) {
+                                String algorithm = value.trim();
+                                if (ThrottleConstants.TOKEN_BUCKET_ALGORITHM.equalsIgnoreCase(algorithm)) {
+                                    callerConfiguration.setAlgorithm(
+                                            ThrottleConstants.TOKEN_BUCKET_ALGORITHM);
+                                } else if (ThrottleConstants.FIXED_WINDOW_ALGORITHM.equalsIgnoreCase(algorithm)) {
+                                    callerConfiguration.setAlgorithm(
+                                            ThrottleConstants.FIXED_WINDOW_ALGORITHM);
+                                } else {
+                                    handleException("Unsupported rate limiting " +
+                                            "algorithm : " + algorithm);
+                                }
                             } else {
                                 handleException("Undefined Policy" +
                                         " property for Throttle Policy");
@@ -0,0 +1,142 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*
+*
+*/
+
+package org.apache.synapse.commons.throttle.core;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime data of a remote caller whose access rate is limited with a token bucket, instead of
+ * counting the requests of fixed time windows. The bucket holds up to the maximum number of
+ * requests of the caller configuration, and is refilled evenly over the unit time, so a caller
+ * cannot make twice the allowed number of requests around the boundary of a time window.
+ *
+ * The bucket is kept as the time at which it will be full again, which is updated with a
+ * compare-and-set, so concurrent requests of a caller are throttled without locking. The state is
+ * local to this node and is not replicated to the other members of a cluster.
+ * This is thread-safe.
+ */
+public class TokenBucketCallerContext extends CallerContext {
+
+    private static final long serialVersionUID = 4386523069417245319L;
+    private static Log log = LogFactory.getLog(TokenBucketCallerContext.class.getName());
+
+    /* The type of the caller - ip | domain | role */
+    private final int type;
+    /* The time in milliseconds the bucket times are measured from */
+    private final long epoch;
+    /* The time in nanoseconds since the epoch, at which the bucket will be full again */
+    private final AtomicLong fullTime = new AtomicLong(0);
+    /* The time in milliseconds until which access is prohibited */
+    private final AtomicLong prohibitedUntil = new AtomicLong(0);
+    /* The time in milliseconds of the last access check */
+    private volatile long lastAccessTime;
+
+    public TokenBucketCallerContext(String ID, int type, long currentTime) {
+        super(ID);
+        this.type = type;
+        this.epoch = currentTime;
+        this.lastAccessTime = currentTime;
+        setFirstAccessTime(currentTime);
+    }
+
+    /**
+     * Check whether the caller can access, taking a token from its bucket if it can
+     *
+     * @param throttleContext -The Context for this caller - runtime state
+     * @param configuration   -The Configuration for this caller - data from policy
+     * @param currentTime     -The current system time
+     * @return boolean        -The boolean value which say access will allow or not
+     * @throws ThrottleException throws for invalid throttle configuration
+     */
+    @Override
+    public boolean canAccess(ThrottleContext throttleContext, CallerConfiguration configuration,
+                             long currentTime) throws ThrottleException {
+        if (configuration == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Couldn't find the configuration .");
+            }
+            return true;
+        }
+        if (configuration.getMaximumRequestPerUnitTime() < 0
+                || configuration.getUnitTime() <= 0
+                || configuration.getProhibitTimePeriod() < 0) {
+            throw new ThrottleException("Invalid Throttle Configuration");
+        }
+        int maxRequest = configuration.getMaximumRequestPerUnitTime();
+        if (maxRequest == 0) {
+            return false;
+        }
+        setUnitTime(configuration.getUnitTime());
+        setRoleId(configuration.getID());
+        lastAccessTime = currentTime;
+
+        long prohibited = prohibitedUntil.get();
+        if (prohibited > currentTime) {
+            if (log.isDebugEnabled()) {
+                log.debug("Prohibit period is not yet over for caller " + getId());
+            }
+            return false;
+        }
+
+        long now = TimeUnit.MILLISECONDS.toNanos(currentTime - epoch);
+        long interval = Math.max(1, TimeUnit.MILLISECONDS.toNanos(configuration.getUnitTime()) / maxRequest);
+        long capacity = interval * maxRequest;
+        while (true) {
+            long full = fullTime.get();
+            long next = Math.max(full, now) + interval;
+            if (next - now > capacity) {
+                long prohibitTime = configuration.getProhibitTimePeriod();
+                if (prohibitTime > 0) {
+                    prohibitedUntil.compareAndSet(prohibited, currentTime + prohibitTime);
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Maximum Number of requests are reached for caller " + getId());
+                }
+                return false;
+            }
+            if (fullTime.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Whether the bucket of the caller has been full and not prohibited for a unit time, in which
+     * case the caller is in the same state as a new caller and can be removed
+     *
+     * @param currentTime -The system current time
+     * @return true if the caller can be removed
+     */
+    public boolean isIdle(long currentTime) {
+        return lastAccessTime + getUnitTime() < currentTime && prohibitedUntil.get() < currentTime;
+    }
+
+    /**
+     * Gets type of throttle that this caller belong  ex : ip/domain
+     *
+     * @return Returns the type of the throttle
+     */
+    public int getType() {
+        return type;
+    }
+}
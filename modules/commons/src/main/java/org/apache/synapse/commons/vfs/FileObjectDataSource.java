@@ -35,10 +35,21 @@ public class FileObjectDataSource implements SizeAwareDataSource {
     
     private final FileObject file;
     private final String contentType;
+    private final boolean memoryMapped;
 
     public FileObjectDataSource(FileObject file, String contentType) {
+        this(file, contentType, false);
+    }
+
+    /**
+     * @param file the file
+     * @param contentType the content type of the file
+     * @param memoryMapped whether a local file is read through a {@link MappedFileInputStream}
+     */
+    public FileObjectDataSource(FileObject file, String contentType, boolean memoryMapped) {
         this.file = file;
         this.contentType = contentType;
+        this.memoryMapped = memoryMapped;
     }
 
     public long getSize() {
@@ -58,6 +69,9 @@ public class FileObjectDataSource implements SizeAwareDataSource {
     }
 
     public InputStream getInputStream() throws IOException {
+        if (memoryMapped) {
+            return MappedFileInputStream.open(file);
+        }
         return file.getContent().getInputStream();
     }
 
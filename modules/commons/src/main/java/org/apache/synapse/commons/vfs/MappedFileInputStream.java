@@ -0,0 +1,178 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.apache.synapse.commons.vfs;
+
+import org.apache.commons.vfs2.FileObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Input stream which reads a local file through a sequence of memory mapped windows, so that
+ * files of any size are read without copying them through the heap. The stream only holds the
+ * window being read, but a mapping can not be released explicitly, so the windows which were
+ * read, and the window being read once the stream is closed, stay mapped until they are garbage
+ * collected.
+ *
+ * As a file can not be moved or deleted on Windows while a part of it is mapped, local files are
+ * not mapped on Windows by {@link #open(FileObject)}, and are read through their input stream.
+ */
+public class MappedFileInputStream extends InputStream {
+
+    /** The default size of the windows of the file which are mapped, 64 MB */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final boolean WINDOWS =
+            System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final int windowSize;
+
+    /* The position of the current window in the file */
+    private long windowPosition = 0;
+
+    private MappedByteBuffer window;
+
+    private long mark = 0;
+
+    /**
+     * @param path the local file
+     * @param windowSize the size of the windows of the file which are mapped
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedFileInputStream(Path path, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Open a VFS file, through memory mapped windows if it is a local file, unless running on
+     * Windows where a mapped file could not be moved or deleted after it is processed
+     *
+     * @param file the file
+     * @return an input stream over the content of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream open(FileObject file) throws IOException {
+        if (!WINDOWS && "file".equals(file.getName().getScheme())) {
+            try {
+                return new MappedFileInputStream(Paths.get(file.getURL().toURI()), DEFAULT_WINDOW_SIZE);
+            } catch (URISyntaxException ignored) {
+                // fall back to the input stream of the file
+            }
+        }
+        return file.getContent().getInputStream();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!hasRemaining()) {
+            return -1;
+        }
+        return window.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!hasRemaining()) {
+            return -1;
+        }
+        int n = Math.min(len, window.remaining());
+        window.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long position = getPosition();
+        long skipped = Math.max(0, Math.min(n, size - position));
+        seek(position + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, size - getPosition());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = getPosition();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        seek(mark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private long getPosition() {
+        return window == null ? windowPosition : windowPosition + window.position();
+    }
+
+    private void seek(long position) {
+        if (window != null && position >= windowPosition && position <= windowPosition + window.limit()) {
+            window.position((int) (position - windowPosition));
+        } else {
+            window = null;
+            windowPosition = position;
+        }
+    }
+
+    /**
+     * Map the next window of the file if the current window was read
+     *
+     * @return false at the end of the file
+     */
+    private boolean hasRemaining() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        long position = getPosition();
+        if (position >= size) {
+            return false;
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+        windowPosition = position;
+        return true;
+    }
+}
@@ -146,7 +146,57 @@ public final class VFSConstants {
      * This specify the file count that will be processed in a cycle/batch 
      * */    
     public static final String TRANSPORT_FILE_COUNT = "transport.vfs.FileProcessCount";
-    
+
+    /**
+     * How a directory is scanned on each poll, either fully (the default) or incrementally
+     * */
+    public static final String TRANSPORT_FILE_SCAN_MODE = "transport.vfs.ScanMode";
+    public static final String TRANSPORT_FILE_SCAN_MODE_FULL = "Full";
+    public static final String TRANSPORT_FILE_SCAN_MODE_INCREMENTAL = "Incremental";
+
+    /**
+     * The maximum number of new files picked up from a directory on a poll, in the incremental scan mode
+     * */
+    public static final String TRANSPORT_FILE_SCAN_BATCH_SIZE = "transport.vfs.ScanBatchSize";
+    public static final int DEFAULT_TRANSPORT_FILE_SCAN_BATCH_SIZE = 1000;
+
+    /**
+     * The number of files of a directory processed at the same time, in the incremental scan mode
+     * */
+    public static final String TRANSPORT_FILE_PROCESS_PARALLELISM = "transport.vfs.FileProcessParallelism";
+    public static final int DEFAULT_TRANSPORT_FILE_PROCESS_PARALLELISM = 1;
+
+    /**
+     * Watch a local directory for new files instead of scanning it on each poll, which implies the incremental
+     * scan mode
+     * */
+    public static final String TRANSPORT_FILE_WATCH = "transport.vfs.Watch";
+
+    /**
+     * The time (in milliseconds) a new file of a watched directory must be left unchanged before it is picked up
+     * */
+    public static final String TRANSPORT_FILE_WATCH_SETTLE_TIME = "transport.vfs.WatchSettleTime";
+    public static final long DEFAULT_TRANSPORT_FILE_WATCH_SETTLE_TIME = 500;
+
+    /**
+     * Read local files through memory mapped windows, except on Windows, true/false
+     * */
+    public static final String TRANSPORT_FILE_MEMORY_MAPPED = "transport.vfs.MemoryMapped";
+
+    /**
+     * Inject one message per line of a file instead of one message per file, true/false
+     * */
+    public static final String TRANSPORT_FILE_SPLIT_RECORDS = "transport.vfs.SplitRecords";
+
+    /**
+     * The maximum number of records of a file processed at the same time, when the records are split
+     * */
+    public static final String TRANSPORT_FILE_MAX_IN_FLIGHT_RECORDS = "transport.vfs.MaxInFlightRecords";
+    public static final int DEFAULT_TRANSPORT_FILE_MAX_IN_FLIGHT_RECORDS = 1;
+
+    // transport header property name of the number of a record of a file, starting from 1
+    public static final String RECORD_NUMBER = "RECORD_NUMBER";
+
     /**
      * Lock release true/false
      * */
@@ -138,6 +138,24 @@ public class JsonUtilTest extends TestCase {
         assertTrue("Json payload identified incorrectly", JsonUtil.cloneJsonPayload(sourceContext, targetContext));
     }
 
+    public void testCloneJsonPayloadSharesContent() throws AxisFault {
+        String json = "{\"name\":\"WSO2\",\"products\":[\"ei\",\"apim\"]}";
+        MessageContext sourceContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(sourceContext, json, true, true);
+        assertTrue("Json payload expected to be unread", JsonUtil.hasAnUnexpandedJsonPayload(sourceContext));
+
+        MessageContext firstClone = Util.newMessageContext();
+        MessageContext secondClone = Util.newMessageContext();
+        assertTrue("Json payload identified incorrectly", JsonUtil.cloneJsonPayload(sourceContext, firstClone));
+        assertTrue("Json payload identified incorrectly", JsonUtil.cloneJsonPayload(firstClone, secondClone));
+        assertTrue("Json payload expected to be unread", JsonUtil.hasAnUnexpandedJsonPayload(secondClone));
+        assertEquals("Invalid payload received", json, JsonUtil.jsonPayloadToString(sourceContext));
+        assertEquals("Invalid payload received", json, JsonUtil.jsonPayloadToString(firstClone));
+        assertEquals("Invalid payload received", json, JsonUtil.jsonPayloadToString(secondClone));
+        // reading one clone does not move the stream of another
+        assertEquals("Invalid payload received", json, JsonUtil.jsonPayloadToString(firstClone));
+    }
+
     public void testJsonPayloadToByteArray() throws AxisFault, XMLStreamException {
         MessageContext messageContext = Util.newMessageContext("<jsonArray><jsonElement>10</jsonElement><jsonElement>20</jsonElement></jsonArray>");
         OMElement element = AXIOMUtil.stringToOM("<name>WSO2</name>");
@@ -0,0 +1,116 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.apache.synapse.commons.throttle.core;
+
+import junit.framework.TestCase;
+import org.apache.synapse.commons.throttle.core.impl.ipbase.IPBaseCallerConfiguration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenBucketCallerContextTest extends TestCase {
+
+    private static final String CALLER_ID = "10.100.1.160";
+
+    public void testBurstAndRefill() throws Exception {
+        CallerConfiguration configuration = createConfiguration(5, 1000, 0);
+        TokenBucketCallerContext caller = new TokenBucketCallerContext(CALLER_ID, ThrottleConstants.IP_BASE, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(caller.canAccess(null, configuration, 0));
+        }
+        assertFalse(caller.canAccess(null, configuration, 0));
+        assertFalse(caller.canAccess(null, configuration, 199));
+
+        // a token is added every 200 milliseconds
+        assertTrue(caller.canAccess(null, configuration, 200));
+        assertFalse(caller.canAccess(null, configuration, 200));
+        assertTrue(caller.canAccess(null, configuration, 400));
+    }
+
+    /**
+     * Unlike a fixed window, requests spread around the end of a window cannot exceed the
+     * maximum count per unit time.
+     */
+    public void testNoBurstAtWindowBoundary() throws Exception {
+        CallerConfiguration configuration = createConfiguration(10, 1000, 0);
+        TokenBucketCallerContext caller = new TokenBucketCallerContext(CALLER_ID, ThrottleConstants.IP_BASE, 0);
+
+        int allowed = 0;
+        for (int i = 0; i < 20; i++) {
+            if (caller.canAccess(null, configuration, 990)) {
+                allowed++;
+            }
+            if (caller.canAccess(null, configuration, 1010)) {
+                allowed++;
+            }
+        }
+        assertEquals(10, allowed);
+    }
+
+    public void testProhibitTimePeriod() throws Exception {
+        CallerConfiguration configuration = createConfiguration(2, 1000, 5000);
+        TokenBucketCallerContext caller = new TokenBucketCallerContext(CALLER_ID, ThrottleConstants.IP_BASE, 0);
+
+        assertTrue(caller.canAccess(null, configuration, 0));
+        assertTrue(caller.canAccess(null, configuration, 0));
+        assertFalse(caller.canAccess(null, configuration, 10));
+        assertFalse(caller.canAccess(null, configuration, 2000));
+        assertFalse(caller.isIdle(4000));
+        assertTrue(caller.canAccess(null, configuration, 5010));
+        assertTrue(caller.isIdle(7000));
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final CallerConfiguration configuration = createConfiguration(1000, 60000, 0);
+        final TokenBucketCallerContext caller =
+                new TokenBucketCallerContext(CALLER_ID, ThrottleConstants.IP_BASE, 0);
+        final AtomicInteger allowed = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        try {
+                            if (caller.canAccess(null, configuration, 0)) {
+                                allowed.incrementAndGet();
+                            }
+                        } catch (ThrottleException e) {
+                            fail(e.getMessage());
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, allowed.get());
+    }
+
+    private CallerConfiguration createConfiguration(int maximumRequest, long unitTime, long prohibitTimePeriod) {
+        CallerConfiguration configuration =
+                new IPBaseCallerConfiguration(unitTime, maximumRequest, prohibitTimePeriod, CALLER_ID);
+        configuration.setAlgorithm(ThrottleConstants.TOKEN_BUCKET_ALGORITHM);
+        return configuration;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.vfs;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Unit testcase to test functionality {@link MappedFileInputStream}
+ */
+public class MappedFileInputStreamTest extends TestCase {
+
+    private Path file;
+
+    private byte[] data;
+
+    @Override
+    protected void setUp() throws Exception {
+        data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        file = Files.createTempFile("vfs-mapped", ".dat");
+        Files.write(file, data);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Files.delete(file);
+    }
+
+    /**
+     * The file is read across the windows, both a byte and a buffer at a time.
+     */
+    public void testReadAcrossWindows() throws Exception {
+        MappedFileInputStream in = new MappedFileInputStream(file, 7);
+        try {
+            assertEquals(data[0] & 0xff, in.read());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(data[0]);
+            byte[] buffer = new byte[16];
+            int n;
+            while ((n = in.read(buffer, 0, buffer.length)) != -1) {
+                assertTrue(n > 0 && n <= 7);
+                out.write(buffer, 0, n);
+            }
+            assertTrue(Arrays.equals(data, out.toByteArray()));
+            assertEquals(-1, in.read());
+            assertEquals(0, in.available());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Skipping and resetting moves across the windows.
+     */
+    public void testSkipAndReset() throws Exception {
+        MappedFileInputStream in = new MappedFileInputStream(file, 7);
+        try {
+            assertEquals(20, in.skip(20));
+            assertEquals(data[20] & 0xff, in.read());
+            in.mark(100);
+            assertEquals(30, in.skip(30));
+            assertEquals(data[51] & 0xff, in.read());
+            in.reset();
+            assertEquals(data[21] & 0xff, in.read());
+            assertEquals(78, in.available());
+            assertEquals(78, in.skip(1000));
+            assertEquals(-1, in.read());
+        } finally {
+            in.close();
+        }
+    }
+}
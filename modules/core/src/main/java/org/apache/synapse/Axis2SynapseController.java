@@ -190,6 +190,12 @@ public class Axis2SynapseController implements SynapseController {
     public void destroy() {
 
         try {
+            // stop the timing wheel of the callback receiver created for the outgoing messages
+            SynapseCallbackReceiver callbackReceiver = serverContextInformation.getSynapseCallbackReceiver();
+            if (callbackReceiver != null) {
+                callbackReceiver.destroy();
+            }
+
             // only if we have created the server
             if (serverConfigurationInformation.isCreateNewInstance()) {
 
@@ -284,6 +284,24 @@ public final class SynapseConstants {
          */
         public static final long DEFAULT_TIMEOUT_HANDLER_INTERVAL = 15000;
 
+        /**
+         * The System property that enables the timing wheel based callback expiry. When disabled,
+         * the timeout handler falls back to scanning the whole callback store on each run.
+         */
+        public static final String CALLBACK_TIMING_WHEEL_ENABLED = "synapse.callback.timing_wheel.enabled";
+
+        public static final boolean DEFAULT_CALLBACK_TIMING_WHEEL_ENABLED = true;
+
+        /** The System property that states the tick duration (in milliseconds) of the callback timing wheel */
+        public static final String CALLBACK_TIMING_WHEEL_TICK = "synapse.callback.timing_wheel.tick";
+
+        public static final long DEFAULT_CALLBACK_TIMING_WHEEL_TICK = 10;
+
+        /** The System property that states the number of buckets in the callback timing wheel */
+        public static final String CALLBACK_TIMING_WHEEL_SIZE = "synapse.callback.timing_wheel.size";
+
+        public static final int DEFAULT_CALLBACK_TIMING_WHEEL_SIZE = 512;
+
         /**
          * The default endpoint suspend duration on failure (i hour)
          */
@@ -597,6 +615,32 @@ public final class SynapseConstants {
     // directory or not. By default this property is set to true.
     public static final String STORE_ARTIFACTS_LOCALLY = "synapse.artifacts.file.storage.enabled";
 
+    // These synapse properties decide the format the message stores persist messages in. The compact binary format
+    // is used by default, and Java serialization can be enabled to keep the messages readable by older nodes.
+    public static final String MESSAGE_STORE_BINARY_FORMAT_ENABLED = "synapse.message.store.binary.format.enabled";
+    public static final boolean DEFAULT_MESSAGE_STORE_BINARY_FORMAT_ENABLED = true;
+
+    // Payloads larger than this number of bytes are compressed when written in the binary format
+    public static final String MESSAGE_STORE_COMPRESSION_THRESHOLD = "synapse.message.store.compression.threshold";
+    public static final int DEFAULT_MESSAGE_STORE_COMPRESSION_THRESHOLD = 64 * 1024;
+
+    // Maximum number of compiled XSLT stylesheets cached by all the XSLT mediators together. The least recently
+    // used stylesheets are evicted when more stylesheets are compiled.
+    public static final String XSLT_TEMPLATES_CACHE_SIZE = "synapse.xslt.templates.cache.size";
+    public static final int DEFAULT_XSLT_TEMPLATES_CACHE_SIZE = 512;
+
+    // Maximum number of idle transformers kept for reuse for each compiled XSLT stylesheet
+    public static final String XSLT_TRANSFORMER_POOL_SIZE = "synapse.xslt.transformer.pool.size";
+    public static final int DEFAULT_XSLT_TRANSFORMER_POOL_SIZE = 16;
+
+    // Maximum number of compiled XQueries cached by all the XQuery mediators together
+    public static final String XQUERY_EXECUTABLE_CACHE_SIZE = "synapse.xquery.executable.cache.size";
+    public static final int DEFAULT_XQUERY_EXECUTABLE_CACHE_SIZE = 512;
+
+    // Maximum number of idle evaluators kept for reuse for each compiled XQuery
+    public static final String XQUERY_EVALUATOR_POOL_SIZE = "synapse.xquery.evaluator.pool.size";
+    public static final int DEFAULT_XQUERY_EVALUATOR_POOL_SIZE = 16;
+
     public static final int DEFAULT_MAX_FAILOVER_RETRIES = -1; //Default set to unlimited retries
     public static final String MAX_FAILOVER_RETRIES_CONFIG = "maximum.failover.retries";
     public static final String SUSPEND_DURATION_ON_MAX_FAILOVER_CONFIG = "suspend.duration.on.maximum.failover";
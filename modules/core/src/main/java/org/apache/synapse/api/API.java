@@ -38,7 +38,9 @@ import org.apache.synapse.config.xml.rest.VersionStrategyFactory;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.api.dispatch.DispatcherHelper;
+import org.apache.synapse.api.dispatch.PathTrie;
 import org.apache.synapse.api.dispatch.RESTDispatcher;
+import org.apache.synapse.api.dispatch.URITemplateHelper;
 import org.apache.synapse.api.version.DefaultStrategy;
 import org.apache.synapse.api.version.URLBasedVersionStrategy;
 import org.apache.synapse.api.version.VersionStrategy;
@@ -68,6 +70,10 @@ public class API extends AbstractRequestProcessor implements ManagedLifecycle, A
     private int port = -1;
     private String context;
     private Map<String,Resource> resources = new LinkedHashMap<String,Resource>();
+    /**
+     * Resources indexed by the literal prefixes of their URI templates, rebuilt as resources are added
+     */
+    private volatile PathTrie<Resource> resourceTrie = new PathTrie<Resource>();
     private List<Handler> handlers = new ArrayList<Handler>();
     private String swaggerResourcePath;
 
@@ -227,6 +233,21 @@ public class API extends AbstractRequestProcessor implements ManagedLifecycle, A
             }
         }
         resources.put(resource.getName(), resource);
+        resourceTrie = createResourceTrie();
+    }
+
+    private PathTrie<Resource> createResourceTrie() {
+        PathTrie<Resource> trie = new PathTrie<Resource>();
+        for (Resource r : resources.values()) {
+            DispatcherHelper helper = r.getDispatcherHelper();
+            if (helper instanceof URITemplateHelper) {
+                trie.add(((URITemplateHelper) helper).getLiteralPrefix(), r);
+            } else {
+                // URL mappings and the default resource are matched by their own dispatchers
+                trie.add("", r);
+            }
+        }
+        return trie;
     }
 
     private boolean resourceMatches(Resource r1, Resource r2) {
@@ -443,8 +464,10 @@ public class API extends AbstractRequestProcessor implements ManagedLifecycle, A
                     msgCtx.getIncomingTransportName() + "://" + hostHeader);
         }
 
+        // resources whose URI templates cannot match the sub path are left out before dispatching
+        List<Resource> candidateResources = resourceTrie.getCandidates(subPath);
         Set<Resource> acceptableResources = new LinkedHashSet<Resource>();
-        for (Resource r : resources.values()) {
+        for (Resource r : candidateResources) {
             if (isBound(r, synCtx) && r.canProcess(synCtx)) {
                 acceptableResources.add(r);
             }
@@ -484,7 +507,7 @@ public class API extends AbstractRequestProcessor implements ManagedLifecycle, A
             boolean resourceFound = false;
             boolean matchingMethodFound = false;
             for (RESTDispatcher dispatcher : ApiUtils.getDispatchers()) {
-                Resource resource = dispatcher.findResource(synCtx, resources.values());
+                Resource resource = dispatcher.findResource(synCtx, candidateResources);
                 if (resource != null) {
                     resourceFound = true;
                     String method = (String) msgCtx.getProperty(Constants.Configuration.HTTP_METHOD);
@@ -25,6 +25,7 @@ import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.aspects.flow.statistics.collectors.CloseEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.OpenEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
+import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.rest.RESTConstants;
 import org.apache.synapse.api.version.ContextVersionStrategy;
 import org.apache.synapse.api.version.DefaultStrategy;
@@ -83,6 +84,25 @@ public abstract class AbstractApiHandler {
         return false;
     }
 
+    /**
+     * Get the APIs bound to the given inbound, which may process the message. The APIs whose
+     * contexts cannot match the request path are left out for requests, without matching the path
+     * against the context of each API.
+     *
+     * @param synCtx MessageContext to be dispatched
+     * @param bindTo name of the inbound endpoint the APIs are bound to
+     * @return candidate APIs in the order they are tried
+     */
+    protected Collection<API> getAPIs(MessageContext synCtx, String bindTo) {
+        SynapseConfiguration synapseConfiguration = synCtx.getEnvironment().getSynapseConfiguration();
+        Collection<API> apis = synapseConfiguration.getAPIs(bindTo);
+        if (apis.isEmpty() || synCtx.isResponse()
+                || synCtx.getProperty(RESTConstants.IS_PROMETHEUS_ENGAGED) != null) {
+            return apis;
+        }
+        return synapseConfiguration.getAPIs(bindTo, ApiUtils.getFullRequestPath(synCtx));
+    }
+
     protected void apiProcess(MessageContext synCtx, API api) {
         Integer statisticReportingIndex = 0;
         if (RuntimeStatisticCollector.isStatisticsEnabled()) {
@@ -0,0 +1,180 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package org.apache.synapse.api.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trie of path segments, which narrows down the APIs or Resources which may match a request
+ * path without matching the path against each of them. Every value is added with a literal
+ * prefix, which any path the value matches has to start with, and is kept in the trie node of
+ * the complete path segments of that prefix. A prefix whose last segment is known to be
+ * complete, such as an API context, is kept in the node of that segment as well. Looking up a
+ * path walks the segments of the path up to its query and collects the values of every node on
+ * the way, so the cost of a lookup depends on the depth of the path rather than the number of
+ * values in the trie.
+ *
+ * The candidates are returned in the order the values were added, and a value whose prefix
+ * matches the path is never left out. Therefore matching the candidates one after the other
+ * selects the same value as matching all the values in the order they were added.
+ */
+public class PathTrie<T> {
+
+    private final Node<T> root = new Node<T>();
+
+    private int size = 0;
+
+    /**
+     * Add a value to the trie
+     *
+     * @param prefix literal prefix of the paths matched by the value, or an empty string if the
+     *               value may match any path
+     * @param value value to be added
+     */
+    public void add(String prefix, T value) {
+        add(prefix, false, value);
+    }
+
+    /**
+     * Add a value to the trie
+     *
+     * @param prefix literal prefix of the paths matched by the value, or an empty string if the
+     *               value may match any path
+     * @param complete whether the last segment of the prefix is a complete path segment, which is
+     *                 followed by '/', '?' or the end of any path matched by the value
+     * @param value value to be added
+     */
+    public void add(String prefix, boolean complete, T value) {
+        // the segments of a path end at its query
+        int query = prefix.indexOf('?');
+        if (query >= 0) {
+            prefix = prefix.substring(0, query);
+            complete = false;
+        }
+        Node<T> node = root;
+        int start = 0;
+        int end = prefix.lastIndexOf('/') + 1;
+        for (int i = 0; i < end; i++) {
+            if (prefix.charAt(i) == '/') {
+                node = node.getOrCreateChild(prefix.substring(start, i));
+                start = i + 1;
+            }
+        }
+        Entry<T> entry = new Entry<T>(size++, value);
+        if (complete && end < prefix.length()) {
+            node.getOrCreateChild(prefix.substring(end)).completeValues.add(entry);
+        } else {
+            node.values.add(entry);
+        }
+    }
+
+    /**
+     * Find the values which may match the given path
+     *
+     * @param path request path
+     * @return candidate values in the order they were added to the trie
+     */
+    public List<T> getCandidates(String path) {
+        List<Entry<T>> entries = new ArrayList<Entry<T>>();
+        int lists = 0;
+        Node<T> node = root;
+        int start = 0;
+        while (true) {
+            if (!node.values.isEmpty()) {
+                entries.addAll(node.values);
+                lists++;
+            }
+            if (node.children == null) {
+                break;
+            }
+            int end = start;
+            while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '?') {
+                end++;
+            }
+            Node<T> child = node.children.get(path.substring(start, end));
+            if (child == null) {
+                break;
+            }
+            if (!child.completeValues.isEmpty()) {
+                entries.addAll(child.completeValues);
+                lists++;
+            }
+            if (end == path.length() || path.charAt(end) == '?') {
+                break;
+            }
+            node = child;
+            start = end + 1;
+        }
+
+        if (lists > 1) {
+            Collections.sort(entries);
+        }
+        List<T> candidates = new ArrayList<T>(entries.size());
+        for (Entry<T> entry : entries) {
+            candidates.add(entry.value);
+        }
+        return candidates;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static class Node<T> {
+
+        private Map<String,Node<T>> children;
+
+        private final List<Entry<T>> values = new ArrayList<Entry<T>>(1);
+
+        /* values whose prefixes end with the segment of this node */
+        private final List<Entry<T>> completeValues = new ArrayList<Entry<T>>(1);
+
+        private Node<T> getOrCreateChild(String segment) {
+            if (children == null) {
+                children = new HashMap<String,Node<T>>();
+            }
+            Node<T> child = children.get(segment);
+            if (child == null) {
+                child = new Node<T>();
+                children.put(segment, child);
+            }
+            return child;
+        }
+    }
+
+    private static class Entry<T> implements Comparable<Entry<T>> {
+
+        private final int index;
+
+        private final T value;
+
+        private Entry(int index, T value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        public int compareTo(Entry<T> other) {
+            return index < other.index ? -1 : (index == other.index ? 0 : 1);
+        }
+    }
+}
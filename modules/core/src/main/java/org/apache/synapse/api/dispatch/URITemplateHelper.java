@@ -44,4 +44,25 @@ public class URITemplateHelper implements DispatcherHelper {
     public String getString() {
         return templateString;
     }
+
+    /**
+     * Returns the literal text any URI matched by the template starts with, which is the part of
+     * the template before its first expression or trailing wildcard.
+     *
+     * @return the literal prefix of the template
+     */
+    public String getLiteralPrefix() {
+        String prefix = templateString;
+        if (!"/".equals(prefix) && prefix.endsWith("/")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        int index = prefix.indexOf('{');
+        if (index >= 0) {
+            prefix = prefix.substring(0, index);
+        }
+        if (prefix.endsWith("*")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        return prefix;
+    }
 }
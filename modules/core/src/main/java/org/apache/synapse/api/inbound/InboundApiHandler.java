@@ -68,7 +68,7 @@ public class InboundApiHandler extends AbstractApiHandler {
     protected boolean dispatchToAPI(MessageContext synCtx) {
         Object apiCaller = synCtx.getProperty(ApiConstants.API_CALLER);
         if (apiCaller != null) {
-            Collection<API> apis = synCtx.getEnvironment().getSynapseConfiguration().getAPIs(apiCaller.toString());
+            Collection<API> apis = getAPIs(synCtx, apiCaller.toString());
             if (!apis.isEmpty()) {
                 return dispatchToAPI(apis, synCtx);
             }
@@ -83,8 +83,7 @@ public class RestRequestHandler extends AbstractApiHandler {
         if (apiObject != null) {
             apis = Collections.singletonList((API) apiObject);
         } else {
-            apis = synCtx.getEnvironment().getSynapseConfiguration().getAPIs(
-                    ApiConstants.DEFAULT_BINDING_ENDPOINT_NAME);
+            apis = getAPIs(synCtx, ApiConstants.DEFAULT_BINDING_ENDPOINT_NAME);
         }
         if (!apis.isEmpty()) {
             return dispatchToAPI(apis, synCtx);
@@ -220,18 +220,29 @@ public abstract class RuntimeStatisticCollector {
     }
 
     /**
-     * Helper method to add event and increment stat count so that it denotes, open event is added.
+     * Returns the holder of the events of the message flow, creating it for the first event of the flow.
      *
-     * @param messageContext
-     * @param event
+     * @param messageContext synapse message context.
+     * @return event holder of the message flow.
      */
-    protected static void addEventAndIncrementCount(MessageContext messageContext, StatisticsReportingEvent event) {
+    private static StatisticsReportingEventHolder getEventHolder(MessageContext messageContext) {
         StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
         if (eventHolder == null) {
             eventHolder = new StatisticsReportingEventHolder();
             eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
             messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
         }
+        return eventHolder;
+    }
+
+    /**
+     * Helper method to add event and increment stat count so that it denotes, open event is added.
+     *
+     * @param messageContext
+     * @param event
+     */
+    protected static void addEventAndIncrementCount(MessageContext messageContext, StatisticsReportingEvent event) {
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
             return;
@@ -249,18 +260,13 @@ public abstract class RuntimeStatisticCollector {
      * @param event
      */
     protected static void addEventAndDecrementCount(MessageContext messageContext, StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
 
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
             return;
         }
-        event.getDataUnit().generateElasticMetadata(messageContext);
+        event.getDataUnit().setElasticMetadata(eventHolder.getElasticMetadata(messageContext));
         eventHolder.addEvent(event);
 
         if (eventHolder.countHolder.decrementAndGetStatCount() <= 0 &&
@@ -292,12 +298,7 @@ public abstract class RuntimeStatisticCollector {
      */
     protected static void addEventAndIncrementCallbackCount(MessageContext messageContext,
                                                             StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
 
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
@@ -317,17 +318,12 @@ public abstract class RuntimeStatisticCollector {
      */
     protected static void addEventAndDecrementCallbackCount(MessageContext messageContext,
                                                             StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
             return;
         }
-        event.getDataUnit().generateElasticMetadata(messageContext);
+        event.getDataUnit().setElasticMetadata(eventHolder.getElasticMetadata(messageContext));
         eventHolder.addEvent(event);
 
         if (eventHolder.countHolder.decrementAndGetCallbackCount() <= 0 && eventHolder.countHolder.getStatCount() <= 0) {
@@ -345,12 +341,7 @@ public abstract class RuntimeStatisticCollector {
      * @param event
      */
     protected static void addEvent(MessageContext messageContext, StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
 
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
@@ -366,13 +357,8 @@ public abstract class RuntimeStatisticCollector {
      * @param event
      */
     protected static void addEventAndCloseFlow(MessageContext messageContext, StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
-        event.getDataUnit().generateElasticMetadata(messageContext);
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
+        event.getDataUnit().setElasticMetadata(eventHolder.getElasticMetadata(messageContext));
 
         synchronized (eventHolder) {
             if (eventHolder.isEvenCollectionFinished()) {
@@ -117,4 +117,8 @@ public class BasicStatisticDataUnit {
 	public ElasticMetadata getElasticMetadata() {
 		return elasticMetadata;
 	}
+
+	public void setElasticMetadata(ElasticMetadata elasticMetadata) {
+		this.elasticMetadata = elasticMetadata;
+	}
 }
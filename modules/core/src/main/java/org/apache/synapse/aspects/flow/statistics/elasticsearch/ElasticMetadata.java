@@ -44,6 +44,21 @@ public class ElasticMetadata {
         this.contextProperties = ((Axis2MessageContext) msgCtx).getProperties();
     }
 
+    /**
+     * Check whether this metadata, captured earlier from the given message context, still holds the state which
+     * would be captured from it now. The properties are not compared as they are a view of the properties of the
+     * message context.
+     *
+     * @param msgCtx synapse message context this metadata was captured from
+     * @return true if this metadata can be used for the message context in place of new metadata
+     */
+    public boolean isCurrent(MessageContext msgCtx) {
+        return synapseConfiguration == msgCtx.getConfiguration()
+                && faultResponse == msgCtx.isFaultResponse()
+                && messageId != null && messageId.equals(msgCtx.getMessageID())
+                && contextEntries == msgCtx.getContextEntries();
+    }
+
     public SynapseConfiguration getSynapseConfiguration() {
         return synapseConfiguration;
     }
@@ -17,20 +17,38 @@
 */
 package org.apache.synapse.aspects.flow.statistics.log;
 
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.aspects.flow.statistics.elasticsearch.ElasticMetadata;
+
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * This class is to hold events and stat count information before starting processing events.
  */
 public class StatisticsReportingEventHolder {
+
+    private static final int INITIAL_EVENT_LOG_SIZE = 16;
+
+    /**
+     * Log of the events accumulated before processing happens. Events are appended to an array which grows as
+     * needed, so that adding an event does not allocate a node as a linked queue does, and are removed from the
+     * head by advancing the read position.
+     */
+    private StatisticsReportingEvent[] events = new StatisticsReportingEvent[INITIAL_EVENT_LOG_SIZE];
+
     /**
-     * Queue to accumulate events, before processing happens.
+     * Position of the next event to be removed from the log.
      */
-    private Queue<StatisticsReportingEvent> eventQueue;
+    private int head = 0;
+
+    /**
+     * Position at which the next event is added to the log.
+     */
+    private int tail = 0;
+
     /**
      * Count holder which keeps stat count and callback counts.
      */
@@ -45,25 +63,72 @@ public class StatisticsReportingEventHolder {
      */
     private boolean publishMediationFlowStatistics;
 
+    /**
+     * Elastic metadata of the last closing event, shared with the following closing events of the same message
+     * context while the state it captures is unchanged.
+     */
+    private ElasticMetadata elasticMetadata;
+
+    /**
+     * The message context the elastic metadata was captured from, which is not kept alive by this holder.
+     */
+    private WeakReference<MessageContext> elasticMetadataContext;
+
     public StatisticsReportingEventHolder() {
-        eventQueue = new ConcurrentLinkedQueue<StatisticsReportingEvent>();
         countHolder = new StatisticsReportingCountHolder();
     }
 
-    public void addEvent(StatisticsReportingEvent event) {
-        this.eventQueue.add(event);
+    public synchronized void addEvent(StatisticsReportingEvent event) {
+        if (tail == events.length) {
+            if (head > 0) {
+                // reuse the space of the removed events before growing the log
+                System.arraycopy(events, head, events, 0, tail - head);
+                Arrays.fill(events, tail - head, tail, null);
+                tail -= head;
+                head = 0;
+            }
+            if (tail == events.length) {
+                events = Arrays.copyOf(events, events.length * 2);
+            }
+        }
+        events[tail++] = event;
+    }
+
+    public synchronized StatisticsReportingEvent deQueueEvent() {
+        if (head == tail) {
+            return null;
+        }
+        StatisticsReportingEvent event = events[head];
+        events[head++] = null;
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+        return event;
     }
 
-    public StatisticsReportingEvent deQueueEvent() {
-        return eventQueue.poll();
+    public synchronized List<StatisticsReportingEvent> getEventList() {
+        return new ArrayList<>(Arrays.asList(events).subList(head, tail));
     }
 
-    public List<StatisticsReportingEvent> getEventList() {
-        return new ArrayList<>(eventQueue);
+    public synchronized int getQueueSize() {
+        return tail - head;
     }
 
-    public int getQueueSize() {
-        return this.eventQueue.size();
+    /**
+     * Returns the elastic metadata of the message at a closing event. The metadata of the previous closing event is
+     * returned if it still describes the message, instead of creating new metadata for every closing event.
+     *
+     * @param messageContext synapse message context.
+     * @return elastic metadata of the message
+     */
+    public synchronized ElasticMetadata getElasticMetadata(MessageContext messageContext) {
+        if (elasticMetadata == null || elasticMetadataContext.get() != messageContext
+                || !elasticMetadata.isCurrent(messageContext)) {
+            elasticMetadata = new ElasticMetadata(messageContext);
+            elasticMetadataContext = new WeakReference<>(messageContext);
+        }
+        return elasticMetadata;
     }
 
     public boolean isEvenCollectionFinished() {
@@ -22,32 +22,42 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.aspects.flow.statistics.log.StatisticsReportingEventHolder;
 import org.apache.synapse.aspects.flow.statistics.util.StatisticsConstants;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.util.concurrent.BoundedRingBuffer;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * MessageDataCollector contains the non-blocking queue and utility methods to store and retrieve elements from the
- * queue.
+ * queue. The queue is a bounded ring buffer, so that admitting an event holder takes constant time even when the
+ * queue is full, and the numbers of event holders dropped by the eviction policy are exposed over JMX.
  */
 public class MessageDataStore {
 
     private static Log log = LogFactory.getLog(MessageDataStore.class);
+
     /**
      * Queue which holds event holder objects with collected events.
      */
-    private Queue<StatisticsReportingEventHolder> queue;
+    private BoundedRingBuffer<StatisticsReportingEventHolder> queue;
+
+    private boolean dropOldMessages;
+
+    private final LongAdder droppedNewMessages = new LongAdder();
 
-    private String queueEvictionPolicy;
-    private long maxStaticsReportingQueueSize;
+    private final LongAdder droppedOldMessages = new LongAdder();
 
     public MessageDataStore(SynapseConfiguration synCfg) {
-        queue = new ConcurrentLinkedQueue<>();
-        queueEvictionPolicy = synCfg.getProperty(StatisticsConstants.STATISTIC_REPORTING_QUEUE_EVICTION_POLICY,
-                                                 StatisticsConstants.QUEUE_EVICTION_POLICY_NEW_MESSAGES);
-        maxStaticsReportingQueueSize = synCfg.getProperty(StatisticsConstants.STATISTIC_REPORTING_QUEUE_SIZE,
-                                                          StatisticsConstants.MAX_STATISTIC_REPORTING_QUEUE_SIZE);
+        String queueEvictionPolicy = synCfg.getProperty(StatisticsConstants.STATISTIC_REPORTING_QUEUE_EVICTION_POLICY,
+                                                        StatisticsConstants.QUEUE_EVICTION_POLICY_NEW_MESSAGES);
+        long maxStaticsReportingQueueSize = synCfg.getProperty(StatisticsConstants.STATISTIC_REPORTING_QUEUE_SIZE,
+                                                               StatisticsConstants.MAX_STATISTIC_REPORTING_QUEUE_SIZE);
+        dropOldMessages = StatisticsConstants.QUEUE_EVICTION_POLICY_OLD_MESSAGES.equals(queueEvictionPolicy);
+        queue = new BoundedRingBuffer<>((int) Math.max(1, Math.min(maxStaticsReportingQueueSize, Integer.MAX_VALUE)));
+        MBeanRegistrar.getInstance().registerMBean(new MessageDataStoreView(this),
+                                                  "StatisticsReporting", "MessageDataStore");
     }
 
     /**
@@ -56,22 +66,23 @@ public class MessageDataStore {
      * @param statisticsReportingEventHolder StatisticReportingLog to be stored in the queue
      */
     public void enqueue(StatisticsReportingEventHolder statisticsReportingEventHolder) {
-        if (queue.size() > maxStaticsReportingQueueSize) {
-            // This will does not add anymore
-            if (queueEvictionPolicy.equals(StatisticsConstants.QUEUE_EVICTION_POLICY_NEW_MESSAGES)) {
-                log.warn("Dropping new statistic messages since the queue is full");
-                return;
-            } else if (queueEvictionPolicy.equals(StatisticsConstants.QUEUE_EVICTION_POLICY_OLD_MESSAGES)) {
-                // This will dequeue old messages and enqueue new messages
-                log.warn("Dropping old statistic messages since the queue is full");
-                queue.poll();
-            }
-        }
         try {
             if (log.isDebugEnabled()) {
                 log.debug("Adding eventHolder: " + statisticsReportingEventHolder);
             }
-            queue.add(statisticsReportingEventHolder);
+            while (!queue.offer(statisticsReportingEventHolder)) {
+                if (!dropOldMessages) {
+                    // This will does not add anymore
+                    droppedNewMessages.increment();
+                    log.warn("Dropping new statistic messages since the queue is full");
+                    return;
+                }
+                // This will dequeue old messages and enqueue new messages
+                if (queue.poll() != null) {
+                    droppedOldMessages.increment();
+                    log.warn("Dropping old statistic messages since the queue is full");
+                }
+            }
         } catch (Exception e) {
             log.error("Error adding statistic event holder to the Queue. Dropping statistics events.");
         }
@@ -95,4 +106,39 @@ public class MessageDataStore {
         }
     }
 
+    /**
+     * Removes a batch of StatisticsReportingEventHolders from the queue, so that a publisher can publish them
+     * together
+     *
+     * @param eventHolders collection to which the event holders are added in the order they were queued
+     * @param maxEventHolders maximum number of event holders to be removed
+     * @return the number of event holders removed
+     */
+    public int dequeue(Collection<StatisticsReportingEventHolder> eventHolders, int maxEventHolders) {
+        if (log.isDebugEnabled()) {
+            log.debug("Polling up to " + maxEventHolders + " statistics event holder objects from the Queue");
+        }
+        return queue.drainTo(eventHolders, maxEventHolders);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.getCapacity();
+    }
+
+    public long getDroppedNewMessageCount() {
+        return droppedNewMessages.sum();
+    }
+
+    public long getDroppedOldMessageCount() {
+        return droppedOldMessages.sum();
+    }
+
+    public void resetDropCounts() {
+        droppedNewMessages.reset();
+        droppedOldMessages.reset();
+    }
 }
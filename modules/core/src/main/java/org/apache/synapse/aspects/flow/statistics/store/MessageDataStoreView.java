@@ -0,0 +1,49 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.aspects.flow.statistics.store;
+
+public class MessageDataStoreView implements MessageDataStoreViewMBean {
+
+    private final MessageDataStore messageDataStore;
+
+    public MessageDataStoreView(MessageDataStore messageDataStore) {
+        this.messageDataStore = messageDataStore;
+    }
+
+    public int getQueueDepth() {
+        return messageDataStore.getQueueDepth();
+    }
+
+    public int getQueueCapacity() {
+        return messageDataStore.getQueueCapacity();
+    }
+
+    public long getDroppedNewMessageCount() {
+        return messageDataStore.getDroppedNewMessageCount();
+    }
+
+    public long getDroppedOldMessageCount() {
+        return messageDataStore.getDroppedOldMessageCount();
+    }
+
+    public void resetDropCounts() {
+        messageDataStore.resetDropCounts();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config;
+
+/**
+ * The version of an {@link Entry} which a resource, such as a compiled XSLT template, XQuery or
+ * script, was created from. It is kept with the resource, to find out whether the resource has to
+ * be created again when the entry changes.
+ */
+public final class EntryVersion {
+
+    /** The version of a resource which is not created from an entry, such as an in-lined one */
+    public static final EntryVersion NONE = new EntryVersion(null, Long.MIN_VALUE);
+
+    private final Entry entry;
+
+    private final long version;
+
+    private EntryVersion(Entry entry, long version) {
+        this.entry = entry;
+        this.version = version;
+    }
+
+    /**
+     * Take the current version of an entry. Looking up the entry through the message context
+     * reloads it from the registry if it is a dynamic entry that has expired, so the entry has to
+     * be looked up before its version is taken.
+     *
+     * @param entry the definition of the entry, or null if it is not defined
+     * @return the current version of the entry
+     */
+    public static EntryVersion of(Entry entry) {
+        return entry != null ? new EntryVersion(entry, entry.getVersion()) : NONE;
+    }
+
+    /**
+     * Whether a resource created from this version is still up to date with the given definition
+     * of the entry, without looking the entry up. A dynamic entry whose cache has expired has to
+     * be looked up again to find out.
+     *
+     * @param current the current definition of the entry
+     * @return true if the resource can be used as it is
+     */
+    public boolean isValid(Entry current) {
+        return current == entry &&
+                (current == null || !current.isDynamic() || (current.isCached() && !current.isExpired()));
+    }
+
+    /**
+     * Whether this is the same known version of the same entry as the given version
+     *
+     * @param current the current version of the entry, taken once it was looked up
+     * @return true if the entry has not changed since the resource was created
+     */
+    public boolean isSameVersion(EntryVersion current) {
+        return current.entry == entry && current.version != Long.MIN_VALUE && current.version == version;
+    }
+}
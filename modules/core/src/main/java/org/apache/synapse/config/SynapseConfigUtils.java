@@ -761,6 +761,24 @@ public class SynapseConfigUtils {
 
     }
 
+    public static boolean isCallbackTimingWheelEnabled() {
+        return Boolean.parseBoolean(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.CALLBACK_TIMING_WHEEL_ENABLED,
+                String.valueOf(SynapseConstants.DEFAULT_CALLBACK_TIMING_WHEEL_ENABLED)));
+    }
+
+    public static long getCallbackTimingWheelTick() {
+        return Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.CALLBACK_TIMING_WHEEL_TICK,
+                String.valueOf(SynapseConstants.DEFAULT_CALLBACK_TIMING_WHEEL_TICK)));
+    }
+
+    public static int getCallbackTimingWheelSize() {
+        return Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.CALLBACK_TIMING_WHEEL_SIZE,
+                String.valueOf(SynapseConstants.DEFAULT_CALLBACK_TIMING_WHEEL_SIZE)));
+    }
+
     public static long getGlobalTimeoutInterval() {
         return Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
                 SynapseConstants.GLOBAL_TIMEOUT_INTERVAL,
@@ -34,6 +34,7 @@ import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.api.API;
 import org.apache.synapse.api.ApiConstants;
+import org.apache.synapse.api.dispatch.PathTrie;
 import org.apache.synapse.api.inbound.InboundApiUtils;
 import org.apache.synapse.aspects.flow.statistics.store.CompletedStructureStore;
 import org.apache.synapse.carbonext.TenantInfoConfigProvider;
@@ -216,6 +217,12 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     private Map<String, Map<String, API>> apiTableWithBindsTo =
             Collections.synchronizedMap(new LinkedHashMap<String, Map<String, API>>());
 
+    /**
+     * APIs bound to each inbound endpoint, indexed by their contexts. An index is built on the first
+     * lookup after the APIs bound to the inbound endpoint change.
+     */
+    private Map<String, PathTrie<API>> apiTriesWithBindsTo = new HashMap<String, PathTrie<API>>();
+
     /**
      * Description/documentation of the configuration
      */
@@ -458,6 +465,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     }
 
     private void addBindsToMappings(String name, API api) {
+        apiTriesWithBindsTo.clear();
         InboundApiUtils.populateBindsTo(api);
         for (String inboundEndpointName : api.getBindsTo()) {
             if (apiTableWithBindsTo.containsKey(inboundEndpointName)) {
@@ -544,6 +552,39 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         return apis != null ? apis.values() : Collections.emptyList();
     }
 
+    /**
+     * Get the APIs bound to the specified inbound, whose contexts may match the given request path.
+     * The APIs are returned in the same order as {@link #getAPIs(String)}, leaving out the APIs
+     * which cannot process a request to the path.
+     *
+     * @param bindTo Name of inbound/binds-to
+     * @param path   full request path
+     * @return list of APIs bound to the specified inbound, which may process the request
+     */
+    public synchronized Collection<API> getAPIs(String bindTo, String path) {
+        Map<String, API> apis = apiTableWithBindsTo.get(bindTo);
+        if (apis == null) {
+            return Collections.emptyList();
+        }
+        PathTrie<API> trie = apiTriesWithBindsTo.get(bindTo);
+        if (trie == null) {
+            trie = new PathTrie<API>();
+            for (API api : apis.values()) {
+                String context = api.getContext();
+                // an unresolved version variable is not a literal part of the context, otherwise the
+                // context is followed by '/', '?' or the end of the path
+                int index = context.indexOf('{');
+                if (index < 0) {
+                    trie.add(context, true, api);
+                } else {
+                    trie.add(context.substring(0, index), api);
+                }
+            }
+            apiTriesWithBindsTo.put(bindTo, trie);
+        }
+        return trie.getCandidates(path);
+    }
+
     public synchronized API getAPI(String name) {
         return apiTable.get(name);
     }
@@ -562,6 +603,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     }
 
     private void removeBindsToMappings(String apiName) {
+        apiTriesWithBindsTo.clear();
         Iterator<Map.Entry<String, Map<String, API>>> iterator = apiTableWithBindsTo.entrySet().iterator();
         while (iterator.hasNext()) {
             Map.Entry<String, Map<String, API>> mappings = iterator.next();
@@ -2453,6 +2495,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
             duplicateInboundApiMappings.put(mapping.getKey(), reconstructedApis);
         }
         apiTableWithBindsTo = duplicateInboundApiMappings;
+        apiTriesWithBindsTo.clear();
     }
 
 }
@@ -53,6 +53,9 @@ public class AsyncCallback implements AxisCallback {
 
     private SynapseConstants.ENDPOINT_TIMEOUT_TYPE timeoutType;
 
+    /** Registration of this callback in the callback timing wheel, if any */
+    private volatile CallbackTimingWheel.Entry timingWheelEntry;
+
     public AsyncCallback( org.apache.axis2.context.MessageContext messageContext,MessageContext synapseOutMsgCtx) {
         this.synapseOutMsgCtx = synapseOutMsgCtx;
         this.axis2OutMsgCtx = messageContext;
@@ -135,4 +138,12 @@ public class AsyncCallback implements AxisCallback {
     public void setMarkedForRemoval() {
         this.markedForRemoval = true;
     }
+
+    CallbackTimingWheel.Entry getTimingWheelEntry() {
+        return timingWheelEntry;
+    }
+
+    void setTimingWheelEntry(CallbackTimingWheel.Entry timingWheelEntry) {
+        this.timingWheelEntry = timingWheelEntry;
+    }
 }
@@ -0,0 +1,363 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hashed timing wheel which keeps track of the deadlines of the callbacks registered with the
+ * SynapseCallbackReceiver. Registering and cancelling a callback are O(1) operations which only
+ * enqueue the request, and the single worker thread of the wheel only visits the bucket of the
+ * current tick, instead of walking the whole callback store as the TimeoutHandler would do.
+ *
+ * Deadlines longer than one revolution of the wheel are handled by keeping the number of remaining
+ * rounds with each entry, so the accuracy of a timeout is bounded by the tick duration regardless
+ * of the length of the timeout.
+ */
+public class CallbackTimingWheel {
+
+    private static final Log log = LogFactory.getLog(CallbackTimingWheel.class);
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    /**
+     * Invoked by the worker thread of the wheel for each callback whose deadline has passed.
+     */
+    public interface ExpiryHandler {
+
+        /**
+         * Handles the expiry of a callback.
+         *
+         * @param key      the message ID the callback is registered against
+         * @param callback the expired callback
+         */
+        void expire(String key, AsyncCallback callback);
+    }
+
+    private final ExpiryHandler expiryHandler;
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+
+    private final Queue<Entry> pendingEntries = new ConcurrentLinkedQueue<Entry>();
+    private final Queue<Entry> cancelledEntries = new ConcurrentLinkedQueue<Entry>();
+
+    /** Number of entries in each bucket, maintained by the worker thread and read through JMX */
+    private final AtomicIntegerArray bucketCounts;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    private final Thread workerThread;
+    private volatile boolean running = false;
+    private volatile long startTime;
+    private long tick;
+
+    /**
+     * Creates a timing wheel. The number of buckets is rounded up to the next power of two.
+     *
+     * @param expiryHandler handler to be invoked on expired callbacks
+     * @param tickDuration  duration of a single tick in milliseconds
+     * @param wheelSize     number of buckets in the wheel
+     */
+    public CallbackTimingWheel(ExpiryHandler expiryHandler, long tickDuration, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be greater than 0 : " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30 : " + wheelSize);
+        }
+        int normalizedSize = 1;
+        while (normalizedSize < wheelSize) {
+            normalizedSize <<= 1;
+        }
+        this.expiryHandler = expiryHandler;
+        this.tickDuration = tickDuration;
+        this.wheel = new Bucket[normalizedSize];
+        for (int i = 0; i < normalizedSize; i++) {
+            wheel[i] = new Bucket(i);
+        }
+        this.mask = normalizedSize - 1;
+        this.bucketCounts = new AtomicIntegerArray(normalizedSize);
+
+        this.workerThread = new Thread(new Worker(), "synapse-callback-timing-wheel");
+        this.workerThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the worker thread of the wheel, if not already started.
+     */
+    public synchronized void start() {
+        if (!running) {
+            startTime = System.currentTimeMillis();
+            running = true;
+            workerThread.start();
+        }
+    }
+
+    /**
+     * Stops the worker thread of the wheel. Pending callbacks are left untouched.
+     */
+    public synchronized void stop() {
+        running = false;
+        workerThread.interrupt();
+    }
+
+    /**
+     * Registers a callback to be expired once the given deadline has passed.
+     *
+     * @param key      the message ID the callback is registered against
+     * @param callback the callback to be expired
+     * @param deadline the absolute time (as of System.currentTimeMillis()) to expire the callback
+     * @return the entry representing the registration, which can be used to cancel it
+     */
+    public Entry schedule(String key, AsyncCallback callback, long deadline) {
+        Entry entry = new Entry(key, callback, deadline);
+        pendingCount.incrementAndGet();
+        pendingEntries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Cancels the given registration. This is a no-op if the entry has already expired or been
+     * cancelled.
+     *
+     * @param entry the entry returned when the callback was scheduled
+     */
+    public void cancel(Entry entry) {
+        if (entry != null && entry.state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+            pendingCount.decrementAndGet();
+            cancelledCount.incrementAndGet();
+            cancelledEntries.add(entry);
+        }
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    public int getWheelSize() {
+        return wheel.length;
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     * Returns a snapshot of the number of callbacks held in each bucket of the wheel. Callbacks
+     * which are scheduled but not yet transferred to a bucket by the worker thread are not counted.
+     *
+     * @return the number of callbacks in each bucket, indexed by the bucket
+     */
+    public int[] getBucketCounts() {
+        int[] counts = new int[bucketCounts.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = bucketCounts.get(i);
+        }
+        return counts;
+    }
+
+    private final class Worker implements Runnable {
+
+        public void run() {
+            List<Entry> expired = new ArrayList<Entry>();
+            while (running) {
+                if (!waitForNextTick()) {
+                    break;
+                }
+                removeCancelledEntries();
+                transferPendingEntries();
+                wheel[(int) (tick & mask)].collectExpired(expired);
+                tick++;
+
+                for (Entry entry : expired) {
+                    try {
+                        expiryHandler.expire(entry.key, entry.callback);
+                    } catch (Throwable t) {
+                        log.warn("Error occurred while expiring the callback for message ID : " + entry.key, t);
+                    }
+                }
+                expired.clear();
+            }
+        }
+
+        /**
+         * Sleeps until the end of the current tick. Ticks which were missed while expiring
+         * callbacks are processed without sleeping, so the wheel catches up with the clock.
+         *
+         * @return false if the wheel was stopped while waiting
+         */
+        private boolean waitForNextTick() {
+            long deadline = startTime + (tick + 1) * tickDuration;
+            long sleepTime;
+            while ((sleepTime = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    Thread.sleep(sleepTime);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return false;
+                    }
+                }
+            }
+            return running;
+        }
+
+        private void removeCancelledEntries() {
+            Entry entry;
+            while ((entry = cancelledEntries.poll()) != null) {
+                if (entry.bucket != null) {
+                    entry.bucket.remove(entry);
+                }
+            }
+        }
+
+        private void transferPendingEntries() {
+            Entry entry;
+            while ((entry = pendingEntries.poll()) != null) {
+                if (entry.state.get() != STATE_PENDING) {
+                    continue;
+                }
+                long calculated = (entry.deadline - startTime) / tickDuration;
+                entry.remainingRounds = (calculated - tick) / wheel.length;
+                // a deadline which has already passed is expired on the current tick
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(entry);
+            }
+        }
+    }
+
+    /**
+     * A registration of a callback in the wheel.
+     */
+    public static final class Entry {
+
+        private final String key;
+        private final AsyncCallback callback;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+
+        // the following are only accessed by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Entry next;
+        private Entry prev;
+
+        private Entry(String key, AsyncCallback callback, long deadline) {
+            this.key = key;
+            this.callback = callback;
+            this.deadline = deadline;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    /**
+     * A doubly linked list of entries, only accessed by the worker thread.
+     */
+    private final class Bucket {
+
+        private final int index;
+        private Entry head;
+        private Entry tail;
+
+        private Bucket(int index) {
+            this.index = index;
+        }
+
+        private void add(Entry entry) {
+            entry.bucket = this;
+            if (head == null) {
+                head = tail = entry;
+            } else {
+                tail.next = entry;
+                entry.prev = tail;
+                tail = entry;
+            }
+            bucketCounts.incrementAndGet(index);
+        }
+
+        private void collectExpired(List<Entry> expired) {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.remainingRounds <= 0) {
+                    remove(entry);
+                    if (entry.state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+                        pendingCount.decrementAndGet();
+                        expiredCount.incrementAndGet();
+                        expired.add(entry);
+                    }
+                } else {
+                    entry.remainingRounds--;
+                }
+                entry = next;
+            }
+        }
+
+        private void remove(Entry entry) {
+            if (entry.bucket != this) {
+                return;
+            }
+            Entry next = entry.next;
+            if (entry.prev != null) {
+                entry.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = entry.prev;
+            }
+            if (entry == head) {
+                head = next;
+            }
+            if (entry == tail) {
+                tail = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+            bucketCounts.decrementAndGet(index);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+public class CallbackTimingWheelView implements CallbackTimingWheelViewMBean {
+
+    private final CallbackTimingWheel timingWheel;
+
+    public CallbackTimingWheelView(CallbackTimingWheel timingWheel) {
+        this.timingWheel = timingWheel;
+    }
+
+    public int getPendingCallbackCount() {
+        return timingWheel.getPendingCount();
+    }
+
+    public int[] getBucketCallbackCounts() {
+        return timingWheel.getBucketCounts();
+    }
+
+    public int getMaxBucketCallbackCount() {
+        int max = 0;
+        for (int count : timingWheel.getBucketCounts()) {
+            if (count > max) {
+                max = count;
+            }
+        }
+        return max;
+    }
+
+    public long getExpiredCallbackCount() {
+        return timingWheel.getExpiredCount();
+    }
+
+    public long getCancelledCallbackCount() {
+        return timingWheel.getCancelledCount();
+    }
+
+    public long getTickDuration() {
+        return timingWheel.getTickDuration();
+    }
+
+    public int getWheelSize() {
+        return timingWheel.getWheelSize();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+/**
+ * JMX view of the timing wheel which keeps track of the callback timeouts.
+ */
+public interface CallbackTimingWheelViewMBean {
+
+    /**
+     * @return the number of callbacks waiting for either a response or a timeout
+     */
+    int getPendingCallbackCount();
+
+    /**
+     * @return the number of callbacks held in each bucket of the wheel
+     */
+    int[] getBucketCallbackCounts();
+
+    /**
+     * @return the number of callbacks in the most loaded bucket of the wheel
+     */
+    int getMaxBucketCallbackCount();
+
+    /**
+     * @return the number of callbacks expired by the wheel since startup
+     */
+    long getExpiredCallbackCount();
+
+    /**
+     * @return the number of callbacks cancelled on response since startup
+     */
+    long getCancelledCallbackCount();
+
+    long getTickDuration();
+
+    int getWheelSize();
+}
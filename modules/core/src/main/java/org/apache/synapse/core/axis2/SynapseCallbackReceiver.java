@@ -43,6 +43,7 @@ import org.apache.synapse.aspects.flow.statistics.collectors.CallbackStatisticCo
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.carbonext.TenantInfoConfigurator;
 import org.apache.synapse.commons.CorrelationConstants;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.commons.throttle.core.ConcurrentAccessController;
 import org.apache.synapse.commons.throttle.core.ConcurrentAccessReplicator;
 import org.apache.synapse.config.SynapseConfigUtils;
@@ -51,6 +52,7 @@ import org.apache.synapse.endpoints.AbstractEndpoint;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.FailoverEndpoint;
 import org.apache.synapse.endpoints.OAuthConfiguredHTTPEndpoint;
+import org.apache.synapse.endpoints.algorithms.EndpointLoadTracker;
 import org.apache.synapse.endpoints.dispatch.Dispatcher;
 import org.apache.synapse.endpoints.auth.oauth.MessageCache;
 import org.apache.synapse.endpoints.auth.oauth.OAuthUtils;
@@ -82,6 +84,15 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
 
     private static final Log log = LogFactory.getLog(SynapseCallbackReceiver.class);
 
+    private static final String TIMING_WHEEL_MBEAN_CATEGORY = "SynapseCallbackReceiver";
+    private static final String TIMING_WHEEL_MBEAN_ID = "CallbackTimingWheel";
+
+    /** Tracks the deadlines of the callbacks, null if the callback store is swept instead */
+    private CallbackTimingWheel timingWheel;
+
+    /** Time after which a callback without a timeout is cleared when tracked by the timing wheel */
+    private long unsetTimeoutInterval;
+
     /**
      * Create the *single* instance of this class that would be used by all anonymous services
      * used for outgoing messaging.
@@ -91,16 +102,43 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
     public SynapseCallbackReceiver(SynapseConfiguration synCfg,
                                    ServerContextInformation contextInformation) {
 
+        long timeoutHandlerInterval = SynapseConfigUtils.getTimeoutHandlerInterval();
+        boolean timingWheelEnabled = SynapseConfigUtils.isCallbackTimingWheelEnabled();
+
         // create the Timer object and a TimeoutHandler task
-        TimeoutHandler timeoutHandler = new TimeoutHandler(callbackStore, contextInformation);
-        
+        TimeoutHandler timeoutHandler = new TimeoutHandler(callbackStore, contextInformation, !timingWheelEnabled);
+
+        if (timingWheelEnabled) {
+            // callbacks are expired by the timing wheel, while the timeout handler only clears
+            // the expired SAL sessions
+            unsetTimeoutInterval = timeoutHandlerInterval;
+            timingWheel = new CallbackTimingWheel(timeoutHandler::expire,
+                    SynapseConfigUtils.getCallbackTimingWheelTick(),
+                    SynapseConfigUtils.getCallbackTimingWheelSize());
+            timingWheel.start();
+            MBeanRegistrar.getInstance().registerMBean(new CallbackTimingWheelView(timingWheel),
+                    TIMING_WHEEL_MBEAN_CATEGORY, TIMING_WHEEL_MBEAN_ID);
+            log.info("Callback timeouts are tracked by a timing wheel of " + timingWheel.getWheelSize()
+                    + " buckets with a tick duration of " + timingWheel.getTickDuration() + "ms");
+        }
+
         Timer timeOutTimer = synCfg.getSynapseTimer();
-        long timeoutHandlerInterval = SynapseConfigUtils.getTimeoutHandlerInterval();
 
         // schedule timeout handler to run every n seconds (n : specified or defaults to 15s)
         timeOutTimer.schedule(timeoutHandler, 0, timeoutHandlerInterval);
     }
 
+    /**
+     * Stops the timing wheel which tracks the deadlines of the callbacks, if there is one, and
+     * unregisters its MBean. This is invoked when the server is shut down.
+     */
+    public synchronized void destroy() {
+        if (timingWheel != null) {
+            timingWheel.stop();
+            MBeanRegistrar.getInstance().unRegisterMBean(TIMING_WHEEL_MBEAN_CATEGORY, TIMING_WHEEL_MBEAN_ID);
+        }
+    }
+
     public int getCallbackCount() {
         return callbackStore.size();
     }
@@ -110,12 +148,34 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
         if (log.isDebugEnabled()) {
             log.debug("Callback added. Total callbacks waiting for : " + callbackStore.size());
         }
-        org.apache.synapse.MessageContext synCtx = ((AsyncCallback) callback).getSynapseOutMsgCtx();
+        AsyncCallback asyncCallback = (AsyncCallback) callback;
+        if (timingWheel != null) {
+            long deadline = asyncCallback.getTimeOutOn();
+            if (deadline <= 0) {
+                // a timeout is not set for out only messages, these were cleared by the next
+                // run of the timeout handler
+                deadline = System.currentTimeMillis() + unsetTimeoutInterval;
+            }
+            asyncCallback.setTimingWheelEntry(timingWheel.schedule(MsgID, asyncCallback, deadline));
+        }
+        org.apache.synapse.MessageContext synCtx = asyncCallback.getSynapseOutMsgCtx();
         if (RuntimeStatisticCollector.isStatisticsEnabled()) {
             CallbackStatisticCollector.addCallback(synCtx, MsgID);
         }
     }
 
+    /**
+     * Cancels the timeout of a callback which has been removed from the callback store on
+     * receiving a response.
+     *
+     * @param callback the removed callback
+     */
+    private void cancelTimeout(AsyncCallback callback) {
+        if (timingWheel != null && callback != null) {
+            timingWheel.cancel(callback.getTimingWheelEntry());
+        }
+    }
+
     /**
      * Everytime a response message is received this method gets invoked. It will then select
      * the outgoing *Synapse* message context for the reply we received, and determine what action
@@ -146,6 +206,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                 messageCtx.getProperty(NhttpConstants.HTTP_202_RECEIVED))) {
             if (callbackStore.containsKey(messageCtx.getMessageID())) {
                 AsyncCallback callback = (AsyncCallback) callbackStore.remove(messageCtx.getMessageID());
+                cancelTimeout(callback);
                 if (RuntimeStatisticCollector.isStatisticsEnabled()) {
                     CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(),
                             messageCtx.getMessageID());
@@ -176,6 +237,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
 
         if (messageID != null) {
             AsyncCallback callback = (AsyncCallback)callbackStore.remove(messageID);
+            cancelTimeout(callback);
             if (log.isDebugEnabled()) {
                 log.debug("Callback removed for request message id : " + messageID +
                         ". Pending callbacks count : " + callbackStore.size());
@@ -356,6 +418,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                                       ". Ignoring fault handlers since the timeout action is DISCARD");
                         }
                         faultStack.removeAllElements();
+                        EndpointLoadTracker.completeAll(synapseOutMsgCtx, false);
                 }
                 else{
                     ((FaultHandler) faultStack.pop()).handleFault(synapseOutMsgCtx, null);
@@ -372,6 +435,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                 && faultStack.peek() instanceof Endpoint) {
                 successfulEndpoint = (Endpoint) faultStack.pop();
             }
+            EndpointLoadTracker.completeAll(synapseOutMsgCtx, true);
 
             if (log.isDebugEnabled()) {
                 log.debug("Synapse received an asynchronous response message");
@@ -31,6 +31,7 @@ import org.apache.synapse.aspects.flow.statistics.collectors.CallbackStatisticCo
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.commons.CorrelationConstants;
 import org.apache.synapse.config.SynapseConfigUtils;
+import org.apache.synapse.endpoints.algorithms.EndpointLoadTracker;
 import org.apache.synapse.endpoints.dispatch.SALSessions;
 import org.apache.synapse.commons.logger.ContextAwareLogger;
 import org.apache.synapse.rest.RESTConstants;
@@ -68,10 +69,25 @@ public class TimeoutHandler extends TimerTask {
     private long globalTimeout = SynapseConstants.DEFAULT_GLOBAL_TIMEOUT;
     private static final String SEND_TIMEOUT_MESSAGE = "Send timeout";
     private ServerContextInformation contextInfo = null;
+    /** Whether the callback store should be walked to find expired callbacks on each run */
+    private final boolean sweepCallbacks;
 
     public TimeoutHandler(Map callbacks, ServerContextInformation contextInfo) {
+        this(callbacks, contextInfo, true);
+    }
+
+    /**
+     * Creates a timeout handler.
+     *
+     * @param callbacks      the callback store of the SynapseCallbackReceiver
+     * @param contextInfo    server runtime information
+     * @param sweepCallbacks false if the callbacks are expired through the CallbackTimingWheel, in
+     *                       which case this only clears the expired SAL sessions on each run
+     */
+    public TimeoutHandler(Map callbacks, ServerContextInformation contextInfo, boolean sweepCallbacks) {
         this.callbackStore = callbacks;
         this.contextInfo = contextInfo;
+        this.sweepCallbacks = sweepCallbacks;
         this.globalTimeout = SynapseConfigUtils.getGlobalTimeoutInterval();
         log.info("This engine will expire all callbacks after " +
                 SynapseConstants.ENDPOINT_TIMEOUT_TYPE.GLOBAL_TIMEOUT.toString() + ": " + (globalTimeout / 1000) +
@@ -105,6 +121,12 @@ public class TimeoutHandler extends TimerTask {
         //clear all the expired sessions
         SALSessions.getInstance().clearSessions();
 
+        // callbacks are expired by the CallbackTimingWheel, hence there is no need to walk
+        // through the callback store
+        if (!sweepCallbacks) {
+            return;
+        }
+
         // checks if callback store contains at least one entry before proceeding. otherwise getting
         // the time for doing nothing would be a inefficient task.
 
@@ -130,112 +152,147 @@ public class TimeoutHandler extends TimerTask {
                     }
 
                     if (callback.getTimeOutOn() <= currentTime) {
-
-                        synchronized (callback) {
-                            if (callback.isMarkedForRemoval()) {
-                                continue;
-                            }
-                            callback.setMarkedForRemoval();
+                        if (expireCallback(key, callback)) {
                             toRemove.add(key);
                         }
-                        if (!"true".equals(callback.getSynapseOutMsgCtx().getProperty(SynapseConstants.OUT_ONLY))) {
-                            org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
-                            ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                    .warn("Expiring message ID : " + key + "; dropping message after "
-                                            + callback.getTimeoutType().toString() + " of : "
-                                            + (callback.getTimeoutDuration() / 1000) + " seconds for "
-                                            + getEndpointLogMessage(callback.getSynapseOutMsgCtx(),
-                                            callback.getAxis2OutMsgCtx()) + ", "
-                                            + getServiceLogMessage(callback.getSynapseOutMsgCtx())
-                                            + "Correlation ID : " + callback.getAxis2OutMsgCtx().getProperty(
-                                            CorrelationConstants.CORRELATION_ID));
-                        }
-
-                        if (callback.getTimeOutAction() != SynapseConstants.NONE) {
-
-                            // activate the fault sequence of the current sequence mediator
-                            MessageContext msgContext = callback.getSynapseOutMsgCtx();
-                            org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
-
-                            /* Clear the pipe to prevent release of the associated writer buffer
-                               to the buffer factory.
-                               This is to prevent same buffer is getting released to both source
-                               and target buffer factories. Otherwise when a late response arrives,
-                               buffer is released to both factories and makes system unstable
-                            */
-                            ((Axis2MessageContext) msgContext).getAxis2MessageContext().
-                                    removeProperty(PassThroughConstants.PASS_THROUGH_PIPE);
-
-                            // add an error code to the message context, so that error sequences
-                            // can identify the cause of error
-                            msgContext.setProperty(SynapseConstants.ERROR_CODE,
-                                                   SynapseConstants.HANDLER_TIME_OUT);
-                            msgContext.setProperty(SynapseConstants.ERROR_MESSAGE,
-                                                   SEND_TIMEOUT_MESSAGE);
-
-                            /* Clear the NO_KEEPALIVE property to prevent closing response connection when going through
-                               the fault sequence due to end point time out. Since the axis2 message context used here
-                               is the same axis2 message context used in request path and the intention of this property
-                               is to Disable HTTP keep alive for outgoing requests. If it is required this can be put
-                               in fault sequence.
-                            */
-                            ((Axis2MessageContext) msgContext).getAxis2MessageContext().
-                                    removeProperty(PassThroughConstants.NO_KEEPALIVE);
-
-                            SOAPEnvelope soapEnvelope;
-                            if (msgContext.isSOAP11()) {
-                                soapEnvelope = OMAbstractFactory.
-                                        getSOAP11Factory().createSOAPEnvelope();
-                                soapEnvelope.addChild(
-                                        OMAbstractFactory.getSOAP11Factory().createSOAPBody());
-                            } else {
-                                soapEnvelope = OMAbstractFactory.
-                                        getSOAP12Factory().createSOAPEnvelope();
-                                soapEnvelope.addChild(
-                                        OMAbstractFactory.getSOAP12Factory().createSOAPBody());
-                            }
-                            try {
-                                msgContext.setEnvelope(soapEnvelope);
-                            } catch (Throwable ex) {
-                                ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                        .error("Exception or Error occurred resetting SOAP Envelope", ex);
-                                continue;
-                            }
-
-                            Stack<FaultHandler> faultStack = msgContext.getFaultStack();
-                            if (!faultStack.isEmpty()) {
-                                FaultHandler faultHandler = faultStack.pop();
-                                if (faultHandler != null) {
-                                    try {
-                                        faultHandler.handleFault(msgContext);
-                                    } catch (Throwable ex) {
-                                        ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                                .warn("Exception or Error occurred while "
-                                                        + "executing the fault handler", ex);
-                                        continue;
-                                    }
-                                }
-                            }
-                        }
                     }
                 }
 
                 for(Object key : toRemove) {
+                    removeExpiredCallback(key);
+                }
+            }
+        }
+    }
 
-                    AsyncCallback callback = (AsyncCallback) callbackStore.get(key);
-                    if (callback == null) {
-                        // we will get here if we get a response from the Backend while clearing callbacks
-                        continue;
-                    }
-                    org.apache.synapse.MessageContext synapseOutMsgCtx = callback.getSynapseOutMsgCtx();
-                    ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synapseOutMsgCtx);
-                    callbackStore.remove(key);
-                    if (RuntimeStatisticCollector.isStatisticsEnabled()) {
-                        CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(), (String) key);
+    /**
+     * Expires a single callback whose deadline has passed, as notified by the
+     * CallbackTimingWheel. The callback is ignored if a response has already been received for it.
+     *
+     * @param key      message ID of the request
+     * @param callback the expired callback
+     */
+    public void expire(String key, AsyncCallback callback) {
+        if (callbackStore.get(key) != callback) {
+            // the response has been received while the callback was being expired
+            return;
+        }
+        if (expireCallback(key, callback)) {
+            removeExpiredCallback(key);
+        }
+    }
+
+    /**
+     * Marks the given callback for removal and takes the timeout action of the callback.
+     *
+     * @param key      message ID of the request
+     * @param callback the expired callback
+     * @return true if the callback was marked for removal by this invocation, false if it has
+     * already been marked for removal by the response path
+     */
+    private boolean expireCallback(Object key, AsyncCallback callback) {
+
+        synchronized (callback) {
+            if (callback.isMarkedForRemoval()) {
+                return false;
+            }
+            callback.setMarkedForRemoval();
+        }
+        EndpointLoadTracker.completeAll(callback.getSynapseOutMsgCtx(), false);
+        if (!"true".equals(callback.getSynapseOutMsgCtx().getProperty(SynapseConstants.OUT_ONLY))) {
+            org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
+            ContextAwareLogger.getLogger(axis2MessageContext, log, true)
+                    .warn("Expiring message ID : " + key + "; dropping message after "
+                            + callback.getTimeoutType().toString() + " of : "
+                            + (callback.getTimeoutDuration() / 1000) + " seconds for "
+                            + getEndpointLogMessage(callback.getSynapseOutMsgCtx(),
+                            callback.getAxis2OutMsgCtx()) + ", "
+                            + getServiceLogMessage(callback.getSynapseOutMsgCtx())
+                            + "Correlation ID : " + callback.getAxis2OutMsgCtx().getProperty(
+                            CorrelationConstants.CORRELATION_ID));
+        }
+
+        if (callback.getTimeOutAction() != SynapseConstants.NONE) {
+
+            // activate the fault sequence of the current sequence mediator
+            MessageContext msgContext = callback.getSynapseOutMsgCtx();
+            org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
+
+            /* Clear the pipe to prevent release of the associated writer buffer
+               to the buffer factory.
+               This is to prevent same buffer is getting released to both source
+               and target buffer factories. Otherwise when a late response arrives,
+               buffer is released to both factories and makes system unstable
+            */
+            ((Axis2MessageContext) msgContext).getAxis2MessageContext().
+                    removeProperty(PassThroughConstants.PASS_THROUGH_PIPE);
+
+            // add an error code to the message context, so that error sequences
+            // can identify the cause of error
+            msgContext.setProperty(SynapseConstants.ERROR_CODE,
+                                   SynapseConstants.HANDLER_TIME_OUT);
+            msgContext.setProperty(SynapseConstants.ERROR_MESSAGE,
+                                   SEND_TIMEOUT_MESSAGE);
+
+            /* Clear the NO_KEEPALIVE property to prevent closing response connection when going through
+               the fault sequence due to end point time out. Since the axis2 message context used here
+               is the same axis2 message context used in request path and the intention of this property
+               is to Disable HTTP keep alive for outgoing requests. If it is required this can be put
+               in fault sequence.
+            */
+            ((Axis2MessageContext) msgContext).getAxis2MessageContext().
+                    removeProperty(PassThroughConstants.NO_KEEPALIVE);
+
+            SOAPEnvelope soapEnvelope;
+            if (msgContext.isSOAP11()) {
+                soapEnvelope = OMAbstractFactory.
+                        getSOAP11Factory().createSOAPEnvelope();
+                soapEnvelope.addChild(
+                        OMAbstractFactory.getSOAP11Factory().createSOAPBody());
+            } else {
+                soapEnvelope = OMAbstractFactory.
+                        getSOAP12Factory().createSOAPEnvelope();
+                soapEnvelope.addChild(
+                        OMAbstractFactory.getSOAP12Factory().createSOAPBody());
+            }
+            try {
+                msgContext.setEnvelope(soapEnvelope);
+            } catch (Throwable ex) {
+                ContextAwareLogger.getLogger(axis2MessageContext, log, true)
+                        .error("Exception or Error occurred resetting SOAP Envelope", ex);
+                return true;
+            }
+
+            Stack<FaultHandler> faultStack = msgContext.getFaultStack();
+            if (!faultStack.isEmpty()) {
+                FaultHandler faultHandler = faultStack.pop();
+                if (faultHandler != null) {
+                    try {
+                        faultHandler.handleFault(msgContext);
+                    } catch (Throwable ex) {
+                        ContextAwareLogger.getLogger(axis2MessageContext, log, true)
+                                .warn("Exception or Error occurred while "
+                                        + "executing the fault handler", ex);
                     }
                 }
             }
         }
+        return true;
+    }
+
+    private void removeExpiredCallback(Object key) {
+
+        AsyncCallback callback = (AsyncCallback) callbackStore.get(key);
+        if (callback == null) {
+            // we will get here if we get a response from the Backend while clearing callbacks
+            return;
+        }
+        org.apache.synapse.MessageContext synapseOutMsgCtx = callback.getSynapseOutMsgCtx();
+        ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synapseOutMsgCtx);
+        callbackStore.remove(key);
+        if (RuntimeStatisticCollector.isStatisticsEnabled()) {
+            CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(), (String) key);
+        }
     }
 
     /**
@@ -47,6 +47,7 @@ import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.algorithms.EndpointLoadTracker;
 import org.apache.synapse.mediators.MediatorFaultHandler;
 import org.apache.synapse.mediators.MediatorProperty;
 import org.apache.synapse.transport.passthru.util.RelayConstants;
@@ -570,6 +571,8 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
         EndpointDefinition endpointDefinition = getDefinition();
         if (endpointDefinition != null && endpointDefinition.getTimeoutAction() == SynapseConstants.DISCARD) {
             log.info("Ignoring fault handlers since the timeout action is set to DISCARD");
+            // the enclosing load balance endpoints are not notified of the failure
+            EndpointLoadTracker.completeAll(synCtx, false);
         } else {
             logSetter();
             invokeNextFaultHandler(synCtx);
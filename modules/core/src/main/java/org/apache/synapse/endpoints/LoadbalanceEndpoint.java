@@ -38,6 +38,7 @@ import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.endpoints.algorithms.AlgorithmContext;
+import org.apache.synapse.endpoints.algorithms.EndpointLoadTracker;
 import org.apache.synapse.endpoints.algorithms.LoadbalanceAlgorithm;
 import org.apache.synapse.transport.util.MessageHandlerProvider;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
@@ -343,6 +344,8 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
     @Override
     public void onChildEndpointFail(Endpoint endpoint, MessageContext synMessageContext) {
 
+        EndpointLoadTracker.completeFailed(synMessageContext, algorithm);
+
         //If there is a failure in child endpoint, restore the original message envelope from the message context
         if (synMessageContext.getProperty(SynapseConstants.LB_FO_ENDPOINT_ORIGINAL_MESSAGE) != null) {
             try {
@@ -32,6 +32,7 @@ import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCol
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.algorithms.EndpointLoadTracker;
 import org.apache.synapse.endpoints.dispatch.Dispatcher;
 import org.apache.synapse.endpoints.dispatch.HttpSessionDispatcher;
 import org.apache.synapse.endpoints.dispatch.SALSessions;
@@ -203,6 +204,8 @@ public class SALoadbalanceEndpoint extends LoadbalanceEndpoint {
      */
     public void onChildEndpointFail(Endpoint endpoint, MessageContext synCtx) {
 
+        EndpointLoadTracker.completeFailed(synCtx, getAlgorithm());
+
         logOnChildEndpointFail(endpoint, synCtx);
         Object o = synCtx.getProperty(
                 SynapseConstants.PROP_SAL_ENDPOINT_FIRST_MESSAGE_IN_SESSION);
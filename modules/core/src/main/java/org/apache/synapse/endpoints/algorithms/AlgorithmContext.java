@@ -25,6 +25,7 @@ import org.apache.synapse.util.Replicator;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Keeps the runtime state of the algorithm
@@ -49,7 +50,7 @@ public class AlgorithmContext {
     private String PROPERTY_KEY_PREFIX;
 
     /* The pointer to current epr - The position of the current EPR */
-    private int currentEPR = 0;
+    private final AtomicInteger currentEPR = new AtomicInteger(0);
 
     /* The map of properties stored locally */
     private Map<String, Object> localProperties;
@@ -83,18 +84,48 @@ public class AlgorithmContext {
                 return ((Integer) value);
             }
         } else {
-            return currentEPR;
+            return currentEPR.get();
         }
         return 0;
     }
 
+    /**
+     * Returns the position of the current EPR and moves the pointer to the next position, going
+     * back to the first position after the last one. Concurrent callers get successive positions,
+     * without locking unless the state is kept in a clustered environment.
+     *
+     * @param endpointCount the number of EPRs
+     * @return The position of the current EPR
+     */
+    public int getAndIncrementEndpointIndex(int endpointCount) {
+
+        if (isClusteringEnabled) {
+            synchronized (this) {
+                int current = getCurrentEndpointIndex();
+                if (current >= endpointCount) {
+                    current = 0;
+                }
+                setCurrentEndpointIndex(current == endpointCount - 1 ? 0 : current + 1);
+                return current;
+            }
+        }
+        while (true) {
+            int stored = currentEPR.get();
+            int current = stored < endpointCount ? stored : 0;
+            int next = current == endpointCount - 1 ? 0 : current + 1;
+            if (currentEPR.compareAndSet(stored, next)) {
+                return current;
+            }
+        }
+    }
+
     /**
      * The  position of the current EPR
      *
      * @param currentEPR The current position
      */
     public void setCurrentEndpointIndex(int currentEPR) {
-        this.currentEPR = currentEPR;
+        this.currentEPR.set(currentEPR);
         cfgCtx.setNonReplicableProperty(CURRENT_EPR_PROP_KEY, currentEPR);
     }
 
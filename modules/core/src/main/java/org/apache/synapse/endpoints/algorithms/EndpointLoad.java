@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the load of an endpoint of a load balance group, as seen by the load balance algorithm:
+ * the number of requests which have been sent to the endpoint and have not completed yet, and
+ * an exponentially weighted moving average of the time taken by the requests to complete. The
+ * state is updated without locking.
+ */
+public class EndpointLoad {
+
+    /** A failed request counts as this many times the average time of the endpoint */
+    private static final double FAILURE_PENALTY = 2.0;
+
+    /** weight of the latest request in the average time */
+    private final double smoothingFactor;
+
+    private final AtomicInteger outstandingRequests = new AtomicInteger(0);
+
+    /** the average time in nanoseconds as double bits, or -1 if no request has completed */
+    private final AtomicLong averageTime = new AtomicLong(-1);
+
+    /**
+     * @param smoothingFactor weight of the latest request in the average time, between 0 and 1
+     */
+    public EndpointLoad(double smoothingFactor) {
+        this.smoothingFactor = smoothingFactor;
+    }
+
+    /**
+     * A request has been sent to the endpoint
+     */
+    public void requestSent() {
+        outstandingRequests.incrementAndGet();
+    }
+
+    /**
+     * A request sent to the endpoint has completed
+     *
+     * @param time    time taken by the request in nanoseconds
+     * @param success whether a response was received, rather than a failure
+     */
+    public void requestCompleted(long time, boolean success) {
+        outstandingRequests.decrementAndGet();
+        while (true) {
+            long current = averageTime.get();
+            double sample = time;
+            double average;
+            if (current == -1) {
+                average = sample;
+            } else {
+                double currentAverage = Double.longBitsToDouble(current);
+                if (!success) {
+                    // a fast failure must not make the endpoint look faster
+                    sample = Math.max(sample, currentAverage * FAILURE_PENALTY);
+                }
+                average = smoothingFactor * sample + (1 - smoothingFactor) * currentAverage;
+            }
+            if (averageTime.compareAndSet(current, Double.doubleToLongBits(average))) {
+                return;
+            }
+        }
+    }
+
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    /**
+     * @return the average time taken by the requests in nanoseconds, or 0 if no request has
+     * completed
+     */
+    public double getAverageTime() {
+        long current = averageTime.get();
+        return current == -1 ? 0 : Double.longBitsToDouble(current);
+    }
+
+    /**
+     * Forget the average time. Outstanding requests are still counted until they complete.
+     */
+    public void reset() {
+        averageTime.set(-1);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks the requests sent to the endpoints chosen by load aware algorithms, so that the
+ * {@link EndpointLoad} of an endpoint is updated when a request completes. A tracked request is
+ * kept in the message, on top of the requests tracked by the algorithms of the enclosing load
+ * balance endpoints, and it is completed when the response is received, when the request times
+ * out, or when the load balance endpoint is notified of the failure of the chosen endpoint.
+ */
+public final class EndpointLoadTracker {
+
+    public static final String TRACKED_REQUEST = "LB_ALGORITHM_TRACKED_REQUEST";
+
+    private EndpointLoadTracker() {
+    }
+
+    /**
+     * Track a request which is sent to an endpoint
+     *
+     * @param synCtx the request
+     * @param load   the load of the endpoint
+     * @param owner  the algorithm which chose the endpoint
+     */
+    public static void track(MessageContext synCtx, EndpointLoad load, Object owner) {
+        load.requestSent();
+        Object previous = synCtx.getProperty(TRACKED_REQUEST);
+        synCtx.setProperty(TRACKED_REQUEST, new TrackedRequest(load, owner,
+                previous instanceof TrackedRequest ? (TrackedRequest) previous : null));
+    }
+
+    /**
+     * Complete every request tracked in the message, as a response has been received for it or
+     * it has timed out
+     *
+     * @param synCtx  the request
+     * @param success true if a response has been received
+     */
+    public static void completeAll(MessageContext synCtx, boolean success) {
+        Object o = synCtx.getProperty(TRACKED_REQUEST);
+        if (o instanceof TrackedRequest) {
+            synCtx.getPropertyKeySet().remove(TRACKED_REQUEST);
+            for (TrackedRequest request = (TrackedRequest) o; request != null; request = request.previous) {
+                request.complete(success);
+            }
+        }
+    }
+
+    /**
+     * Complete the request which was tracked last by the given algorithm, as the chosen endpoint
+     * has failed
+     *
+     * @param synCtx the request
+     * @param owner  the algorithm which chose the endpoint
+     */
+    public static void completeFailed(MessageContext synCtx, Object owner) {
+        Object o = synCtx.getProperty(TRACKED_REQUEST);
+        if (o instanceof TrackedRequest && ((TrackedRequest) o).owner == owner) {
+            TrackedRequest request = (TrackedRequest) o;
+            if (request.previous != null) {
+                synCtx.setProperty(TRACKED_REQUEST, request.previous);
+            } else {
+                synCtx.getPropertyKeySet().remove(TRACKED_REQUEST);
+            }
+            request.complete(false);
+        }
+    }
+
+    private static final class TrackedRequest {
+
+        private final EndpointLoad load;
+        private final Object owner;
+        private final TrackedRequest previous;
+        private final long startTime = System.nanoTime();
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        private TrackedRequest(EndpointLoad load, Object owner, TrackedRequest previous) {
+            this.load = load;
+            this.owner = owner;
+            this.previous = previous;
+        }
+
+        private void complete(boolean success) {
+            if (completed.compareAndSet(false, true)) {
+                load.requestCompleted(System.nanoTime() - startTime, success);
+            }
+        }
+    }
+}
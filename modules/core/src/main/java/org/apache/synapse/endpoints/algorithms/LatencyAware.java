@@ -0,0 +1,44 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+/**
+ * A load balance algorithm which sends each message to the endpoint which is expected to respond
+ * sooner, of two endpoints picked at random. The load of an endpoint is the moving average of
+ * its response time, multiplied by the requests in progress including the new one. Endpoints
+ * which have not responded yet have no load, so every endpoint gets requests when it starts.
+ * The weight of the latest response in the average is set with the
+ * {@value LoadAwareAlgorithm#LB_SMOOTHING_FACTOR} property of the load balance endpoint.
+ */
+public class LatencyAware extends LoadAwareAlgorithm {
+
+    protected double getLoad(EndpointLoad load) {
+        return load.getAverageTime() * (load.getOutstandingRequests() + 1);
+    }
+
+    public String getName() {
+        return "LatencyAware";
+    }
+
+    @Override
+    public LoadbalanceAlgorithm clone() {
+        return new LatencyAware();
+    }
+}
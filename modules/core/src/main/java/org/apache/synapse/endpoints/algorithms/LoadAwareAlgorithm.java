@@ -0,0 +1,179 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.axis2.clustering.Member;
+import org.apache.synapse.ManagedLifecycle;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.PropertyInclude;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.mediators.MediatorProperty;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Base class of the load balance algorithms which choose endpoints by their {@link EndpointLoad}.
+ * The endpoint is chosen by the power of two choices: two different endpoints are picked at
+ * random, and the one with the lower load is used. This avoids sending every request to the
+ * single least loaded endpoint while the loads are updated, and no lock is taken. If neither of
+ * the picked endpoints is ready to send, the least loaded of all the ready endpoints is used.
+ *
+ * The requests sent to the chosen endpoints are tracked with {@link EndpointLoadTracker}, except
+ * for out only messages, which get no response. Application members are chosen in round robin.
+ */
+public abstract class LoadAwareAlgorithm implements LoadbalanceAlgorithm, ManagedLifecycle {
+
+    /** Weight of the latest request in the average time of an endpoint, between 0 and 1 */
+    public static final String LB_SMOOTHING_FACTOR = "loadbalance.smoothingFactor";
+
+    private static final double DEFAULT_SMOOTHING_FACTOR = 0.3;
+
+    private List<Endpoint> endpoints = null;
+
+    private Endpoint loadBalanceEndpoint = null;
+
+    private volatile EndpointLoad[] loads;
+
+    private double smoothingFactor = DEFAULT_SMOOTHING_FACTOR;
+
+    private final RoundRobin memberAlgorithm = new RoundRobin();
+
+    public void setApplicationMembers(List<Member> members) {
+        memberAlgorithm.setApplicationMembers(members);
+    }
+
+    public void setEndpoints(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+        this.loads = null;
+    }
+
+    public void setLoadBalanceEndpoint(Endpoint endpoint) {
+        this.loadBalanceEndpoint = endpoint;
+    }
+
+    public Endpoint getNextEndpoint(MessageContext synCtx, AlgorithmContext algorithmContext) {
+
+        EndpointLoad[] loads = getLoads();
+        int index = chooseEndpoint(loads);
+        if (index < 0) {
+            return null;
+        }
+        if (!"true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY))) {
+            EndpointLoadTracker.track(synCtx, loads[index], this);
+        }
+        return endpoints.get(index);
+    }
+
+    private int chooseEndpoint(EndpointLoad[] loads) {
+
+        int size = loads.length;
+        if (size == 0) {
+            return -1;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = size > 1 ? (first + 1 + random.nextInt(size - 1)) % size : first;
+        boolean firstReady = endpoints.get(first).readyToSend();
+        boolean secondReady = second != first && endpoints.get(second).readyToSend();
+        if (firstReady && secondReady) {
+            return getLoad(loads[second]) < getLoad(loads[first]) ? second : first;
+        } else if (firstReady) {
+            return first;
+        } else if (secondReady) {
+            return second;
+        }
+
+        int chosen = -1;
+        for (int i = 0; i < size; i++) {
+            if (i != first && i != second && endpoints.get(i).readyToSend()
+                    && (chosen < 0 || getLoad(loads[i]) < getLoad(loads[chosen]))) {
+                chosen = i;
+            }
+        }
+        return chosen;
+    }
+
+    private EndpointLoad[] getLoads() {
+        EndpointLoad[] current = loads;
+        if (current == null || current.length != endpoints.size()) {
+            synchronized (this) {
+                current = loads;
+                if (current == null || current.length != endpoints.size()) {
+                    current = new EndpointLoad[endpoints.size()];
+                    for (int i = 0; i < current.length; i++) {
+                        current[i] = new EndpointLoad(smoothingFactor);
+                    }
+                    loads = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the load of an endpoint, which is compared with the load of other endpoints to
+     * choose the endpoint with the lower load
+     *
+     * @param load the load of the endpoint
+     * @return the load as a number
+     */
+    protected abstract double getLoad(EndpointLoad load);
+
+    /**
+     * Returns the load of the endpoint at the given position, to be used for monitoring
+     *
+     * @param position position of the endpoint in the load balance group
+     * @return the load of the endpoint
+     */
+    public EndpointLoad getEndpointLoad(int position) {
+        return getLoads()[position];
+    }
+
+    public Member getNextApplicationMember(AlgorithmContext algorithmContext) {
+        return memberAlgorithm.getNextApplicationMember(algorithmContext);
+    }
+
+    public void reset(AlgorithmContext algorithmContext) {
+        for (EndpointLoad load : getLoads()) {
+            load.reset();
+        }
+        memberAlgorithm.reset(algorithmContext);
+    }
+
+    public void init(SynapseEnvironment se) {
+        if (loadBalanceEndpoint instanceof PropertyInclude) {
+            MediatorProperty val =
+                    ((PropertyInclude) loadBalanceEndpoint).getProperty(LB_SMOOTHING_FACTOR);
+            if (val != null) {
+                smoothingFactor = Double.parseDouble(val.getValue());
+                loads = null;
+            }
+        }
+    }
+
+    public void destroy() {
+    }
+
+    @Override
+    public abstract LoadbalanceAlgorithm clone();
+}
@@ -66,7 +66,8 @@ public class RoundRobin implements LoadbalanceAlgorithm {
 
     /**
      * Choose an active endpoint using the round robin algorithm. If there are no active endpoints
-     * available, returns null.
+     * available, returns null. The position of the next endpoint is moved atomically, so two
+     * successive clients never get the same endpoint and no lock is taken.
      *
      * @param synCtx           MessageContext instance which holds all per-message properties
      * @param algorithmContext The context in which holds run time states related to the algorithm
@@ -74,30 +75,15 @@ public class RoundRobin implements LoadbalanceAlgorithm {
      */
     public Endpoint getNextEndpoint(MessageContext synCtx, AlgorithmContext algorithmContext) {
 
-        Endpoint nextEndpoint;
-        int attempts = 0;
-        synchronized (algorithmContext) {
-            int currentEPR = algorithmContext.getCurrentEndpointIndex();
-            do {
-                // two successive clients could get the same endpoint if not synchronized.
-                nextEndpoint = (Endpoint) endpoints.get(currentEPR);
-
-                if (currentEPR == endpoints.size() - 1) {
-                    currentEPR = 0;
-                } else {
-                    currentEPR++;
-                }
-                algorithmContext.setCurrentEndpointIndex(currentEPR);
-
-                attempts++;
-                if (attempts > endpoints.size()) {
-                    return null;
-                }
-
-            } while (!nextEndpoint.readyToSend());
+        int size = endpoints.size();
+        for (int attempts = 0; attempts < size; attempts++) {
+            Endpoint nextEndpoint =
+                    (Endpoint) endpoints.get(algorithmContext.getAndIncrementEndpointIndex(size));
+            if (nextEndpoint.readyToSend()) {
+                return nextEndpoint;
+            }
         }
-
-        return nextEndpoint;
+        return null;
     }
 
     public Member getNextApplicationMember(AlgorithmContext algorithmContext) {
@@ -49,6 +49,17 @@ import java.util.Stack;
  */
 public abstract class AbstractMediator implements Mediator, AspectConfigurable {
 
+    /**
+     * Mediator names reported with every statistics event, computed once for each mediator class
+     */
+    private static final ClassValue<String> MEDIATOR_NAMES = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            String cls = type.getName();
+            return cls.substring(cls.lastIndexOf(".") + 1);
+        }
+    };
+
     /** the standard log for mediators, will assign the logger for the actual subclass */
     protected Log log;
     /** The runtime trace log for mediators */
@@ -477,8 +488,7 @@ public abstract class AbstractMediator implements Mediator, AspectConfigurable {
      * @return
      */
     public String getMediatorName(){
-        String cls = getClass().getName();
-        return cls.substring(cls.lastIndexOf(".") + 1);
+        return MEDIATOR_NAMES.get(getClass());
     }
 
     public Integer reportOpenStatistics(MessageContext messageContext, boolean isContentAltering) {
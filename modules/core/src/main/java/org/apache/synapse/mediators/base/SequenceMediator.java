@@ -37,11 +37,23 @@ import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.continuation.ContinuationStackManager;
 import org.apache.synapse.continuation.SeqContinuationState;
 import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.config.xml.SwitchCase;
+import org.apache.synapse.config.xml.SynapsePath;
 import org.apache.synapse.mediators.AbstractListMediator;
+import org.apache.synapse.mediators.ListMediator;
 import org.apache.synapse.mediators.FlowContinuableMediator;
 import org.apache.synapse.mediators.MediatorFaultHandler;
 import org.apache.synapse.mediators.Value;
-
+import org.apache.synapse.mediators.builtin.PropertyMediator;
+import org.apache.synapse.mediators.filters.FilterMediator;
+import org.apache.synapse.mediators.filters.SwitchMediator;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATH;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHSet;
+import org.apache.synapse.util.xpath.SynapseXPath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Stack;
 
 /**
@@ -80,6 +92,8 @@ public class SequenceMediator extends AbstractListMediator implements Nameable,
      * Whether the sequence is edited through the management console or not
      */
     private boolean isEdited;
+    /** The streaming XPath expressions of the mediators of this sequence, evaluated together over a message */
+    private List<SynapseXPath> streamingXPaths = Collections.emptyList();
 
     /**
      * If this mediator refers to another named Sequence, execute that. Else
@@ -294,6 +308,7 @@ public class SequenceMediator extends AbstractListMediator implements Nameable,
         if (!initialized) {
             synapseEnv = se;
             super.init(se);
+            initStreamingXPATHSet();
             initialized = true;
 
             if (!isDynamic()) {
@@ -326,6 +341,10 @@ public class SequenceMediator extends AbstractListMediator implements Nameable,
     public synchronized void destroy() {
         if (initialized) {
             super.destroy();
+            for (SynapseXPath xPath : streamingXPaths) {
+                xPath.setStreamingXPATHSet(null);
+            }
+            streamingXPaths = Collections.emptyList();
             initialized = false;
 
             if (key != null) {
@@ -347,6 +366,70 @@ public class SequenceMediator extends AbstractListMediator implements Nameable,
         }
     }
 
+    /**
+     * Group the streaming XPath expressions of the switch, filter and property mediators of this sequence, so that
+     * the first of them evaluated against a message extracts the values of all of them in a single pass over the
+     * message stream. The mediators of the sequences referred from this sequence are grouped by those sequences.
+     */
+    private void initStreamingXPATHSet() {
+        List<SynapseXPath> xPaths = new ArrayList<SynapseXPath>();
+        collectStreamingXPaths(getList(), xPaths);
+        if (xPaths.size() < 2) {
+            return;
+        }
+        List<StreamingXPATH> expressions = new ArrayList<StreamingXPATH>(xPaths.size());
+        for (SynapseXPath xPath : xPaths) {
+            expressions.add(xPath.getStreamingXPATH());
+        }
+        StreamingXPATHSet xPathSet = new StreamingXPATHSet(expressions);
+        for (SynapseXPath xPath : xPaths) {
+            xPath.setStreamingXPATHSet(xPathSet);
+        }
+        streamingXPaths = xPaths;
+    }
+
+    private static void collectStreamingXPaths(List<Mediator> mediators, List<SynapseXPath> xPaths) {
+        for (Mediator mediator : mediators) {
+            if (mediator instanceof SequenceMediator) {
+                continue;
+            }
+            if (mediator instanceof SwitchMediator) {
+                SwitchMediator switchMediator = (SwitchMediator) mediator;
+                addStreamingXPath(switchMediator.getSource(), xPaths);
+                for (SwitchCase switchCase : switchMediator.getCases()) {
+                    collectStreamingXPaths(switchCase, xPaths);
+                }
+                collectStreamingXPaths(switchMediator.getDefaultCase(), xPaths);
+            } else if (mediator instanceof FilterMediator) {
+                FilterMediator filterMediator = (FilterMediator) mediator;
+                addStreamingXPath(filterMediator.getSource(), xPaths);
+                if (filterMediator.getElseMediator() != null) {
+                    collectStreamingXPaths(filterMediator.getElseMediator().getList(), xPaths);
+                }
+            } else if (mediator instanceof PropertyMediator) {
+                addStreamingXPath(((PropertyMediator) mediator).getExpression(), xPaths);
+            }
+            if (mediator instanceof ListMediator) {
+                collectStreamingXPaths(((ListMediator) mediator).getList(), xPaths);
+            }
+        }
+    }
+
+    private static void collectStreamingXPaths(SwitchCase switchCase, List<SynapseXPath> xPaths) {
+        if (switchCase != null && switchCase.getCaseMediator() != null) {
+            collectStreamingXPaths(switchCase.getCaseMediator().getList(), xPaths);
+        }
+    }
+
+    private static void addStreamingXPath(SynapsePath path, List<SynapseXPath> xPaths) {
+        if (path instanceof SynapseXPath) {
+            SynapseXPath xPath = (SynapseXPath) path;
+            if (xPath.getStreamingXPATH() != null && !xPath.isForceDisableStreamXpath() && !xPaths.contains(xPath)) {
+                xPaths.add(xPath);
+            }
+        }
+    }
+
     /**
      * To get the name of the sequence
      * @return the name of the sequence
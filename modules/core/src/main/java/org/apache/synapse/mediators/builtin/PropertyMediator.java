@@ -61,6 +61,8 @@ public class PropertyMediator extends AbstractMediator {
 
     /** The Name of the property  */
     private String name = null;
+    /** The name reported with the statistics events of this mediator, built from the property name */
+    private String mediatorName = null;
     /** The DynamicNameValue of the property if it is dynamic  */
     private Value dynamicNameValue = null;
     /** The Value to be set  */
@@ -323,6 +325,7 @@ public class PropertyMediator extends AbstractMediator {
 
     public void setName(String name) {
         this.name = name;
+        this.mediatorName = null;
     }
 
     public Object getValue() {
@@ -553,7 +556,12 @@ public class PropertyMediator extends AbstractMediator {
     }
 
     @Override public String getMediatorName() {
-        return super.getMediatorName() + ":" + name;
+        String mediatorName = this.mediatorName;
+        if (mediatorName == null) {
+            mediatorName = super.getMediatorName() + ":" + name;
+            this.mediatorName = mediatorName;
+        }
+        return mediatorName;
     }
 
     /**
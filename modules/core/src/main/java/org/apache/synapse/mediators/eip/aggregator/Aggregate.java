@@ -29,14 +29,15 @@ import org.apache.synapse.mediators.eip.EIPConstants;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * An instance of this class is created to manage each aggregation group, and it holds
  * the aggregation properties and the messages collected during aggregation. This class also
- * times out itself after the timeout expires it
+ * times out itself after the timeout expires it, when scheduled on the expiry scheduler of
+ * the aggregate mediator
  */
-public class Aggregate extends TimerTask {
+public class Aggregate implements Runnable {
 
     private static final Log log = LogFactory.getLog(Aggregate.class);
 
@@ -51,9 +52,12 @@ public class Aggregate extends TimerTask {
     /** The AggregateMediator that should be invoked on completion of the aggregation */
     private AggregateMediator aggregateMediator = null;
     private List<MessageContext> messages = new ArrayList<MessageContext>();
-    private boolean locked = false;
-    private boolean completed = false;
+    private volatile boolean completed = false;
     private SynapseEnvironment synEnv = null;
+    /** The time in nanos at which this aggregation was started, to measure the aggregation latency */
+    private final long startTimeNanos = System.nanoTime();
+    /** The scheduled timeout of this aggregation, if a completion timeout is set */
+    private volatile ScheduledFuture<?> expiryTask;
 
     /**
      * Fault handler for the aggregate mediator
@@ -94,6 +98,10 @@ public class Aggregate extends TimerTask {
      * @return true if the message was added or false if not
      */
     public synchronized boolean addMessage(MessageContext synCtx) {
+        if (completed || messages == null) {
+            // a message which arrived while the aggregation was being completed
+            return false;
+        }
         if (maxCount <= 0 || (maxCount > 0 && messages.size() < maxCount)) {
             messages.add(synCtx);
             return true;
@@ -174,7 +182,10 @@ public class Aggregate extends TimerTask {
         return false;
     }
 
-    public MessageContext getLastMessage() {
+    public synchronized MessageContext getLastMessage() {
+        if (messages == null || messages.isEmpty()) {
+            return null;
+        }
         return messages.get(messages.size() - 1);
     }
 
@@ -226,35 +237,63 @@ public class Aggregate extends TimerTask {
         this.expiryTimeMillis = expiryTimeMillis;
     }
 
+    /**
+     * Invoked by the expiry scheduler once the timeout expires, to complete the aggregation on a
+     * mediation thread
+     */
     public void run() {
-        while (true) {
-            if (completed) {
-                break;
-            }
-            if (getLock()) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Time : " + System.currentTimeMillis() + " and this aggregator " +
-                            "expired at : " + expiryTimeMillis);
-                }
-                synEnv.getExecutorService().execute(new AggregateTimeout(this));
-                break;
-            }
+        if (completed) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Time : " + System.currentTimeMillis() + " and this aggregator " +
+                    "expired at : " + expiryTimeMillis);
         }
+        synEnv.getExecutorService().execute(new AggregateTimeout(this));
     }
 
     /**
-     * Clear references in Aggregate Timer Task
+     * Set the scheduled timeout of this aggregation, to be cancelled on completion
      *
-     * This need to be called when aggregation is completed.
-     * Task is not eligible for gc until it reach the execution time,
-     * even though it is cancelled. So we need to remove references from task to other objects to
-     * allow them to be garbage collected
+     * @param expiryTask the scheduled timeout
+     */
+    public void setExpiryTask(ScheduledFuture<?> expiryTask) {
+        this.expiryTask = expiryTask;
+        if (completed) {
+            // the aggregation completed before its timeout was scheduled
+            expiryTask.cancel(false);
+        }
+    }
+
+    /**
+     * Cancel the timeout of this aggregation. The expiry scheduler removes cancelled timeouts, so
+     * the aggregate is not retained until its timeout would have expired.
      *
+     * @return true if the timeout was cancelled
      */
-    public void clear() {
+    public boolean cancel() {
+        ScheduledFuture<?> task = expiryTask;
+        return task != null && task.cancel(false);
+    }
+
+    /**
+     * Clear references to the collected messages
+     *
+     * This need to be called when aggregation is completed, so that the messages are eligible for
+     * gc even though the aggregate is still referenced.
+     *
+     */
+    public synchronized void clear() {
         messages = null;
     }
 
+    /**
+     * @return the time in milliseconds elapsed since this aggregation was started
+     */
+    public long getElapsedTimeMillis() {
+        return (System.nanoTime() - startTimeNanos) / 1000000;
+    }
+
     private class AggregateTimeout implements Runnable {
         private Aggregate aggregate = null;
         AggregateTimeout(Aggregate aggregate) {
@@ -265,7 +304,7 @@ public class Aggregate extends TimerTask {
             MessageContext messageContext = aggregate.getLastMessage();
             try {
                 log.warn("Aggregate mediator timeout occurred.");
-                aggregateMediator.completeAggregate(aggregate);
+                aggregateMediator.completeAggregate(aggregate, true);
             } catch (Exception ex) {
                 if (faultHandler != null && messageContext != null) {
                     faultHandler.handleFault(messageContext, ex);
@@ -277,14 +316,6 @@ public class Aggregate extends TimerTask {
         }
     }
 
-    public synchronized boolean getLock() {
-        return !locked;
-    }
-
-    public void releaseLock() {
-        locked = false;
-    }
-
     public boolean isCompleted() {
         return completed;
     }
@@ -293,4 +324,17 @@ public class Aggregate extends TimerTask {
         this.completed = completed;
     }
 
+    /**
+     * Mark this aggregation as completed, unless it is already completed
+     *
+     * @return true if the aggregation was marked as completed by this call
+     */
+    public synchronized boolean markCompleted() {
+        if (completed) {
+            return false;
+        }
+        completed = true;
+        return true;
+    }
+
 }
@@ -43,6 +43,7 @@ import org.apache.synapse.aspects.flow.statistics.collectors.OpenEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.aspects.flow.statistics.data.artifact.ArtifactHolder;
 import org.apache.synapse.aspects.flow.statistics.util.StatisticDataCollectionHelper;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.commons.json.Constants;
 import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.config.xml.SynapsePath;
@@ -63,6 +64,12 @@ import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Aggregate a number of messages that are determined to be for a particular group, and combine
@@ -70,7 +77,7 @@ import java.util.*;
  * an aggregator acts like a filter, and may look at a correlation XPath expression to select
  * messages for aggregation - or look at messageSequence number properties for aggregation or
  * let any other (i.e. non aggregatable) messages flow through
- * An instance of this mediator will register with a Timer to be notified after a specified timeout,
+ * An instance of this mediator will schedule its aggregates to be notified after a specified timeout,
  * so that aggregations that never would complete could be timed out and cleared from memory and
  * any fault conditions handled
  */
@@ -79,6 +86,8 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
 
     private static final Log log = LogFactory.getLog(AggregateMediator.class);
 
+    private static final String MBEAN_CATEGORY = "AggregateMediator";
+
     /** The duration as a number of milliseconds for this aggregation to complete */
     private long completionTimeoutMillis = 0;
     /** The maximum number of messages required to complete aggregation */
@@ -112,18 +121,24 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
     /** Inline sequence definition holder that holds the onComplete sequence */
     private SequenceMediator onCompleteSequence = null;
 
-    /** The active aggregates currently being processd */
-    private Map<String, Aggregate> activeAggregates =
-        Collections.synchronizedMap(new HashMap<String, Aggregate>());
+    /** The active aggregates currently being processd, by their correlation */
+    private final ConcurrentMap<String, Aggregate> activeAggregates =
+        new ConcurrentHashMap<String, Aggregate>();
+
+    /** Scheduler shared by all the aggregate mediators to time out the aggregates */
+    private static volatile ScheduledThreadPoolExecutor expiryScheduler;
+
+    /** Counts of the completed and timed out aggregations, with the aggregation latency */
+    private final AggregateMetrics metrics = new AggregateMetrics();
+
+    /** Name the metrics of this mediator are registered with in JMX */
+    private String mBeanId;
 
     private String id = null;
 
     /** Property which contains the Enclosing element of the aggregated message */
     private String enclosingElementPropertyName = null;
 
-    /** Lock object to provide the synchronized access to the activeAggregates on checking */
-    private final Object lock = new Object();
-
     /** Reference to the synapse environment */
     private SynapseEnvironment synapseEnv;
 
@@ -147,6 +162,8 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
 
     public void init(SynapseEnvironment se) {
         synapseEnv = se;
+        mBeanId = id != null ? id : "aggregate-" + Integer.toHexString(System.identityHashCode(this));
+        MBeanRegistrar.getInstance().registerMBean(new AggregateMediatorView(this), MBEAN_CATEGORY, mBeanId);
         if (onCompleteSequence != null) {
             onCompleteSequence.init(se);
         } else if (onCompleteSequenceRef != null) {
@@ -161,6 +178,9 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
     }
 
     public void destroy() {
+        if (mBeanId != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, mBeanId);
+        }
         if (onCompleteSequence != null) {
             onCompleteSequence.destroy();
         } else if (onCompleteSequenceRef != null) {
@@ -222,49 +242,9 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
             }
             if (result != null) {
 
-                while (aggregate == null) {
-
-                    synchronized (lock) {
-
-                        if (activeAggregates.containsKey(correlateExpression.toString())) {
-
-                            aggregate = activeAggregates.get(correlateExpression.toString());
-                            if (aggregate != null) {
-                                if (!aggregate.getLock()) {
-                                    aggregate = null;
-                                }
-                            }
-
-                        } else {
-
-                            if (synLog.isTraceOrDebugEnabled()) {
-                                synLog.traceOrDebug("Creating new Aggregator - " +
-                                        (completionTimeoutMillis > 0 ? "expires in : "
-                                                + (completionTimeoutMillis / 1000) + "secs" :
-                                                "without expiry time"));
-                            }
-                            if (isAggregationCompleted(synCtx)) {
-                                return false;
-                            }
-
-                            Double minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
-                            Double maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
-                    
-                            aggregate = new Aggregate(
-                                    synCtx.getEnvironment(),
-                                    correlateExpression.toString(),
-                                    completionTimeoutMillis,
-                                    minMsg.intValue(),
-                                    maxMsg.intValue(), this, synCtx.getFaultStack().peek());
-
-                            if (completionTimeoutMillis > 0) {
-                                synCtx.getConfiguration().getSynapseTimer().
-                                        schedule(aggregate, completionTimeoutMillis);
-                            }
-                            aggregate.getLock();
-                            activeAggregates.put(correlateExpression.toString(), aggregate);
-                        }
-                    }
+                aggregate = getAggregate(correlateExpression.toString(), synCtx, synLog);
+                if (aggregate == null) {
+                    return false;
                 }
 
             } else if (synCtx.getProperty(correlationIdName) != null) {
@@ -278,64 +258,9 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
 
                 if (o != null && o instanceof String) {
                     correlation = (String) o;
-                    while (aggregate == null) {
-                        synchronized (lock) {
-                            if (activeAggregates.containsKey(correlation)) {
-                                aggregate = activeAggregates.get(correlation);
-                                if (aggregate != null) {
-                                    if (!aggregate.getLock()) {
-                                        aggregate = null;
-                                    }
-                                } else {
-                                    break;
-                                }
-                            } else {
-                                if (synLog.isTraceOrDebugEnabled()) {
-                                    synLog.traceOrDebug("Creating new Aggregator - " +
-                                            (completionTimeoutMillis > 0 ? "expires in : "
-                                                    + (completionTimeoutMillis / 1000) + "secs" :
-                                                    "without expiry time"));
-                                }
-
-                                if (isAggregationCompleted(synCtx)) {
-                                    return false;
-                                }
-
-                                Double minMsg = -1.0;
-                                if (minMessagesToComplete != null) {
-                                    minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
-                                }
-                                Double maxMsg = -1.0;
-                                if (maxMessagesToComplete != null) {
-                                    maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
-                                }
-
-                                aggregate = new Aggregate(
-                                        synCtx.getEnvironment(),
-                                        correlation,
-                                        completionTimeoutMillis,
-                                        minMsg.intValue(),
-                                        maxMsg.intValue(), this, synCtx.getFaultStack().peek());
-
-                                if (completionTimeoutMillis > 0) {
-                                    synchronized(aggregate) {
-                                        if (!aggregate.isCompleted()) {
-                                            try {
-                                                synCtx.getConfiguration().getSynapseTimer().
-                                                        schedule(aggregate, completionTimeoutMillis);
-                                            } catch (IllegalStateException e) {
-                                                log.warn("Synapse timer already cancelled. Resetting Synapse timer");
-                                                synCtx.getConfiguration().setSynapseTimer(new Timer(true));
-                                                synCtx.getConfiguration().getSynapseTimer().
-                                                        schedule(aggregate, completionTimeoutMillis);
-                                            }
-                                        }
-                                    }
-                                }
-                                aggregate.getLock();
-                                activeAggregates.put(correlation, aggregate);
-                            }
-                        }
+                    aggregate = getAggregate(correlation, synCtx, synLog);
+                    if (aggregate == null) {
+                        return false;
                     }
                     
                 } else {
@@ -370,8 +295,6 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
                     synLog.traceOrDebug("End : Aggregate mediator");
                     isAggregateComplete = onCompleteSeqResult;
                     return onCompleteSeqResult;
-                } else {
-                    aggregate.releaseLock();
                 }
 
             } else {
@@ -392,6 +315,87 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         return false;
     }
 
+    /**
+     * Get the active aggregate of the given correlation, or create a new aggregate and schedule its
+     * timeout if there is none. The aggregate table is a concurrent map, so messages of different
+     * correlations do not contend with each other.
+     *
+     * @param correlation the correlation of the message
+     * @param synCtx the message to be aggregated
+     * @param synLog the Synapse log to use
+     * @return the aggregate, or null if the aggregation has already completed for this message
+     */
+    private Aggregate getAggregate(String correlation, MessageContext synCtx, SynapseLog synLog) {
+        Aggregate aggregate = activeAggregates.get(correlation);
+        if (aggregate != null) {
+            return aggregate;
+        }
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Creating new Aggregator - " +
+                    (completionTimeoutMillis > 0 ? "expires in : "
+                            + (completionTimeoutMillis / 1000) + "secs" :
+                            "without expiry time"));
+        }
+        if (isAggregationCompleted(synCtx)) {
+            return null;
+        }
+
+        Double minMsg = -1.0;
+        if (minMessagesToComplete != null) {
+            minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
+        }
+        Double maxMsg = -1.0;
+        if (maxMessagesToComplete != null) {
+            maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
+        }
+
+        Aggregate newAggregate = new Aggregate(
+                synCtx.getEnvironment(),
+                correlation,
+                completionTimeoutMillis,
+                minMsg.intValue(),
+                maxMsg.intValue(), this, synCtx.getFaultStack().peek());
+
+        aggregate = activeAggregates.putIfAbsent(correlation, newAggregate);
+        if (aggregate != null) {
+            // another message of the same correlation created the aggregate meanwhile
+            return aggregate;
+        }
+        if (completionTimeoutMillis > 0) {
+            newAggregate.setExpiryTask(getExpiryScheduler().schedule(
+                    newAggregate, completionTimeoutMillis, TimeUnit.MILLISECONDS));
+        }
+        return newAggregate;
+    }
+
+    /**
+     * Get the scheduler which times out the aggregates of all the aggregate mediators. Cancelled
+     * timeouts are removed from the scheduler right away, so completed aggregates are not retained
+     * until their timeouts would have expired.
+     *
+     * @return the expiry scheduler
+     */
+    private static ScheduledExecutorService getExpiryScheduler() {
+        ScheduledThreadPoolExecutor scheduler = expiryScheduler;
+        if (scheduler == null) {
+            synchronized (AggregateMediator.class) {
+                scheduler = expiryScheduler;
+                if (scheduler == null) {
+                    scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "synapse-aggregate-expiry");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    scheduler.setRemoveOnCancelPolicy(true);
+                    expiryScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
     /*
      * Check whether aggregation is already completed by time-out/receiving required number of min/max messages,
       * and we are receiving a message after the aggregation is completed.
@@ -445,13 +449,21 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
     }
 
     /**
-     * Invoked by the Aggregate objects that are timed out, to signal timeout/completion of
-     * itself
-     * @param aggregate the timed out Aggregate that holds collected messages and properties
+     * Invoked on completion of an Aggregate, to mediate the aggregated message
+     * @param aggregate the completed Aggregate that holds collected messages and properties
      */
     public boolean completeAggregate(Aggregate aggregate) {
+        return completeAggregate(aggregate, false);
+    }
+
+    /**
+     * Invoked on completion of an Aggregate, or by the Aggregate objects that are timed out, to
+     * signal timeout/completion of itself
+     * @param aggregate the Aggregate that holds collected messages and properties
+     * @param timedOut whether the aggregate is completed by its timeout
+     */
+    boolean completeAggregate(Aggregate aggregate, boolean timedOut) {
 
-        boolean markedCompletedNow = false;
         boolean wasComplete = aggregate.isCompleted();
         if (wasComplete) {
             return false;
@@ -461,32 +473,36 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
             log.debug("Aggregation completed or timed out");
         }
 
+        // only the thread which marks the aggregate as completed proceeds, which only contends with the
+        // other messages and the timeout of the same aggregate
+        if (!aggregate.markCompleted()) {
+            return false;
+        }
         // cancel the timer
-        synchronized(this) {
-            if (!aggregate.isCompleted()) {
-                aggregate.cancel();
-                aggregate.setCompleted(true);
-
-                MessageContext lastMessage = aggregate.getLastMessage();
-                if (lastMessage != null) {
-                    Object aggregateTimeoutHolderObj =
-                            lastMessage.getProperty(id != null ? EIPConstants.EIP_SHARED_DATA_HOLDER + "." + id :
-                                                    EIPConstants.EIP_SHARED_DATA_HOLDER);
-
-                    if (aggregateTimeoutHolderObj != null) {
-                        SharedDataHolder sharedDataHolder = (SharedDataHolder) aggregateTimeoutHolderObj;
-                        sharedDataHolder.markAggregationCompletion();
-                    }
-                }
-                markedCompletedNow = true;
+        aggregate.cancel();
+
+        MessageContext lastMessage = aggregate.getLastMessage();
+        if (lastMessage != null) {
+            Object aggregateTimeoutHolderObj =
+                    lastMessage.getProperty(id != null ? EIPConstants.EIP_SHARED_DATA_HOLDER + "." + id :
+                                            EIPConstants.EIP_SHARED_DATA_HOLDER);
+
+            if (aggregateTimeoutHolderObj != null) {
+                SharedDataHolder sharedDataHolder = (SharedDataHolder) aggregateTimeoutHolderObj;
+                sharedDataHolder.markAggregationCompletion();
             }
         }
+        metrics.aggregationCompleted(timedOut, aggregate.getElapsedTimeMillis());
 
-        if (!markedCompletedNow) {
-            return false;
+        MessageContext newSynCtx;
+        try {
+            newSynCtx = getAggregatedMessage(aggregate);
+        } finally {
+            // the completed aggregate stays registered until the aggregated message is built, so that
+            // messages of the same correlation arriving meanwhile are dropped by it rather than starting
+            // a new aggregation, as the shared data holder only covers split and iterate aggregations
+            activeAggregates.remove(aggregate.getCorrelation(), aggregate);
         }
-        
-        MessageContext newSynCtx = getAggregatedMessage(aggregate);
 
         if (newSynCtx == null) {
             log.warn("An aggregation of messages timed out with no aggregated messages", null);
@@ -516,7 +532,6 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         }
 
         aggregate.clear();
-        activeAggregates.remove(aggregate.getCorrelation());
 
         if ((correlateExpression != null &&
             correlateExpression.toString().equals(aggregate.getCorrelation())) ||
@@ -758,6 +773,10 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         return activeAggregates;
     }
 
+    public AggregateMetrics getMetrics() {
+        return metrics;
+    }
+
     public String getId() {
         return id;
     }
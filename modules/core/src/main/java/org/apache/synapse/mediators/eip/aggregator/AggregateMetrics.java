@@ -0,0 +1,86 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.mediators.eip.aggregator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the aggregations completed by an aggregate mediator, separating the aggregations which
+ * met their completion condition from those which timed out, along with the aggregation latency.
+ * The counters are updated by concurrent mediation threads without locking.
+ */
+public class AggregateMetrics {
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder timedOutCount = new LongAdder();
+
+    private final LongAdder totalLatency = new LongAdder();
+
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * Record the completion of an aggregation
+     *
+     * @param timedOut whether the aggregation was completed by its timeout
+     * @param latencyMillis the time in milliseconds taken by the aggregation
+     */
+    public void aggregationCompleted(boolean timedOut, long latencyMillis) {
+        if (timedOut) {
+            timedOutCount.increment();
+        } else {
+            completedCount.increment();
+        }
+        totalLatency.add(latencyMillis);
+        long max;
+        while (latencyMillis > (max = maxLatency.get())) {
+            if (maxLatency.compareAndSet(max, latencyMillis)) {
+                break;
+            }
+        }
+    }
+
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    public long getTimedOutCount() {
+        return timedOutCount.sum();
+    }
+
+    /**
+     * @return the average time in milliseconds taken by the completed and timed out aggregations
+     */
+    public double getAverageLatency() {
+        long count = completedCount.sum() + timedOutCount.sum();
+        return count == 0 ? 0 : (double) totalLatency.sum() / count;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    public void reset() {
+        completedCount.reset();
+        timedOutCount.reset();
+        totalLatency.reset();
+        maxLatency.set(0);
+    }
+}
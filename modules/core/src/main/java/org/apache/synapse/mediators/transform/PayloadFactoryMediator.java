@@ -119,9 +119,7 @@ public class PayloadFactoryMediator extends AbstractMediator {
             return false;
         }
         org.apache.axis2.context.MessageContext axis2MessageContext = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
-        StringBuilder result = new StringBuilder();
-        transform(result, synCtx, format);
-        String out = result.toString().trim();
+        String out = transform(synCtx, format).trim();
         String updatedFormat = templateProcessor.getFormat();
         if (log.isDebugEnabled()) {
             log.debug("#mediate. Transformed payload format>>> " + out);
@@ -160,11 +158,11 @@ public class PayloadFactoryMediator extends AbstractMediator {
      * Calls the replace function. isFormatDynamic check is used to remove indentations which come from registry based
      * configurations.
      *
-     * @param result
      * @param synCtx
      * @param format
+     * @return the transformed payload
      */
-    private void transform(StringBuilder result, MessageContext synCtx, String format) {
+    private String transform(MessageContext synCtx, String format) {
         boolean reCreate = false;
         if (isFormatDynamic()) {
             if (templateType.equals(FREEMARKER_TEMPLATE_TYPE)) {
@@ -193,19 +191,20 @@ public class PayloadFactoryMediator extends AbstractMediator {
                 templateProcessor.setFormat(text);
                 templateProcessor.init();
             }
-            processTemplate(result, synCtx, text);
+            return processTemplate(synCtx, text);
         } else {
-            processTemplate(result, synCtx, format);
+            return processTemplate(synCtx, format);
         }
     }
 
-    private void processTemplate(StringBuilder result, MessageContext synCtx, String text) {
+    private String processTemplate(MessageContext synCtx, String text) {
 
         try {
-            result.append(templateProcessor.processTemplate(text, mediaType, synCtx));
+            return templateProcessor.processTemplate(text, mediaType, synCtx);
         } catch (TemplateProcessorException e) {
             handleException(e.getMessage(), synCtx);
         }
+        return "";
     }
 
     /**
@@ -25,17 +25,23 @@ import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axis2.AxisFault;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.commons.json.JsonUtil;
-import org.apache.synapse.config.Entry;
+import org.apache.synapse.config.EntryVersion;
 import org.apache.synapse.config.SynapseConfigUtils;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.mediators.MediatorProperty;
 import org.apache.synapse.mediators.Value;
+import org.apache.synapse.util.concurrent.BoundedConcurrentCache;
+import org.apache.synapse.util.concurrent.CacheStatisticsView;
 import org.apache.synapse.util.jaxp.DOOMResultBuilderFactory;
 import org.apache.synapse.util.jaxp.DOOMSourceBuilderFactory;
 import org.apache.synapse.util.jaxp.ResultBuilder;
@@ -59,10 +65,11 @@ import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The XSLT mediator performs an XSLT transformation requested, using
@@ -79,9 +86,14 @@ import java.util.Map;
  *
  * <p> Note: Set the TransformerFactory system property to generate and use translets
  *  -Djavax.xml.transform.TransformerFactory=org.apache.xalan.xsltc.trax.TransformerFactoryImpl
+ *
+ * <p> Compiled stylesheets are kept in a size bounded cache shared by all the XSLT mediators,
+ *  which is read without locking, and the Transformers created from each stylesheet are pooled
+ *  and reused by later messages. A stylesheet is compiled again when its registry resource
+ *  changes, which is detected using the version of the resource.
  * 
  */
-public class XSLTMediator extends AbstractMediator {
+public class XSLTMediator extends AbstractMediator implements ManagedLifecycle {
 
     private static class ErrorListenerImpl implements ErrorListener {
         private final SynapseLog synLog;
@@ -195,11 +207,33 @@ public class XSLTMediator extends AbstractMediator {
     private ResourceMap resourceMap;
 
     /**
-     * Cache multiple templates
-     * Unique string used as a key for each template
-     * The Template instance used to create a Transformer object. This is  thread-safe
+     * Compiled templates of all the XSLT mediators, keyed by the id of the mediator and the
+     * evaluated XSLT key. Templates are not shared between mediators, since each mediator
+     * compiles them with its own factory features, attributes and resource map.
+     */
+    private static final BoundedConcurrentCache<String, CachedTemplates> templatesCache =
+            new BoundedConcurrentCache<String, CachedTemplates>(Integer.parseInt(
+                    SynapsePropertiesLoader.getPropertyValue(SynapseConstants.XSLT_TEMPLATES_CACHE_SIZE,
+                            String.valueOf(SynapseConstants.DEFAULT_XSLT_TEMPLATES_CACHE_SIZE))));
+
+    /**
+     * Maximum number of idle transformers kept for each cached template
+     */
+    private static final int transformerPoolSize = Integer.parseInt(
+            SynapsePropertiesLoader.getPropertyValue(SynapseConstants.XSLT_TRANSFORMER_POOL_SIZE,
+                    String.valueOf(SynapseConstants.DEFAULT_XSLT_TRANSFORMER_POOL_SIZE)));
+
+    private static final AtomicLong mediatorIdGenerator = new AtomicLong();
+
+    static {
+        MBeanRegistrar.getInstance().registerMBean(new CacheStatisticsView(templatesCache),
+                CacheStatisticsView.MBEAN_CATEGORY, "XSLTTemplates");
+    }
+
+    /**
+     * Prefix of the keys of the templates of this mediator in the templates cache
      */
-    private Map<String, Templates> cachedTemplatesMap = new Hashtable<String, Templates>();
+    private final String cacheKeyPrefix = mediatorIdGenerator.incrementAndGet() + ":";
 
     /**
      * The TransformerFactory instance which use to create Templates. This is not thread-safe.
@@ -208,7 +242,7 @@ public class XSLTMediator extends AbstractMediator {
     private final TransformerFactory transFact = TransformerFactory.newInstance();
 
     /**
-     * Lock used to ensure thread-safe creation and use of the above Transformer
+     * Lock used to ensure thread-safe creation of templates with the above TransformerFactory
      */
     private final Object transformerLock = new Object();
 
@@ -284,40 +318,20 @@ public class XSLTMediator extends AbstractMediator {
         // Derive actual key from message context
         String generatedXsltKey = xsltKey.evaluateValue(synCtx);
 
-        // get templates from generatedXsltKey
-        Templates cachedTemplates = null;
-
         if (synLog.isTraceTraceEnabled()) {
             synLog.traceTrace("Transformation source : " + sourceNode.toString());
         }
 
-        // determine if it is needed to create or create the template
-        if (isCreationOrRecreationRequired(synCtx)) {
-            // many threads can see this and come here for acquiring the lock
-            synchronized (transformerLock) {
-                // only first thread should create the template
-                if (isCreationOrRecreationRequired(synCtx)) {
-                    cachedTemplates = createTemplate(synCtx, synLog, generatedXsltKey);
-                } else {
-                    cachedTemplates = cachedTemplatesMap.get(generatedXsltKey);
-                }
-            }
-        }
-        else{
-            //If already cached template then load it from cachedTemplatesMap
-            synchronized (transformerLock){
-                cachedTemplates = cachedTemplatesMap.get(generatedXsltKey);
-            }
-        }
+        // get templates from generatedXsltKey
+        CachedTemplates cachedTemplates = getTemplates(synCtx, synLog, generatedXsltKey);
 
         try {
             // perform transformation
             Transformer transformer = null;
-            try {
-                transformer = cachedTemplates.newTransformer();
-            } catch (NullPointerException ex) {
-                handleException("Unable to create Transformer using cached template", ex, synCtx);
+            if (cachedTemplates == null) {
+                handleException("Unable to create Transformer using cached template", synCtx);
             }
+            transformer = cachedTemplates.borrowTransformer();
             if (!properties.isEmpty()) {
                 // set the parameters which will pass to the Transformation
                 applyProperties(transformer, synCtx, synLog);
@@ -359,6 +373,8 @@ public class XSLTMediator extends AbstractMediator {
             } finally {
                 sourceBuilder.release();
             }
+            // the transformer is not used any further, so it can be reused by another message
+            cachedTemplates.releaseTransformer(transformer);
 
             synLog.traceOrDebug("Transformation completed - processing result");
 
@@ -450,15 +466,64 @@ public class XSLTMediator extends AbstractMediator {
     }
 
     /**
-     * Create a XSLT template object and assign it to the cachedTemplates variable
+     * Get the compiled template of the given XSLT key, compiling it if it is not cached or if the
+     * XSLT resource has changed since it was compiled. Cached templates are read without locking.
+     *
      * @param synCtx current message
      * @param synLog logger to use
-     * @param generatedXsltKey evaluated xslt key(real key value) for dynamic or static key 
+     * @param generatedXsltKey evaluated xslt key(real key value) for dynamic or static key
      * @return cached template
      */
-    private Templates createTemplate(MessageContext synCtx, SynapseLog synLog, String generatedXsltKey) {
+    private CachedTemplates getTemplates(MessageContext synCtx, SynapseLog synLog, String generatedXsltKey) {
+        if (!useCache) {
+            synchronized (transformerLock) {
+                return createTemplate(synCtx, synLog, generatedXsltKey, null);
+            }
+        }
+
+        String cacheKey = cacheKeyPrefix + generatedXsltKey;
+        CachedTemplates cachedTemplates = templatesCache.get(cacheKey);
+        if (cachedTemplates != null && cachedTemplates.getEntryVersion().isValid(
+                synCtx.getConfiguration().getEntryDefinition(generatedXsltKey))) {
+            return cachedTemplates;
+        }
+
+        // many threads can see this and come here for acquiring the lock
+        synchronized (transformerLock) {
+            // only first thread should create the template
+            cachedTemplates = templatesCache.peek(cacheKey);
+            if (cachedTemplates != null && cachedTemplates.getEntryVersion().isValid(
+                    synCtx.getConfiguration().getEntryDefinition(generatedXsltKey))) {
+                return cachedTemplates;
+            }
+            cachedTemplates = createTemplate(synCtx, synLog, generatedXsltKey, cachedTemplates);
+            if (cachedTemplates != null) {
+                templatesCache.put(cacheKey, cachedTemplates);
+            }
+            return cachedTemplates;
+        }
+    }
+
+    /**
+     * Create a XSLT template object. If the XSLT is a registry resource whose version has not
+     * changed since the previous template was compiled, the previous template is returned.
+     *
+     * @param synCtx current message
+     * @param synLog logger to use
+     * @param generatedXsltKey evaluated xslt key(real key value) for dynamic or static key
+     * @param previousTemplates the template previously compiled for the key, or null
+     * @return cached template
+     */
+    private CachedTemplates createTemplate(MessageContext synCtx, SynapseLog synLog, String generatedXsltKey,
+                                           CachedTemplates previousTemplates) {
         // Assign created template
-        Templates cachedTemplates = null;
+        CachedTemplates cachedTemplates = null;
+
+        Object xslt = synCtx.getEntry(generatedXsltKey);
+        EntryVersion entryVersion = EntryVersion.of(synCtx.getConfiguration().getEntryDefinition(generatedXsltKey));
+        if (previousTemplates != null && previousTemplates.getEntryVersion().isSameVersion(entryVersion)) {
+            return previousTemplates;
+        }
 
         // Set an error listener (SYNAPSE-307).
         transFact.setErrorListener(new ErrorListenerImpl(synLog, STYLESHEET_PARSING_ACTIVITY));
@@ -467,16 +532,14 @@ public class XSLTMediator extends AbstractMediator {
         transFact.setURIResolver(customJAXPURIResolver);
         if (resourceMap != null) customJAXPURIResolver.setMessageContext(synCtx);
         try {
-            cachedTemplates = transFact.newTemplates(
-                    SynapseConfigUtils.getStreamSource(synCtx.getEntry(generatedXsltKey)));
-            if (cachedTemplates == null) {
+            Templates templates = transFact.newTemplates(SynapseConfigUtils.getStreamSource(xslt));
+            if (templates == null) {
                 // if cached template creation failed
                 handleException("Error compiling the XSLT with key : " + xsltKey, synCtx);
             } else {
-                if (useCache) {
-                    // if cached template is created then put it in to cachedTemplatesMap
-                    cachedTemplatesMap.put(generatedXsltKey, cachedTemplates);
-                }
+                // transformers are only pooled when the template is cached
+                cachedTemplates = new CachedTemplates(templates, entryVersion,
+                        useCache ? transformerPoolSize : 0);
             }
         } catch (Exception e) {
             handleException("Error creating XSLT transformer using : " + xsltKey, e, synCtx);
@@ -486,31 +549,17 @@ public class XSLTMediator extends AbstractMediator {
         return cachedTemplates;
     }
 
+    public void init(SynapseEnvironment se) {
+        // nothing to initialize, templates are compiled when they are first used
+    }
+
     /**
-     * Utility method to determine weather it is needed to create a XSLT template
-     *
-     * @param synCtx current message
-     * @return true if it is needed to create a new XSLT template
+     * Remove the templates compiled by this mediator from the templates cache
      */
-    private boolean isCreationOrRecreationRequired(MessageContext synCtx) {
-        if (!useCache){
-            return true;
-        } else {
-            // Derive actual key from message context
-            String generatedXsltKey = xsltKey.evaluateValue(synCtx);
-
-            // if there are no cachedTemplates inside cachedTemplatesMap or
-            // if the template related to this generated key is not cached
-            // then it need to be cached
-            if (cachedTemplatesMap.isEmpty() || !cachedTemplatesMap.containsKey(generatedXsltKey)) {
-                // this is a creation case
-                return true;
-            } else {
-                // build transformer - if necessary
-                Entry dp = synCtx.getConfiguration().getEntryDefinition(generatedXsltKey);
-                // if the xsltKey refers to a dynamic resource, and if it has been expired
-                // it is a recreation case
-                return dp != null && dp.isDynamic() && (!dp.isCached() || dp.isExpired());
+    public void destroy() {
+        for (Iterator<String> itr = templatesCache.keySet().iterator(); itr.hasNext(); ) {
+            if (itr.next().startsWith(cacheKeyPrefix)) {
+                itr.remove();
             }
         }
     }
@@ -703,7 +752,56 @@ public class XSLTMediator extends AbstractMediator {
         this.useCache = useCache;
     }
 
-}
 
-	
+    /**
+     * A compiled template along with the version of the XSLT it was compiled from, and a pool of
+     * idle transformers created from the template.
+     */
+    private static final class CachedTemplates {
+
+        private final Templates templates;
+
+        private final EntryVersion entryVersion;
+
+        private final int poolSize;
+
+        private final ConcurrentLinkedQueue<Transformer> idleTransformers =
+                new ConcurrentLinkedQueue<Transformer>();
+
+        private final AtomicInteger idleCount = new AtomicInteger(0);
+
+        private CachedTemplates(Templates templates, EntryVersion entryVersion, int poolSize) {
+            this.templates = templates;
+            this.entryVersion = entryVersion;
+            this.poolSize = poolSize;
+        }
+
+        private EntryVersion getEntryVersion() {
+            return entryVersion;
+        }
+
+        private Transformer borrowTransformer() throws TransformerConfigurationException {
+            Transformer transformer = idleTransformers.poll();
+            if (transformer == null) {
+                return templates.newTransformer();
+            }
+            idleCount.decrementAndGet();
+            return transformer;
+        }
 
+        private void releaseTransformer(Transformer transformer) {
+            if (idleCount.incrementAndGet() > poolSize) {
+                idleCount.decrementAndGet();
+                return;
+            }
+            try {
+                // clears the parameters and the error listener set for the previous message
+                transformer.reset();
+            } catch (UnsupportedOperationException e) {
+                idleCount.decrementAndGet();
+                return;
+            }
+            idleTransformers.offer(transformer);
+        }
+    }
+}
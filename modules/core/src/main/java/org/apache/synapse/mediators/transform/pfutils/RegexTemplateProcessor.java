@@ -24,77 +24,212 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.mediators.transform.ArgumentDetails;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * TemplateProcessor implementation for Regex based templates
+ * TemplateProcessor implementation for Regex based templates.
+ *
+ * A template is compiled once into literal segments and argument references, when the processor
+ * is initialized or when a different template is given, so the template is not scanned again for
+ * each message. The payload of a message is built in a buffer which is reused by the thread.
  */
 public class RegexTemplateProcessor extends TemplateProcessor {
 
     private static final Log log = LogFactory.getLog(RegexTemplateProcessor.class);
-    private final Pattern pattern = Pattern.compile("\\$(\\d)+");
+
+    /**
+     * Buffers larger than this are not kept for the next message of the thread
+     */
+    private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(1024);
+        }
+    };
+
+    private volatile CompiledTemplate compiledTemplate;
 
     @Override
     public String processTemplate(String template, String mediaType, MessageContext synCtx) {
 
-        StringBuffer result = new StringBuffer();
-        replace(template, result, mediaType, synCtx);
-        return result.toString();
+        StringBuilder result = buffers.get();
+        result.setLength(0);
+        try {
+            replace(getCompiledTemplate(template, mediaType), result, mediaType, synCtx);
+            return result.toString();
+        } finally {
+            if (result.capacity() > MAX_REUSED_BUFFER_SIZE) {
+                buffers.remove();
+            }
+        }
     }
 
     @Override
     public void init() {
-        // nothing to do since no pre processing is needed
+        if (getFormat() != null) {
+            compiledTemplate = new CompiledTemplate(getFormat(), getMediaType());
+        }
+    }
+
+    private CompiledTemplate getCompiledTemplate(String template, String mediaType) {
+
+        CompiledTemplate compiled = compiledTemplate;
+        if (compiled == null || !compiled.isCompiledFrom(template, mediaType)) {
+            compiled = new CompiledTemplate(template, mediaType);
+            compiledTemplate = compiled;
+        }
+        return compiled;
     }
 
     /**
-     * Replaces the payload format with SynapsePath arguments which are evaluated using getArgValues().
+     * Replaces the argument references of the payload format with SynapsePath arguments which are evaluated using
+     * getArgValues().
      *
-     * @param format
-     * @param result
+     * @param template the compiled payload format
+     * @param result buffer to which the payload is written
      * @param synCtx
      */
-    private void replace(String format, StringBuffer result, String mediaType, MessageContext synCtx) {
+    private void replace(CompiledTemplate template, StringBuilder result, String mediaType, MessageContext synCtx) {
 
         HashMap<String, ArgumentDetails>[] argValues = getArgValues(mediaType, synCtx);
-        HashMap<String, ArgumentDetails> replacement;
         Map.Entry<String, ArgumentDetails> replacementEntry;
         String replacementValue;
-        Matcher matcher;
 
-        if (JSON_TYPE.equals(mediaType) || TEXT_TYPE.equals(mediaType)) {
-            matcher = pattern.matcher(format);
-        } else {
-            matcher = pattern.matcher("<pfPadding>" + format + "</pfPadding>");
-        }
+        result.append(template.literals[0]);
+        int i = 0;
         try {
-            while (matcher.find()) {
-                String matchSeq = matcher.group();
-                replacement = getReplacementValue(argValues, matchSeq);
-                replacementEntry = replacement.entrySet().iterator().next();
+            for (; i < template.references.length; i++) {
+                replacementEntry = argValues[template.argIndexes[i] - 1].entrySet().iterator().next();
                 replacementValue = prepareReplacementValue(mediaType, synCtx, replacementEntry);
-                matcher.appendReplacement(result, replacementValue);
+                appendReplacement(result, replacementValue, template.references[i]);
+                result.append(template.literals[i + 1]);
             }
         } catch (ArrayIndexOutOfBoundsException e) {
             log.error("#replace. Mis-match detected between number of formatters and arguments", e);
+            // the rest of the format is kept as it is
+            for (; i < template.references.length; i++) {
+                result.append(template.references[i]).append(template.literals[i + 1]);
+            }
         }
-        matcher.appendTail(result);
     }
 
-    private HashMap<String, ArgumentDetails> getReplacementValue(HashMap<String, ArgumentDetails>[] argValues,
-                                                                 String matchSeq) {
+    /**
+     * Appends a replacement value which is escaped for {@link java.util.regex.Matcher#appendReplacement}, as the
+     * values prepared by the TemplateProcessor are. A backslash escapes the next character, and $0 and $1 refer to
+     * the argument reference and to its last digit.
+     *
+     * @param result buffer to which the value is appended
+     * @param replacement the replacement value
+     * @param reference the argument reference which is replaced, such as $1
+     */
+    private static void appendReplacement(StringBuilder result, String replacement, String reference) {
 
-        HashMap<String, ArgumentDetails> replacement;
-        int argIndex;
-        try {
-            argIndex = Integer.parseInt(matchSeq.substring(1));
-        } catch (NumberFormatException e) {
-            argIndex = Integer.parseInt(matchSeq.substring(2, matchSeq.length() - 1));
+        if (replacement.indexOf('\\') < 0 && replacement.indexOf('$') < 0) {
+            result.append(replacement);
+            return;
+        }
+        int cursor = 0;
+        while (cursor < replacement.length()) {
+            char nextChar = replacement.charAt(cursor);
+            if (nextChar == '\\') {
+                cursor++;
+                if (cursor == replacement.length()) {
+                    throw new IllegalArgumentException("character to be escaped is missing");
+                }
+                result.append(replacement.charAt(cursor));
+                cursor++;
+            } else if (nextChar == '$') {
+                cursor++;
+                if (cursor == replacement.length()) {
+                    throw new IllegalArgumentException("Illegal group reference: group index is missing");
+                }
+                int refNum = replacement.charAt(cursor) - '0';
+                if (refNum < 0 || refNum > 9) {
+                    throw new IllegalArgumentException("Illegal group reference");
+                }
+                cursor++;
+                // as the reference has a single group, leading zeros are the only further digits of a group number
+                while (refNum == 0 && cursor < replacement.length()
+                        && (replacement.charAt(cursor) == '0' || replacement.charAt(cursor) == '1')) {
+                    refNum = replacement.charAt(cursor) - '0';
+                    cursor++;
+                }
+                if (refNum > 1) {
+                    throw new IndexOutOfBoundsException("No group " + refNum);
+                }
+                result.append(refNum == 0 ? reference : reference.substring(reference.length() - 1));
+            } else {
+                result.append(nextChar);
+                cursor++;
+            }
+        }
+    }
+
+    /**
+     * A payload format split into literal segments and the argument references between them
+     */
+    private static final class CompiledTemplate {
+
+        private final String template;
+        private final String mediaType;
+        private final String[] literals;
+        private final String[] references;
+        private final int[] argIndexes;
+
+        private CompiledTemplate(String template, String mediaType) {
+
+            this.template = template;
+            this.mediaType = mediaType;
+            String format;
+            if (JSON_TYPE.equals(mediaType) || TEXT_TYPE.equals(mediaType)) {
+                format = template;
+            } else {
+                format = "<pfPadding>" + template + "</pfPadding>";
+            }
+            List<String> literalList = new ArrayList<>();
+            List<String> referenceList = new ArrayList<>();
+            int literalStart = 0;
+            int index = format.indexOf('$');
+            while (index >= 0) {
+                int end = index + 1;
+                while (end < format.length() && format.charAt(end) >= '0' && format.charAt(end) <= '9') {
+                    end++;
+                }
+                if (end > index + 1) {
+                    literalList.add(format.substring(literalStart, index));
+                    referenceList.add(format.substring(index, end));
+                    literalStart = end;
+                }
+                index = format.indexOf('$', end);
+            }
+            literalList.add(format.substring(literalStart));
+            literals = literalList.toArray(new String[literalList.size()]);
+            references = referenceList.toArray(new String[referenceList.size()]);
+            argIndexes = new int[references.length];
+            for (int i = 0; i < references.length; i++) {
+                argIndexes[i] = getArgIndex(references[i]);
+            }
+        }
+
+        private static int getArgIndex(String reference) {
+
+            try {
+                return Integer.parseInt(reference.substring(1));
+            } catch (NumberFormatException e) {
+                // out of range, which is reported as a mis-match with the arguments
+                return 0;
+            }
+        }
+
+        private boolean isCompiledFrom(String template, String mediaType) {
+
+            return (this.template == template || this.template.equals(template))
+                    && (this.mediaType == mediaType || (this.mediaType != null && this.mediaType.equals(mediaType)));
         }
-        replacement = argValues[argIndex - 1];
-        return replacement;
     }
 }
@@ -20,6 +20,9 @@ package org.apache.synapse.message;
 
 import org.apache.synapse.MessageContext;
 
+import java.util.Collections;
+import java.util.List;
+
 public interface MessageConsumer {
     /**
      * Receives the next message from the store.
@@ -27,12 +30,40 @@ public interface MessageConsumer {
      */
     MessageContext receive();
 
+    /**
+     * Receives up to the given number of messages from the store, in the order of the store. The
+     * messages are not removed from the store until they are acknowledged with {@link #ack(List)}.
+     * Consumers which cannot hold more than one unacknowledged message return at most one message.
+     *
+     * @param maxMessages maximum number of messages to be received
+     * @return the received messages, or an empty list if there are no messages in the store
+     */
+    default List<MessageContext> receive(int maxMessages) {
+        MessageContext message = receive();
+        if (message == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(message);
+    }
+
     /**
      * Acknowledges the last message received so that it will be removed from the store.
      * @return {@code true} if the acknowledgement is successful. {@code false} otherwise.
      */
     boolean ack();
 
+    /**
+     * Acknowledges the given messages, received with {@link #receive(int)}, so that they will be
+     * removed from the store. Messages of the last batch which are not acknowledged are kept in
+     * the store.
+     *
+     * @param messages messages to be acknowledged
+     * @return {@code true} if the acknowledgement is successful. {@code false} otherwise.
+     */
+    default boolean ack(List<MessageContext> messages) {
+        return messages.isEmpty() || ack();
+    }
+
     /**
      * Cleans up this message consumer
      * @return {@code true} if cleanup is successful, {@code false} otherwise.
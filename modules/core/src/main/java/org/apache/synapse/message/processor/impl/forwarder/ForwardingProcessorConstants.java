@@ -81,4 +81,15 @@ public final class ForwardingProcessorConstants {
      * Message store to keep un-processable messages of message processor
      */
     public static final String FAIL_MESSAGES_STORE = "message.processor.failMessagesStore";
+
+    /**
+     * Maximum number of messages fetched from the message store in a single poll
+     */
+    public static final String BATCH_SIZE = "batch.size";
+
+    /**
+     * Maximum number of messages of a batch which are forwarded concurrently. The messages are
+     * forwarded in the order of the store only when this is 1
+     */
+    public static final String IN_FLIGHT_WINDOW = "in.flight.window";
 }
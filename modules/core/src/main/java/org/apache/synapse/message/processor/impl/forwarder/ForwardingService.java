@@ -70,6 +70,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -77,14 +78,23 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * This task is responsible for forwarding a request to a given endpoint. This
- * is based on a blocking implementation and can send only one message at a
- * time. Also this supports Throttling and reliable messaging.
+ * is based on a blocking implementation and sends one message at a time, unless
+ * a batch size is configured, in which case a batch of messages is fetched from
+ * the store and forwarded concurrently up to the in-flight window. Also this
+ * supports Throttling and reliable messaging.
  */
 public class ForwardingService implements Task, ManagedLifecycle {
 	private static final Log log = LogFactory.getLog(ForwardingService.class);
@@ -193,7 +203,33 @@ public class ForwardingService implements Task, ManagedLifecycle {
     /**
      * Lock for store message operation
      */
-    private final Object storeMessageLock = new Object();
+    private final Object storeMessageLock;
+
+	/*
+	 * Maximum number of messages fetched from the store in a single poll, and the
+	 * number of those forwarded concurrently. The messages are forwarded in the
+	 * order of the store only when the in-flight window is 1.
+	 */
+	private int batchSize = 1;
+	private int inFlightWindow = 1;
+
+	/*
+	 * Each message of a batch is forwarded by a lane, which is a copy of this
+	 * service holding the delivery state of a single message. The executor is
+	 * only used when the in-flight window is larger than 1.
+	 */
+	private List<ForwardingService> lanes = Collections.emptyList();
+	private BlockingQueue<ForwardingService> idleLanes;
+	private ThreadPoolExecutor batchExecutor;
+
+	/*
+	 * Lanes report the acknowledgement of their message to the service owning the
+	 * batch, which acknowledges the whole batch with the consumer.
+	 */
+	private boolean isAckDeferred = false;
+	private boolean isAcknowledged = false;
+
+	private final MessageForwardingMetrics metrics;
 
 	public ForwardingService(MessageProcessor messageProcessor, BlockingMsgSender sender,
 							 SynapseEnvironment synapseEnvironment, long threshouldInterval) {
@@ -202,6 +238,8 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		this.synapseEnvironment = synapseEnvironment;
 		// Initializes the interval to the Threshould interval value.
 		this.interval = threshouldInterval;
+		this.storeMessageLock = new Object();
+		this.metrics = getMetrics(messageProcessor);
 	}
 
 	public ForwardingService(MessageProcessor messageProcessor, BlockingMsgSender sender,
@@ -212,6 +250,35 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		this.synapseEnvironment = synapseEnvironment;
 		this.interval = thresholdInterval;
 		this.isDeactivatedAtStartup = isDeactivatedAtStartup;
+		this.storeMessageLock = new Object();
+		this.metrics = getMetrics(messageProcessor);
+	}
+
+	/**
+	 * Creates a lane which forwards single messages of the batches fetched by the
+	 * given service, sharing its configuration and message consumer.
+	 *
+	 * @param owner the service fetching the batches
+	 */
+	private ForwardingService(ForwardingService owner) {
+		this.messageProcessor = owner.messageProcessor;
+		this.sender = owner.sender;
+		this.synapseEnvironment = owner.synapseEnvironment;
+		this.interval = owner.interval;
+		this.storeMessageLock = owner.storeMessageLock;
+		this.metrics = owner.metrics;
+		this.messageConsumer = owner.messageConsumer;
+		this.retryInterval = owner.retryInterval;
+		this.faultSeq = owner.faultSeq;
+		this.replySeq = owner.replySeq;
+		this.deactivateSeq = owner.deactivateSeq;
+		this.targetEndpoint = owner.targetEndpoint;
+		this.failMessageStore = owner.failMessageStore;
+		this.nonRetryStatusCodes = owner.nonRetryStatusCodes;
+		this.maxDeliverAttempts = owner.maxDeliverAttempts;
+		this.isMaxDeliveryAttemptDropEnabled = owner.isMaxDeliveryAttemptDropEnabled;
+		this.isAckDeferred = true;
+		this.initialized = true;
 	}
 
 	/**
@@ -249,18 +316,22 @@ public class ForwardingService implements Task, ManagedLifecycle {
 			MessageContext messageContext = null;
 			try {
 				if (!this.messageProcessor.isDeactivated()) {
-					messageContext = fetch();
+					List<MessageContext> batch = null;
+					if (batchSize > 1) {
+						batch = fetch(batchSize);
+						messageContext = batch.isEmpty() ? null : batch.get(0);
+					} else {
+						messageContext = fetch();
+					}
 					if (messageContext != null) {
-
-						Set proSet = messageContext.getPropertyKeySet();
-						if (proSet != null) {
-							if (proSet.contains(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR)) {
-								proSet.remove(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR);
-							}
-						}
 						// Now it is NOT terminated anymore.
 						isTerminated = messageProcessor.isDeactivated();
-						dispatch(messageContext);
+						if (batch != null) {
+							dispatch(batch);
+						} else {
+							removeBlockingSenderError(messageContext);
+							dispatch(messageContext);
+						}
 					} else {
 						// either the connection is broken or there are no new
 						// massages.
@@ -434,6 +505,22 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		if (StringUtils.isNotBlank(intervalParameter)) {
 			interval = Long.parseLong(intervalParameter);
 		}
+
+		String batchSizeParameter = (String) parametersMap.get(ForwardingProcessorConstants.BATCH_SIZE);
+		if (StringUtils.isNotBlank(batchSizeParameter)) {
+			batchSize = Math.max(1, Integer.parseInt(batchSizeParameter.trim()));
+		}
+
+		String inFlightWindowParameter = (String) parametersMap.get(ForwardingProcessorConstants.IN_FLIGHT_WINDOW);
+		if (StringUtils.isNotBlank(inFlightWindowParameter)) {
+			inFlightWindow = Math.max(1, Integer.parseInt(inFlightWindowParameter.trim()));
+		}
+		// There can not be more messages in flight than the messages of a batch
+		inFlightWindow = Math.min(inFlightWindow, batchSize);
+
+		if (batchSize > 1) {
+			initLanes();
+		}
 		/*
 		 * Make sure to set the isInitialized flag to TRUE in order to avoid
 		 * re-initialization.
@@ -466,14 +553,36 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	 *                               made by consumer to poll messages will be closed
 	 */
 	public MessageContext fetch() throws StoreForwardException {
+		List<MessageContext> fetchedMessages = fetch(1);
+		return fetchedMessages.isEmpty() ? null : fetchedMessages.get(0);
+	}
+
+	/**
+	 * Receives up to the given number of messages from the message store, in the
+	 * order of the store. On a connection issue to store, retry will happen in this
+	 * method
+	 *
+	 * @param maxMessages maximum number of messages to be received
+	 * @return the messages received from the store, which is empty if there are no
+	 * messages in the store
+	 * @throws StoreForwardException on an issue fetching messages from store
+	 */
+	public List<MessageContext> fetch(int maxMessages) throws StoreForwardException {
 
-		MessageContext fetchedMessage = null;
+		List<MessageContext> fetchedMessages = Collections.emptyList();
 
 		for (int connAttempt = 0;
 			 connAttempt < maxConnectionAttemptsToStore || maxConnectionAttemptsToStore == -1;
 			 connAttempt++) {
 			try {
-				fetchedMessage = messageConsumer.receive();
+				if (maxMessages > 1) {
+					fetchedMessages = messageConsumer.receive(maxMessages);
+				} else {
+					MessageContext fetchedMessage = messageConsumer.receive();
+					if (fetchedMessage != null) {
+						fetchedMessages = Collections.singletonList(fetchedMessage);
+					}
+				}
 				break;
 			} catch (SynapseException e) {
 				/*used message in the exception to keep Interface MessageConsumer unchanged.
@@ -495,8 +604,140 @@ public class ForwardingService implements Task, ManagedLifecycle {
 				}
 			}
 		}
-		MessageProcessorUtils.removeStatisticsReportingEventHolder(fetchedMessage);
-		return fetchedMessage;
+		for (MessageContext fetchedMessage : fetchedMessages) {
+			MessageProcessorUtils.removeStatisticsReportingEventHolder(fetchedMessage);
+		}
+		return fetchedMessages;
+	}
+
+	/**
+	 * Forwards a batch of messages received from the store and acknowledges the
+	 * forwarded messages in bulk. With an in-flight window of 1 the messages are
+	 * forwarded one after the other in the order of the store, and the messages
+	 * following a message which could not be forwarded are kept in the store.
+	 * Otherwise up to the in-flight window of messages are forwarded concurrently.
+	 *
+	 * @param messages synapse {@link MessageContext}s to be sent
+	 */
+	public void dispatch(List<MessageContext> messages) {
+		if (log.isDebugEnabled()) {
+			log.debug("Sending a batch of " + messages.size() + " messages with message processor ["
+					+ messageProcessor.getName() + "]");
+		}
+		if (lanes.isEmpty()) {
+			initLanes();
+		}
+		metrics.batchReceived(messages.size());
+		List<MessageContext> forwardedMessages = new ArrayList<MessageContext>(messages.size());
+		try {
+			if (batchExecutor == null) {
+				ForwardingService lane = lanes.get(0);
+				for (MessageContext message : messages) {
+					if (!dispatch(lane, message)) {
+						break;
+					}
+					forwardedMessages.add(message);
+				}
+			} else {
+				dispatchConcurrently(messages, forwardedMessages);
+			}
+		} finally {
+			if (!forwardedMessages.isEmpty() && !messageConsumer.ack(forwardedMessages)) {
+				log.error("Message processor [" + messageProcessor.getName() + "] failed to acknowledge "
+						+ forwardedMessages.size() + " forwarded messages");
+			}
+			metrics.batchCompleted(messages.size());
+		}
+	}
+
+	/**
+	 * Forwards the messages of a batch concurrently, each on an idle lane, and
+	 * collects the messages which were forwarded in the order of the batch.
+	 */
+	private void dispatchConcurrently(List<MessageContext> messages, List<MessageContext> forwardedMessages) {
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(messages.size());
+		for (final MessageContext message : messages) {
+			results.add(batchExecutor.submit(new Callable<Boolean>() {
+				public Boolean call() throws InterruptedException {
+					ForwardingService lane = idleLanes.take();
+					try {
+						return dispatch(lane, message);
+					} finally {
+						idleLanes.add(lane);
+					}
+				}
+			}));
+		}
+		for (int i = 0; i < results.size(); i++) {
+			try {
+				if (results.get(i).get()) {
+					forwardedMessages.add(messages.get(i));
+				}
+			} catch (ExecutionException e) {
+				log.error("Message processor [" + messageProcessor.getName()
+						+ "] failed to send a message of the batch to the client", e.getCause());
+			} catch (InterruptedException e) {
+				// the messages which are still in flight are kept in the store
+				log.warn("Message processor [" + messageProcessor.getName()
+						+ "] was interrupted while waiting for the batch to be forwarded");
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Forwards a single message of a batch on the given lane.
+	 *
+	 * @return <code>true</code> if the message can be acknowledged
+	 */
+	private boolean dispatch(ForwardingService lane, MessageContext messageContext) {
+		lane.resetService();
+		lane.isAcknowledged = false;
+		lane.isTerminated = isTerminated || messageProcessor.isDeactivated();
+		if (lane.isTerminated) {
+			return false;
+		}
+		removeBlockingSenderError(messageContext);
+		lane.dispatch(messageContext);
+		return lane.isAcknowledged;
+	}
+
+	private void initLanes() {
+		lanes = new ArrayList<ForwardingService>(inFlightWindow);
+		for (int i = 0; i < inFlightWindow; i++) {
+			lanes.add(new ForwardingService(this));
+		}
+		if (inFlightWindow > 1) {
+			idleLanes = new LinkedBlockingQueue<ForwardingService>(lanes);
+			final String threadName = "forwarding-service-" + messageProcessor.getName();
+			batchExecutor = new ThreadPoolExecutor(inFlightWindow, inFlightWindow, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, threadName);
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			// let the threads go while the processor is idle
+			batchExecutor.allowCoreThreadTimeOut(true);
+		}
+	}
+
+	private void removeBlockingSenderError(MessageContext messageContext) {
+		Set proSet = messageContext.getPropertyKeySet();
+		if (proSet != null) {
+			if (proSet.contains(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR)) {
+				proSet.remove(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR);
+			}
+		}
+	}
+
+	private static MessageForwardingMetrics getMetrics(MessageProcessor messageProcessor) {
+		if (messageProcessor instanceof ScheduledMessageForwardingProcessor) {
+			return ((ScheduledMessageForwardingProcessor) messageProcessor).getMetrics();
+		}
+		return new MessageForwardingMetrics();
 	}
 
 	/**
@@ -783,7 +1024,8 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	 * @param endpoint
 	 */
 	private void onForwardSuccess(Endpoint endpoint) {
-		messageConsumer.ack();
+		acknowledge();
+		metrics.forwarded();
 		attemptCount = 0;
 		isSuccessful = true;
 
@@ -945,6 +1187,9 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	public boolean terminate() {
 		try {
 			isTerminated = true;
+			for (ForwardingService lane : lanes) {
+				lane.isTerminated = true;
+			}
 			// Thread.currentThread().interrupt();
 
 			if (log.isDebugEnabled()) {
@@ -969,6 +1214,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		if (maxDeliverAttempts > 0) {
 			this.attemptCount++;
 			if (attemptCount >= maxDeliverAttempts) {
+				metrics.failed();
 
 				if (this.isMaxDeliveryAttemptDropEnabled) {
 					dropMessageAndContinueMessageProcessor();
@@ -1047,7 +1293,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	 * Acknowledge current message and reset message processor for next message
 	 */
 	private void dropMessageAndContinueMessageProcessor() {
-		messageConsumer.ack();
+		acknowledge();
 		attemptCount = 0;
 		isSuccessful = true;
 	}
@@ -1071,7 +1317,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
             produceStatus = messageStore.getProducer().storeMessage(forwardFailedMessage);
         }
 		if (produceStatus) {
-			messageConsumer.ack();
+			acknowledge();
 			attemptCount = 0;
 			isSuccessful = true;
 			log.info("Message processor [" + messageProcessor.getName()
@@ -1086,6 +1332,18 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		}
 	}
 
+	/**
+	 * Acknowledges the message being forwarded. Lanes of a batch only record the
+	 * acknowledgement, so that the batch is acknowledged in bulk.
+	 */
+	private void acknowledge() {
+		if (isAckDeferred) {
+			isAcknowledged = true;
+		} else {
+			messageConsumer.ack();
+		}
+	}
+
 	/**
 	 * Set message consumer of associated store
 	 * and set to the message processor
@@ -1127,6 +1385,9 @@ public class ForwardingService implements Task, ManagedLifecycle {
 
 	public void destroy() {
 		terminate();
+		if (batchExecutor != null) {
+			batchExecutor.shutdown();
+		}
 
 	}
 
@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Forwarding counters of a message forwarding processor, shared by all the forwarding services
+ * of the processor and exposed through the {@link MessageForwardingProcessorView}.
+ */
+public class MessageForwardingMetrics {
+
+    /** Length of the window over which the current throughput is calculated, in milliseconds */
+    private static final long THROUGHPUT_WINDOW = 1000;
+
+    private final AtomicLong forwardedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+
+    private final long startTime = System.currentTimeMillis();
+    private long windowStart = startTime;
+    private long windowForwardedCount = 0;
+    private volatile double throughput = 0;
+
+    /**
+     * Records a message which was forwarded to the endpoint and acknowledged.
+     */
+    public void forwarded() {
+        forwardedCount.incrementAndGet();
+        rollWindow(System.currentTimeMillis());
+    }
+
+    /**
+     * Records a message which could not be forwarded, and was either dropped, moved to the fail
+     * messages store or left in the store when the processor got deactivated.
+     */
+    public void failed() {
+        failedCount.incrementAndGet();
+    }
+
+    /**
+     * Records a batch of messages received from the store.
+     *
+     * @param size number of messages in the batch
+     */
+    public void batchReceived(int size) {
+        batchCount.incrementAndGet();
+        inFlightCount.addAndGet(size);
+    }
+
+    /**
+     * Records the completion of a batch of messages received from the store.
+     *
+     * @param size number of messages in the batch
+     */
+    public void batchCompleted(int size) {
+        inFlightCount.addAndGet(-size);
+    }
+
+    public long getForwardedCount() {
+        return forwardedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    /**
+     * Returns the number of messages forwarded per second over the last completed window.
+     *
+     * @return messages forwarded per second
+     */
+    public double getThroughput() {
+        rollWindow(System.currentTimeMillis());
+        return throughput;
+    }
+
+    /**
+     * Returns the average number of messages forwarded per second since the processor was started.
+     *
+     * @return messages forwarded per second
+     */
+    public double getAverageThroughput() {
+        long elapsed = System.currentTimeMillis() - startTime;
+        return elapsed > 0 ? forwardedCount.get() * 1000.0 / elapsed : 0;
+    }
+
+    private synchronized void rollWindow(long now) {
+        long elapsed = now - windowStart;
+        if (elapsed >= THROUGHPUT_WINDOW) {
+            long forwarded = forwardedCount.get();
+            throughput = (forwarded - windowForwardedCount) * 1000.0 / elapsed;
+            windowForwardedCount = forwarded;
+            windowStart = now;
+        }
+    }
+}
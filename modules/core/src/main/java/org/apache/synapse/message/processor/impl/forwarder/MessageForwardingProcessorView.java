@@ -72,4 +72,34 @@ public class MessageForwardingProcessorView implements MessageForwardingProcesso
         assert processor != null;
         return processor.isTaskLocationKnown();
     }
+
+    public long getForwardedCount() {
+        assert processor != null;
+        return processor.getMetrics().getForwardedCount();
+    }
+
+    public long getFailedCount() {
+        assert processor != null;
+        return processor.getMetrics().getFailedCount();
+    }
+
+    public double getThroughput() {
+        assert processor != null;
+        return processor.getMetrics().getThroughput();
+    }
+
+    public double getAverageThroughput() {
+        assert processor != null;
+        return processor.getMetrics().getAverageThroughput();
+    }
+
+    public int getInFlightCount() {
+        assert processor != null;
+        return processor.getMetrics().getInFlightCount();
+    }
+
+    public int getBacklog() {
+        assert processor != null;
+        return processor.getBacklog();
+    }
 }
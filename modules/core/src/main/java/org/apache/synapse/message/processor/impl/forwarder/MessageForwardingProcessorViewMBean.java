@@ -92,4 +92,40 @@ public interface MessageForwardingProcessorViewMBean {
      * @return true if the task location linked to this Message Processor is known
      */
     public boolean isTaskLocationKnown();
+
+    /**
+     * Get the number of messages successfully forwarded by the Message Processor
+     * @return number of forwarded messages
+     */
+    public long getForwardedCount();
+
+    /**
+     * Get the number of messages which the Message Processor failed to forward
+     * @return number of messages failed to be forwarded
+     */
+    public long getFailedCount();
+
+    /**
+     * Get the number of messages forwarded per second over the last second
+     * @return current forwarding throughput
+     */
+    public double getThroughput();
+
+    /**
+     * Get the average number of messages forwarded per second since the Message Processor started
+     * @return average forwarding throughput
+     */
+    public double getAverageThroughput();
+
+    /**
+     * Get the number of messages received from the Message store and not yet completed
+     * @return number of in-flight messages
+     */
+    public int getInFlightCount();
+
+    /**
+     * Get the number of messages waiting in the Message store
+     * @return number of messages in the store, or -1 if the store does not support it
+     */
+    public int getBacklog();
 }
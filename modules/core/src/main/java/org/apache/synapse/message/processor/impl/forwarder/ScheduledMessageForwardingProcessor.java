@@ -20,6 +20,7 @@ package org.apache.synapse.message.processor.impl.forwarder;
 
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.message.store.MessageStore;
 import org.apache.synapse.message.processor.impl.ScheduledMessageProcessor;
 import org.apache.synapse.task.Task;
 
@@ -29,6 +30,7 @@ import org.apache.synapse.task.Task;
  */
 public class ScheduledMessageForwardingProcessor extends ScheduledMessageProcessor {
     private MessageForwardingProcessorView view;
+    private final MessageForwardingMetrics metrics = new MessageForwardingMetrics();
 
 	@Override
 	public void init(SynapseEnvironment se) {
@@ -71,6 +73,27 @@ public class ScheduledMessageForwardingProcessor extends ScheduledMessageProcess
     public MessageForwardingProcessorView getView() {
         return view;
     }
+
+    /**
+     * Returns the forwarding counters shared by the forwarding services of this processor.
+     * @return The forwarding metrics of this processor.
+     */
+    public MessageForwardingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of messages waiting in the message store of this processor.
+     * @return The size of the message store, or -1 if the store does not support it.
+     */
+    public int getBacklog() {
+        if (synapseEnvironment == null) {
+            return -1;
+        }
+        MessageStore messageStore =
+                synapseEnvironment.getSynapseConfiguration().getMessageStore(getMessageStoreName());
+        return messageStore != null ? messageStore.size() : -1;
+    }
     
 	@Override
 	protected Task getTask() {
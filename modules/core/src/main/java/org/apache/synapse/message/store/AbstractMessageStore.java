@@ -31,7 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -100,13 +100,13 @@ public abstract class AbstractMessageStore implements MessageStore {
 
     private int maxProducerId = Integer.MAX_VALUE;
 
-    private AtomicLong enqueued = new AtomicLong(0);
-
-    private AtomicLong dequeued = new AtomicLong(0);
-
-    private static final long maxEnDequeuable = Long.MAX_VALUE;
+    /**
+     * Striped counters, so that concurrent producers and consumers do not contend on a single
+     * counter. An overflow of both counters still yields the correct difference.
+     */
+    private final LongAdder enqueued = new LongAdder();
 
-    private final Object messageCountLock = new Object();
+    private final LongAdder dequeued = new LongAdder();
 
     /** Name of the artifact container from which the message store deployed */
     private String artifactContainerName;
@@ -254,24 +254,18 @@ public abstract class AbstractMessageStore implements MessageStore {
 
 
     public void enqueued() {
-        synchronized (messageCountLock) {
-            enqueued.compareAndSet(maxEnDequeuable, 0);
-            enqueued.incrementAndGet();
-        }
+        enqueued.increment();
     }
 
     public void dequeued() {
-        synchronized (messageCountLock) {
-            dequeued.compareAndSet(maxEnDequeuable, 0);
-            dequeued.incrementAndGet();
-        }
+        dequeued.increment();
     }
 
     public long difference() {
-        synchronized (messageCountLock) {
-            long diff = enqueued.get() - dequeued.get();
-            return diff;
-        }
+        // the dequeued count is read first, so that a concurrent store and removal of a message
+        // does not make the difference negative
+        long dequeuedCount = dequeued.sum();
+        return enqueued.sum() - dequeuedCount;
     }
 
     /**
@@ -22,6 +22,7 @@ package org.apache.synapse.message.store;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.message.store.impl.jdbc.JDBCMessageStore;
+import org.apache.synapse.message.store.impl.memory.ConcurrentInMemoryStore;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -77,13 +78,14 @@ public class MessageStoreView implements MessageStoreViewMBean {
 
     /**
      * The message count in the store will be returned.
-     * The message count of the JDBC store taken from the table. The message count of other stores
+     * The message count of the JDBC store taken from the table, and the message count of the concurrent
+     * in memory store taken from its counter. The message count of other stores
      * taken as the difference between the enqueue and the dequeue, which calculated in memory.
      *
      * @return message count in the store
      */
     public long getSize() {
-        if (messageStore instanceof JDBCMessageStore) {
+        if (messageStore instanceof JDBCMessageStore || messageStore instanceof ConcurrentInMemoryStore) {
             return messageStore.size();
         } else {
             return ((AbstractMessageStore) messageStore).difference();
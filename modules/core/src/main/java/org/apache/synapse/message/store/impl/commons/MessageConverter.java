@@ -49,11 +49,13 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.rest.RESTConstants;
 import org.apache.synapse.util.UUIDGenerator;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -76,8 +78,48 @@ public final class MessageConverter {
 
     private static final Log logger = LogFactory.getLog(MessageConverter.class.getName());
 
+    private static final boolean binaryFormatEnabled = SynapsePropertiesLoader.getBooleanProperty(
+            SynapseConstants.MESSAGE_STORE_BINARY_FORMAT_ENABLED,
+            SynapseConstants.DEFAULT_MESSAGE_STORE_BINARY_FORMAT_ENABLED);
+
+    private static final StorableMessageCodec codec = new StorableMessageCodec(Integer.parseInt(
+            SynapsePropertiesLoader.getPropertyValue(SynapseConstants.MESSAGE_STORE_COMPRESSION_THRESHOLD,
+                    String.valueOf(SynapseConstants.DEFAULT_MESSAGE_STORE_COMPRESSION_THRESHOLD))));
+
     private MessageConverter() {}
 
+    /**
+     * Converts a storable message to the bytes persisted in a message store. The message is encoded in
+     * the binary format unless it is disabled, in which case Java serialization is used.
+     * @param message Message to be persisted
+     * @return Bytes representing the message
+     * @throws IOException if the message could not be encoded
+     */
+    public static byte[] toBytes(StorableMessage message) throws IOException {
+        if (binaryFormatEnabled) {
+            return codec.encode(message);
+        }
+        return StorableMessageCodec.serialize(message);
+    }
+
+    /**
+     * Converts the bytes read from a message store to a storable message. Both the binary format and
+     * messages persisted with Java serialization are accepted.
+     * @param bytes Bytes read from the message store
+     * @return Storable message, or null if the bytes do not represent a storable message
+     * @throws IOException if the bytes could not be decoded
+     */
+    public static StorableMessage fromBytes(byte[] bytes) throws IOException {
+        return codec.decode(bytes);
+    }
+
+    /**
+     * @return true if new messages are persisted in the binary format
+     */
+    public static boolean isBinaryFormatEnabled() {
+        return binaryFormatEnabled;
+    }
+
     /**
      * Converts a message read from the message store to a Synapse Message Context object.
      * @param message Message from the message store
@@ -0,0 +1,491 @@
+/**
+ *  Copyright (c) 2005-2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes storable messages in a compact, versioned binary format, where each field is written in a
+ * fixed order and each variable length value is prefixed with its length. The SOAP envelope and the
+ * JSON payload are compressed when they are larger than the compression threshold.
+ *
+ * The encoded messages start with a magic number, so that messages persisted with Java serialization
+ * by earlier versions are still read, by falling back to an object input stream.
+ */
+public class StorableMessageCodec {
+
+    /** Marks the start of a message encoded by this codec; Java serialization streams start with 0xACED */
+    private static final byte[] MAGIC = {'S', 'M', 'S', 'G'};
+
+    public static final byte VERSION = 1;
+
+    private static final int NULL_LENGTH = -1;
+
+    private static final byte PAYLOAD_PLAIN = 0;
+    private static final byte PAYLOAD_GZIP = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_CHARACTER = 6;
+    private static final byte TYPE_MAP = 7;
+    private static final byte TYPE_SORTED_MAP = 8;
+    private static final byte TYPE_SERIALIZED = 9;
+
+    private final int compressionThreshold;
+
+    /**
+     * Creates a codec.
+     *
+     * @param compressionThreshold size in bytes above which payloads are compressed, or a negative value
+     *                             to disable the compression
+     */
+    public StorableMessageCodec(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Checks whether the given bytes hold a message encoded by this codec.
+     *
+     * @param bytes bytes read from a message store
+     * @return true if the bytes start with the magic number of the binary format
+     */
+    public static boolean isEncoded(byte[] bytes) {
+        if (bytes == null || bytes.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the message in the binary format.
+     *
+     * @param message message to be encoded
+     * @return encoded message
+     * @throws IOException if a property value could not be serialized
+     */
+    public byte[] encode(StorableMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(estimateSize(message));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(message.getPriority());
+        writeAxis2Message(out, message.getAxis2message());
+        writeSynapseMessage(out, message.getSynapseMessage());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a message, which is either encoded by this codec or serialized with Java serialization.
+     *
+     * @param bytes bytes read from a message store
+     * @return the decoded message, or null if the bytes hold a serialized object other than a message
+     * @throws IOException if the bytes could not be decoded
+     */
+    public StorableMessage decode(byte[] bytes) throws IOException {
+        if (!isEncoded(bytes)) {
+            Object object = readSerializedObject(new ByteArrayInputStream(bytes));
+            return object instanceof StorableMessage ? (StorableMessage) object : null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, MAGIC.length,
+                bytes.length - MAGIC.length));
+        byte version = in.readByte();
+        if (version > VERSION) {
+            throw new StreamCorruptedException("Unsupported message format version : " + version);
+        }
+        StorableMessage message = new StorableMessage();
+        message.setPriority(in.readInt());
+        message.setAxis2message(readAxis2Message(in));
+        message.setSynapseMessage(readSynapseMessage(in));
+        return message;
+    }
+
+    private int estimateSize(StorableMessage message) {
+        Axis2Message axis2Message = message.getAxis2message();
+        int size = 1024;
+        if (axis2Message != null) {
+            if (axis2Message.getSoapEnvelope() != null) {
+                size += axis2Message.getSoapEnvelope().length();
+            }
+            if (axis2Message.getJsonStream() != null) {
+                size += axis2Message.getJsonStream().length;
+            }
+        }
+        return size;
+    }
+
+    private void writeAxis2Message(DataOutputStream out, Axis2Message message) throws IOException {
+        out.writeBoolean(message != null);
+        if (message == null) {
+            return;
+        }
+        writeString(out, message.getMessageID());
+        writeString(out, message.getOperationAction());
+        QName operationName = message.getOperationName();
+        out.writeBoolean(operationName != null);
+        if (operationName != null) {
+            writeString(out, operationName.getNamespaceURI());
+            writeString(out, operationName.getLocalPart());
+            writeString(out, operationName.getPrefix());
+        }
+        writeString(out, message.getAction());
+        writeString(out, message.getService());
+        writeString(out, message.getRelatesToMessageId());
+        writeString(out, message.getReplyToAddress());
+        writeString(out, message.getFaultToAddress());
+        writeString(out, message.getFromAddress());
+        writeString(out, message.getToAddress());
+        writeString(out, message.getTransportInName());
+        writeString(out, message.getTransportOutName());
+        out.writeBoolean(message.isDoingMTOM());
+        out.writeBoolean(message.isDoingSWA());
+        out.writeBoolean(message.isDoingPOX());
+        out.writeBoolean(message.isDoingGET());
+        out.writeInt(message.getFLOW());
+        String envelope = message.getSoapEnvelope();
+        writePayload(out, envelope == null ? null : envelope.getBytes(StandardCharsets.UTF_8));
+        writePayload(out, message.getJsonStream());
+        writeMap(out, message.getProperties());
+    }
+
+    private Axis2Message readAxis2Message(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Axis2Message message = new Axis2Message();
+        message.setMessageID(readString(in));
+        message.setOperationAction(readString(in));
+        if (in.readBoolean()) {
+            message.setOperationName(new QName(readString(in), readString(in), readString(in)));
+        }
+        message.setAction(readString(in));
+        message.setService(readString(in));
+        message.setRelatesToMessageId(readString(in));
+        message.setReplyToAddress(readString(in));
+        message.setFaultToAddress(readString(in));
+        message.setFromAddress(readString(in));
+        message.setToAddress(readString(in));
+        message.setTransportInName(readString(in));
+        message.setTransportOutName(readString(in));
+        message.setDoingMTOM(in.readBoolean());
+        message.setDoingSWA(in.readBoolean());
+        message.setDoingPOX(in.readBoolean());
+        message.setDoingGET(in.readBoolean());
+        message.setFLOW(in.readInt());
+        byte[] envelope = readPayload(in);
+        if (envelope != null) {
+            message.setSoapEnvelope(new String(envelope, StandardCharsets.UTF_8));
+        }
+        message.setJsonStream(readPayload(in));
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            message.addProperty(readString(in), readValue(in));
+        }
+        return message;
+    }
+
+    private void writeSynapseMessage(DataOutputStream out, SynapseMessage message) throws IOException {
+        out.writeBoolean(message != null);
+        if (message == null) {
+            return;
+        }
+        out.writeBoolean(message.isResponse());
+        out.writeBoolean(message.isFaultResponse());
+        out.writeInt(message.getTracingState());
+        out.writeInt(message.getMessageFlowTracingState());
+        List<String> localEntries = message.getLocalEntries();
+        out.writeInt(localEntries.size());
+        for (String localEntry : localEntries) {
+            writeString(out, localEntry);
+        }
+        Map<String, String> properties = message.getProperties();
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            writeString(out, property.getKey());
+            writeString(out, property.getValue());
+        }
+        Map<String, byte[]> propertyObjects = message.getPropertyObjects();
+        out.writeInt(propertyObjects.size());
+        for (Map.Entry<String, byte[]> propertyObject : propertyObjects.entrySet()) {
+            writeString(out, propertyObject.getKey());
+            writeBytes(out, propertyObject.getValue());
+        }
+    }
+
+    private SynapseMessage readSynapseMessage(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        SynapseMessage message = new SynapseMessage();
+        message.setResponse(in.readBoolean());
+        message.setFaultResponse(in.readBoolean());
+        message.setTracingState(in.readInt());
+        message.setMessageFlowTracingState(in.readInt());
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            message.addLocalEntry(readString(in));
+        }
+        size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            message.addProperty(readString(in), readString(in));
+        }
+        size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            message.addPropertyObject(readString(in), readBytes(in));
+        }
+        return message;
+    }
+
+    /**
+     * Writes a payload, compressing it if it is larger than the compression threshold and the
+     * compressed form is smaller.
+     */
+    private void writePayload(DataOutputStream out, byte[] payload) throws IOException {
+        if (payload == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        out.writeInt(payload.length);
+        if (compressionThreshold >= 0 && payload.length > compressionThreshold) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 4);
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            gzip.write(payload);
+            gzip.close();
+            if (compressed.size() < payload.length) {
+                out.writeByte(PAYLOAD_GZIP);
+                out.writeInt(compressed.size());
+                compressed.writeTo(out);
+                return;
+            }
+        }
+        out.writeByte(PAYLOAD_PLAIN);
+        out.write(payload);
+    }
+
+    private byte[] readPayload(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte encoding = in.readByte();
+        byte[] payload = new byte[checkLength(in, length, encoding == PAYLOAD_GZIP)];
+        if (encoding == PAYLOAD_PLAIN) {
+            in.readFully(payload);
+        } else if (encoding == PAYLOAD_GZIP) {
+            byte[] compressed = readBytes(in);
+            DataInputStream gzip = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+            try {
+                gzip.readFully(payload);
+            } finally {
+                gzip.close();
+            }
+        } else {
+            throw new StreamCorruptedException("Unknown payload encoding : " + encoding);
+        }
+        return payload;
+    }
+
+    private void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, String.valueOf(entry.getKey()));
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TYPE_CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value instanceof Map && isStringKeyed((Map<?, ?>) value)) {
+            // sorted maps such as the transport headers keep their ordering when read back
+            out.writeByte(value instanceof SortedMap ? TYPE_SORTED_MAP : TYPE_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else {
+            out.writeByte(TYPE_SERIALIZED);
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(serialized);
+            objectOut.writeObject(value);
+            objectOut.close();
+            writeBytes(out, serialized.toByteArray());
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_CHARACTER:
+                return in.readChar();
+            case TYPE_MAP:
+            case TYPE_SORTED_MAP:
+                Map<String, Object> map = type == TYPE_SORTED_MAP ? new TreeMap<String, Object>()
+                        : new HashMap<String, Object>();
+                int size = in.readInt();
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(in), readValue(in));
+                }
+                return map;
+            case TYPE_SERIALIZED:
+                return readSerializedObject(new ByteArrayInputStream(readBytes(in)));
+            default:
+                throw new StreamCorruptedException("Unknown property type : " + type);
+        }
+    }
+
+    private boolean isStringKeyed(Map<?, ?> map) {
+        if (map instanceof SortedMap && ((SortedMap<?, ?>) map).comparator() != null) {
+            // a custom ordering can not be restored from the binary format
+            return false;
+        }
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[checkLength(in, length, false)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Validates a length read from the stream before allocating a buffer for it, so that a corrupted
+     * message fails instead of allocating an arbitrary amount of memory.
+     */
+    private int checkLength(DataInputStream in, int length, boolean compressed) throws IOException {
+        if (length < 0) {
+            throw new StreamCorruptedException("Invalid length : " + length);
+        }
+        if (!compressed && length > in.available()) {
+            throw new EOFException("Length " + length + " exceeds the remaining " + in.available() + " bytes");
+        }
+        return length;
+    }
+
+    private static Object readSerializedObject(InputStream in) throws IOException {
+        ObjectInputStream objectIn = new ObjectInputStream(in);
+        try {
+            return objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not find the class of the serialized message", e);
+        } finally {
+            objectIn.close();
+        }
+    }
+
+    /**
+     * Serializes the message with Java serialization, in the format used by earlier versions.
+     *
+     * @param message message to be serialized
+     * @return serialized message
+     * @throws IOException if the message could not be serialized
+     */
+    public static byte[] serialize(StorableMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(message);
+        out.close();
+        return bytes.toByteArray();
+    }
+}
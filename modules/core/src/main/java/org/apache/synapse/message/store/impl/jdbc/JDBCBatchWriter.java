@@ -0,0 +1,244 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.message.store.impl.jdbc;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.message.store.impl.jdbc.util.Statement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the insert statements of concurrent store calls of a JDBC message store into JDBC batches,
+ * which are executed in a single transaction by the writer thread. A store call returns once the
+ * batch holding its statement is committed, so a successful store still means the message is
+ * persisted.
+ *
+ * The messages are serialized by the calling threads, and the writer thread starts a batch with the
+ * statements queued at the time, waiting up to the batch window for more statements. While a batch
+ * is being executed, the statements of the following store calls are queued for the next batch.
+ */
+public class JDBCBatchWriter {
+
+    private static final Log log = LogFactory.getLog(JDBCBatchWriter.class);
+
+    /**
+     * Time the writer thread waits for a statement before checking whether it has been stopped
+     */
+    private static final long POLL_INTERVAL = 1000;
+
+    private final JDBCMessageStore store;
+    private final int batchSize;
+    private final long batchWindow;
+    private final BlockingQueue<PendingWrite> pendingWrites = new LinkedBlockingQueue<PendingWrite>();
+    private final Thread writerThread;
+    private volatile boolean running = false;
+
+    /**
+     * Creates a batch writer for the given store.
+     *
+     * @param store       store to write the statements to
+     * @param batchSize   maximum number of statements in a batch
+     * @param batchWindow time in milliseconds a batch waits for more statements
+     */
+    public JDBCBatchWriter(JDBCMessageStore store, int batchSize, long batchWindow) {
+        this.store = store;
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+        this.writerThread = new Thread(new Writer(), "jdbc-message-store-writer-" + store.getName());
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Stops the writer thread and waits until the statements which are already queued are written,
+     * so that the store can be destroyed once this returns. The thread is not interrupted, since an
+     * interrupt may abort the connection used by the current batch.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (Thread.currentThread() == writerThread) {
+            return;
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the writer of store [" + store.getName() + "] to stop");
+        }
+    }
+
+    /**
+     * Queues the given statement to be executed with the next batch and waits for the batch to be
+     * committed. The statement is executed directly if the writer is not running.
+     *
+     * @param statement statement to be executed
+     * @return true if the statement is committed
+     * @throws SynapseException if the statement could not be executed
+     */
+    public boolean write(Statement statement) throws SynapseException {
+        store.serializeParameters(statement);
+        if (!running) {
+            return store.processNonResultingStatement(Collections.singletonList(statement));
+        }
+        PendingWrite write = new PendingWrite(statement);
+        pendingWrites.add(write);
+        if (!running && pendingWrites.remove(write)) {
+            // the writer was stopped before it could pick the statement
+            return store.processNonResultingStatement(Collections.singletonList(write.statement));
+        }
+        return write.await();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    private final class Writer implements Runnable {
+
+        public void run() {
+            List<PendingWrite> batch = new ArrayList<PendingWrite>(batchSize);
+            while (running || !pendingWrites.isEmpty()) {
+                try {
+                    PendingWrite first = pendingWrites.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    collect(batch);
+                } catch (InterruptedException e) {
+                    log.warn("Writer of store [" + store.getName() + "] was interrupted");
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+                }
+                write(batch);
+                batch.clear();
+            }
+        }
+
+        private void collect(List<PendingWrite> batch) throws InterruptedException {
+            pendingWrites.drainTo(batch, batchSize - batch.size());
+            long deadline = System.currentTimeMillis() + batchWindow;
+            while (batch.size() < batchSize && running) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                PendingWrite next = pendingWrites.poll(remaining, TimeUnit.MILLISECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                pendingWrites.drainTo(batch, batchSize - batch.size());
+            }
+        }
+
+        /**
+         * Executes the batch in a single transaction. If the batch fails, the statements are
+         * executed one by one, so that only the failing statements are reported as failed.
+         */
+        private void write(List<PendingWrite> batch) {
+            List<Statement> statements = new ArrayList<Statement>(batch.size());
+            for (PendingWrite write : batch) {
+                statements.add(write.statement);
+            }
+            try {
+                store.processBatchedStatements(statements);
+                for (PendingWrite write : batch) {
+                    write.complete(true, null);
+                }
+                return;
+            } catch (Throwable t) {
+                if (batch.size() == 1) {
+                    batch.get(0).complete(false, t);
+                    return;
+                }
+                log.warn("Batch insert of " + batch.size() + " messages to store [" + store.getName()
+                        + "] failed, inserting the messages one by one", t);
+            }
+            for (PendingWrite write : batch) {
+                try {
+                    List<Statement> statement = Collections.singletonList(write.statement);
+                    write.complete(store.processNonResultingStatement(statement), null);
+                } catch (Throwable t) {
+                    write.complete(false, t);
+                }
+            }
+        }
+    }
+
+    /**
+     * A statement waiting to be executed, along with the outcome of its execution.
+     */
+    private static final class PendingWrite {
+
+        private final Statement statement;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean result;
+        private volatile Throwable error;
+
+        private PendingWrite(Statement statement) {
+            this.statement = statement;
+        }
+
+        private void complete(boolean result, Throwable error) {
+            this.result = result;
+            this.error = error;
+            done.countDown();
+        }
+
+        private boolean await() throws SynapseException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SynapseException("Interrupted while waiting for the message to be stored", e);
+            }
+            if (error != null) {
+                throw new SynapseException("Error while storing the message", error);
+            }
+            return result;
+        }
+    }
+}
@@ -23,6 +23,10 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.message.MessageConsumer;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * JDBC Store Consumer
  */
@@ -90,6 +94,33 @@ public class JDBCConsumer implements MessageConsumer {
         }
     }
 
+    /**
+     * Select and return a page of elements from the head of the current table
+     *
+     * @param maxMessages maximum number of elements to be returned
+     * @return - Select and return the first elements from the table
+     */
+    @Override
+    public List<MessageContext> receive(int maxMessages) {
+        if (isAlive()) {
+            List<MessageContext> messages = Collections.emptyList();
+            try {
+                messages = store.peek(maxMessages);
+                if (!messages.isEmpty()) {
+                    currentMessageId = messages.get(0).getMessageID();
+                }
+            } catch (SynapseException e) {
+                logger.error("Can't receive messages ", e);
+            }
+            return messages;
+        } else {
+            if (logger.isDebugEnabled()){
+                logger.debug("Trying to receive messages from a consumer that is not alive.");
+            }
+            return Collections.emptyList();
+        }
+    }
+
     /**
      * Ack on success message sending by processor
      *
@@ -107,6 +138,31 @@ public class JDBCConsumer implements MessageConsumer {
         }
     }
 
+    /**
+     * Ack a page of messages on success message sending by processor, removing them with a single statement
+     *
+     * @param messages messages to be removed
+     * @return Success of removing
+     */
+    @Override
+    public boolean ack(List<MessageContext> messages) {
+        List<String> messageIds = new ArrayList<>(messages.size());
+        for (MessageContext message : messages) {
+            messageIds.add(message.getMessageID());
+        }
+        try {
+            if (store.remove(messageIds)) {
+                for (int i = 0; i < messageIds.size(); i++) {
+                    store.dequeued();
+                }
+                return true;
+            }
+        } catch (SynapseException e) {
+            logger.error("Can't acknowledge " + messageIds.size() + " messages ", e);
+        }
+        return false;
+    }
+
     /**
      * Cleanup the consumer
      *
@@ -33,10 +33,8 @@ import org.apache.synapse.message.store.impl.commons.StorableMessage;
 import org.apache.synapse.message.store.impl.jdbc.util.JDBCConfiguration;
 import org.apache.synapse.message.store.impl.jdbc.util.Statement;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -72,6 +70,16 @@ public class JDBCMessageStore extends AbstractMessageStore {
     private final AtomicBoolean cleaningFlag = new AtomicBoolean(false);
     protected static final String MESSAGE_COLUMN_NAME = "message";
 
+    /**
+     * Maximum number of message ids in the IN clause of a single delete statement
+     */
+    private static final int MAX_IDS_PER_DELETE = 1000;
+
+    /**
+     * Groups concurrent store calls into batch inserts, null when messages are inserted one by one
+     */
+    private JDBCBatchWriter batchWriter;
+
     /**
      * Initializes the JDBC Message Store
      *
@@ -90,6 +98,24 @@ public class JDBCMessageStore extends AbstractMessageStore {
         jdbcConfiguration = new JDBCConfiguration();
         jdbcConfiguration.buildDataSource(parameters);
 
+        int batchSize = JDBCMessageStoreConstants.JDBC_DEFAULT_BATCH_SIZE;
+        Object batchSizeParam = parameters.get(JDBCMessageStoreConstants.JDBC_BATCH_SIZE);
+        if (batchSizeParam != null) {
+            batchSize = Integer.parseInt(batchSizeParam.toString().trim());
+        }
+        long batchWindow = JDBCMessageStoreConstants.JDBC_DEFAULT_BATCH_WINDOW;
+        Object batchWindowParam = parameters.get(JDBCMessageStoreConstants.JDBC_BATCH_WINDOW);
+        if (batchWindowParam != null) {
+            batchWindow = Long.parseLong(batchWindowParam.toString().trim());
+        }
+        if (batchSize > 1) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(getNameString() + " inserts messages in batches of up to " + batchSize + " messages");
+            }
+            batchWriter = new JDBCBatchWriter(this, batchSize, batchWindow);
+            batchWriter.start();
+        }
+
 //        JDBCMessageConverter.setSynapseEnvironment(synapseEnvironment);
     }
 
@@ -167,6 +193,17 @@ public class JDBCMessageStore extends AbstractMessageStore {
      * @return the rows which contains the column data wrapped inside a map.
      */
     protected List<Map> getProcessedRows(Statement statement) {
+        return getProcessedRows(statement, 0);
+    }
+
+    /**
+     * Will return up to the given number of processed message rows.
+     *
+     * @param statement the statement executed in the DB.
+     * @param maxRows   maximum number of rows to be read, 0 for no limit.
+     * @return the rows which contains the column data wrapped inside a map.
+     */
+    protected List<Map> getProcessedRows(Statement statement, int maxRows) {
         Connection con = null;
         ResultSet rs = null;
         PreparedStatement ps = null;
@@ -174,6 +211,9 @@ public class JDBCMessageStore extends AbstractMessageStore {
         try {
             con = jdbcConfiguration.getConnection();
             ps = con.prepareStatement(statement.getStatement());
+            if (maxRows > 0) {
+                ps.setMaxRows(maxRows);
+            }
             int index = 1;
             for (Object param : statement.getParameters()) {
                 if (param instanceof String) {
@@ -205,25 +245,16 @@ public class JDBCMessageStore extends AbstractMessageStore {
     protected MessageContext deserializeMessage(byte[] msgObj) {
         MessageContext messageContext = null;
         if (msgObj != null) {
-            ObjectInputStream ios = null;
             try {
                 // Convert back to MessageContext and add to list
-                ios = new ObjectInputStream(new ByteArrayInputStream(msgObj));
-                Object msg = ios.readObject();
-                if (msg instanceof StorableMessage) {
-                    StorableMessage jdbcMsg = (StorableMessage) msg;
+                StorableMessage jdbcMsg = MessageConverter.fromBytes(msgObj);
+                if (jdbcMsg != null) {
                     org.apache.axis2.context.MessageContext axis2Mc = this.newAxis2Mc();
                     MessageContext synapseMc = this.newSynapseMc(axis2Mc);
                     messageContext = MessageConverter.toMessageContext(jdbcMsg, axis2Mc, synapseMc);
                 }
             } catch (IOException e) {
-                throw new SynapseException("Error reading object input stream", e);
-            } catch (ClassNotFoundException e) {
-                throw new SynapseException("Could not find the class", e);
-            } finally {
-                if (ios != null) {
-                    closeStream(ios);
-                }
+                throw new SynapseException("Error reading the stored message", e);
             }
         } else {
             throw new SynapseException("Retrieved Object is null");
@@ -231,19 +262,6 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return messageContext;
     }
 
-    /**
-     * Closes the object stream after completing the DB operations.
-     *
-     * @param ios stream which should be closed.
-     */
-    private void closeStream(ObjectInputStream ios) {
-        try {
-            ios.close();
-        } catch (IOException e) {
-            logger.error("Error while closing object input stream", e);
-        }
-    }
-
     private org.apache.axis2.context.MessageContext newAxis2Mc() {
         return ((Axis2SynapseEnvironment) synapseEnvironment)
                 .getAxis2ConfigurationContext().createMessageContext();
@@ -277,7 +295,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
      * @param statements - Statement to process
      * @return - Success or Failure of the process
      */
-    private boolean processNonResultingStatement(List<Statement> statements) throws SynapseException {
+    boolean processNonResultingStatement(List<Statement> statements) throws SynapseException {
         Connection connection = null;
         boolean result;
         PreparedStatement preparedStatement = null;
@@ -286,18 +304,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
             connection.setAutoCommit(false);
             for(Statement statement : statements) {
                 preparedStatement = connection.prepareStatement(statement.getStatement());
-                int index = 1;
-                for (Object param : statement.getParameters()) {
-                    if (param instanceof String) {
-                        preparedStatement.setString(index, (String) param);
-                    } else if (param instanceof Long) {
-                        preparedStatement.setLong(index, (Long) param);
-                    } else if (param instanceof StorableMessage) {
-                        //Serialize the object into byteArray and update the statement
-                        preparedStatement.setBytes(index, serialize(param));
-                    }
-                    index++;
-                }
+                setParameters(preparedStatement, statement);
                 if(logger.isDebugEnabled()){
                     logger.debug("Executing statement:"+preparedStatement);
                 }
@@ -328,7 +335,95 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return result;
     }
 
+    /**
+     * Process statements that do not give a ResultSet as JDBC batches in a single transaction.
+     * Consecutive statements with the same SQL are executed with the same batch.
+     *
+     * @param statements - Statements to process
+     */
+    void processBatchedStatements(List<Statement> statements) throws SynapseException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        String sql = null;
+        try {
+            connection = jdbcConfiguration.getConnection();
+            connection.setAutoCommit(false);
+            for (Statement statement : statements) {
+                if (!statement.getStatement().equals(sql)) {
+                    if (preparedStatement != null) {
+                        preparedStatement.executeBatch();
+                        preparedStatement.close();
+                    }
+                    sql = statement.getStatement();
+                    preparedStatement = connection.prepareStatement(sql);
+                }
+                setParameters(preparedStatement, statement);
+                preparedStatement.addBatch();
+            }
+            if (preparedStatement != null) {
+                preparedStatement.executeBatch();
+            }
+            connection.commit();
+            if (logger.isDebugEnabled()) {
+                logger.debug(getNameString() + " executed a batch of " + statements.size() + " statements");
+            }
+        } catch (SQLException | IOException e) {
+            rollback(connection, "batch insert");
+            throw new SynapseException("Processing batch of " + statements.size()
+                    + " statements failed against DataSource : " + jdbcConfiguration.getDSName(), e);
+        } finally {
+            close(connection, preparedStatement, null);
+        }
+    }
+
+    /**
+     * Sets the parameters of the statement to the prepared statement. Storable messages which are not
+     * serialized yet are serialized here.
+     *
+     * @param preparedStatement prepared statement to set the parameters to
+     * @param statement         statement holding the parameters
+     */
+    private void setParameters(PreparedStatement preparedStatement, Statement statement)
+            throws SQLException, IOException {
+        int index = 1;
+        for (Object param : statement.getParameters()) {
+            if (param instanceof String) {
+                preparedStatement.setString(index, (String) param);
+            } else if (param instanceof Long) {
+                preparedStatement.setLong(index, (Long) param);
+            } else if (param instanceof StorableMessage) {
+                //Serialize the object into byteArray and update the statement
+                preparedStatement.setBytes(index, serialize(param));
+            } else if (param instanceof byte[]) {
+                preparedStatement.setBytes(index, (byte[]) param);
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Serializes the storable messages of the statement in place, so that the serialization is done by
+     * the calling thread instead of the thread executing the statement.
+     *
+     * @param statement statement holding the parameters
+     */
+    void serializeParameters(Statement statement) throws SynapseException {
+        List<Object> params = statement.getParameters();
+        for (int i = 0; i < params.size(); i++) {
+            if (params.get(i) instanceof StorableMessage) {
+                try {
+                    params.set(i, serialize(params.get(i)));
+                } catch (IOException e) {
+                    throw new SynapseException("Error while serializing the message", e);
+                }
+            }
+        }
+    }
+
     public byte[] serialize(Object obj) throws IOException {
+        if (obj instanceof StorableMessage) {
+            return MessageConverter.toBytes((StorableMessage) obj);
+        }
         ByteArrayOutputStream b = new ByteArrayOutputStream();
         ObjectOutputStream o = new ObjectOutputStream(b);
         o.writeObject(obj);
@@ -341,6 +436,10 @@ public class JDBCMessageStore extends AbstractMessageStore {
     @Override
     public void destroy() {
         super.destroy();
+        if (batchWriter != null) {
+            batchWriter.stop();
+            batchWriter = null;
+        }
         jdbcConfiguration = null;
     }
 
@@ -365,8 +464,12 @@ public class JDBCMessageStore extends AbstractMessageStore {
                     logger.error("Message Cleanup lock released unexpectedly", e);
                 }
             }
-            ArrayList<Statement> statements = new ArrayList<>();
             Statement statement = getStoreMessageStatement(messageContext, null);
+            JDBCBatchWriter writer = batchWriter;
+            if (writer != null) {
+                return writer.write(statement);
+            }
+            ArrayList<Statement> statements = new ArrayList<>();
             statements.add(statement);
             return processNonResultingStatement(statements);
         } catch (Exception e) {
@@ -446,6 +549,32 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return msg;
     }
 
+    /**
+     * Select and return up to the given number of elements from the head of the table, in the order they
+     * were stored. The elements are kept in the table until they are removed.
+     *
+     * @param maxMessages maximum number of elements to be returned
+     * @return the elements at the head of the table, an empty list if the table is empty
+     */
+    public List<MessageContext> peek(int maxMessages) throws SynapseException {
+        List<MessageContext> messages = new ArrayList<>();
+        try {
+            Statement statement = new Statement("SELECT message FROM " + jdbcConfiguration.getTableName() +
+                    " ORDER BY indexId ASC") {
+                @Override
+                public List<Map> getResult(ResultSet resultSet) throws SQLException {
+                    return messageContentResultSet(resultSet, this.getStatement());
+                }
+            };
+            for (Map row : getProcessedRows(statement, maxMessages)) {
+                messages.add((MessageContext) row.get(MESSAGE_COLUMN_NAME));
+            }
+        } catch (SynapseException se) {
+            throw new SynapseException("Error while peek the messages", se);
+        }
+        return messages;
+    }
+
     /**
      * Removes the first element from table
      *
@@ -495,6 +624,66 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return result;
     }
 
+    /**
+     * Remove the messages with given msg_ids, with a single statement for up to 1000 messages.
+     *
+     * @param msgIds - message IDs
+     * @return - success of removing the messages
+     */
+    public boolean remove(List<String> msgIds) throws SynapseException {
+        if (msgIds.isEmpty()) {
+            return true;
+        }
+        boolean cleaningState = false;
+        try {
+            if (cleaningFlag.get()) {
+                try {
+                    removeLock.lock();
+                    cleaningState = true;
+                } catch (Exception ie) {
+                    logger.error("Message Cleanup lock released unexpectedly", ie);
+                }
+            }
+            return processNonResultingStatement(removeMessagesStatement(msgIds));
+        } catch (Exception e) {
+            throw new SynapseException("Removing " + msgIds.size() + " messages failed !", e);
+        } finally {
+            if (cleaningState) {
+                removeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Statements to remove a batch of messages once they are forwarded.
+     *
+     * @param msgIds message ids of the messages which should be removed.
+     * @return the sql remove messages statements.
+     */
+    protected List<Statement> removeMessagesStatement(List<String> msgIds) {
+        List<Statement> statements = new ArrayList<>();
+        for (int start = 0; start < msgIds.size(); start += MAX_IDS_PER_DELETE) {
+            List<String> ids = msgIds.subList(start, Math.min(start + MAX_IDS_PER_DELETE, msgIds.size()));
+            StringBuilder deleteStatement = new StringBuilder("DELETE FROM ")
+                    .append(jdbcConfiguration.getTableName()).append(" WHERE msg_id IN (");
+            for (int i = 0; i < ids.size(); i++) {
+                deleteStatement.append(i == 0 ? "?" : ",?");
+            }
+            deleteStatement.append(")");
+            Statement statement = new Statement(deleteStatement.toString()) {
+                @Override
+                public List<Map> getResult(ResultSet resultSet) throws SQLException {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            for (String id : ids) {
+                statement.addParameter(id);
+            }
+            statements.add(statement);
+        }
+        return statements;
+    }
+
     /**
      * Statement to remove the message once a response is received.
      *
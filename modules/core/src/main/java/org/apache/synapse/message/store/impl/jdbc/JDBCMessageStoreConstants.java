@@ -60,4 +60,25 @@ public class JDBCMessageStoreConstants {
      * Default name of the database table
      */
     public static final String JDBC_DEFAULT_TABLE_NAME = "jdbc_message_store";
+
+    /**
+     * Maximum number of messages inserted with a single JDBC batch. Messages are inserted one by one when this
+     * is not larger than 1
+     */
+    public static final String JDBC_BATCH_SIZE = "store.jdbc.batch.size";
+
+    /**
+     * Time in milliseconds a batch waits for more messages before it is inserted
+     */
+    public static final String JDBC_BATCH_WINDOW = "store.jdbc.batch.window";
+
+    /**
+     * Default batch size, which inserts the messages one by one
+     */
+    public static final int JDBC_DEFAULT_BATCH_SIZE = 1;
+
+    /**
+     * Default batch window, which inserts the messages available at the time a batch is started
+     */
+    public static final long JDBC_DEFAULT_BATCH_WINDOW = 0;
 }
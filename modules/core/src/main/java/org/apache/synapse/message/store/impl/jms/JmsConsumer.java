@@ -29,11 +29,13 @@ import org.apache.synapse.message.store.Constants;
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.ObjectMessage;
 import javax.jms.Session;
+import java.io.IOException;
 
 public class JmsConsumer implements MessageConsumer {
 
@@ -94,22 +96,15 @@ public class JmsConsumer implements MessageConsumer {
                 if (message == null) {
                     return null;
                 }
-                if (!(message instanceof ObjectMessage)) {
-                    logger.warn("JMS Consumer " + getId() + " did not receive a javax.jms.ObjectMessage");
-                    //we just discard this message as we only store Object messages via JMS Message store
-                    message.acknowledge();
-                    return null;
-                }
-                ObjectMessage msg = (ObjectMessage) message;
-                String messageId = msg.getStringProperty(Constants.OriginalMessageID);
-                if (!(msg.getObject() instanceof StorableMessage)) {
-                    logger.warn("JMS Consumer " + getId() + " did not receive a valid message.");
+                String messageId = message.getStringProperty(Constants.OriginalMessageID);
+                StorableMessage storableMessage = readStorableMessage(message);
+                if (storableMessage == null) {
+                    //we just discard this message as we only store Object or Bytes messages via JMS Message store
                     message.acknowledge();
                     return null;
                 }
 
-                //create a ,essage context back from the stored message
-                StorableMessage storableMessage = (StorableMessage) msg.getObject();
+                //create a message context back from the stored message
                 org.apache.axis2.context.MessageContext axis2Mc = store.newAxis2Mc();
                 MessageContext synapseMc = store.newSynapseMc(axis2Mc);
                 synapseMc = MessageConverter.toMessageContext(storableMessage, axis2Mc, synapseMc);
@@ -140,6 +135,42 @@ public class JmsConsumer implements MessageConsumer {
         }
     }
 
+    /**
+     * Reads the stored message from a bytes message holding the binary format, or from an object
+     * message written with Java serialization.
+     *
+     * @param message JMS message received from the store
+     * @return the stored message, or null if the JMS message does not hold a valid stored message
+     */
+    private StorableMessage readStorableMessage(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) message;
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            try {
+                StorableMessage storableMessage = MessageConverter.fromBytes(bytes);
+                if (storableMessage == null) {
+                    logger.warn("JMS Consumer " + getId() + " did not receive a valid message.");
+                }
+                return storableMessage;
+            } catch (IOException e) {
+                logger.warn("JMS Consumer " + getId() + " could not read the stored message.", e);
+                return null;
+            }
+        }
+        if (!(message instanceof ObjectMessage)) {
+            logger.warn("JMS Consumer " + getId() + " did not receive a javax.jms.ObjectMessage or "
+                    + "javax.jms.BytesMessage");
+            return null;
+        }
+        Object object = ((ObjectMessage) message).getObject();
+        if (!(object instanceof StorableMessage)) {
+            logger.warn("JMS Consumer " + getId() + " did not receive a valid message.");
+            return null;
+        }
+        return (StorableMessage) object;
+    }
+
     public boolean ack() {
         boolean result = cachedMessage.ack();
         if (result) {
@@ -29,6 +29,7 @@ import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 
 import javax.jms.*;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 
@@ -82,13 +83,13 @@ public class JmsProducer implements MessageProducer {
         boolean error = false;
         Throwable throwable = null;
         try {
-            ObjectMessage objectMessage = session.createObjectMessage(message);
-            objectMessage.setStringProperty(OriginalMessageID, synCtx.getMessageID());
-            setPriority(producer, objectMessage, message);
+            Message jmsMessage = createMessage(message);
+            jmsMessage.setStringProperty(OriginalMessageID, synCtx.getMessageID());
+            setPriority(producer, jmsMessage, message);
             setJmsProducerProperties(producer, synCtx);
-            setJmsMessageProperties(objectMessage, synCtx);
-            setTransportHeaders(objectMessage,synCtx);
-            producer.send(objectMessage);
+            setJmsMessageProperties(jmsMessage, synCtx);
+            setTransportHeaders(jmsMessage,synCtx);
+            producer.send(jmsMessage);
 
             if (session.getTransacted()) {
                 session.commit();
@@ -212,7 +213,20 @@ public class JmsProducer implements MessageProducer {
         return true;
     }
 
-    private void setPriority(javax.jms.MessageProducer producer, ObjectMessage objectMessage,
+    /**
+     * Creates the JMS message carrying the stored message. The message is sent as a bytes message
+     * holding the binary format, or as an object message if the binary format is disabled.
+     */
+    private Message createMessage(StorableMessage message) throws JMSException, IOException {
+        if (MessageConverter.isBinaryFormatEnabled()) {
+            BytesMessage bytesMessage = session.createBytesMessage();
+            bytesMessage.writeBytes(MessageConverter.toBytes(message));
+            return bytesMessage;
+        }
+        return session.createObjectMessage(message);
+    }
+
+    private void setPriority(javax.jms.MessageProducer producer, Message jmsMessage,
                              StorableMessage message) {
         if (message.getPriority(DEFAULT_PRIORITY) != Message.DEFAULT_PRIORITY) {
             try {
@@ -0,0 +1,122 @@
+/**
+ *  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.memory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.message.MessageConsumer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ConcurrentInMemoryConsumer implements MessageConsumer {
+    private static final Log logger = LogFactory.getLog(ConcurrentInMemoryConsumer.class.getName());
+    /** */
+    private final ConcurrentInMemoryStore store;
+    /** ID of this message consumer instance */
+    private String idString;
+    /** Entries of the messages received last, which are removed once acknowledged */
+    private final Map<MessageContext, ConcurrentInMemoryStore.Entry> lastEntries =
+            new IdentityHashMap<MessageContext, ConcurrentInMemoryStore.Entry>();
+    /** Entry of the first message received last, which is removed by a single message ack */
+    private ConcurrentInMemoryStore.Entry lastEntry;
+
+    public ConcurrentInMemoryConsumer(ConcurrentInMemoryStore store) {
+        this.store = store;
+    }
+
+    public MessageContext receive() {
+        List<MessageContext> messages = receive(1);
+        if (messages.isEmpty()) {
+            return null;
+        }
+        MessageContext message = messages.get(0);
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " received MessageID : " + message.getMessageID());
+        }
+        return message;
+    }
+
+    public synchronized List<MessageContext> receive(int maxMessages) {
+        List<ConcurrentInMemoryStore.Entry> entries = store.peek(maxMessages);
+        List<MessageContext> messages = new ArrayList<MessageContext>(entries.size());
+        lastEntries.clear();
+        lastEntry = entries.isEmpty() ? null : entries.get(0);
+        for (ConcurrentInMemoryStore.Entry entry : entries) {
+            messages.add(entry.getMessage());
+            lastEntries.put(entry.getMessage(), entry);
+        }
+        if (logger.isDebugEnabled() && maxMessages > 1) {
+            logger.debug(getId() + " received " + messages.size() + " messages");
+        }
+        return messages;
+    }
+
+    public synchronized boolean ack() {
+        if (logger.isDebugEnabled() && lastEntry != null) {
+            logger.debug(getId() + " ack");
+        }
+        if (lastEntry != null) {
+            store.remove(lastEntry);
+        }
+        lastEntry = null;
+        lastEntries.clear();
+        return true;
+    }
+
+    public synchronized boolean ack(List<MessageContext> messages) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " ack " + messages.size() + " messages");
+        }
+        for (MessageContext message : messages) {
+            ConcurrentInMemoryStore.Entry entry = lastEntries.get(message);
+            if (entry != null) {
+                store.remove(entry);
+            }
+        }
+        lastEntry = null;
+        lastEntries.clear();
+        return true;
+    }
+
+    public boolean cleanup() {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " cleanup");
+        }
+        return true;
+    }
+
+    public boolean isAlive() {
+        return true;
+    }
+
+    public void setAlive(boolean isAlive) {
+    }
+
+    public void setId(int id) {
+        idString = "[" + store.getName() + "-C-" + id + "]";
+    }
+
+    public String getId() {
+        return idString;
+    }
+}
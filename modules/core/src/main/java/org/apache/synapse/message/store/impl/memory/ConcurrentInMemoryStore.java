@@ -0,0 +1,327 @@
+/**
+ *  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.memory;
+
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.MessageProducer;
+import org.apache.synapse.message.store.AbstractMessageStore;
+import org.apache.synapse.message.store.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in memory message store for high concurrency, which does not take a store wide lock. Messages
+ * are kept in a lock-free queue, and the free capacity of the store is tracked with a semaphore, so
+ * producers and consumers only contend on the compare-and-set operations of the queue and the
+ * semaphore. The number of messages is tracked with a counter, so the size is an O(1) operation.
+ *
+ * The store may be bounded, in which case a message stored while the store is full is either
+ * rejected, waited on until there is space for it, or stored in place of the oldest message,
+ * depending on the overflow policy.
+ */
+public class ConcurrentInMemoryStore extends AbstractMessageStore {
+    private static final Log logger = LogFactory.getLog(ConcurrentInMemoryStore.class.getName());
+
+    /** Maximum number of messages held by the store */
+    public static final String CAPACITY = "store.memory.capacity";
+    /** What to do with a message stored while the store is full : reject, block or drop_oldest */
+    public static final String OVERFLOW_POLICY = "store.memory.overflow.policy";
+    /** Time in milliseconds a producer waits for space in the store with the block policy */
+    public static final String BLOCK_TIMEOUT = "store.memory.block.timeout";
+
+    public static final String POLICY_REJECT = "reject";
+    public static final String POLICY_BLOCK = "block";
+    public static final String POLICY_DROP_OLDEST = "drop_oldest";
+
+    public static final int DEFAULT_CAPACITY = Integer.MAX_VALUE;
+    public static final long DEFAULT_BLOCK_TIMEOUT = 30000;
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    private int capacity = DEFAULT_CAPACITY;
+
+    private String overflowPolicy = POLICY_REJECT;
+
+    private long blockTimeout = DEFAULT_BLOCK_TIMEOUT;
+
+    private Semaphore freeSlots = new Semaphore(DEFAULT_CAPACITY);
+
+    public MessageProducer getProducer() {
+        ConcurrentInMemoryProducer producer = new ConcurrentInMemoryProducer(this);
+        producer.setId(nextProducerId());
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " created a new Concurrent In Memory Message Producer.");
+        }
+        return producer;
+    }
+
+    public MessageConsumer getConsumer() {
+        ConcurrentInMemoryConsumer consumer = new ConcurrentInMemoryConsumer(this);
+        consumer.setId(nextConsumerId());
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " created a new Concurrent In Memory Message Consumer.");
+        }
+        return consumer;
+    }
+
+    public int getType() {
+        return Constants.INMEMORY_MS;
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Stores the message, applying the overflow policy if the store is full.
+     *
+     * @param message message to be stored
+     * @return true if the message is stored
+     */
+    boolean offer(MessageContext message) {
+        if (!acquireSlot()) {
+            return false;
+        }
+        queue.offer(new Entry(message));
+        count.incrementAndGet();
+        enqueued();
+        return true;
+    }
+
+    private boolean acquireSlot() {
+        if (freeSlots.tryAcquire()) {
+            return true;
+        }
+        if (POLICY_BLOCK.equals(overflowPolicy)) {
+            try {
+                return freeSlots.tryAcquire(blockTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        } else if (POLICY_DROP_OLDEST.equals(overflowPolicy)) {
+            do {
+                Entry oldest = firstEntry();
+                if (oldest == null) {
+                    // the slots are held by producers which have not added their messages yet
+                    Thread.yield();
+                } else if (remove(oldest)) {
+                    logger.warn(nameString() + " is full. Dropped MessageID : " + oldest.message.getMessageID());
+                }
+            } while (!freeSlots.tryAcquire());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns up to the given number of messages from the head of the store, without removing them.
+     *
+     * @param maxMessages maximum number of messages to be returned
+     * @return entries of the messages in the order they were stored
+     */
+    List<Entry> peek(int maxMessages) {
+        List<Entry> entries = new ArrayList<Entry>(Math.min(maxMessages, 64));
+        for (Entry entry : queue) {
+            if (entries.size() >= maxMessages) {
+                break;
+            }
+            if (!entry.isRemoved()) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes the given entry from the store. An entry is only removed once, even if several
+     * consumers try to remove it.
+     *
+     * @param entry entry to be removed
+     * @return true if the entry was removed by this call
+     */
+    boolean remove(Entry entry) {
+        if (!entry.markRemoved()) {
+            return false;
+        }
+        // the entry is usually at the head of the queue, in which case the removal does not traverse it
+        queue.remove(entry);
+        count.decrementAndGet();
+        freeSlots.release();
+        dequeued();
+        return true;
+    }
+
+    private Entry firstEntry() {
+        List<Entry> entries = peek(1);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    public MessageContext remove() throws NoSuchElementException {
+        Entry entry;
+        do {
+            entry = firstEntry();
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+        } while (!remove(entry));
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " removed MessageID:" + entry.message.getMessageID() + " => true");
+        }
+        return entry.message;
+    }
+
+    public void clear() {
+        Entry entry;
+        while ((entry = firstEntry()) != null) {
+            remove(entry);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(nameString() + " cleared ConcurrentInMemoryStore...");
+        }
+    }
+
+    public MessageContext remove(final String messageID) {
+        for (Entry entry : queue) {
+            if (!entry.isRemoved() && entry.message.getMessageID().equals(messageID)) {
+                boolean result = remove(entry);
+                if (logger.isDebugEnabled()) {
+                    logger.debug(nameString() + " removed MessageID:" + messageID + " => " + result);
+                }
+                return entry.message;
+            }
+        }
+        return null;
+    }
+
+    public MessageContext get(final int index) {
+        if (index < 0 || index >= count.get()) {
+            return null;
+        }
+        List<Entry> entries = peek(index + 1);
+        return entries.size() > index ? entries.get(index).message : null;
+    }
+
+    public List<MessageContext> getAll() {
+        List<MessageContext> list = new ArrayList<MessageContext>();
+        for (Entry entry : queue) {
+            if (!entry.isRemoved()) {
+                list.add(entry.message);
+            }
+        }
+        return list;
+    }
+
+    public MessageContext get(String messageId) {
+        for (Entry entry : queue) {
+            if (!entry.isRemoved() && entry.message.getMessageID().equals(messageId)) {
+                return entry.message;
+            }
+        }
+        return null;
+    }
+
+    public void init(SynapseEnvironment se) {
+        if (se == null) {
+            logger.error("Cannot initialize store.");
+            return;
+        }
+        super.init(se);
+        if (parameters != null) {
+            capacity = NumberUtils.toInt((String) parameters.get(CAPACITY), DEFAULT_CAPACITY);
+            if (capacity <= 0) {
+                throw new SynapseException(nameString() + " capacity must be greater than 0 : " + capacity);
+            }
+            String policy = (String) parameters.get(OVERFLOW_POLICY);
+            if (policy != null) {
+                policy = policy.trim().toLowerCase();
+                if (!POLICY_REJECT.equals(policy) && !POLICY_BLOCK.equals(policy)
+                        && !POLICY_DROP_OLDEST.equals(policy)) {
+                    throw new SynapseException(nameString() + " unknown overflow policy : " + policy);
+                }
+                overflowPolicy = policy;
+            }
+            blockTimeout = NumberUtils.toLong((String) parameters.get(BLOCK_TIMEOUT), DEFAULT_BLOCK_TIMEOUT);
+            freeSlots = new Semaphore(capacity - count.get());
+        }
+        logger.info("Initialized " + nameString() + " with capacity " + capacity + " and overflow policy "
+                + overflowPolicy + "...");
+    }
+
+    public void destroy() {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Destroying " + nameString() + "...");
+        }
+        super.destroy();
+    }
+
+    private String nameString() {
+        return "Store [" + getName() + "]";
+    }
+
+    /**
+     * A message held in the store. Removed entries are marked before they are unlinked from the
+     * queue, so that concurrent removals of the same entry are counted once.
+     */
+    static final class Entry {
+
+        private final MessageContext message;
+
+        private final AtomicBoolean removed = new AtomicBoolean(false);
+
+        private Entry(MessageContext message) {
+            this.message = message;
+        }
+
+        MessageContext getMessage() {
+            return message;
+        }
+
+        boolean isRemoved() {
+            return removed.get();
+        }
+
+        private boolean markRemoved() {
+            return removed.compareAndSet(false, true);
+        }
+    }
+}
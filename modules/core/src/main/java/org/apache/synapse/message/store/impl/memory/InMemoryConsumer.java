@@ -23,6 +23,9 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.message.MessageConsumer;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 
 public class InMemoryConsumer implements MessageConsumer {
@@ -58,6 +61,21 @@ public class InMemoryConsumer implements MessageConsumer {
         return message;
     }
 
+    public List<MessageContext> receive(int maxMessages) {
+        List<MessageContext> messages = new ArrayList<MessageContext>(Math.min(maxMessages, 64));
+        synchronized (queueLock) {
+            Iterator<MessageContext> iterator = queue.iterator();
+            while (iterator.hasNext() && messages.size() < maxMessages) {
+                messages.add(iterator.next());
+            }
+            lastMessage = messages.isEmpty() ? null : messages.get(0);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " received " + messages.size() + " messages");
+        }
+        return messages;
+    }
+
     public boolean ack() {
         if (logger.isDebugEnabled() && lastMessage != null) {
             logger.debug(getId() + " ack");
@@ -72,6 +90,21 @@ public class InMemoryConsumer implements MessageConsumer {
         return true;
     }
 
+    public boolean ack(List<MessageContext> messages) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " ack " + messages.size() + " messages");
+        }
+        synchronized (queueLock) {
+            for (MessageContext message : messages) {
+                if (queue.remove(message)) {
+                    store.dequeued();
+                }
+            }
+            lastMessage = null;
+        }
+        return true;
+    }
+
     public boolean cleanup() {
         if (logger.isDebugEnabled()) {
             logger.debug(getId() + " cleanup");
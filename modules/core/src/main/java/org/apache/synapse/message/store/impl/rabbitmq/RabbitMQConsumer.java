@@ -24,15 +24,13 @@ import com.rabbitmq.client.ShutdownSignalException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
 import org.apache.synapse.message.MessageConsumer;
 
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
 
 /**
  * The message consumer responsible for read a message from the queue and set it into the message context
@@ -82,7 +80,7 @@ public class RabbitMQConsumer implements MessageConsumer {
             } catch (ShutdownSignalException | IOException e) {
                 log.error(getId() + " connection error when receiving messages.", e);
                 cleanup();
-            } catch (ClassNotFoundException e) {
+            } catch (SynapseException e) {
                 log.error(getId() + "unable to read the stored message.", e);
                 try {
                     channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
@@ -104,13 +102,17 @@ public class RabbitMQConsumer implements MessageConsumer {
      *
      * @param delivery the message received from the broker
      * @return a {@link StorableMessage} object
-     * @throws IOException
+     * @throws SynapseException if the message could not be decoded
      */
-    private StorableMessage deserializeMessage(GetResponse delivery) throws IOException, ClassNotFoundException {
+    private StorableMessage deserializeMessage(GetResponse delivery) throws SynapseException {
         StorableMessage storableMessage;
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(delivery.getBody());
-             ObjectInput objectInput = new ObjectInputStream(inputStream)) {
-            storableMessage = (StorableMessage) objectInput.readObject();
+        try {
+            storableMessage = MessageConverter.fromBytes(delivery.getBody());
+        } catch (IOException e) {
+            throw new SynapseException("Error while decoding the stored message", e);
+        }
+        if (storableMessage == null) {
+            throw new SynapseException("Stored message is not a storable message");
         }
         return storableMessage;
     }
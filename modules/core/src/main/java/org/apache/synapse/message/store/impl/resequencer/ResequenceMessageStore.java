@@ -31,6 +31,7 @@ import org.apache.synapse.message.store.impl.jdbc.util.Statement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -428,6 +429,39 @@ public class ResequenceMessageStore extends JDBCMessageStore {
         return nextElapsedTime < 0 || currentTime <= nextElapsedTime;
     }
 
+    /**
+     * <p>
+     * Messages are returned one at a time, since the next message depends on the sequence id of the message
+     * which was processed before.
+     * </p>
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MessageContext> peek(int maxMessages) throws SynapseException {
+        MessageContext msg = peek();
+        if (null == msg) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(msg);
+    }
+
+    /**
+     * <p>
+     * Removes the messages one by one, so that the last process id is maintained along with each removal.
+     * </p>
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<Statement> removeMessagesStatement(List<String> msgIds) {
+        List<Statement> statements = new ArrayList<>();
+        for (String msgId : msgIds) {
+            statements.addAll(removeMessageStatement(msgId));
+        }
+        return statements;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -8,6 +8,7 @@ import org.apache.axiom.om.OMNamespace;
 import org.apache.axiom.om.OMNode;
 import org.apache.axiom.om.util.ElementHelper;
 import org.apache.axiom.soap.SOAP11Constants;
+import org.apache.axiom.soap.SOAPBody;
 import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axiom.soap.SOAPFactory;
 import org.apache.axiom.soap.SOAPFault;
@@ -394,13 +395,18 @@ public class MessageHelper {
         }
 
         org.apache.axis2.context.MessageContext newMC = clonePartially(mc, isAggregrate);
+        // a JSON payload which has not been read as XML is recreated from the JSON stream, which the clones share,
+        // so it is not converted to XML just to be copied
+        boolean cloneBody = !(cloneSoapEnvelope && isCloneJson && JsonUtil.hasAnUnexpandedJsonPayload(mc));
         if (cloneSoapEnvelope) {
-            newMC.setEnvelope(cloneSOAPEnvelope(mc.getEnvelope()));
+            newMC.setEnvelope(cloneSOAPEnvelope(mc.getEnvelope(), cloneBody));
         }
         // XXX: always this section must come after the above step. ie. after applying Envelope.
         // That is to get the existing headers into the new envelope.
         if (isCloneJson) {
-            JsonUtil.cloneJsonPayload(mc, newMC);
+            if (!JsonUtil.cloneJsonPayload(mc, newMC) && !cloneBody) {
+                newMC.setEnvelope(cloneSOAPEnvelope(mc.getEnvelope()));
+            }
         }
         newMC.setOptions(cloneOptions(mc.getOptions()));
 
@@ -561,6 +567,17 @@ public class MessageHelper {
      * @return cloned SOAPEnvelope from the provided one
      */
     public static SOAPEnvelope cloneSOAPEnvelope(SOAPEnvelope envelope) {
+        return cloneSOAPEnvelope(envelope, true);
+    }
+
+    /**
+     * This method will clone the provided SOAPEnvelope, optionally leaving out the content of the body
+     *
+     * @param envelope - this will be cloned to get the new envelope
+     * @param cloneBody whether to clone the children of the body, or to return an envelope with an empty body
+     * @return cloned SOAPEnvelope from the provided one
+     */
+    public static SOAPEnvelope cloneSOAPEnvelope(SOAPEnvelope envelope, boolean cloneBody) {
         SOAPFactory fac;
         if (SOAP11Constants.SOAP_ENVELOPE_NAMESPACE_URI
                 .equals(envelope.getBody().getNamespace().getNamespaceURI())) {
@@ -588,52 +605,65 @@ public class MessageHelper {
             }
         }
 
-        if (envelope.getBody() != null) {
+        if (envelope.getBody() != null && !cloneBody) {
+            copyBodyDeclarations(envelope, newEnvelope);
+        } else if (envelope.getBody() != null) {
             // treat the SOAPFault cloning as a special case otherwise a cloning OMElement as the
             // fault would lead to class cast exceptions if accessed through the getFault method
         	if (envelope.getBody().getFirstElement() instanceof SOAPFault && envelope.getBody().hasFault()) {
                 SOAPFault fault = envelope.getBody().getFault();
                 newEnvelope.getBody().addFault(cloneSOAPFault(fault));
             } else {
+                copyBodyDeclarations(envelope, newEnvelope);
                 OMElement body = envelope.getBody().cloneOMElement();
-                Iterator ns = body.getAllDeclaredNamespaces();
-                OMNamespace bodyNs = body.getNamespace();
-                String nsUri = bodyNs.getNamespaceURI();
-                String nsPrefix = bodyNs.getPrefix();
-                while (ns.hasNext()) {
-                    OMNamespace namespace = ((OMNamespace)ns.next());
-                    if (nsUri != null && !nsUri.equals(namespace.getNamespaceURI())
-                        && nsPrefix != null && !nsPrefix.equals(namespace.getPrefix())) {
-                        newEnvelope.getBody().declareNamespace(namespace);
-                    }
-                    ns.remove();
-                }
-                Iterator attributes = body.getAllAttributes();
-                while (attributes.hasNext()) {
-                    OMAttribute attrb = (OMAttribute) attributes.next();
-                    newEnvelope.getBody().addAttribute(attrb);
-                    attributes.remove();
-                }
                 Iterator itr = body.getChildren();
                 while (itr.hasNext()) {
                     OMNode node = (OMNode) itr.next();
                     itr.remove();
                     newEnvelope.getBody().addChild(node);
                 }
-                /**
-                 * Copy the namespaces declared in envelope , Fix for
-                 * https://wso2.org/jira/browse/CARBON-16086
-                 */
-                Iterator allDeclaredNamespaces = envelope.getAllDeclaredNamespaces();
-                while (allDeclaredNamespaces.hasNext()) {
-                    newEnvelope.declareNamespace((OMNamespace) allDeclaredNamespaces.next());
-                }
             }
         }
 
         return newEnvelope;
     }
 
+    /**
+     * Copy the namespaces and the attributes declared on the body of an envelope, and the
+     * namespaces declared on the envelope, to the new envelope it is cloned to
+     *
+     * @param envelope the envelope which is cloned
+     * @param newEnvelope the new envelope
+     */
+    private static void copyBodyDeclarations(SOAPEnvelope envelope, SOAPEnvelope newEnvelope) {
+        SOAPBody body = envelope.getBody();
+        OMNamespace bodyNs = body.getNamespace();
+        String nsUri = bodyNs.getNamespaceURI();
+        String nsPrefix = bodyNs.getPrefix();
+        Iterator ns = body.getAllDeclaredNamespaces();
+        while (ns.hasNext()) {
+            OMNamespace namespace = (OMNamespace) ns.next();
+            if (nsUri != null && !nsUri.equals(namespace.getNamespaceURI())
+                && nsPrefix != null && !nsPrefix.equals(namespace.getPrefix())) {
+                newEnvelope.getBody().declareNamespace(namespace);
+            }
+        }
+        Iterator attributes = body.getAllAttributes();
+        while (attributes.hasNext()) {
+            OMAttribute attrb = (OMAttribute) attributes.next();
+            newEnvelope.getBody().addAttribute(attrb.getLocalName(), attrb.getAttributeValue(),
+                    attrb.getNamespace());
+        }
+        /**
+         * Copy the namespaces declared in envelope , Fix for
+         * https://wso2.org/jira/browse/CARBON-16086
+         */
+        Iterator allDeclaredNamespaces = envelope.getAllDeclaredNamespaces();
+        while (allDeclaredNamespaces.hasNext()) {
+            newEnvelope.declareNamespace((OMNamespace) allDeclaredNamespaces.next());
+        }
+    }
+
     /**
      * Clones the given {@link org.apache.axis2.client.Options} object. This is not a deep copy
      * because this will be called for each and every message going out from synapse. The parent
@@ -0,0 +1,176 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded cache which can be read concurrently without locking. Each value records the
+ * time it was last read, and when a value is added to a full cache the least recently read
+ * values are evicted. Finding those values scans the cache, which is only done when a value is
+ * added, so reads stay cheap while the cost of the eviction is paid along with the (usually much
+ * more expensive) creation of the value being added.
+ *
+ * The numbers of hits, misses and evictions are counted, so the efficiency of the cache can be
+ * monitored over JMX with a {@link CacheStatisticsView}.
+ */
+public class BoundedConcurrentCache<K, V> {
+
+    private final ConcurrentHashMap<K, Node<V>> map;
+
+    private final int capacity;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity maximum number of values held by the cache
+     */
+    public BoundedConcurrentCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be greater than 0 : " + capacity);
+        }
+        this.capacity = capacity;
+        this.map = new ConcurrentHashMap<K, Node<V>>(Math.min(capacity, 1024));
+    }
+
+    /**
+     * Get the value cached for the given key, counting the lookup as a hit or a miss
+     *
+     * @param key key of the value
+     * @return the cached value or null if there is no value for the key
+     */
+    public V get(K key) {
+        Node<V> node = map.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        node.lastAccess = System.nanoTime();
+        hits.increment();
+        return node.value;
+    }
+
+    /**
+     * Get the value cached for the given key, without counting the lookup or marking the value
+     * as recently read. This is meant for checking the cache again before creating a value.
+     *
+     * @param key key of the value
+     * @return the cached value or null if there is no value for the key
+     */
+    public V peek(K key) {
+        Node<V> node = map.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Add a value to the cache, replacing any value cached for the key, and evict the least
+     * recently read values if the cache grows beyond its capacity
+     *
+     * @param key key of the value
+     * @param value value to be cached
+     */
+    public void put(K key, V value) {
+        map.put(key, new Node<V>(value));
+        while (map.size() > capacity) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Remove the value cached for the given key
+     *
+     * @param key key of the value
+     * @return the removed value or null if there was no value for the key
+     */
+    public V remove(K key) {
+        Node<V> node = map.remove(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * @return a live view of the keys in the cache, which can be used to remove values
+     */
+    public Set<K> keySet() {
+        return map.keySet();
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Map.Entry<K, Node<V>> eldest = null;
+        for (Iterator<Map.Entry<K, Node<V>>> it = map.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<K, Node<V>> entry = it.next();
+            if (eldest == null || entry.getValue().lastAccess - eldest.getValue().lastAccess < 0) {
+                eldest = entry;
+            }
+        }
+        // a concurrent put may have evicted or replaced the same value already
+        if (eldest != null && map.remove(eldest.getKey(), eldest.getValue())) {
+            evictions.increment();
+        }
+    }
+
+    private static final class Node<V> {
+
+        private final V value;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        private Node(V value) {
+            this.value = value;
+        }
+    }
+}
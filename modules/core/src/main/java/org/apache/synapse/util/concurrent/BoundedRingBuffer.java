@@ -0,0 +1,166 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded queue backed by a ring buffer, which can be used by any number of producer and
+ * consumer threads without locking. Adding and removing an element take constant time, and so
+ * does finding out whether the queue is full, unlike the size of a linked concurrent queue which
+ * has to be counted.
+ *
+ * Each slot of the buffer carries a sequence number, which tells the producers and consumers
+ * whether the slot is free to be written or holds an element to be read for their position in
+ * the queue. The slots are allocated up front for the capacity of the queue.
+ */
+public class BoundedRingBuffer<E> {
+
+    private final int capacity;
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLongArray sequences;
+
+    /** position of the next element to be removed */
+    private final AtomicLong head = new AtomicLong();
+
+    /** position of the next element to be added */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity maximum number of elements held by the queue
+     */
+    public BoundedRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be greater than 0 : " + capacity);
+        }
+        this.capacity = capacity;
+        this.elements = new AtomicReferenceArray<E>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element to the tail of the queue, unless the queue is full
+     *
+     * @param element element to be added
+     * @return false if the queue is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("Null elements are not supported");
+        }
+        long position = tail.get();
+        while (true) {
+            int index = index(position);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    // publishes the element to the consumer which reads this position
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot still holds the element added one round before
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the element at the head of the queue
+     *
+     * @return the removed element, or null if the queue is empty
+     */
+    public E poll() {
+        long position = head.get();
+        while (true) {
+            int index = index(position);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    // frees the slot for the producer of the next round
+                    sequences.lazySet(index, position + capacity);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                // the element of this position has not been added yet
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Remove up to the given number of elements from the head of the queue
+     *
+     * @param collection collection to which the elements are added in the order of the queue
+     * @param maxElements maximum number of elements to be removed
+     * @return the number of elements removed
+     */
+    public int drainTo(Collection<? super E> collection, int maxElements) {
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = poll()) != null) {
+            collection.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of elements in the queue, which may be outdated as soon as it is returned
+     */
+    public int size() {
+        while (true) {
+            long currentHead = head.get();
+            long currentTail = tail.get();
+            if (currentHead == head.get()) {
+                return (int) Math.max(0, Math.min(capacity, currentTail - currentHead));
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.util.concurrent;
+
+public class CacheStatisticsView implements CacheStatisticsViewMBean {
+
+    /** The JMX category the views of the mediator caches are registered under */
+    public static final String MBEAN_CATEGORY = "MediatorCache";
+
+    private final BoundedConcurrentCache<?, ?> cache;
+
+    public CacheStatisticsView(BoundedConcurrentCache<?, ?> cache) {
+        this.cache = cache;
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public int getCapacity() {
+        return cache.getCapacity();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public double getHitRatio() {
+        long hits = cache.getHitCount();
+        long total = hits + cache.getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void resetStatistics() {
+        cache.resetStatistics();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.util.streaming_xpath;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.impl.builder.StAXOMBuilder;
+import org.apache.axis2.context.MessageContext;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.InputStream;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of streaming XPath expressions which are used together, such as the expressions of the
+ * mediators of a sequence. The first time one of the expressions is evaluated against a message,
+ * every expression of the set is evaluated in a single pass over the message stream, and the
+ * values are kept in the message so that the other expressions do not read the stream again.
+ *
+ * The expressions are evaluated against a detached document which is built from the stream only
+ * as far as the expressions need, so the message itself is never built.
+ */
+public class StreamingXPATHSet {
+
+    private static final String EXTRACTED_VALUES = "org.apache.synapse.util.streaming_xpath.ExtractedValues";
+
+    private final StreamingXPATH[] xPaths;
+
+    private final Map<StreamingXPATH, Integer> indexes = new IdentityHashMap<StreamingXPATH, Integer>();
+
+    /**
+     * @param xPaths the expressions of the set
+     */
+    public StreamingXPATHSet(List<StreamingXPATH> xPaths) {
+        this.xPaths = xPaths.toArray(new StreamingXPATH[xPaths.size()]);
+        for (int i = 0; i < this.xPaths.length; i++) {
+            indexes.put(this.xPaths[i], i);
+        }
+    }
+
+    public int size() {
+        return xPaths.length;
+    }
+
+    /**
+     * Evaluate every expression of the set in a single pass over a XML input stream
+     *
+     * @param inputStream for a XML
+     * @return the results of the expressions, in the order of the expressions of the set
+     * @throws XMLStreamException if the stream cannot be parsed
+     * @throws StreamingXPATHException if an expression cannot be evaluated
+     */
+    public String[] getStringValues(InputStream inputStream) throws XMLStreamException, StreamingXPATHException {
+        OMElement documentElement = new StAXOMBuilder(inputStream).getDocumentElement();
+        String[] values = new String[xPaths.length];
+        for (int i = 0; i < xPaths.length; i++) {
+            values[i] = xPaths[i].getStringValue(documentElement);
+        }
+        return values;
+    }
+
+    /**
+     * Check whether the expressions of this set have already been evaluated against the current stream of the
+     * message. Values extracted from another stream, such as the stream of a previous message which used the same
+     * message context, are ignored.
+     *
+     * @param msgCtx the message
+     * @return true if {@link #getCachedValue(MessageContext, StreamingXPATH)} returns the extracted values
+     */
+    public boolean isEvaluated(MessageContext msgCtx) {
+        return getExtractedValues(msgCtx) != null;
+    }
+
+    /**
+     * Returns the value of an expression of this set which was extracted from the current stream of the message
+     *
+     * @param msgCtx the message
+     * @param xPath an expression of this set
+     * @return the extracted value, which is null if the expression was evaluated to null or the set has not been
+     * evaluated against the message
+     */
+    public String getCachedValue(MessageContext msgCtx, StreamingXPATH xPath) {
+        String[] values = getExtractedValues(msgCtx);
+        Integer index = indexes.get(xPath);
+        return values == null || index == null ? null : values[index];
+    }
+
+    /**
+     * Evaluate every expression of this set against the stream of the message, keep the values in the message and
+     * return the value of the given expression
+     *
+     * @param msgCtx the message
+     * @param xPath an expression of this set
+     * @param inputStream the stream of the message
+     * @return the value of the given expression
+     * @throws XMLStreamException if the stream cannot be parsed
+     * @throws StreamingXPATHException if an expression cannot be evaluated
+     */
+    public String getStringValue(MessageContext msgCtx, StreamingXPATH xPath, InputStream inputStream)
+            throws XMLStreamException, StreamingXPATHException {
+        Integer index = indexes.get(xPath);
+        if (index == null) {
+            return xPath.getStringValue(inputStream);
+        }
+        String[] values = getStringValues(inputStream);
+        Object o = msgCtx.getProperty(EXTRACTED_VALUES);
+        Map<StreamingXPATHSet, String[]> valuesBySet = new IdentityHashMap<StreamingXPATHSet, String[]>();
+        Object source = msgCtx.getProperty(PassThroughConstants.PASS_THROUGH_PIPE);
+        if (o instanceof ExtractedValues && ((ExtractedValues) o).source == source) {
+            valuesBySet.putAll(((ExtractedValues) o).valuesBySet);
+        }
+        valuesBySet.put(this, values);
+        // a new instance is set so that the values seen by a copy of the message properties never change
+        msgCtx.setProperty(EXTRACTED_VALUES, new ExtractedValues(source, valuesBySet));
+        return values[index];
+    }
+
+    private String[] getExtractedValues(MessageContext msgCtx) {
+        Object o = msgCtx.getProperty(EXTRACTED_VALUES);
+        if (o instanceof ExtractedValues) {
+            ExtractedValues extractedValues = (ExtractedValues) o;
+            if (extractedValues.source == msgCtx.getProperty(PassThroughConstants.PASS_THROUGH_PIPE)) {
+                return extractedValues.valuesBySet.get(this);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The values extracted from the stream of a message, by the sets which were evaluated against it
+     */
+    private static final class ExtractedValues {
+        private final Object source;
+        private final Map<StreamingXPATHSet, String[]> valuesBySet;
+
+        private ExtractedValues(Object source, Map<StreamingXPATHSet, String[]> valuesBySet) {
+            this.source = source;
+            this.valuesBySet = valuesBySet;
+        }
+    }
+}
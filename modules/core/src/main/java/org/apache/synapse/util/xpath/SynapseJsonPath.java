@@ -22,6 +22,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonObject;
+import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
 
@@ -190,7 +191,24 @@ public class SynapseJsonPath extends SynapsePath {
             }
         } else {
             stream = JsonUtil.getJsonPayload(amc);
-            return stringValueOf(stream);
+            if (stream == null || isWholeBody) {
+                return stringValueOf(stream);
+            }
+            try {
+                Object read = formatJsonPathResponse(readJsonPayload(amc, stream));
+                if (log.isDebugEnabled()) {
+                    log.debug("#stringValueOf. Evaluated JSON path <" + jsonPath.getPath() + "> : <" + (read == null ? null : read.toString()) + ">");
+                }
+                return (null == read ? "null" : read.toString());
+            } catch (IOException e) {
+                handleException("Error evaluating JSON Path <" + jsonPath.getPath() + ">", e);
+            } catch (Exception e) { // catch invalid json paths that do not match with the existing JSON payload.
+                if (log.isDebugEnabled()) {
+                    log.debug("#stringValueOf. Error evaluating JSON Path <" + jsonPath.getPath()
+                            + ">. Returning empty result. Error>>> " + e.getLocalizedMessage());
+                }
+                return "";
+            }
         }
         return "";
     }
@@ -284,11 +302,49 @@ public class SynapseJsonPath extends SynapsePath {
             }
         } else {
             stream = JsonUtil.getJsonPayload(amc);
-            return listValueOf(stream);
+            if (stream == null) {
+                return null;
+            }
+            try {
+                return toList(readJsonPayload(amc, stream));
+            } catch (IOException e) {
+                log.error("AggregateMediator Failed to evaluate correlate expression: " + jsonPath.getPath());
+                return null;
+            }
         }
         return null;
     }
 
+    /**
+     * Evaluates the jsonPath against the JSON payload of the message. The payload is parsed only once for all the
+     * JSON paths evaluated against it, and the parsed document is kept in the message context until the payload is
+     * changed through {@link JsonUtil}.
+     *
+     * @param amc        axis2 message context holding the JSON payload
+     * @param jsonStream the current JSON stream of the payload
+     * @return result of the jsonPath
+     * @throws IOException if the JSON stream cannot be read
+     */
+    private Object readJsonPayload(org.apache.axis2.context.MessageContext amc, InputStream jsonStream)
+            throws IOException {
+        Object document = JsonUtil.getParsedJsonPayload(amc, jsonStream);
+        if (document == null) {
+            try {
+                document = Configuration.defaultConfiguration().jsonProvider().parse(jsonStream, "UTF-8");
+            } catch (RuntimeException e) {
+                // the JSON providers wrap the errors reading the stream
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+            JsonUtil.setParsedJsonPayload(amc, jsonStream, document);
+        }
+        Object result = jsonPath.read(document);
+        // the result may be a part of the parsed document, which must stay unchanged for the next evaluations
+        return result instanceof JsonElement ? ((JsonElement) result).deepCopy() : result;
+    }
+
     /**
      * This method always return a List and it will contains a list as the 0th
      * value, if the path is definite. if the path is not a definite list will
@@ -299,27 +355,31 @@ public class SynapseJsonPath extends SynapsePath {
         if (jsonStream == null) {
             return null;
         }
-        List result = new ArrayList();
         try {
-            Object object = formatJsonPathResponse(jsonPath.read(jsonStream));
-            if (object != null) {
-                if (object instanceof List && !jsonPath.isDefinite()) {
-                    result = (List) object;
-                } else if (object instanceof JsonArray) {
-                    for (JsonElement element:
-                            (JsonArray) object) {
-                        result.add(element);
-                    }
-                } else {
-                    result.add(object);
-                }
-            }
+            return toList(jsonPath.read(jsonStream));
         } catch (IOException e) {
             // catch invalid json paths that do not match with the existing JSON payload.
             // not throwing the exception as done in Xpath
             log.error("AggregateMediator Failed to evaluate correlate expression: " + jsonPath.getPath());
             return null;
         }
+    }
+
+    private List toList(Object jsonPathResult) {
+        List result = new ArrayList();
+        Object object = formatJsonPathResponse(jsonPathResult);
+        if (object != null) {
+            if (object instanceof List && !jsonPath.isDefinite()) {
+                result = (List) object;
+            } else if (object instanceof JsonArray) {
+                for (JsonElement element:
+                        (JsonArray) object) {
+                    result.add(element);
+                }
+            } else {
+                result.add(object);
+            }
+        }
         if (log.isDebugEnabled()) {
             log.debug("#listValueOf. Evaluated JSON path <" + jsonPath.getPath() + "> : <null>.");
         }
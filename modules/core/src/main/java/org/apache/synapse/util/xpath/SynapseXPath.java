@@ -48,6 +48,7 @@ import org.apache.synapse.transport.util.MessageHandlerProvider;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.util.streaming_xpath.StreamingXPATH;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHSet;
 import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
 import org.apache.synapse.util.streaming_xpath.custom.components.ParserComponent;
 import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
@@ -132,6 +133,9 @@ public class SynapseXPath extends SynapsePath {
             getProperty(SynapseConstants.STREAMING_XPATH_PROCESSING);
     private StreamingXPATH streamingXPATH =null;
 
+    /** The set of streaming expressions which are evaluated along with this one, in one pass over the message */
+    private volatile StreamingXPATHSet streamingXPATHSet = null;
+
     /** If the expression is identified as a XPath 2.0 expression in the compile time, we can make this property TRUE
      * Then it will not try to evaluate the expression in Jaxen (XPath 1) parser but directly evaluate with XPath 2.0*/
     private Boolean forceFailoverEvaluation = Boolean.FALSE;
@@ -377,23 +381,34 @@ public class SynapseXPath extends SynapsePath {
             if (!forceDisableStreamXpath && "true".equals(enableStreamingXpath) && streamingXPATH != null &&
                     (((Axis2MessageContext) synCtx).getEnvelope() == null ||
                             ((Axis2MessageContext) synCtx).getEnvelope().getBody().getFirstElement() == null)) {
-                try {
-                    axis2MC = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
-                    String contentType = (String) axis2MC.getProperty(SynapseConstants.AXIS2_PROPERTY_CONTENT_TYPE);
-                    if (!isStreamingXpathSupportedContentType(contentType) &&
-                            !Boolean.TRUE.equals(PassThroughConstants.MESSAGE_BUILDER_INVOKED)) {
-                        MessageHandlerProvider.getMessageHandler(axis2MC).buildMessage(axis2MC);
-                    } else {
-                        inputStream = MessageHandlerProvider.getMessageHandler(axis2MC).getMessageDataStream(axis2MC);
+                axis2MC = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+                StreamingXPATHSet xPathSet = streamingXPATHSet;
+                boolean evaluatedWithSet = xPathSet != null && xPathSet.isEvaluated(axis2MC);
+                if (!evaluatedWithSet) {
+                    try {
+                        String contentType = (String) axis2MC.getProperty(SynapseConstants.AXIS2_PROPERTY_CONTENT_TYPE);
+                        if (!isStreamingXpathSupportedContentType(contentType) &&
+                                !Boolean.TRUE.equals(PassThroughConstants.MESSAGE_BUILDER_INVOKED)) {
+                            MessageHandlerProvider.getMessageHandler(axis2MC).buildMessage(axis2MC);
+                        } else {
+                            inputStream = MessageHandlerProvider.getMessageHandler(axis2MC).getMessageDataStream(axis2MC);
+                        }
+                    } catch (XMLStreamException e) {
+                        handleException("Error occurred while building the message from the message context", e);
+                    } catch (IOException e) {
+                        log.error("Error occurred while obtaining input stream from the message context", e);
                     }
-                } catch (XMLStreamException e) {
-                    handleException("Error occurred while building the message from the message context", e);
-                } catch (IOException e) {
-                    log.error("Error occurred while obtaining input stream from the message context", e);
                 }
-                if (inputStream != null) {
+                if (evaluatedWithSet) {
+                    // the expressions used along with this one were evaluated in one pass over the stream
+                    result = xPathSet.getCachedValue(axis2MC, streamingXPATH);
+                } else if (inputStream != null) {
                     try {
-                        result = streamingXPATH.getStringValue(inputStream);
+                        if (xPathSet != null) {
+                            result = xPathSet.getStringValue(axis2MC, streamingXPATH, inputStream);
+                        } else {
+                            result = streamingXPATH.getStringValue(inputStream);
+                        }
                     } catch (XMLStreamException e) {
                         handleException("Error occurred while parsing the XPATH String", e);
                     } catch (StreamingXPATHException e) {
@@ -638,6 +653,27 @@ public class SynapseXPath extends SynapsePath {
     	this.forceDisableStreamXpath = forceDisableStreamXpath;
     }
 
+    /**
+     * @return the streaming form of this expression, or null if it cannot be evaluated over the message stream
+     */
+    public StreamingXPATH getStreamingXPATH() {
+        return streamingXPATH;
+    }
+
+    public StreamingXPATHSet getStreamingXPATHSet() {
+        return streamingXPATHSet;
+    }
+
+    /**
+     * Set the streaming expressions which are evaluated along with this expression, in a single pass over the
+     * message stream. The set must contain the streaming form of this expression.
+     *
+     * @param streamingXPATHSet the set of expressions, or null to evaluate this expression on its own
+     */
+    public void setStreamingXPATHSet(StreamingXPATHSet streamingXPATHSet) {
+        this.streamingXPATHSet = streamingXPATHSet;
+    }
+
     /**
      * This is a wrapper class used to inject both envelope and message contexts for xpath
      * We use this to resolve function scope xpath variables
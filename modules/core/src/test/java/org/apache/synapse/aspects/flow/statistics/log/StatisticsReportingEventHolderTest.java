@@ -0,0 +1,80 @@
+/*
+ *  Copyright (c) 2024, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.aspects.flow.statistics.log;
+
+import org.apache.synapse.aspects.flow.statistics.data.raw.BasicStatisticDataUnit;
+import org.apache.synapse.aspects.flow.statistics.log.templates.AbstractStatisticEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the event log of StatisticsReportingEventHolder.
+ */
+public class StatisticsReportingEventHolderTest {
+
+    /**
+     * Events are returned in the order they were added, while the log grows and reuses the space of removed events.
+     */
+    @Test
+    public void testEventOrder() {
+        StatisticsReportingEventHolder eventHolder = new StatisticsReportingEventHolder();
+        List<StatisticsReportingEvent> added = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            StatisticsReportingEvent event = createEvent();
+            eventHolder.addEvent(event);
+            added.add(event);
+        }
+        Assert.assertEquals(40, eventHolder.getQueueSize());
+        Assert.assertEquals(added, eventHolder.getEventList());
+
+        for (int i = 0; i < 30; i++) {
+            Assert.assertSame(added.get(i), eventHolder.deQueueEvent());
+        }
+        for (int i = 0; i < 30; i++) {
+            StatisticsReportingEvent event = createEvent();
+            eventHolder.addEvent(event);
+            added.add(event);
+        }
+        Assert.assertEquals(40, eventHolder.getQueueSize());
+        Assert.assertEquals(added.subList(30, 70), eventHolder.getEventList());
+        for (int i = 30; i < 70; i++) {
+            Assert.assertSame(added.get(i), eventHolder.deQueueEvent());
+        }
+        Assert.assertNull(eventHolder.deQueueEvent());
+        Assert.assertEquals(0, eventHolder.getQueueSize());
+    }
+
+    private static StatisticsReportingEvent createEvent() {
+        final BasicStatisticDataUnit dataUnit = new BasicStatisticDataUnit();
+        return new StatisticsReportingEvent() {
+            @Override
+            public AbstractStatisticEvent.EventType getEventType() {
+                return AbstractStatisticEvent.EventType.STATISTICS_OPEN_EVENT;
+            }
+
+            @Override
+            public BasicStatisticDataUnit getDataUnit() {
+                return dataUnit;
+            }
+        };
+    }
+}
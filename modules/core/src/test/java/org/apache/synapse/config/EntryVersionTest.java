@@ -0,0 +1,67 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config;
+
+import junit.framework.TestCase;
+
+public class EntryVersionTest extends TestCase {
+
+    public void testStaticEntry() {
+        Entry entry = new Entry("static");
+        entry.setType(Entry.INLINE_TEXT);
+        entry.setValue("value");
+        EntryVersion entryVersion = EntryVersion.of(entry);
+
+        assertTrue(entryVersion.isValid(entry));
+        assertFalse(entryVersion.isValid(new Entry("static")));
+        assertFalse(entryVersion.isValid(null));
+    }
+
+    public void testDynamicEntry() {
+        Entry entry = new Entry("dynamic");
+        entry.setType(Entry.REMOTE_ENTRY);
+        entry.setValue("value");
+        entry.setVersion(1);
+        entry.setExpiryTime(System.currentTimeMillis() + 60000);
+        EntryVersion entryVersion = EntryVersion.of(entry);
+        assertTrue(entryVersion.isValid(entry));
+
+        // an expired entry has to be looked up again, which keeps the version if it did not change
+        entry.setExpiryTime(System.currentTimeMillis() - 1);
+        assertFalse(entryVersion.isValid(entry));
+        assertTrue(entryVersion.isSameVersion(EntryVersion.of(entry)));
+
+        entry.setVersion(2);
+        assertFalse(entryVersion.isSameVersion(EntryVersion.of(entry)));
+
+        entry.clearCache();
+        assertFalse(EntryVersion.of(entry).isValid(entry));
+    }
+
+    public void testUnknownVersion() {
+        assertTrue(EntryVersion.NONE.isValid(null));
+        assertSame(EntryVersion.NONE, EntryVersion.of(null));
+        assertFalse(EntryVersion.NONE.isSameVersion(EntryVersion.NONE));
+
+        Entry entry = new Entry("unversioned");
+        entry.setVersion(Long.MIN_VALUE);
+        assertFalse(EntryVersion.of(entry).isSameVersion(EntryVersion.of(entry)));
+    }
+}
@@ -20,11 +20,15 @@ package org.apache.synapse.config.xml;
 
 import junit.framework.TestCase;
 import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.axis2.context.MessageContext;
 import org.apache.commons.io.IOUtils;
 import org.apache.synapse.util.streaming_xpath.StreamingXPATH;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHSet;
 import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
 
 import javax.xml.stream.XMLStreamException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 /**
  * Tests stream xpath related operations
@@ -61,4 +65,21 @@ public class StreamXPathTestCase extends TestCase {
         assertTrue("Invalid result from xpath execution", result.contains("Everyday Italian"));
     }
 
+    public void testStreamXpathSetInSinglePass() throws Exception {
+
+        StreamingXPATH title = new StreamingXPATH(XPATH1);
+        StreamingXPATH year = new StreamingXPATH(XPATH2);
+        StreamingXPATHSet xPathSet = new StreamingXPATHSet(Arrays.asList(title, year));
+        MessageContext msgCtx = new MessageContext();
+        InputStream stream = IOUtils.toInputStream(ELEMENT, "UTF-8");
+
+        assertFalse(xPathSet.isEvaluated(msgCtx));
+        String result = xPathSet.getStringValue(msgCtx, year, stream);
+        assertTrue("Invalid result from xpath execution", result.contains("2005"));
+        assertTrue(xPathSet.isEvaluated(msgCtx));
+        assertTrue("Invalid result from xpath execution",
+                xPathSet.getCachedValue(msgCtx, title).contains("Everyday Italian"));
+        assertEquals(result, xPathSet.getCachedValue(msgCtx, year));
+    }
+
 }
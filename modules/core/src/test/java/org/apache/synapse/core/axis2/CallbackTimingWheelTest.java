@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CallbackTimingWheelTest extends TestCase {
+
+    public void testCallbackExpiry() throws Exception {
+        final Map<String, Long> expired = new ConcurrentHashMap<String, Long>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        CallbackTimingWheel wheel = new CallbackTimingWheel(new CallbackTimingWheel.ExpiryHandler() {
+            public void expire(String key, AsyncCallback callback) {
+                expired.put(key, System.currentTimeMillis());
+                latch.countDown();
+            }
+        }, 5, 8);
+        wheel.start();
+        try {
+            long now = System.currentTimeMillis();
+            // the second deadline is more than one revolution of the wheel away
+            wheel.schedule("msg-1", new AsyncCallback(null, null), now + 20);
+            wheel.schedule("msg-2", new AsyncCallback(null, null), now + 100);
+
+            assertTrue("Callbacks were not expired", latch.await(5, TimeUnit.SECONDS));
+            assertTrue(expired.get("msg-1") >= now + 20);
+            assertTrue(expired.get("msg-2") >= now + 100);
+            assertEquals(2, wheel.getExpiredCount());
+            assertEquals(0, wheel.getPendingCount());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    public void testCancelledCallbackIsNotExpired() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Map<String, AsyncCallback> expired = new ConcurrentHashMap<String, AsyncCallback>();
+        CallbackTimingWheel wheel = new CallbackTimingWheel(new CallbackTimingWheel.ExpiryHandler() {
+            public void expire(String key, AsyncCallback callback) {
+                expired.put(key, callback);
+                latch.countDown();
+            }
+        }, 5, 16);
+        wheel.start();
+        try {
+            long now = System.currentTimeMillis();
+            CallbackTimingWheel.Entry cancelled =
+                    wheel.schedule("msg-1", new AsyncCallback(null, null), now + 30);
+            wheel.schedule("msg-2", new AsyncCallback(null, null), now + 60);
+            wheel.cancel(cancelled);
+            // cancelling twice is a no-op
+            wheel.cancel(cancelled);
+
+            assertTrue("Callback was not expired", latch.await(5, TimeUnit.SECONDS));
+            assertFalse(expired.containsKey("msg-1"));
+            assertTrue(expired.containsKey("msg-2"));
+            assertEquals(1, wheel.getCancelledCount());
+            assertEquals(1, wheel.getExpiredCount());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    public void testBucketCounts() throws Exception {
+        CallbackTimingWheel wheel = new CallbackTimingWheel(new CallbackTimingWheel.ExpiryHandler() {
+            public void expire(String key, AsyncCallback callback) {
+            }
+        }, 10, 100);
+        assertEquals("Wheel size should be rounded up to a power of two", 128, wheel.getWheelSize());
+        wheel.start();
+        try {
+            long deadline = System.currentTimeMillis() + 60000;
+            for (int i = 0; i < 10; i++) {
+                wheel.schedule("msg-" + i, new AsyncCallback(null, null), deadline);
+            }
+            assertEquals(10, wheel.getPendingCount());
+
+            // wait for the worker to move the callbacks into the bucket of the deadline
+            long waitUntil = System.currentTimeMillis() + 5000;
+            int max = 0;
+            while (max < 10 && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(20);
+                max = new CallbackTimingWheelView(wheel).getMaxBucketCallbackCount();
+            }
+            assertEquals(10, max);
+        } finally {
+            wheel.stop();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.AbstractEndpoint;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.endpoints.LoadbalanceEndpoint;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+
+public class LoadAwareAlgorithmTest extends TestCase {
+
+    private final boolean[] ready = {true, true, true};
+
+    public void testRoundRobinOrder() {
+        List<Endpoint> endpoints = createEndpoints();
+        RoundRobin algorithm = new RoundRobin();
+        algorithm.setEndpoints(endpoints);
+        AlgorithmContext algorithmContext = new AlgorithmContext(false, null, "lb");
+
+        ready[1] = false;
+        Endpoint[] expected = {endpoints.get(0), endpoints.get(2), endpoints.get(0), endpoints.get(2)};
+        for (Endpoint endpoint : expected) {
+            assertSame(endpoint, algorithm.getNextEndpoint(createMessageContext(), algorithmContext));
+        }
+
+        ready[0] = false;
+        ready[2] = false;
+        assertNull(algorithm.getNextEndpoint(createMessageContext(), algorithmContext));
+    }
+
+    public void testLeastOutstandingRequests() {
+        List<Endpoint> endpoints = createEndpoints();
+        LoadAwareAlgorithm algorithm = createAlgorithm(new LeastOutstandingRequests(), endpoints);
+
+        // requests which are in progress are spread over the endpoints
+        List<MessageContext> requests = new ArrayList<MessageContext>();
+        for (int i = 0; i < 30; i++) {
+            MessageContext synCtx = createMessageContext();
+            algorithm.getNextEndpoint(synCtx, null);
+            requests.add(synCtx);
+        }
+        for (int i = 0; i < endpoints.size(); i++) {
+            int outstanding = algorithm.getEndpointLoad(i).getOutstandingRequests();
+            assertTrue("endpoint " + i + " has " + outstanding + " requests", outstanding >= 5 && outstanding <= 15);
+        }
+
+        for (MessageContext synCtx : requests) {
+            EndpointLoadTracker.completeAll(synCtx, true);
+            // a request is completed only once
+            EndpointLoadTracker.completeAll(synCtx, true);
+        }
+        for (int i = 0; i < endpoints.size(); i++) {
+            assertEquals(0, algorithm.getEndpointLoad(i).getOutstandingRequests());
+        }
+    }
+
+    public void testEndpointsNotReady() {
+        List<Endpoint> endpoints = createEndpoints();
+        LoadAwareAlgorithm algorithm = createAlgorithm(new LatencyAware(), endpoints);
+
+        ready[0] = false;
+        ready[1] = false;
+        for (int i = 0; i < 10; i++) {
+            assertSame(endpoints.get(2), algorithm.getNextEndpoint(createMessageContext(), null));
+        }
+        ready[2] = false;
+        assertNull(algorithm.getNextEndpoint(createMessageContext(), null));
+    }
+
+    public void testFailedRequest() {
+        List<Endpoint> endpoints = createEndpoints();
+        LoadAwareAlgorithm algorithm = createAlgorithm(new LatencyAware(), endpoints);
+        MessageContext synCtx = createMessageContext();
+
+        Endpoint endpoint = algorithm.getNextEndpoint(synCtx, null);
+        EndpointLoad load = algorithm.getEndpointLoad(endpoints.indexOf(endpoint));
+        assertEquals(1, load.getOutstandingRequests());
+
+        // the failure of an endpoint chosen by another algorithm is ignored
+        EndpointLoadTracker.completeFailed(synCtx, new LatencyAware());
+        assertEquals(1, load.getOutstandingRequests());
+
+        EndpointLoadTracker.completeFailed(synCtx, algorithm);
+        assertEquals(0, load.getOutstandingRequests());
+        assertNull(synCtx.getProperty(EndpointLoadTracker.TRACKED_REQUEST));
+    }
+
+    public void testDiscardedFault() {
+        List<Endpoint> endpoints = createEndpoints();
+        LoadAwareAlgorithm algorithm = createAlgorithm(new LeastOutstandingRequests(), endpoints);
+        MessageContext synCtx = createMessageContext();
+
+        Endpoint endpoint = algorithm.getNextEndpoint(synCtx, null);
+        EndpointLoad load = algorithm.getEndpointLoad(endpoints.indexOf(endpoint));
+        assertEquals(1, load.getOutstandingRequests());
+
+        // the fault handlers are not invoked when the timeout action is DISCARD
+        EndpointDefinition definition = new EndpointDefinition();
+        definition.setTimeoutAction(SynapseConstants.DISCARD);
+        AbstractEndpoint discardingEndpoint = new AbstractEndpoint() {
+            @Override
+            protected void createJsonRepresentation() {
+            }
+        };
+        discardingEndpoint.setDefinition(definition);
+        discardingEndpoint.onFault(synCtx);
+        assertEquals(0, load.getOutstandingRequests());
+        assertNull(synCtx.getProperty(EndpointLoadTracker.TRACKED_REQUEST));
+    }
+
+    public void testOutOnlyRequestNotTracked() {
+        List<Endpoint> endpoints = createEndpoints();
+        LoadAwareAlgorithm algorithm = createAlgorithm(new LeastOutstandingRequests(), endpoints);
+        MessageContext synCtx = createMessageContext();
+        synCtx.setProperty(SynapseConstants.OUT_ONLY, "true");
+
+        Endpoint endpoint = algorithm.getNextEndpoint(synCtx, null);
+        assertEquals(0, algorithm.getEndpointLoad(endpoints.indexOf(endpoint)).getOutstandingRequests());
+        assertNull(synCtx.getProperty(EndpointLoadTracker.TRACKED_REQUEST));
+    }
+
+    private LoadAwareAlgorithm createAlgorithm(LoadAwareAlgorithm algorithm, List<Endpoint> endpoints) {
+        LoadbalanceEndpoint loadbalanceEndpoint = new LoadbalanceEndpoint();
+        algorithm.setEndpoints(endpoints);
+        algorithm.setLoadBalanceEndpoint(loadbalanceEndpoint);
+        algorithm.init(new Axis2SynapseEnvironment(
+                new ConfigurationContext(new AxisConfiguration()), new SynapseConfiguration()));
+        return algorithm;
+    }
+
+    private MessageContext createMessageContext() {
+        return new Axis2MessageContext(new org.apache.axis2.context.MessageContext(), null, null);
+    }
+
+    private List<Endpoint> createEndpoints() {
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        for (int i = 0; i < ready.length; i++) {
+            final int index = i;
+            endpoints.add(new AddressEndpoint() {
+                @Override
+                public boolean readyToSend() {
+                    return ready[index];
+                }
+            });
+        }
+        return endpoints;
+    }
+}
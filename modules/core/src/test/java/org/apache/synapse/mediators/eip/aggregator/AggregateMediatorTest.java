@@ -0,0 +1,196 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.eip.aggregator;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.MediatorFaultHandler;
+import org.apache.synapse.mediators.TestMediateHandler;
+import org.apache.synapse.mediators.TestMediator;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.mediators.Value;
+import org.apache.synapse.mediators.base.SequenceMediator;
+import org.apache.synapse.mediators.eip.EIPConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class AggregateMediatorTest extends TestCase {
+
+    private SynapseConfiguration synCfg;
+
+    private SynapseEnvironment synEnv;
+
+    private ConfigurationContext cfgCtx;
+
+    private AggregateMediator aggregateMediator;
+
+    /* The aggregated messages mediated through the onComplete sequence */
+    private final List<MessageContext> aggregatedMessages =
+            Collections.synchronizedList(new ArrayList<MessageContext>());
+
+    protected void setUp() throws Exception {
+        synCfg = new SynapseConfiguration();
+        cfgCtx = new ConfigurationContext(new AxisConfiguration());
+        synEnv = new Axis2SynapseEnvironment(cfgCtx, synCfg);
+
+        TestMediator onCompleteMediator = new TestMediator();
+        onCompleteMediator.setHandler(new TestMediateHandler() {
+            public void handle(MessageContext synCtx) {
+                aggregatedMessages.add(synCtx);
+            }
+        });
+        SequenceMediator onCompleteSequence = new SequenceMediator();
+        onCompleteSequence.addChild(onCompleteMediator);
+
+        aggregateMediator = new AggregateMediator();
+        aggregateMediator.setOnCompleteSequence(onCompleteSequence);
+    }
+
+    protected void tearDown() throws Exception {
+        aggregateMediator.destroy();
+    }
+
+    /**
+     * The aggregation completes with the message which reaches the maximum number of messages.
+     */
+    public void testCompletionOnMaxMessages() throws Exception {
+        aggregateMediator.setMaxMessagesToComplete(new Value("3"));
+        aggregateMediator.init(synEnv);
+
+        assertFalse(aggregateMediator.mediate(createMessage("c1", 0)));
+        assertFalse(aggregateMediator.mediate(createMessage("c1", 1)));
+        assertEquals(1, aggregateMediator.getActiveAggregates().size());
+        assertTrue(aggregatedMessages.isEmpty());
+
+        assertTrue(aggregateMediator.mediate(createMessage("c1", 2)));
+        assertEquals(1, aggregatedMessages.size());
+        assertEquals(3, countItems(aggregatedMessages.get(0)));
+        assertTrue(aggregateMediator.getActiveAggregates().isEmpty());
+        assertEquals(1, aggregateMediator.getMetrics().getCompletedCount());
+        assertEquals(0, aggregateMediator.getMetrics().getTimedOutCount());
+
+        // the next message of the correlation starts a new aggregation
+        assertFalse(aggregateMediator.mediate(createMessage("c1", 3)));
+        assertEquals(1, aggregateMediator.getActiveAggregates().size());
+    }
+
+    /**
+     * Messages of the same correlation arriving concurrently are collected into a single aggregate,
+     * and messages of different correlations into different aggregates.
+     */
+    public void testConcurrentMessagesShareAggregate() throws Exception {
+        final int correlations = 4;
+        final int messages = 8;
+        aggregateMediator.setMaxMessagesToComplete(new Value(String.valueOf(messages)));
+        aggregateMediator.init(synEnv);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int c = 0; c < correlations; c++) {
+            for (int i = 0; i < messages; i++) {
+                final MessageContext synCtx = createMessage("c" + c, i);
+                threads.add(new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            start.await();
+                            aggregateMediator.mediate(synCtx);
+                        } catch (Throwable t) {
+                            errors.add(t);
+                        }
+                    }
+                }));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(correlations, aggregatedMessages.size());
+        for (MessageContext aggregatedMessage : aggregatedMessages) {
+            assertEquals(messages, countItems(aggregatedMessage));
+        }
+        assertTrue(aggregateMediator.getActiveAggregates().isEmpty());
+        assertEquals(correlations, aggregateMediator.getMetrics().getCompletedCount());
+    }
+
+    /**
+     * An aggregation which does not reach its completion condition is completed by its timeout on
+     * the expiry scheduler.
+     */
+    public void testCompletionOnTimeout() throws Exception {
+        aggregateMediator.setMaxMessagesToComplete(new Value("5"));
+        aggregateMediator.setCompletionTimeoutMillis(200);
+        aggregateMediator.init(synEnv);
+
+        assertFalse(aggregateMediator.mediate(createMessage("c1", 0)));
+        assertFalse(aggregateMediator.mediate(createMessage("c1", 1)));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (aggregatedMessages.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, aggregatedMessages.size());
+        assertEquals(2, countItems(aggregatedMessages.get(0)));
+        assertTrue(aggregateMediator.getActiveAggregates().isEmpty());
+        assertEquals(0, aggregateMediator.getMetrics().getCompletedCount());
+        assertEquals(1, aggregateMediator.getMetrics().getTimedOutCount());
+    }
+
+    private MessageContext createMessage(String correlation, int index) throws Exception {
+        MessageContext synCtx = new Axis2MessageContext(new org.apache.axis2.context.MessageContext(),
+                synCfg, synEnv);
+        ((Axis2MessageContext) synCtx).getAxis2MessageContext().setConfigurationContext(cfgCtx);
+        SOAPEnvelope envelope = OMAbstractFactory.getSOAP11Factory().getDefaultEnvelope();
+        envelope.getBody().addChild(TestUtils.createOMElement("<item>" + index + "</item>"));
+        synCtx.setEnvelope(envelope);
+        synCtx.setProperty(EIPConstants.AGGREGATE_CORRELATION, correlation);
+        synCtx.pushFaultHandler(new MediatorFaultHandler(new SequenceMediator()));
+        return synCtx;
+    }
+
+    private int countItems(MessageContext synCtx) {
+        int count = 0;
+        for (Iterator it = synCtx.getEnvelope().getBody().getChildElements(); it.hasNext();) {
+            if ("item".equals(((OMElement) it.next()).getLocalName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
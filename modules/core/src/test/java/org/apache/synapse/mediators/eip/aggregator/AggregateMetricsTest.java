@@ -0,0 +1,67 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.eip.aggregator;
+
+import junit.framework.TestCase;
+
+public class AggregateMetricsTest extends TestCase {
+
+    public void testAggregationCompleted() {
+        AggregateMetrics metrics = new AggregateMetrics();
+        assertEquals(0.0, metrics.getAverageLatency());
+
+        metrics.aggregationCompleted(false, 10);
+        metrics.aggregationCompleted(false, 30);
+        metrics.aggregationCompleted(true, 50);
+        assertEquals(2, metrics.getCompletedCount());
+        assertEquals(1, metrics.getTimedOutCount());
+        assertEquals(30.0, metrics.getAverageLatency());
+        assertEquals(50, metrics.getMaxLatency());
+
+        metrics.reset();
+        assertEquals(0, metrics.getCompletedCount());
+        assertEquals(0, metrics.getTimedOutCount());
+        assertEquals(0, metrics.getMaxLatency());
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        final AggregateMetrics metrics = new AggregateMetrics();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        metrics.aggregationCompleted(i % 2 == 0, offset * 1000 + i);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(2000, metrics.getCompletedCount());
+        assertEquals(2000, metrics.getTimedOutCount());
+        assertEquals(3999, metrics.getMaxLatency());
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.synapse.mediators.transform.pfutils;
 import com.google.common.collect.Maps;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.mediators.transform.Argument;
 import org.apache.synapse.mediators.transform.ArgumentDetails;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -210,6 +211,38 @@ public class TemplateProcessorTest {
         }
     }
 
+    public static class ProcessTemplate {
+
+        @Test
+        public void testProcessTemplate() throws Exception {
+
+            MessageContext synCtx = TestUtils.createLightweightSynapseMessageContext(inputPayload);
+            TemplateProcessor templateProcessor = new RegexTemplateProcessor();
+            templateProcessor.addPathArgument(getValueArgument("10"));
+            templateProcessor.addPathArgument(getValueArgument("john"));
+            templateProcessor.setMediaType(JSON_TYPE);
+            templateProcessor.setFormat("{\"id\":$1,\"name\":\"$2\",\"price\":\"$ $1\"}");
+            templateProcessor.init();
+
+            assertEquals("{\"id\":10,\"name\":\"john\",\"price\":\"$ 10\"}",
+                    templateProcessor.processTemplate(templateProcessor.getFormat(), JSON_TYPE, synCtx));
+            // a template which is not the compiled one
+            assertEquals("<pfPadding><name>john</name><id>10</id></pfPadding>",
+                    templateProcessor.processTemplate("<name>$2</name><id>$1</id>", XML_TYPE, synCtx));
+            // a reference without an argument keeps the rest of the template
+            assertEquals("{\"id\":10,\"other\":$3,\"name\":\"$2\"}",
+                    templateProcessor.processTemplate("{\"id\":$1,\"other\":$3,\"name\":\"$2\"}", JSON_TYPE,
+                            synCtx));
+        }
+
+        private static Argument getValueArgument(String value) {
+
+            Argument argument = new Argument();
+            argument.setValue(value);
+            return argument;
+        }
+    }
+
     private static ArgumentDetails getArgumentDetails(String pathType, boolean isXML, boolean isLiteral) {
 
         ArgumentDetails argumentDetails = new ArgumentDetails();
@@ -0,0 +1,248 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.AbstractEndpoint;
+import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.message.processor.MessageProcessorConstants;
+import org.apache.synapse.message.store.MessageStore;
+import org.apache.synapse.message.store.impl.memory.InMemoryStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Test class for the batch forwarding of the ForwardingService
+ */
+public class ForwardingServiceTest {
+
+    private SynapseConfiguration synapseConfiguration;
+
+    private SynapseEnvironment synapseEnvironment;
+
+    private MessageStore messageStore;
+
+    private TestForwardingProcessor messageProcessor;
+
+    private ForwardingService forwardingService;
+
+    /* The IDs of the messages sent to the endpoint, in the order they were sent */
+    private final List<String> sentMessages = Collections.synchronizedList(new ArrayList<String>());
+
+    /* The IDs of the messages the endpoint fails to send */
+    private final Set<String> failingMessages = Collections.synchronizedSet(new HashSet<String>());
+
+    @Before
+    public void setUp() throws Exception {
+        synapseConfiguration = new SynapseConfiguration();
+        ConfigurationContext cfgCtx = new ConfigurationContext(synapseConfiguration.getAxisConfiguration());
+        synapseEnvironment = new Axis2SynapseEnvironment(cfgCtx, synapseConfiguration);
+
+        messageStore = new InMemoryStore();
+        messageStore.setName("TestStore");
+        synapseConfiguration.addMessageStore("TestStore", messageStore);
+        messageStore.init(synapseEnvironment);
+
+        EndpointDefinition definition = new EndpointDefinition();
+        definition.setAddress("jms:/TestQueue");
+        AbstractEndpoint endpoint = new AbstractEndpoint() {
+            @Override
+            public void send(MessageContext synCtx) {
+                sentMessages.add(synCtx.getMessageID());
+                if (failingMessages.contains(synCtx.getMessageID())) {
+                    synCtx.setProperty(SynapseConstants.BLOCKING_SENDER_ERROR, "true");
+                    synCtx.setProperty(SynapseConstants.ERROR_EXCEPTION,
+                            new SynapseException("Backend is not available"));
+                }
+            }
+
+            @Override
+            protected void createJsonRepresentation() {
+            }
+        };
+        endpoint.setName("TestEndpoint");
+        endpoint.setDefinition(definition);
+        synapseConfiguration.addEndpoint("TestEndpoint", endpoint);
+
+        for (int i = 0; i < 6; i++) {
+            MessageContext messageContext =
+                    TestUtils.createLightweightSynapseMessageContext("<test/>", synapseConfiguration);
+            messageContext.setMessageID("ID" + i);
+            messageContext.setProperty(SynapseConstants.OUT_ONLY, "true");
+            messageStore.getProducer().storeMessage(messageContext);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (forwardingService != null) {
+            forwardingService.destroy();
+        }
+    }
+
+    /**
+     * With an in-flight window of 1 the messages of a batch are forwarded on a
+     * single lane in the order of the store, and acknowledged together.
+     */
+    @Test
+    public void testBatchForwardedInStoreOrder() throws Exception {
+        initForwardingService("4", "1");
+
+        forwardingService.dispatch(forwardingService.fetch(4));
+
+        Assert.assertEquals(Arrays.asList("ID0", "ID1", "ID2", "ID3"), sentMessages);
+        Assert.assertEquals(2, messageStore.size());
+        Assert.assertEquals("ID4", messageStore.get(0).getMessageID());
+        Assert.assertEquals(4, messageProcessor.getMetrics().getForwardedCount());
+        Assert.assertEquals(1, messageProcessor.getMetrics().getBatchCount());
+        Assert.assertFalse(messageProcessor.isDeactivated());
+    }
+
+    /**
+     * The messages following a message which could not be forwarded on the lane are
+     * neither forwarded nor acknowledged, so the store keeps them in order.
+     */
+    @Test
+    public void testSequentialBatchStopsAtFailedMessage() throws Exception {
+        failingMessages.add("ID2");
+        initForwardingService("4", "1");
+
+        forwardingService.dispatch(forwardingService.fetch(4));
+
+        Assert.assertEquals(Arrays.asList("ID0", "ID1", "ID2"), sentMessages);
+        Assert.assertTrue(messageProcessor.isDeactivated());
+        Assert.assertEquals(4, messageStore.size());
+        Assert.assertEquals("ID2", messageStore.get(0).getMessageID());
+        Assert.assertEquals(2, messageProcessor.getMetrics().getForwardedCount());
+        Assert.assertEquals(1, messageProcessor.getMetrics().getFailedCount());
+    }
+
+    /**
+     * With concurrent lanes only the messages which were forwarded are acknowledged,
+     * and the failed message is kept in the store.
+     */
+    @Test
+    public void testConcurrentBatchWithFailedMessage() throws Exception {
+        failingMessages.add("ID1");
+        initForwardingService("4", "2");
+
+        forwardingService.dispatch(forwardingService.fetch(4));
+
+        Assert.assertTrue(messageProcessor.isDeactivated());
+        Assert.assertNotNull(messageStore.get("ID1"));
+        int forwarded = 0;
+        for (int i = 0; i < 6; i++) {
+            String messageId = "ID" + i;
+            boolean isForwarded = i < 4 && !failingMessages.contains(messageId) && sentMessages.contains(messageId);
+            Assert.assertEquals(messageId, isForwarded, messageStore.get(messageId) == null);
+            if (isForwarded) {
+                forwarded++;
+            }
+        }
+        Assert.assertEquals(forwarded, messageProcessor.getMetrics().getForwardedCount());
+        Assert.assertEquals(1, messageProcessor.getMetrics().getFailedCount());
+        Assert.assertEquals(0, messageProcessor.getMetrics().getInFlightCount());
+    }
+
+    /**
+     * A message dropped after its delivery attempts does not stop the batch, and
+     * the whole batch is acknowledged.
+     */
+    @Test
+    public void testConcurrentBatchDropsFailedMessage() throws Exception {
+        failingMessages.add("ID1");
+        messageProcessor = createMessageProcessor("4", "2");
+        messageProcessor.getParameters().put(ForwardingProcessorConstants.MAX_DELIVERY_DROP, "Enabled");
+        forwardingService = new ForwardingService(messageProcessor, null, synapseEnvironment, 1000);
+        forwardingService.init(synapseEnvironment);
+
+        forwardingService.dispatch(forwardingService.fetch(4));
+
+        Assert.assertFalse(messageProcessor.isDeactivated());
+        Assert.assertEquals(4, sentMessages.size());
+        Assert.assertEquals(2, messageStore.size());
+        Assert.assertEquals("ID4", messageStore.get(0).getMessageID());
+        Assert.assertEquals(3, messageProcessor.getMetrics().getForwardedCount());
+        Assert.assertEquals(1, messageProcessor.getMetrics().getFailedCount());
+    }
+
+    private void initForwardingService(String batchSize, String inFlightWindow) {
+        messageProcessor = createMessageProcessor(batchSize, inFlightWindow);
+        forwardingService = new ForwardingService(messageProcessor, null, synapseEnvironment, 1000);
+        forwardingService.init(synapseEnvironment);
+    }
+
+    private TestForwardingProcessor createMessageProcessor(String batchSize, String inFlightWindow) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(ForwardingProcessorConstants.TARGET_ENDPOINT, "TestEndpoint");
+        parameters.put(ForwardingProcessorConstants.BATCH_SIZE, batchSize);
+        parameters.put(ForwardingProcessorConstants.IN_FLIGHT_WINDOW, inFlightWindow);
+        parameters.put(MessageProcessorConstants.MAX_DELIVER_ATTEMPTS, "1");
+        parameters.put(MessageProcessorConstants.RETRY_INTERVAL, "0");
+
+        TestForwardingProcessor processor = new TestForwardingProcessor();
+        processor.setName("TestProcessor");
+        processor.setParameters(parameters);
+        processor.setMessageStoreName("TestStore");
+        return processor;
+    }
+
+    /**
+     * Forwarding processor which keeps its state without scheduling a task
+     */
+    private static class TestForwardingProcessor extends ScheduledMessageForwardingProcessor {
+
+        private volatile boolean deactivated = false;
+
+        @Override
+        public boolean isDeactivated() {
+            return deactivated;
+        }
+
+        @Override
+        public boolean deactivate() {
+            deactivated = true;
+            return true;
+        }
+
+        @Override
+        public boolean isActive() {
+            return !deactivated;
+        }
+    }
+}
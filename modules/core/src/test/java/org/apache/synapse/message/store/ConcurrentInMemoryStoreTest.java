@@ -0,0 +1,238 @@
+/*
+ *  Copyright WSO2 Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.store;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.MessageProducer;
+import org.apache.synapse.message.store.impl.memory.ConcurrentInMemoryStore;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentInMemoryStoreTest extends TestCase {
+
+    public void testBasics() throws Exception {
+        MessageStore store = new ConcurrentInMemoryStore();
+        populateStore(store, 10);
+        assertEquals(10, store.size());
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("ID" + i, store.get(i).getMessageID());
+            assertEquals("ID" + i, store.get("ID" + i).getMessageID());
+        }
+        List<MessageContext> list = store.getAll();
+        assertEquals(10, list.size());
+
+        assertEquals("ID5", store.remove("ID5").getMessageID());
+        assertNull(store.get("ID5"));
+        assertEquals(9, store.size());
+
+        MessageConsumer consumer = store.getConsumer();
+        for (int i = 0; i < 10; i++) {
+            if (i != 5) {
+                assertEquals("ID" + i, consumer.receive().getMessageID());
+                consumer.ack();
+            }
+        }
+        assertNull(consumer.receive());
+        assertEquals(0, store.size());
+
+        populateStore(store, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("ID" + i, store.remove().getMessageID());
+        }
+        try {
+            store.remove();
+            fail();
+        } catch (NoSuchElementException expected) {}
+
+        populateStore(store, 10);
+        store.clear();
+        assertEquals(0, store.size());
+    }
+
+    public void testGuaranteedDelivery() throws Exception {
+        MessageStore store = new ConcurrentInMemoryStore();
+        store.getProducer().storeMessage(createMessageContext("FOO"));
+        MessageConsumer consumer = store.getConsumer();
+        assertEquals("FOO", consumer.receive().getMessageID());
+
+        store.getProducer().storeMessage(createMessageContext("BAR"));
+        assertEquals("FOO", consumer.receive().getMessageID());
+        consumer.ack();
+        assertEquals("BAR", consumer.receive().getMessageID());
+    }
+
+    public void testBatchDelivery() throws Exception {
+        MessageStore store = new ConcurrentInMemoryStore();
+        populateStore(store, 10);
+        MessageConsumer consumer = store.getConsumer();
+
+        List<MessageContext> batch = consumer.receive(4);
+        assertEquals(4, batch.size());
+        assertTrue(consumer.ack(batch.subList(0, 2)));
+        assertEquals(8, store.size());
+
+        batch = consumer.receive(20);
+        assertEquals(8, batch.size());
+        assertEquals("ID2", batch.get(0).getMessageID());
+        assertTrue(consumer.ack(batch));
+        assertEquals(0, store.size());
+    }
+
+    public void testRejectWhenFull() throws Exception {
+        MessageStore store = createStore(5, ConcurrentInMemoryStore.POLICY_REJECT);
+        MessageProducer producer = store.getProducer();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(producer.storeMessage(createMessageContext("ID" + i)));
+        }
+        assertFalse(producer.storeMessage(createMessageContext("ID5")));
+        assertEquals(5, store.size());
+
+        store.remove();
+        assertTrue(producer.storeMessage(createMessageContext("ID5")));
+        assertEquals(5, store.size());
+    }
+
+    public void testDropOldestWhenFull() throws Exception {
+        MessageStore store = createStore(5, ConcurrentInMemoryStore.POLICY_DROP_OLDEST);
+        populateStore(store, 8);
+        assertEquals(5, store.size());
+        assertEquals("ID3", store.get(0).getMessageID());
+        assertEquals("ID7", store.get(4).getMessageID());
+    }
+
+    public void testBlockWhenFull() throws Exception {
+        final MessageStore store = createStore(1, ConcurrentInMemoryStore.POLICY_BLOCK);
+        MessageProducer producer = store.getProducer();
+        assertTrue(producer.storeMessage(createMessageContext("ID0")));
+
+        long start = System.currentTimeMillis();
+        assertFalse(producer.storeMessage(createMessageContext("ID1")));
+        assertTrue(System.currentTimeMillis() - start >= 100);
+
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {
+                }
+                store.remove();
+            }
+        });
+        consumer.start();
+        assertTrue(producer.storeMessage(createMessageContext("ID1")));
+        consumer.join();
+        assertEquals("ID1", store.get(0).getMessageID());
+    }
+
+    /**
+     * Stores and consumes messages from concurrent producers and consumers, and checks every message is
+     * consumed exactly once.
+     */
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        final MessageStore store = createStore(100, ConcurrentInMemoryStore.POLICY_BLOCK);
+        final int producers = 4;
+        final int messagesPerProducer = 500;
+        final AtomicInteger consumed = new AtomicInteger();
+        final Set<String> consumedIds = new HashSet<String>();
+        final AtomicInteger failures = new AtomicInteger();
+
+        Thread[] threads = new Thread[producers * 2];
+        for (int p = 0; p < producers; p++) {
+            final int producerId = p;
+            threads[p] = new Thread(new Runnable() {
+                public void run() {
+                    MessageProducer producer = store.getProducer();
+                    try {
+                        for (int i = 0; i < messagesPerProducer; i++) {
+                            if (!producer.storeMessage(createMessageContext(producerId + "-" + i))) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads[producers + p] = new Thread(new Runnable() {
+                public void run() {
+                    while (consumed.get() < producers * messagesPerProducer) {
+                        try {
+                            MessageContext message = store.remove();
+                            consumed.incrementAndGet();
+                            synchronized (consumedIds) {
+                                if (!consumedIds.add(message.getMessageID())) {
+                                    failures.incrementAndGet();
+                                }
+                            }
+                        } catch (NoSuchElementException e) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+        assertEquals(0, failures.get());
+        assertEquals(producers * messagesPerProducer, consumedIds.size());
+        assertEquals(0, store.size());
+    }
+
+    private MessageStore createStore(int capacity, String overflowPolicy) throws Exception {
+        SynapseConfiguration synapseConfiguration = new SynapseConfiguration();
+        ConfigurationContext cfgCtx = new ConfigurationContext(synapseConfiguration.getAxisConfiguration());
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(ConcurrentInMemoryStore.CAPACITY, String.valueOf(capacity));
+        parameters.put(ConcurrentInMemoryStore.OVERFLOW_POLICY, overflowPolicy);
+        parameters.put(ConcurrentInMemoryStore.BLOCK_TIMEOUT, "100");
+
+        ConcurrentInMemoryStore store = new ConcurrentInMemoryStore();
+        store.setName("concurrent_store");
+        store.setParameters(parameters);
+        store.init(new Axis2SynapseEnvironment(cfgCtx, synapseConfiguration));
+        return store;
+    }
+
+    private MessageContext createMessageContext(String identifier) throws Exception {
+        MessageContext msg = TestUtils.createLightweightSynapseMessageContext("<test/>");
+        msg.setMessageID(identifier);
+        return msg;
+    }
+
+    private void populateStore(MessageStore store, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            store.getProducer().storeMessage(createMessageContext("ID" + i));
+        }
+    }
+}
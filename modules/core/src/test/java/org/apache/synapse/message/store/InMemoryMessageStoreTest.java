@@ -117,6 +117,30 @@ public class InMemoryMessageStoreTest extends TestCase {
 
     }
     
+    public void testBatchDelivery() throws Exception {
+        System.out.println("Testing InMemoryStore Batch Delivery...");
+        MessageStore store = new InMemoryStore();
+        populateStore(store, 10);
+        MessageConsumer consumer = store.getConsumer();
+
+        List<MessageContext> batch = consumer.receive(4);
+        assertEquals(4, batch.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("ID" + i, batch.get(i).getMessageID());
+        }
+
+        // messages which are not acknowledged are kept in the store
+        assertTrue(consumer.ack(batch.subList(0, 2)));
+        assertEquals(8, store.size());
+        batch = consumer.receive(20);
+        assertEquals(8, batch.size());
+        assertEquals("ID2", batch.get(0).getMessageID());
+
+        assertTrue(consumer.ack(batch));
+        assertEquals(0, store.size());
+        assertTrue(consumer.receive(4).isEmpty());
+    }
+
     private MessageContext createMessageContext(String identifier) throws Exception {
         MessageContext msg = TestUtils.createLightweightSynapseMessageContext("<test/>");
         msg.setMessageID(identifier);
@@ -0,0 +1,162 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import junit.framework.TestCase;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests the binary format of the stored messages, along with reading messages persisted with Java
+ * serialization.
+ */
+public class StorableMessageCodecTest extends TestCase {
+
+    private final StorableMessageCodec codec = new StorableMessageCodec(1024);
+
+    public void testRoundTrip() throws Exception {
+        StorableMessage message = createMessage("<soapenv:Envelope>small</soapenv:Envelope>");
+        byte[] bytes = codec.encode(message);
+        assertTrue(StorableMessageCodec.isEncoded(bytes));
+        assertMessage(message, codec.decode(bytes));
+    }
+
+    /**
+     * Payloads above the threshold are compressed, and are restored when the message is decoded.
+     */
+    public void testCompressedPayload() throws Exception {
+        StringBuilder envelope = new StringBuilder("<soapenv:Envelope>");
+        for (int i = 0; i < 1000; i++) {
+            envelope.append("<item id=\"").append(i).append("\">value</item>");
+        }
+        envelope.append("</soapenv:Envelope>");
+        StorableMessage message = createMessage(envelope.toString());
+        message.getAxis2message().setJsonStream(envelope.toString().getBytes("UTF-8"));
+
+        byte[] compressed = codec.encode(message);
+        byte[] plain = new StorableMessageCodec(-1).encode(message);
+        assertTrue("Payload is not compressed", compressed.length < plain.length / 4);
+        assertMessage(message, codec.decode(compressed));
+        assertMessage(message, codec.decode(plain));
+    }
+
+    /**
+     * Messages stored with Java serialization by earlier versions are still readable.
+     */
+    public void testJavaSerializedMessage() throws Exception {
+        StorableMessage message = createMessage("<soapenv:Envelope>legacy</soapenv:Envelope>");
+        byte[] serialized = StorableMessageCodec.serialize(message);
+        assertFalse(StorableMessageCodec.isEncoded(serialized));
+        assertMessage(message, codec.decode(serialized));
+        assertTrue(serialized.length > codec.encode(message).length);
+    }
+
+    public void testCorruptedMessage() throws Exception {
+        byte[] bytes = codec.encode(createMessage("<soapenv:Envelope>corrupted</soapenv:Envelope>"));
+        try {
+            codec.decode(Arrays.copyOf(bytes, bytes.length / 2));
+            fail("Truncated message must not be decoded");
+        } catch (IOException expected) {
+        }
+    }
+
+    private StorableMessage createMessage(String envelope) {
+        Axis2Message axis2Message = new Axis2Message();
+        axis2Message.setMessageID("urn:uuid:1234");
+        axis2Message.setOperationName(new QName("http://services.samples", "getQuote", "ns"));
+        axis2Message.setAction("urn:getQuote");
+        axis2Message.setService("StockQuoteProxy");
+        axis2Message.setToAddress("http://localhost:9000/services/SimpleStockQuoteService");
+        axis2Message.setTransportInName("http");
+        axis2Message.setDoingPOX(true);
+        axis2Message.setFLOW(1);
+        axis2Message.setSoapEnvelope(envelope);
+
+        Map<String, Object> abstractProperties = new HashMap<String, Object>();
+        abstractProperties.put("string", "value");
+        abstractProperties.put("boolean", Boolean.TRUE);
+        abstractProperties.put("integer", 42);
+        abstractProperties.put("double", 4.2d);
+        abstractProperties.put("character", 'c');
+        axis2Message.addProperty("ABSTRACT_MC_PROPERTIES", abstractProperties);
+        Map<String, String> headers = new TreeMap<String, String>();
+        headers.put("Content__HYPHEN__Type", "text__SLASH__xml");
+        axis2Message.addProperty("TRANSPORT_HEADERS", headers);
+        axis2Message.addProperty("serialized", new StringBuilder("serialized"));
+        axis2Message.addProperty("nullValue", null);
+
+        SynapseMessage synapseMessage = new SynapseMessage();
+        synapseMessage.setResponse(true);
+        synapseMessage.setTracingState(1);
+        synapseMessage.addLocalEntry("entry");
+        synapseMessage.addProperty("name", "value");
+        synapseMessage.addPropertyObject("OM_ELEMENT_PREFIX_element", "<element/>".getBytes());
+
+        StorableMessage message = new StorableMessage();
+        message.setAxis2message(axis2Message);
+        message.setSynapseMessage(synapseMessage);
+        message.setPriority(7);
+        return message;
+    }
+
+    private void assertMessage(StorableMessage expected, StorableMessage actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getPriority(), actual.getPriority());
+
+        Axis2Message expectedAxis2 = expected.getAxis2message();
+        Axis2Message actualAxis2 = actual.getAxis2message();
+        assertEquals(expectedAxis2.getMessageID(), actualAxis2.getMessageID());
+        assertEquals(expectedAxis2.getOperationName(), actualAxis2.getOperationName());
+        assertEquals(expectedAxis2.getOperationName().getPrefix(), actualAxis2.getOperationName().getPrefix());
+        assertEquals(expectedAxis2.getAction(), actualAxis2.getAction());
+        assertEquals(expectedAxis2.getService(), actualAxis2.getService());
+        assertNull(actualAxis2.getReplyToAddress());
+        assertEquals(expectedAxis2.getToAddress(), actualAxis2.getToAddress());
+        assertEquals(expectedAxis2.getTransportInName(), actualAxis2.getTransportInName());
+        assertEquals(expectedAxis2.isDoingPOX(), actualAxis2.isDoingPOX());
+        assertEquals(expectedAxis2.getFLOW(), actualAxis2.getFLOW());
+        assertEquals(expectedAxis2.getSoapEnvelope(), actualAxis2.getSoapEnvelope());
+        assertTrue(Arrays.equals(expectedAxis2.getJsonStream(), actualAxis2.getJsonStream()));
+        assertEquals(expectedAxis2.getProperties().get("ABSTRACT_MC_PROPERTIES"),
+                actualAxis2.getProperties().get("ABSTRACT_MC_PROPERTIES"));
+        assertEquals(expectedAxis2.getProperties().get("TRANSPORT_HEADERS"),
+                actualAxis2.getProperties().get("TRANSPORT_HEADERS"));
+        assertTrue(actualAxis2.getProperties().get("TRANSPORT_HEADERS") instanceof TreeMap);
+        assertEquals("serialized", String.valueOf(actualAxis2.getProperties().get("serialized")));
+        assertTrue(actualAxis2.getProperties().containsKey("nullValue"));
+
+        SynapseMessage expectedSynapse = expected.getSynapseMessage();
+        SynapseMessage actualSynapse = actual.getSynapseMessage();
+        assertEquals(expectedSynapse.isResponse(), actualSynapse.isResponse());
+        assertEquals(expectedSynapse.isFaultResponse(), actualSynapse.isFaultResponse());
+        assertEquals(expectedSynapse.getTracingState(), actualSynapse.getTracingState());
+        assertEquals(expectedSynapse.getMessageFlowTracingState(), actualSynapse.getMessageFlowTracingState());
+        assertEquals(expectedSynapse.getLocalEntries(), actualSynapse.getLocalEntries());
+        assertEquals(expectedSynapse.getProperties(), actualSynapse.getProperties());
+        assertEquals(expectedSynapse.getPropertyObjects().keySet(), actualSynapse.getPropertyObjects().keySet());
+        assertTrue(Arrays.equals(expectedSynapse.getPropertyObjects().get("OM_ELEMENT_PREFIX_element"),
+                actualSynapse.getPropertyObjects().get("OM_ELEMENT_PREFIX_element")));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.message.store.impl.jdbc;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.MessageProducer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the batched insert and poll of the JDBC message store against an embedded Derby database, and
+ * compares the store throughput of single and batched inserts.
+ */
+public class JDBCMessageStoreTest extends TestCase {
+
+    private static final Log log = LogFactory.getLog(JDBCMessageStoreTest.class);
+
+    private static final int PRODUCER_THREADS = 8;
+
+    private SynapseConfiguration synapseConfiguration;
+    private SynapseEnvironment synapseEnvironment;
+
+    @Override
+    protected void setUp() throws Exception {
+        synapseConfiguration = new SynapseConfiguration();
+        ConfigurationContext cfgCtx = new ConfigurationContext(synapseConfiguration.getAxisConfiguration());
+        synapseEnvironment = new Axis2SynapseEnvironment(cfgCtx, synapseConfiguration);
+    }
+
+    /**
+     * Reads a page of messages from the head of the store and removes them with a single statement.
+     */
+    public void testBatchedPoll() throws Exception {
+        JDBCMessageStore store = createStore("batched_poll_store", 1);
+        try {
+            MessageProducer producer = store.getProducer();
+            for (int i = 0; i < 10; i++) {
+                assertTrue(producer.storeMessage(createMessageContext("ID" + i)));
+            }
+            MessageConsumer consumer = store.getConsumer();
+
+            List<MessageContext> batch = consumer.receive(4);
+            assertEquals(4, batch.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals("ID" + i, batch.get(i).getMessageID());
+            }
+            assertTrue(consumer.ack(batch));
+            assertEquals(6, store.size());
+
+            batch = consumer.receive(100);
+            assertEquals(6, batch.size());
+            assertEquals("ID4", batch.get(0).getMessageID());
+            assertTrue(consumer.ack(batch));
+            assertEquals(0, store.size());
+            assertTrue(consumer.receive(4).isEmpty());
+        } finally {
+            store.destroy();
+        }
+    }
+
+    /**
+     * Stores messages from concurrent producers through the batch writer and checks all of them are stored.
+     */
+    public void testBatchInsert() throws Exception {
+        JDBCMessageStore store = createStore("batch_insert_store", 50);
+        try {
+            storeConcurrently(store, 100);
+            assertEquals(PRODUCER_THREADS * 100, store.size());
+
+            Set<String> messageIds = new HashSet<>();
+            for (MessageContext message : store.peek(PRODUCER_THREADS * 100)) {
+                messageIds.add(message.getMessageID());
+            }
+            assertEquals(PRODUCER_THREADS * 100, messageIds.size());
+        } finally {
+            store.destroy();
+        }
+    }
+
+    /**
+     * Compares the throughput of concurrent producers with single and batched inserts.
+     */
+    public void testInsertThroughputComparison() throws Exception {
+        int messagesPerThread = 250;
+        JDBCMessageStore singleInsertStore = createStore("single_insert_benchmark", 1);
+        JDBCMessageStore batchInsertStore = createStore("batch_insert_benchmark", 100);
+        try {
+            // warm up both stores before measuring
+            storeConcurrently(singleInsertStore, 20);
+            storeConcurrently(batchInsertStore, 20);
+
+            long singleInsertTime = storeConcurrently(singleInsertStore, messagesPerThread);
+            long batchInsertTime = storeConcurrently(batchInsertStore, messagesPerThread);
+            int messages = PRODUCER_THREADS * messagesPerThread;
+            log.info(String.format("Stored %d messages with %d producers : single insert %.0f msg/s, "
+                            + "batch insert %.0f msg/s", messages, PRODUCER_THREADS,
+                    messages / (singleInsertTime / 1e9), messages / (batchInsertTime / 1e9)));
+        } finally {
+            singleInsertStore.destroy();
+            batchInsertStore.destroy();
+        }
+    }
+
+    private long storeConcurrently(final JDBCMessageStore store, final int messagesPerThread) throws Exception {
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] producers = new Thread[PRODUCER_THREADS];
+        for (int t = 0; t < PRODUCER_THREADS; t++) {
+            final String prefix = store.getName() + "-" + System.nanoTime() + "-" + t + "-";
+            producers[t] = new Thread(new Runnable() {
+                public void run() {
+                    MessageProducer producer = store.getProducer();
+                    try {
+                        for (int i = 0; i < messagesPerThread; i++) {
+                            if (!producer.storeMessage(createMessageContext(prefix + i))) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        log.error("Error while storing messages", e);
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long time = System.nanoTime() - start;
+        assertEquals("Failed to store messages", 0, failures.get());
+        return time;
+    }
+
+    private JDBCMessageStore createStore(String table, int batchSize) throws Exception {
+        String baseDir = System.getProperty("basedir");
+        if (baseDir == null) {
+            baseDir = ".";
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(JDBCMessageStoreConstants.JDBC_CONNECTION_DRIVER, "org.apache.derby.jdbc.EmbeddedDriver");
+        parameters.put(JDBCMessageStoreConstants.JDBC_CONNECTION_URL,
+                "jdbc:derby:" + baseDir + "/target/jdbcStoreDB;create=true");
+        parameters.put(JDBCMessageStoreConstants.JDBC_USERNAME, "user");
+        parameters.put(JDBCMessageStoreConstants.JDBC_PASSWORD, "pass");
+        parameters.put(JDBCMessageStoreConstants.JDBC_TABLE, table);
+        parameters.put(JDBCMessageStoreConstants.JDBC_BATCH_SIZE, String.valueOf(batchSize));
+
+        JDBCMessageStore store = new JDBCMessageStore();
+        store.setName(table);
+        store.setParameters(parameters);
+        store.init(synapseEnvironment);
+
+        Connection connection = store.getJdbcConfiguration().getConnection();
+        try {
+            connection.setAutoCommit(true);
+            java.sql.Statement statement = connection.createStatement();
+            try {
+                statement.execute("DROP TABLE " + table);
+            } catch (SQLException ignore) {
+            }
+            statement.execute("CREATE TABLE " + table + " (indexId BIGINT GENERATED ALWAYS AS IDENTITY, "
+                    + "msg_id VARCHAR(200) NOT NULL, message BLOB NOT NULL, PRIMARY KEY (indexId))");
+            statement.close();
+        } finally {
+            connection.close();
+        }
+        return store;
+    }
+
+    private MessageContext createMessageContext(String identifier) throws Exception {
+        MessageContext msg = TestUtils.createSynapseMessageContext("<test>" + identifier + "</test>",
+                synapseConfiguration);
+        msg.setMessageID(identifier);
+        return msg;
+    }
+}
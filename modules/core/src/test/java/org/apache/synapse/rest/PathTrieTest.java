@@ -0,0 +1,149 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package org.apache.synapse.rest;
+
+import junit.framework.TestCase;
+import org.apache.synapse.api.ApiUtils;
+import org.apache.synapse.api.dispatch.PathTrie;
+import org.apache.synapse.api.dispatch.URITemplateHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class PathTrieTest extends TestCase {
+
+    private static final String[] TEMPLATES = {
+            "/", "/*", "/orders", "/orders/", "/orders/{id}", "/orders/{id}/items", "/orders/{id}/items/{item}",
+            "/orders/pending", "/orders/*", "/order*", "/customers/{id}?fields={fields}", "/{any}", "/~{user}",
+            "/dictionary/{char}/{word}", "/files/{+path}", "/customers/{id}"
+    };
+
+    private static final String[] PATHS = {
+            "/", "/orders", "/orders/", "/orders/1", "/orders/1/", "/orders/1/items", "/orders/1/items/2",
+            "/orders/pending", "/orders/pending?x=1", "/orderbook", "/customers/3?fields=name", "/customers/3",
+            "/~foo", "/foo", "/dictionary/c/cat", "/dictionary/d/dog/", "/files/a/b/c", "orders", "",
+            "/unknown/deep/path", "/orders?id=1"
+    };
+
+    public void testCandidateOrder() {
+        PathTrie<String> trie = new PathTrie<String>();
+        trie.add("/a/b/", "ab1");
+        trie.add("", "any");
+        trie.add("/a/", "a");
+        trie.add("/a/b/c", "ab2");
+        trie.add("/x/", "x");
+
+        assertEquals(Arrays.asList("ab1", "any", "a", "ab2"), trie.getCandidates("/a/b/c/d"));
+        assertEquals(Arrays.asList("any", "a"), trie.getCandidates("/a/c"));
+        assertEquals(Arrays.asList("any"), trie.getCandidates("/a"));
+        assertEquals(Arrays.asList("any", "x"), trie.getCandidates("/x/"));
+        assertEquals(5, trie.size());
+    }
+
+    /**
+     * Matching the candidates returned by the trie selects the same template as matching all the
+     * templates in the order they were added.
+     */
+    public void testSamePrecedenceAsSequentialMatching() {
+        for (int offset = 0; offset < TEMPLATES.length; offset++) {
+            List<URITemplateHelper> helpers = new ArrayList<URITemplateHelper>();
+            PathTrie<URITemplateHelper> trie = new PathTrie<URITemplateHelper>();
+            for (int i = 0; i < TEMPLATES.length; i++) {
+                URITemplateHelper helper = new URITemplateHelper(TEMPLATES[(i + offset) % TEMPLATES.length]);
+                helpers.add(helper);
+                trie.add(helper.getLiteralPrefix(), helper);
+            }
+            for (String path : PATHS) {
+                assertSame(path, findFirstMatch(helpers, path), findFirstMatch(trie.getCandidates(path), path));
+            }
+        }
+    }
+
+    /**
+     * The number of templates matched per request stays the same as the number of templates grows.
+     */
+    public void testCandidatesDoNotGrowWithTemplateCount() {
+        for (int count = 10; count <= 10000; count *= 10) {
+            PathTrie<URITemplateHelper> trie = new PathTrie<URITemplateHelper>();
+            for (int i = 0; i < count; i++) {
+                URITemplateHelper helper = new URITemplateHelper("/api" + i + "/orders/{id}");
+                trie.add(helper.getLiteralPrefix(), helper);
+            }
+            String path = "/api" + (count - 1) + "/orders/42";
+            List<URITemplateHelper> candidates = trie.getCandidates(path);
+            assertEquals(1, candidates.size());
+            assertNotNull(findFirstMatch(candidates, path));
+        }
+    }
+
+    /**
+     * APIs with single segment contexts are told apart by the segment, and an API is a candidate
+     * for every path its context matches.
+     */
+    public void testSingleSegmentContexts() {
+        List<String> contexts = new ArrayList<String>();
+        PathTrie<String> trie = new PathTrie<String>();
+        for (int i = 0; i < 1000; i++) {
+            contexts.add("/api" + i);
+        }
+        contexts.add("/orders/v1");
+        contexts.add("/");
+        for (String context : contexts) {
+            trie.add(context, true, context);
+        }
+
+        assertEquals(Arrays.asList("/api7", "/"), trie.getCandidates("/api7"));
+        assertEquals(Arrays.asList("/api7", "/"), trie.getCandidates("/api7/orders/1"));
+        assertEquals(Arrays.asList("/api7", "/"), trie.getCandidates("/api7?id=1/2"));
+        assertEquals(Arrays.asList("/api70", "/"), trie.getCandidates("/api70/"));
+        assertEquals(Arrays.asList("/orders/v1", "/"), trie.getCandidates("/orders/v1?id=1"));
+        assertEquals(Arrays.asList("/"), trie.getCandidates("/api7x"));
+        assertEquals(Arrays.asList("/"), trie.getCandidates("/orders"));
+        assertEquals(Arrays.asList("/"), trie.getCandidates("/orders/v2"));
+
+        contexts.remove("/");
+        trie = new PathTrie<String>();
+        for (String context : contexts) {
+            trie.add(context, true, context);
+        }
+        for (String path : new String[] {"/api999", "/api5/", "/api12?x", "/orders/v1/items"}) {
+            List<String> candidates = trie.getCandidates(path);
+            assertEquals(path, 1, candidates.size());
+            assertTrue(path, ApiUtils.matchApiPath(path, candidates.get(0)));
+        }
+        for (String path : PATHS) {
+            for (String context : contexts) {
+                if (ApiUtils.matchApiPath(path, context)) {
+                    assertTrue(path, trie.getCandidates(path).contains(context));
+                }
+            }
+        }
+    }
+
+    private URITemplateHelper findFirstMatch(List<URITemplateHelper> helpers, String path) {
+        for (URITemplateHelper helper : helpers) {
+            if (helper.getUriTemplate().matches(path, new HashMap<String, String>())) {
+                return helper;
+            }
+        }
+        return null;
+    }
+}
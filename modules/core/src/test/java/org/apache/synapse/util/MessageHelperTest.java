@@ -32,6 +32,7 @@ import org.apache.axiom.soap.impl.llom.soap12.SOAP12HeaderBlockImpl;
 import org.apache.axis2.context.MessageContext;
 
 import javax.activation.DataHandler;
+import javax.xml.namespace.QName;
 
 /**
  * 
@@ -75,6 +76,32 @@ public class MessageHelperTest extends TestCase {
         performTestForCloneEnvelope(soapFactory, header, childNode);
     }
 
+    public void testCloneSoapEnvelopeWithoutBody() {
+        OMFactory omFactory = OMAbstractFactory.getOMFactory();
+        OMNamespace ns = omFactory.createOMNamespace("http://ws.apache.org/axis2", "ns");
+        SOAPEnvelope envelope = OMAbstractFactory.getSOAP11Factory().getDefaultEnvelope();
+        envelope.declareNamespace("http://ws.apache.org/axis2/envelope", "env");
+        envelope.getBody().declareNamespace(ns);
+        envelope.getBody().addAttribute("id", "body", ns);
+        envelope.getBody().addChild(omFactory.createOMElement("Child", ns));
+
+        SOAPEnvelope clonedEnvelope = MessageHelper.cloneSOAPEnvelope(envelope, false);
+        assertNull(clonedEnvelope.getBody().getFirstElement());
+        assertEquals("body", clonedEnvelope.getBody().getAttributeValue(
+                new QName("http://ws.apache.org/axis2", "id")));
+        assertNotNull(clonedEnvelope.getBody().findNamespaceURI("ns"));
+        assertNotNull(clonedEnvelope.findNamespaceURI("env"));
+
+        // the body of the envelope is left as it is
+        assertNotNull(envelope.getBody().getFirstElement());
+        assertEquals("body", envelope.getBody().getAttributeValue(
+                new QName("http://ws.apache.org/axis2", "id")));
+
+        // the declarations are copied the same way when the body is cloned
+        clonedEnvelope = MessageHelper.cloneSOAPEnvelope(envelope, true);
+        assertEquals(envelope.toString(), clonedEnvelope.toString());
+    }
+
     private void performTestForCloneEnvelope(SOAPFactory soapFactory, SOAPHeaderBlock header, OMElement childNode) {
 
         SOAPEnvelope tempEnvelope = soapFactory.getDefaultEnvelope();
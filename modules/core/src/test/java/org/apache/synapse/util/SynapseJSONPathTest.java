@@ -20,11 +20,16 @@ package org.apache.synapse.util;
 import junit.framework.Assert;
 import junit.framework.TestCase;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.Constants;
+import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.config.xml.XMLConfigConstants;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.TestUtils;
 import org.apache.synapse.mediators.builtin.PropertyMediator;
 import org.apache.synapse.util.xpath.SynapseJsonPath;
 
+import java.util.List;
+
 /**
  * This class is testing dynamic json-path capabilities.
  */
@@ -93,4 +98,27 @@ public class SynapseJSONPathTest extends TestCase {
         Assert.assertEquals("Didn't receive the expected result", "J. R. R. Tolkien",
                 synapseJsonPath.stringValueOf(mc));
     }
+
+    public void testParsedPayloadReusedUntilPayloadChanges() throws Exception {
+
+        MessageContext mc = TestUtils.getTestContextJson(payload, null);
+        org.apache.axis2.context.MessageContext axis2Ctx = ((Axis2MessageContext) mc).getAxis2MessageContext();
+        SynapseJsonPath author = new SynapseJsonPath("$.store.book[1].author");
+        SynapseJsonPath books = new SynapseJsonPath("$.store.book");
+
+        Assert.assertEquals("Evelyn Waugh", author.stringValueOf(mc));
+        Object parsed = axis2Ctx.getProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD);
+        Assert.assertNotNull("Parsed payload is not cached", parsed);
+        Assert.assertEquals(4, ((List) books.evaluate(mc)).size());
+        Assert.assertSame("Payload is parsed again", parsed,
+                axis2Ctx.getProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD));
+
+        JsonUtil.getNewJsonPayload(axis2Ctx, "{\"store\":{\"book\":[{\"author\":\"A\"},{\"author\":\"B\"}]}}",
+                true, true);
+        Assert.assertEquals("B", author.stringValueOf(mc));
+        Assert.assertEquals(2, ((List) books.evaluate(mc)).size());
+
+        JsonUtil.removeJsonPayload(axis2Ctx);
+        Assert.assertNull(axis2Ctx.getProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_JSON_PAYLOAD));
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedConcurrentCacheTest extends TestCase {
+
+    public void testStatistics() {
+        BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<String, String>(10);
+        assertNull(cache.get("a"));
+        cache.put("a", "A");
+        assertEquals("A", cache.get("a"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("A", cache.peek("a"));
+        assertNull(cache.peek("b"));
+
+        CacheStatisticsView view = new CacheStatisticsView(cache);
+        assertEquals(1, view.getSize());
+        assertEquals(2, view.getHitCount());
+        assertEquals(1, view.getMissCount());
+        assertEquals(2.0 / 3, view.getHitRatio(), 0.0001);
+
+        view.resetStatistics();
+        assertEquals(0, view.getHitCount());
+        assertEquals(0.0, view.getHitRatio());
+        view.clear();
+        assertNull(cache.peek("a"));
+    }
+
+    /**
+     * The least recently read values are evicted when the cache is full.
+     */
+    public void testEviction() throws Exception {
+        BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<Integer, Integer>(3);
+        for (int i = 0; i < 3; i++) {
+            cache.put(i, i);
+            Thread.sleep(1);
+        }
+        // reading 0 makes 1 the least recently used value
+        assertEquals(Integer.valueOf(0), cache.get(0));
+        cache.put(3, 3);
+        assertEquals(3, cache.size());
+        assertNull(cache.peek(1));
+        assertNotNull(cache.peek(0));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<Integer, Integer>(50);
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        int key = (i + offset) % 200;
+                        Integer value = cache.get(key);
+                        if (value == null) {
+                            cache.put(key, key);
+                        } else if (value != key) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+        assertEquals(0, failures.get());
+        assertTrue(cache.size() <= 50);
+        assertEquals(80000, cache.getHitCount() + cache.getMissCount());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BoundedRingBufferTest extends TestCase {
+
+    public void testBoundedFifo() {
+        BoundedRingBuffer<Integer> queue = new BoundedRingBuffer<Integer>(3);
+        assertNull(queue.poll());
+        for (int round = 0; round < 3; round++) {
+            assertTrue(queue.offer(1));
+            assertTrue(queue.offer(2));
+            assertTrue(queue.offer(3));
+            assertFalse("Full queue accepted an element", queue.offer(4));
+            assertEquals(3, queue.size());
+            assertEquals(Integer.valueOf(1), queue.poll());
+            assertTrue(queue.offer(4));
+
+            List<Integer> drained = new ArrayList<Integer>();
+            assertEquals(2, queue.drainTo(drained, 2));
+            assertEquals(Integer.valueOf(2), drained.get(0));
+            assertEquals(Integer.valueOf(3), drained.get(1));
+            assertEquals(Integer.valueOf(4), queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    /**
+     * Every element added by concurrent producers is removed exactly once by concurrent consumers.
+     */
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        final BoundedRingBuffer<Long> queue = new BoundedRingBuffer<Long>(64);
+        final int producers = 4;
+        final int elementsPerProducer = 20000;
+        final AtomicLong consumedSum = new AtomicLong();
+        final AtomicLong consumedCount = new AtomicLong();
+        Thread[] threads = new Thread[producers * 2];
+        for (int t = 0; t < producers; t++) {
+            final long offset = (long) t * elementsPerProducer;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (long i = 1; i <= elementsPerProducer; i++) {
+                        while (!queue.offer(offset + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[producers + t] = new Thread(new Runnable() {
+                public void run() {
+                    List<Long> batch = new ArrayList<Long>();
+                    while (consumedCount.get() < (long) producers * elementsPerProducer) {
+                        batch.clear();
+                        if (queue.drainTo(batch, 16) == 0) {
+                            Thread.yield();
+                        }
+                        for (Long element : batch) {
+                            consumedSum.addAndGet(element);
+                            consumedCount.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long total = (long) producers * elementsPerProducer;
+        assertEquals(total, consumedCount.get());
+        assertEquals(total * (total + 1) / 2, consumedSum.get());
+        assertTrue(queue.isEmpty());
+    }
+}
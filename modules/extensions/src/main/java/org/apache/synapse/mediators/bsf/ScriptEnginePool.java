@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bsf;
+
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+
+import javax.script.ScriptEngine;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of the script engines of a script mediator, which lets concurrent messages run scripts
+ * on engines which are not thread-safe without locking. The pool grows with the number of
+ * messages running scripts at the same time: when there is no idle engine a new engine is
+ * created, and it is kept in the pool when it is released, unless the pool already holds the
+ * maximum number of idle engines.
+ *
+ * The use of the pools of all the script mediators is counted by {@link ScriptEnginePoolMetrics},
+ * which is exposed over JMX.
+ */
+public abstract class ScriptEnginePool {
+
+    private static final ScriptEnginePoolMetrics metrics = new ScriptEnginePoolMetrics();
+
+    static {
+        MBeanRegistrar.getInstance().registerMBean(new ScriptEnginePoolView(metrics),
+                "ScriptMediator", "ScriptEnginePool");
+    }
+
+    private final ConcurrentLinkedQueue<ScriptEngineWrapper> idleEngines =
+            new ConcurrentLinkedQueue<ScriptEngineWrapper>();
+
+    private final AtomicInteger idleCount = new AtomicInteger(0);
+
+    private final int maxIdleEngines;
+
+    /**
+     * @param maxIdleEngines maximum number of idle engines kept in the pool
+     */
+    protected ScriptEnginePool(int maxIdleEngines) {
+        this.maxIdleEngines = maxIdleEngines;
+    }
+
+    /**
+     * Take an idle engine from the pool, or create a new engine if there is no idle engine
+     *
+     * @return an engine to be used by the current message only
+     */
+    public ScriptEngineWrapper borrowEngine() {
+        long start = System.nanoTime();
+        ScriptEngineWrapper engine = idleEngines.poll();
+        boolean created = false;
+        if (engine == null) {
+            engine = new ScriptEngineWrapper(createEngine());
+            created = true;
+        } else {
+            idleCount.decrementAndGet();
+        }
+        metrics.engineBorrowed(created, System.nanoTime() - start);
+        return engine;
+    }
+
+    /**
+     * Return an engine to the pool, or drop it if the pool is full
+     *
+     * @param engine engine taken from this pool
+     */
+    public void releaseEngine(ScriptEngineWrapper engine) {
+        if (idleCount.incrementAndGet() > maxIdleEngines) {
+            idleCount.decrementAndGet();
+            metrics.engineDiscarded();
+            return;
+        }
+        idleEngines.offer(engine);
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public static ScriptEnginePoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Create a new engine for the language of the script mediator
+     *
+     * @return the new engine
+     */
+    protected abstract ScriptEngine createEngine();
+}
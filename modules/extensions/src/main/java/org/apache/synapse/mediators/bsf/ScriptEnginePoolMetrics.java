@@ -0,0 +1,122 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.mediators.bsf;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the use of the script engine pools of all the script mediators, along with the time
+ * messages waited for an engine and the number of scripts compiled and reused by the engines.
+ * The counters are updated by concurrent mediation threads without locking.
+ */
+public class ScriptEnginePoolMetrics {
+
+    private final LongAdder borrowedCount = new LongAdder();
+
+    private final LongAdder createdCount = new LongAdder();
+
+    private final LongAdder discardedCount = new LongAdder();
+
+    private final LongAdder totalWaitTime = new LongAdder();
+
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    private final LongAdder compiledScriptCount = new LongAdder();
+
+    private final LongAdder reusedScriptCount = new LongAdder();
+
+    /**
+     * Record an engine taken from a pool
+     *
+     * @param created whether there was no idle engine, so that a new engine was created
+     * @param waitNanos the time in nanoseconds taken to get the engine
+     */
+    public void engineBorrowed(boolean created, long waitNanos) {
+        borrowedCount.increment();
+        if (created) {
+            createdCount.increment();
+        }
+        totalWaitTime.add(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitTime.get())) {
+            if (maxWaitTime.compareAndSet(max, waitNanos)) {
+                break;
+            }
+        }
+    }
+
+    public void engineDiscarded() {
+        discardedCount.increment();
+    }
+
+    public void scriptCompiled() {
+        compiledScriptCount.increment();
+    }
+
+    public void scriptReused() {
+        reusedScriptCount.increment();
+    }
+
+    public long getBorrowedCount() {
+        return borrowedCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    /**
+     * @return the average time in milliseconds taken to get an engine from a pool
+     */
+    public double getAverageWaitTime() {
+        long count = borrowedCount.sum();
+        return count == 0 ? 0 : (double) totalWaitTime.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the maximum time in milliseconds taken to get an engine from a pool
+     */
+    public double getMaxWaitTime() {
+        return (double) maxWaitTime.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getCompiledScriptCount() {
+        return compiledScriptCount.sum();
+    }
+
+    public long getReusedScriptCount() {
+        return reusedScriptCount.sum();
+    }
+
+    public void reset() {
+        borrowedCount.reset();
+        createdCount.reset();
+        discardedCount.reset();
+        totalWaitTime.reset();
+        maxWaitTime.set(0);
+        compiledScriptCount.reset();
+        reusedScriptCount.reset();
+    }
+}
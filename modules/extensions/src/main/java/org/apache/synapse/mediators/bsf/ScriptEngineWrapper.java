@@ -19,13 +19,39 @@
 
 package org.apache.synapse.mediators.bsf;
 
+import org.apache.synapse.config.EntryVersion;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * A script engine along with the scripts compiled with it. A compiled script can only be run by
+ * the engine which compiled it, so the scripts are kept with the engine. The wrapper is used by
+ * one message at a time, so it is not thread-safe.
+ */
 public class ScriptEngineWrapper {
 
+    /**
+     * Maximum number of scripts kept for an engine. The least recently used scripts are removed
+     * when scripts with more keys are run.
+     */
+    private static final int MAX_CACHED_SCRIPTS = 64;
+
     private boolean initialized = false;
     private ScriptEngine engine;
 
+    private final Map<String, CachedScript> scripts =
+            new LinkedHashMap<String, CachedScript>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedScript> eldest) {
+                    return size() > MAX_CACHED_SCRIPTS;
+                }
+            };
+
     public ScriptEngineWrapper(ScriptEngine engine) {
         this.engine = engine;
     }
@@ -41,4 +67,42 @@ public class ScriptEngineWrapper {
     public ScriptEngine getEngine() {
         return engine;
     }
+
+    public CachedScript getScript(String key) {
+        return scripts.get(key);
+    }
+
+    public void putScript(String key, CachedScript script) {
+        scripts.put(key, script);
+    }
+
+    /**
+     * A script compiled by the engine, along with the version of the script entry it was
+     * compiled from. Scripts of engines which do not support compilation are kept as source.
+     */
+    public static class CachedScript {
+
+        private final EntryVersion entryVersion;
+
+        private final String source;
+
+        private final CompiledScript compiledScript;
+
+        public CachedScript(EntryVersion entryVersion, String source, CompiledScript compiledScript) {
+            this.entryVersion = entryVersion;
+            this.source = source;
+            this.compiledScript = compiledScript;
+        }
+
+        public EntryVersion getEntryVersion() {
+            return entryVersion;
+        }
+
+        public Object eval(ScriptEngine engine, Bindings bindings) throws ScriptException {
+            if (compiledScript != null) {
+                return compiledScript.eval(bindings);
+            }
+            return engine.eval(source, bindings);
+        }
+    }
 }
@@ -33,7 +33,7 @@ import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.commons.util.MiscellaneousUtil;
-import org.apache.synapse.config.Entry;
+import org.apache.synapse.config.EntryVersion;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.mediators.Value;
@@ -49,8 +49,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * A Synapse mediator that calls a function in any scripting language supported by the BSF.
@@ -68,6 +66,10 @@ import java.util.concurrent.LinkedBlockingQueue;
  * if not specified it defaults to a function named 'mediate'. The function takes a single
  * parameter which is the Synapse MessageContext. The function may return a boolean, if it
  * does not then true is assumed.
+ * <p/>
+ * Scripts loaded through the registry, and in-line scripts of engines which are not thread-safe,
+ * are run on engines taken from a {@link ScriptEnginePool}. Each engine compiles a script once,
+ * and compiles it again only when the registry entry of the script changes.
  */
 public class ScriptMediator extends AbstractMediator {
 
@@ -108,7 +110,8 @@ public class ScriptMediator extends AbstractMediator {
      */
     private String language;
     /**
-     * The map of included scripts; key = registry entry key, value = script source
+     * The map of included scripts; key = registry entry key, value = script source (unused,
+     * the scripts are kept compiled with each engine)
      */
     private final Map<Value, Object> includes;
     /**
@@ -132,9 +135,9 @@ public class ScriptMediator extends AbstractMediator {
      */
     private boolean multiThreadedEngine;
     /**
-     * The compiled script. Only used for inline scripts
+     * The compiled script. Only used for inline scripts run on multi-threaded engines
      */
-    private CompiledScript compiledScript;
+    private ScriptEngineWrapper.CachedScript compiledScript;
     /**
      * The BSF helper to convert between the XML representations used by Java
      * and the scripting language
@@ -159,7 +162,7 @@ public class ScriptMediator extends AbstractMediator {
     /**
      * Pool ScriptEngine Resources
      */
-    private BlockingQueue<ScriptEngineWrapper> pool;
+    private ScriptEnginePool pool;
     /**
      * JSON parser used to parse JSON strings
      */
@@ -170,6 +173,11 @@ public class ScriptMediator extends AbstractMediator {
      */
     private ClassLoader loader;
 
+    /**
+     * The key an in-line script is kept with in the engines
+     */
+    private static final String INLINE_SCRIPT_KEY = "";
+
     /**
      * Store the Oracle Nashorn Factory if available in the JDK
      */
@@ -207,9 +215,6 @@ public class ScriptMediator extends AbstractMediator {
             this.function = function;
         }
 
-        Properties properties = MiscellaneousUtil.loadProperties("synapse.properties");
-        poolSize = Integer.parseInt(properties.getProperty(POOL_SIZE_PROPERTY, String.valueOf(DEFAULT_POOL_SIZE)));
-
         initScriptEngine();
         if (!(scriptEngine instanceof Invocable)) {
             throw new SynapseException("Script engine is not an Invocable" +
@@ -249,15 +254,9 @@ public class ScriptMediator extends AbstractMediator {
                     (function != null ? " function : " + function : ""));
         }
 
-        boolean returnValue;
-        if (multiThreadedEngine) {
-            returnValue = invokeScript(synCtx);
-        } else {
-            // TODO: change to use a pool of script engines (requires an update to BSF)
-            synchronized (scriptEngine.getClass()) {
-                returnValue = invokeScript(synCtx);
-            }
-        }
+        // scripts run on engines which are not thread-safe use an engine of the pool, so that
+        // concurrent messages do not have to be serialized
+        boolean returnValue = invokeScript(synCtx);
 
         if (synLog.isTraceTraceEnabled()) {
             synLog.traceTrace("Result message after execution of script : " + synCtx.getEnvelope());
@@ -332,16 +331,17 @@ public class ScriptMediator extends AbstractMediator {
             } else {
                 helper = XMLHelper.getArgHelper(sew.getEngine());
             }
+            ScriptEngine jsonEngine = getJsonEngine(sew);
             ScriptMessageContext scriptMC;
-            scriptMC = getScriptMessageContext(synCtx, helper);
-            processJSONPayload(synCtx, scriptMC);
+            scriptMC = getScriptMessageContext(synCtx, helper, jsonEngine);
+            processJSONPayload(synCtx, scriptMC, jsonEngine);
             Invocable invocableScript = (Invocable) sew.getEngine();
 
             obj = invocableScript.invokeFunction(function, new Object[]{scriptMC});
         } finally {
           if(sew != null){
-              // return engine to front of queue or drop if queue is full (i.e. if getNewScriptEngine() spawns a new engine)
-              pool.offer(sew);
+              // return engine to the pool or drop it if the pool is full
+              pool.releaseEngine(sew);
           }
         }
 
@@ -354,16 +354,18 @@ public class ScriptMediator extends AbstractMediator {
      *
      * @param synCtx message context
      * @param helper Object which help to convert xml into OMelemnt
+     * @param jsonEngine engine used to convert JSON payloads for the current message
      * @return Nashorn or Common script message context according to language attribute
      */
-    private ScriptMessageContext getScriptMessageContext(MessageContext synCtx, XMLHelper helper) {
+    private ScriptMessageContext getScriptMessageContext(MessageContext synCtx, XMLHelper helper,
+                                                         ScriptEngine jsonEngine) {
         ScriptMessageContext scriptMC;
         if (language.equals(NASHORN_JAVA_SCRIPT)) {
             try {
                 if(isJDKContainNashorn()) {
-                    scriptMC = new NashornJavaScriptMessageContext(synCtx, helper, jsEngine);
+                    scriptMC = new NashornJavaScriptMessageContext(synCtx, helper, jsonEngine);
                 } else {
-                    scriptMC = new OpenJDKNashornJavaScriptMessageContext(synCtx, helper, jsEngine);
+                    scriptMC = new OpenJDKNashornJavaScriptMessageContext(synCtx, helper, jsonEngine);
                 }
             } catch (ScriptException e) {
                 throw new SynapseException("Error occurred while evaluating empty json object", e);
@@ -383,29 +385,69 @@ public class ScriptMediator extends AbstractMediator {
      * @throws ScriptException For any errors , when compile , run the script
      */
     private Object mediateForInlineScript(MessageContext synCtx) throws ScriptException {
+        if (multiThreadedEngine) {
+            return evalInlineScript(synCtx, scriptEngine, compiledScript, jsEngine);
+        }
+
+        ScriptEngineWrapper sew = pool.borrowEngine();
+        try {
+            ScriptEngineWrapper.CachedScript script = sew.getScript(INLINE_SCRIPT_KEY);
+            if (script == null) {
+                script = new ScriptEngineWrapper.CachedScript(EntryVersion.NONE, scriptSourceCode,
+                        compileScript(sew.getEngine(), scriptSourceCode));
+                sew.putScript(INLINE_SCRIPT_KEY, script);
+                ScriptEnginePool.getMetrics().scriptCompiled();
+            } else {
+                ScriptEnginePool.getMetrics().scriptReused();
+            }
+            return evalInlineScript(synCtx, sew.getEngine(), script, getJsonEngine(sew));
+        } finally {
+            pool.releaseEngine(sew);
+        }
+    }
+
+    /**
+     * Evaluate the in-line script with new bindings holding the message context
+     *
+     * @param synCtx     message context
+     * @param engine     engine which runs the script
+     * @param script     the script compiled by the engine
+     * @param jsonEngine engine used to convert JSON payloads
+     * @return the script return value
+     * @throws ScriptException For any errors , when run the script
+     */
+    private Object evalInlineScript(MessageContext synCtx, ScriptEngine engine,
+                                    ScriptEngineWrapper.CachedScript script,
+                                    ScriptEngine jsonEngine) throws ScriptException {
         ScriptMessageContext scriptMC;
-        scriptMC = getScriptMessageContext(synCtx, xmlHelper);
-        processJSONPayload(synCtx, scriptMC);
-        Bindings bindings = scriptEngine.createBindings();
+        scriptMC = getScriptMessageContext(synCtx, xmlHelper, jsonEngine);
+        processJSONPayload(synCtx, scriptMC, jsonEngine);
+        Bindings bindings = engine.createBindings();
         bindings.put(MC_VAR_NAME, scriptMC);
 
-        Object response;
-        if (compiledScript != null) {
-            response = compiledScript.eval(bindings);
-        } else {
-            response = scriptEngine.eval(scriptSourceCode, bindings);
-        }
-        return response;
+        return script.eval(engine, bindings);
+    }
+
+    /**
+     * The engine used to convert JSON payloads. A Nashorn engine is not thread-safe, so the
+     * Nashorn engine running the script of the current message is used.
+     *
+     * @param sew the engine running the script of the current message
+     * @return the engine used to convert the JSON payloads of the current message
+     */
+    private ScriptEngine getJsonEngine(ScriptEngineWrapper sew) {
+        return language.equals(NASHORN_JAVA_SCRIPT) ? sew.getEngine() : jsEngine;
     }
 
-    private void processJSONPayload(MessageContext synCtx, ScriptMessageContext scriptMC) throws ScriptException {
+    private void processJSONPayload(MessageContext synCtx, ScriptMessageContext scriptMC,
+                                    ScriptEngine jsonEngine) throws ScriptException {
         if (!(synCtx instanceof Axis2MessageContext)) {
             return;
         }
         org.apache.axis2.context.MessageContext messageContext = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
         String jsonString = (String) messageContext.getProperty("JSON_STRING");
         Object jsonObject = null;
-        prepareForJSON(scriptMC);
+        prepareForJSON(scriptMC, jsonEngine);
         if (JsonUtil.hasAJsonPayload(messageContext)) {
             try {
                 String jsonPayload = JsonUtil.jsonPayloadToString(messageContext);
@@ -417,7 +459,7 @@ public class ScriptMediator extends AbstractMediator {
                     }
                 } else {
                     String scriptWithJsonParser = "JSON.parse(JSON.stringify(" + jsonPayload + "))";
-                    jsonObject = this.jsEngine.eval('(' + scriptWithJsonParser + ')');
+                    jsonObject = jsonEngine.eval('(' + scriptWithJsonParser + ')');
                 }
             } catch (ScriptException e) {
                 throw new ScriptException("Invalid JSON payload", e.getFileName(), e.getLineNumber(),
@@ -425,18 +467,18 @@ public class ScriptMediator extends AbstractMediator {
             }
         } else if (jsonString != null) {
             String jsonPayload = EIPUtils.tryParseJsonString(jsonParser, jsonString).toString();
-            jsonObject = this.jsEngine.eval('(' + jsonPayload + ')');
+            jsonObject = jsonEngine.eval('(' + jsonPayload + ')');
         }
         if (jsonObject != null) {
             scriptMC.setJsonObject(synCtx, jsonObject);
         }
     }
 
-    private void prepareForJSON(ScriptMessageContext scriptMC) {
+    private void prepareForJSON(ScriptMessageContext scriptMC, ScriptEngine jsonEngine) {
         if (jsonParser == null) {
             jsonParser = new JsonParser();
         }
-        scriptMC.setScriptEngine(this.jsEngine);
+        scriptMC.setScriptEngine(jsonEngine);
     }
 
     /**
@@ -451,10 +493,12 @@ public class ScriptMediator extends AbstractMediator {
                     log.debug("Script engine supports Compilable interface, " +
                             "compiling script code..");
                 }
-                compiledScript = ((Compilable) scriptEngine).compile(scriptSourceCode);
+                compiledScript = new ScriptEngineWrapper.CachedScript(EntryVersion.NONE, scriptSourceCode,
+                        ((Compilable) scriptEngine).compile(scriptSourceCode));
             } else {
-                // do nothing. If the script engine doesn't support Compilable then
+                // If the script engine doesn't support Compilable then
                 // the inline script will be evaluated on each invocation
+                compiledScript = new ScriptEngineWrapper.CachedScript(EntryVersion.NONE, scriptSourceCode, null);
                 if (log.isDebugEnabled()) {
                     log.debug("Script engine does not support the Compilable interface, " +
                             "in-lined script would be evaluated on each invocation..");
@@ -477,113 +521,120 @@ public class ScriptMediator extends AbstractMediator {
 
         // Derive actual key from xpath expression or get static key
         String generatedScriptKey = key.evaluateValue(synCtx);
-        Entry entry = synCtx.getConfiguration().getEntryDefinition(generatedScriptKey);
-        boolean needsReload = (entry != null) && entry.isDynamic() &&
-                (!entry.isCached() || entry.isExpired());
 
         ScriptEngineWrapper sew = getNewScriptEngine();
         Bindings engineBinding = sew.getEngine().getBindings(ScriptContext.ENGINE_SCOPE);
         engineBinding.clear(); // if we don't do this, previous state can affect successive executions! ESBJAVA-4583
 
-        if (scriptSourceCode == null || needsReload || !sew.isInitialized()) {
-            Object o = synCtx.getEntry(generatedScriptKey);
-            if (o instanceof OMElement) {
-                scriptSourceCode = ((OMElement) (o)).getText();
-                sew.getEngine().eval(scriptSourceCode, engineBinding);
-            } else if (o instanceof String) {
-                scriptSourceCode = (String) o;
-                sew.getEngine().eval(scriptSourceCode, engineBinding);
-            } else if (o instanceof OMText) {
-                DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
-                if (dataHandler != null) {
-                    BufferedReader reader = null;
-                    try {
-                        reader = new BufferedReader(
-                                new InputStreamReader(dataHandler.getInputStream()));
-                        StringBuilder scriptSB = new StringBuilder();
-                        String currentLine;
-                        while ((currentLine = reader.readLine()) != null) {
-                            scriptSB.append(currentLine).append('\n');
-                        }
-                        scriptSourceCode = scriptSB.toString();
-                        sew.getEngine().eval(scriptSourceCode, engineBinding);
-                    } catch (IOException e) {
-                        handleException("Error in reading script as a stream ", e, synCtx);
-                    } finally {
-
-                        if (reader != null) {
-                            try {
-                                reader.close();
-                            } catch (IOException e) {
-                                handleException("Error in closing input stream ", e, synCtx);
-                            }
-                        }
+        // the scripts are compiled once by each engine, but they are evaluated for each message since the
+        // bindings have been cleared
+        evalExternalScript(sew, generatedScriptKey, engineBinding, synCtx);
 
-                    }
-                }
-            }
+        // load <include /> scripts; reload each script if needed
+        for (Value includeKey : includes.keySet()) {
+            evalExternalScript(sew, includeKey.evaluateValue(synCtx), engineBinding, synCtx);
+        }
+
+        sew.setInitialized(true);
 
+        return sew;
+    }
+
+    /**
+     * Evaluate a script loaded from the registry with the given engine. The script is compiled
+     * when the engine runs it for the first time, and when the registry resource has changed.
+     *
+     * @param sew       engine which runs the script
+     * @param scriptKey the registry entry key of the script
+     * @param bindings  bindings of the engine
+     * @param synCtx    MessageContext script
+     * @throws ScriptException For any errors , when compile or run the script
+     */
+    private void evalExternalScript(ScriptEngineWrapper sew, String scriptKey, Bindings bindings,
+                                    MessageContext synCtx) throws ScriptException {
+
+        ScriptEngineWrapper.CachedScript script = sew.getScript(scriptKey);
+        if (script != null && script.getEntryVersion().isValid(
+                synCtx.getConfiguration().getEntryDefinition(scriptKey))) {
+            ScriptEnginePool.getMetrics().scriptReused();
         } else {
-            sew.getEngine().eval(scriptSourceCode, engineBinding); // Will drop TPS, but is required for ESBJAVA-4583
+            Object o = synCtx.getEntry(scriptKey);
+            EntryVersion entryVersion = EntryVersion.of(synCtx.getConfiguration().getEntryDefinition(scriptKey));
+            if (script != null && script.getEntryVersion().isSameVersion(entryVersion)) {
+                ScriptEnginePool.getMetrics().scriptReused();
+            } else {
+                String source = readScriptSource(o, synCtx);
+                if (source == null) {
+                    return;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Re-/Loading the script with key " + scriptKey);
+                }
+                script = new ScriptEngineWrapper.CachedScript(entryVersion, source,
+                        compileScript(sew.getEngine(), source));
+                ScriptEnginePool.getMetrics().scriptCompiled();
+            }
+            sew.putScript(scriptKey, script);
         }
+        script.eval(sew.getEngine(), bindings);
+    }
 
-        // load <include /> scripts; reload each script if needed
-        for (Value includeKey : includes.keySet()) {
+    /**
+     * Read the source code of a script from the value of its registry entry
+     *
+     * @param o      value of the registry entry
+     * @param synCtx MessageContext script
+     * @return the source code, or null if the entry does not hold a script
+     */
+    private String readScriptSource(Object o, MessageContext synCtx) {
+        if (o instanceof OMElement) {
+            return ((OMElement) (o)).getText();
+        } else if (o instanceof String) {
+            return (String) o;
+        } else if (o instanceof OMText) {
+            DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
+            if (dataHandler != null) {
+                BufferedReader reader = null;
+                try {
+                    reader = new BufferedReader(
+                            new InputStreamReader(dataHandler.getInputStream()));
+                    StringBuilder scriptSB = new StringBuilder();
+                    String currentLine;
+                    while ((currentLine = reader.readLine()) != null) {
+                        scriptSB.append(currentLine).append('\n');
+                    }
+                    return scriptSB.toString();
+                } catch (IOException e) {
+                    handleException("Error in reading script as a stream ", e, synCtx);
+                } finally {
 
-            String includeSourceCode = (String) includes.get(includeKey);
-
-            String generatedKey = includeKey.evaluateValue(synCtx);
-
-            Entry includeEntry = synCtx.getConfiguration().getEntryDefinition(generatedKey);
-            boolean includeEntryNeedsReload = (includeEntry != null) && includeEntry.isDynamic()
-                    && (!includeEntry.isCached() || includeEntry.isExpired());
-            if (includeSourceCode == null || includeEntryNeedsReload || !sew.isInitialized()) {
-                log.debug("Re-/Loading the include script with key " + includeKey);
-                Object o = synCtx.getEntry(generatedKey);
-                if (o instanceof OMElement) {
-                    includeSourceCode = ((OMElement) (o)).getText();
-                    sew.getEngine().eval(includeSourceCode, engineBinding);
-                } else if (o instanceof String) {
-                    includeSourceCode = (String) o;
-                    sew.getEngine().eval(includeSourceCode, engineBinding);
-                } else if (o instanceof OMText) {
-                    DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
-                    if (dataHandler != null) {
-                        BufferedReader reader = null;
+                    if (reader != null) {
                         try {
-                            reader = new BufferedReader(
-                                    new InputStreamReader(dataHandler.getInputStream()));
-                            StringBuilder scriptSB = new StringBuilder();
-                            String currentLine;
-                            while ((currentLine = reader.readLine()) != null) {
-                                scriptSB.append(currentLine).append('\n');
-                            }
-                            includeSourceCode = scriptSB.toString();
-                            sew.getEngine().eval(includeSourceCode, engineBinding);
+                            reader.close();
                         } catch (IOException e) {
-                            handleException("Error in reading script as a stream ", e, synCtx);
-                        } finally {
-
-                            if (reader != null) {
-                                try {
-                                    reader.close();
-                                } catch (IOException e) {
-                                    handleException("Error in closing input" +
-                                            " stream ", e, synCtx);
-                                }
-                            }
+                            handleException("Error in closing input stream ", e, synCtx);
                         }
                     }
+
                 }
-                includes.put(includeKey, includeSourceCode);
-            } else {
-                sew.getEngine().eval(includeSourceCode, engineBinding); // Will drop TPS, but required for ESBJAVA-4583
             }
         }
+        return null;
+    }
 
-        sew.setInitialized(true);
-
-        return sew;
+    /**
+     * Compile a script with the given engine
+     *
+     * @param engine engine which runs the script
+     * @param source source code of the script
+     * @return the compiled script, or null if the engine doesn't support the Compilable interface
+     * @throws ScriptException For any errors , when compile the script
+     */
+    private CompiledScript compileScript(ScriptEngine engine, String source) throws ScriptException {
+        if (engine instanceof Compilable) {
+            return ((Compilable) engine).compile(source);
+        }
+        return null;
     }
 
     protected void initScriptEngine() {
@@ -614,17 +665,19 @@ public class ScriptMediator extends AbstractMediator {
             this.scriptEngine = engineManager.getEngineByExtension(language);
         }
 
-        pool = new LinkedBlockingQueue<ScriptEngineWrapper>(poolSize);
+        Properties properties = MiscellaneousUtil.loadProperties("synapse.properties");
+        poolSize = Integer.parseInt(properties.getProperty(POOL_SIZE_PROPERTY, String.valueOf(DEFAULT_POOL_SIZE)));
 
-        for (int i = 0; i< poolSize; i++) {
-            ScriptEngineWrapper sew;
-            if (language.equals(NASHORN_JAVA_SCRIPT)) {
-                sew = new ScriptEngineWrapper(engineManager.getEngineByName(NASHORN));
-            } else {
-                sew = new ScriptEngineWrapper(engineManager.getEngineByExtension(language));
+        // engines are created when concurrent messages need them, and up to poolSize idle engines are kept
+        pool = new ScriptEnginePool(poolSize) {
+            @Override
+            protected ScriptEngine createEngine() {
+                if (language.equals(NASHORN_JAVA_SCRIPT)) {
+                    return engineManager.getEngineByName(NASHORN);
+                }
+                return engineManager.getEngineByExtension(language);
             }
-            pool.add(sew);
-        }
+        };
         if (language.equals(NASHORN_JAVA_SCRIPT)) {
             this.jsEngine = engineManager.getEngineByName(NASHORN);
         } else {
@@ -682,17 +735,7 @@ public class ScriptMediator extends AbstractMediator {
     }
 
     public ScriptEngineWrapper getNewScriptEngine() {
-
-        ScriptEngineWrapper scriptEngineWrapper = pool.poll();
-        if (scriptEngineWrapper == null) {
-            if (language.equals(NASHORN_JAVA_SCRIPT)) {
-                scriptEngineWrapper = new ScriptEngineWrapper(engineManager.getEngineByName(NASHORN));
-            } else {
-                scriptEngineWrapper = new ScriptEngineWrapper(engineManager.getEngineByExtension(language));
-            }
-        }
-        // fall back
-        return scriptEngineWrapper;
+        return pool.borrowEngine();
     }
 
     public boolean isContentAltering() {
@@ -104,6 +104,15 @@ public class MediatorCustomVariable extends MediatorVariable {
         }
     }
 
+    @Override
+    public Object resolveValue(MessageContext synCtx) {
+        if (this.regKey == null) {   // get the node from the current message payload
+            return evaluate(synCtx);
+        }
+        evaluateValue(synCtx);
+        return this.value;
+    }
+
     /**
      * Return the object to be used for the variable value
      *
@@ -33,7 +33,7 @@ public abstract class MediatorVariable {
     private QName name;
     private ItemType type;
     private XdmNodeKind nodeKind;
-    protected Object value;
+    protected volatile Object value;
 
 
     public MediatorVariable(QName name) {
@@ -80,4 +80,17 @@ public abstract class MediatorVariable {
      */
     public abstract boolean evaluateValue(MessageContext synCtx);
 
+    /**
+     * Calculates the value of this variable for the given message. Unlike
+     * {@link #evaluateValue(MessageContext)}, a value taken from the message is returned rather
+     * than kept in this variable, so that concurrent messages do not see each other's values.
+     *
+     * @param synCtx Current message in transit
+     * @return the value of this variable for the message
+     */
+    public Object resolveValue(MessageContext synCtx) {
+        evaluateValue(synCtx);
+        return value;
+    }
+
 }
@@ -25,16 +25,23 @@ import org.apache.axiom.om.OMText;
 import org.apache.axiom.om.impl.builder.StAXOMBuilder;
 import org.apache.axiom.om.impl.dom.DOOMAbstractFactory;
 import org.apache.axiom.om.util.ElementHelper;
+import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.commons.json.JsonUtil;
-import org.apache.synapse.config.Entry;
+import org.apache.synapse.config.EntryVersion;
 import org.apache.synapse.config.SynapseConfigUtils;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.mediators.MediatorProperty;
 import org.apache.synapse.mediators.Value;
+import org.apache.synapse.util.concurrent.BoundedConcurrentCache;
+import org.apache.synapse.util.concurrent.CacheStatisticsView;
 import org.apache.synapse.util.xpath.SourceXPathSupport;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.w3c.dom.Element;
@@ -48,6 +55,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -60,9 +70,34 @@ import java.util.*;
  * currently only support * string,int,byte,short,double,long,float and boolean * types.
  * Custom Variable can use to bind XML documents ,SOAP payload and any basic type which create
  * through the XPath expression .
+ * Compiled queries are kept in a size bounded cache shared by all the XQuery mediators, and
+ * the evaluators loaded from each query are pooled, so that concurrent messages are queried
+ * without locking.
  */
 
-public class XQueryMediator extends AbstractMediator {
+public class XQueryMediator extends AbstractMediator implements ManagedLifecycle {
+
+    /* Compiled queries of all the XQuery mediators, keyed by the id of the mediator and the query key.
+       Queries are not shared between mediators, since each mediator has its own Processor */
+    private static final BoundedConcurrentCache<String, CompiledQuery> compiledQueryCache =
+            new BoundedConcurrentCache<String, CompiledQuery>(Integer.parseInt(
+                    SynapsePropertiesLoader.getPropertyValue(SynapseConstants.XQUERY_EXECUTABLE_CACHE_SIZE,
+                            String.valueOf(SynapseConstants.DEFAULT_XQUERY_EXECUTABLE_CACHE_SIZE))));
+
+    /* Maximum number of idle evaluators kept for each compiled query */
+    private static final int evaluatorPoolSize = Integer.parseInt(
+            SynapsePropertiesLoader.getPropertyValue(SynapseConstants.XQUERY_EVALUATOR_POOL_SIZE,
+                    String.valueOf(SynapseConstants.DEFAULT_XQUERY_EVALUATOR_POOL_SIZE)));
+
+    private static final AtomicLong mediatorIdGenerator = new AtomicLong();
+
+    static {
+        MBeanRegistrar.getInstance().registerMBean(new CacheStatisticsView(compiledQueryCache),
+                CacheStatisticsView.MBEAN_CATEGORY, "XQueryExecutables");
+    }
+
+    /* Prefix of the keys of the queries of this mediator in the compiled query cache */
+    private final String cacheKeyPrefix = mediatorIdGenerator.incrementAndGet() + ":";
 
     /* Properties that must set to the Processor  */
     private final List<MediatorProperty> processorProperties = new ArrayList<MediatorProperty>();
@@ -79,21 +114,18 @@ public class XQueryMediator extends AbstractMediator {
     /* The list of variables for binding to the DyanamicContext in order to available for querying */
     private final List<MediatorVariable> variables = new ArrayList<MediatorVariable>();
 
-    /*Lock used to ensure thread-safe lookup of the object from the registry */
+    /*Lock used to ensure thread-safe lookup of the object from the registry and compilation of the query */
     private final Object resourceLock = new Object();
 
     /* Is it need to use DOMSource and DOMResult? */
     private boolean useDOMSource = false;
 
     /*The Processor allows global Saxon configuration options to be set &  it acts as a factory for generating XQuery compiler */
-    private Processor cachedProcessor = null;
+    private volatile Processor cachedProcessor = null;
 
-    /* XQueryCompiler allows to compile XQuery 1.0 queries */
+    /* XQueryCompiler allows to compile XQuery 1.0 queries. This is not thread-safe */
     private XQueryCompiler cachedQueryCompiler = null;
 
-    /* An XQueryEvaluator that use for represents a compiled and loaded query ready for execution. XQueryEvaluator will recreate if query has changed */
-    private Map<String, XQueryEvaluator> cachedXQueryEvaluatorMap = new Hashtable<String, XQueryEvaluator>();
-
     public XQueryMediator() {
     }
 
@@ -148,181 +180,44 @@ public class XQueryMediator extends AbstractMediator {
      */
     private void performQuery(MessageContext synCtx, SynapseLog synLog) {
 
-        boolean reLoad = false;
-        boolean needSet = false;
-        XQueryEvaluator queryEvaluator = null;
         String generatedQueryKey = null;
-        XQueryExecutable xQueryExecutable = null;
         XdmValue xdmValue;
-        boolean isQueryKeyGenerated = false;
+        CompiledQuery compiledQuery = null;
+        PooledEvaluator pooledEvaluator = null;
+        boolean evaluated = false;
 
         if (queryKey != null) {
             // Derive actual key from xpath or get static key
             generatedQueryKey = queryKey.evaluateValue(synCtx);
         }
 
-        if (generatedQueryKey != null) {
-            isQueryKeyGenerated = true;
-        }
-
-        if (generatedQueryKey != null && !"".equals(generatedQueryKey)) {
-
-            Entry dp = synCtx.getConfiguration().getEntryDefinition(generatedQueryKey);
-            // if the queryKey refers to a dynamic resource
-            if (dp != null && dp.isDynamic()) {
-                if (!dp.isCached() || dp.isExpired()) {
-                    reLoad = true;
-                }
-            }
-        }
-
         try {
-            synchronized (resourceLock) {
-                //creating processor
-                if (cachedProcessor == null) {
-                    cachedProcessor = new Processor(false);
-                    //setting up the properties to the Processor
-                    if (processorProperties != null && !processorProperties.isEmpty()) {
-                        synLog.traceOrDebug("Setting up properties to the XQDataSource");
-                        for (MediatorProperty processorProperty : processorProperties) {
-                            if (processorProperty != null) {
-                                cachedProcessor.setConfigurationProperty(processorProperty.getName(),
-                                        processorProperty.getValue());
-                            }
-                        }
-                    }
-                }
-
-                //creating XQueryCompiler
-                if (cachedQueryCompiler == null) {
-                    synLog.traceOrDebug("Creating a compiler from the Processor ");
-                    cachedQueryCompiler = cachedProcessor.newXQueryCompiler();
-                }
-
-                //If already cached evaluator then load it from cachedXQueryEvaluatorMap
-                if (isQueryKeyGenerated) {
-                    queryEvaluator = cachedXQueryEvaluatorMap.get(generatedQueryKey);
-                }
-
-                if (reLoad || queryEvaluator == null) {
-
-                    if (querySource != null && !"".equals(querySource)) {
-
-                        if (synLog.isTraceOrDebugEnabled()) {
-                            synLog.traceOrDebug("Using in-lined query source - " + querySource);
-                            synLog.traceOrDebug("Prepare an expression for the query ");
-                        }
-
-                        xQueryExecutable = cachedQueryCompiler.compile(querySource);
-                        queryEvaluator = xQueryExecutable.load();
-
-                        // if queryEvaluator is created then put it in to cachedXQueryEvaluatorMap
-                        if (isQueryKeyGenerated) {
-                            cachedXQueryEvaluatorMap.put(generatedQueryKey, queryEvaluator);
-                        }
-
-                        // need set because the expression just has recreated
-                        needSet = true;
-
-
-                    } else {
-
-                        Object o = synCtx.getEntry(generatedQueryKey);
-                        if (o == null) {
-                            if (synLog.isTraceOrDebugEnabled()) {
-                                synLog.traceOrDebug("Couldn't find the xquery source with a key "
-                                        + queryKey);
-                            }
-                            throw new SynapseException("No object found for the key '" + generatedQueryKey + "'");
-                        }
-
-                        String sourceCode = null;
-                        InputStream inputStream = null;
-                        if (o instanceof OMElement) {
-                            sourceCode = ((OMElement) (o)).getText();
-                        } else if (o instanceof String) {
-                            sourceCode = (String) o;
-                        } else if (o instanceof OMText) {
-                            DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
-                            if (dataHandler != null) {
-                                try {
-                                    inputStream = dataHandler.getInputStream();
-                                    if (inputStream == null) {
-                                        if (synLog.isTraceOrDebugEnabled()) {
-                                            synLog.traceOrDebug("Couldn't get" +
-                                                    " the stream from the xquery source with a key "
-                                                    + queryKey);
-                                        }
-                                        return;
-                                    }
-
-                                } catch (IOException e) {
-                                    handleException("Error in reading content as a stream ");
-                                }
-                            }
-                        }
-
-                        if ((sourceCode == null || "".equals(sourceCode)) && inputStream == null) {
-                            if (synLog.isTraceOrDebugEnabled()) {
-                                synLog.traceOrDebug("Couldn't find the xquery source with a key "
-                                        + queryKey);
-                            }
-                            return;
-                        }
-
-                        if (synLog.isTraceOrDebugEnabled()) {
-                            synLog.traceOrDebug("Picked up the xquery source from the " +
-                                    "key " + queryKey);
-                            synLog.traceOrDebug("Prepare an expression for the query ");
-                        }
-
-                        try {
-                            if (sourceCode != null) {
-                                //create an xQueryExecutable using the query source
-                                xQueryExecutable = cachedQueryCompiler.compile(sourceCode);
-                            } else {
-                                xQueryExecutable = cachedQueryCompiler.compile(inputStream);
-                            }
-
-                        } catch (IOException e) {
-                            handleException("Error during the query inputStream compilation");
-                        }
-                        queryEvaluator = xQueryExecutable.load();
-
-                        // if queryEvaluator is created then put it in to cachedXQueryEvaluatorMap
-                        if (isQueryKeyGenerated) {
-                            cachedXQueryEvaluatorMap.put(generatedQueryKey, queryEvaluator);
-                        }
-
-                        // need set because the evaluator just has recreated
-                        needSet = true;
-                    }
-                }
-
-                //Set the external variables to the queryEvaluator
-                if (variables != null && !variables.isEmpty()) {
-                    synLog.traceOrDebug("Binding  external variables to the DynamicContext");
-                    for (MediatorVariable variable : variables) {
-                        if (variable != null) {
-                            boolean hasValueChanged = variable.evaluateValue(synCtx);
-                            //if the value has changed or need set because the evaluator has recreated
-                            if (hasValueChanged || needSet) {
-                                //Set the external variable to the queryEvaluator
-                                setVariable(queryEvaluator, variable, synLog);
-                            }
+            compiledQuery = getCompiledQuery(synCtx, synLog, generatedQueryKey);
+            if (compiledQuery == null) {
+                return;
+            }
+            pooledEvaluator = compiledQuery.borrowEvaluator();
+            XQueryEvaluator queryEvaluator = pooledEvaluator.evaluator;
+
+            //Set the external variables to the queryEvaluator
+            if (variables != null && !variables.isEmpty()) {
+                synLog.traceOrDebug("Binding  external variables to the DynamicContext");
+                for (MediatorVariable variable : variables) {
+                    if (variable != null) {
+                        Object value = variable.resolveValue(synCtx);
+                        //if the value is not the one already bound to this evaluator
+                        if (!pooledEvaluator.isBound(variable, value)) {
+                            //Set the external variable to the queryEvaluator
+                            setVariable(queryEvaluator, variable, value, synLog);
+                            pooledEvaluator.setBound(variable, value);
                         }
                     }
                 }
-
-                //executing the query
-                xdmValue = queryEvaluator.evaluate();
-
             }
 
-            if (queryEvaluator == null) {
-                synLog.traceOrDebug("Result Sequence is null");
-                return;
-            }
+            //executing the query
+            xdmValue = queryEvaluator.evaluate();
+            evaluated = true;
 
             //processing the result
             for (XdmItem xdmItem : xdmValue) {
@@ -414,6 +309,187 @@ public class XQueryMediator extends AbstractMediator {
         } catch (XMLStreamException e) {
             handleException("Error during retrieving  the Document Node as  the result "
                     + e.getMessage(), e);
+        } finally {
+            // an evaluator which failed to evaluate the query may be left in any state, so it is not reused
+            if (evaluated) {
+                compiledQuery.releaseEvaluator(pooledEvaluator);
+            }
+        }
+    }
+
+    /**
+     * Get the compiled query of this mediator, compiling it if it is not cached or if the query
+     * resource has changed since it was compiled. Cached queries are read without locking.
+     *
+     * @param synCtx            The current MessageContext
+     * @param synLog            the Synapse log to use
+     * @param generatedQueryKey the evaluated query key, or null if the query is in-lined
+     * @return the compiled query, or null if the query source could not be found
+     * @throws SaxonApiException throws if the query cannot be compiled
+     */
+    private CompiledQuery getCompiledQuery(MessageContext synCtx, SynapseLog synLog,
+                                           String generatedQueryKey) throws SaxonApiException {
+        boolean inlined = querySource != null && !"".equals(querySource);
+        String cacheKey = inlined ? cacheKeyPrefix : cacheKeyPrefix + generatedQueryKey;
+
+        CompiledQuery compiledQuery = compiledQueryCache.get(cacheKey);
+        if (compiledQuery != null && (inlined || compiledQuery.getEntryVersion().isValid(
+                synCtx.getConfiguration().getEntryDefinition(generatedQueryKey)))) {
+            return compiledQuery;
+        }
+
+        synchronized (resourceLock) {
+            // another thread may have compiled the query while this thread waited for the lock
+            compiledQuery = compiledQueryCache.peek(cacheKey);
+            if (compiledQuery != null && (inlined || compiledQuery.getEntryVersion().isValid(
+                    synCtx.getConfiguration().getEntryDefinition(generatedQueryKey)))) {
+                return compiledQuery;
+            }
+
+            if (inlined) {
+                if (synLog.isTraceOrDebugEnabled()) {
+                    synLog.traceOrDebug("Using in-lined query source - " + querySource);
+                    synLog.traceOrDebug("Prepare an expression for the query ");
+                }
+                compiledQuery = new CompiledQuery(getQueryCompiler(synLog).compile(querySource),
+                        EntryVersion.NONE);
+            } else {
+                compiledQuery = compileQuery(synCtx, synLog, generatedQueryKey, compiledQuery);
+            }
+            if (compiledQuery != null) {
+                compiledQueryCache.put(cacheKey, compiledQuery);
+            }
+            return compiledQuery;
+        }
+    }
+
+    /**
+     * Compile the query with the given key. If the query is a registry resource whose version
+     * has not changed since the previous query was compiled, the previous query is returned.
+     *
+     * @param synCtx            The current MessageContext
+     * @param synLog            the Synapse log to use
+     * @param generatedQueryKey the evaluated query key
+     * @param previousQuery     the query previously compiled for the key, or null
+     * @return the compiled query, or null if the query source could not be found
+     * @throws SaxonApiException throws if the query cannot be compiled
+     */
+    private CompiledQuery compileQuery(MessageContext synCtx, SynapseLog synLog, String generatedQueryKey,
+                                       CompiledQuery previousQuery) throws SaxonApiException {
+
+        Object o = synCtx.getEntry(generatedQueryKey);
+        if (o == null) {
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Couldn't find the xquery source with a key "
+                        + queryKey);
+            }
+            throw new SynapseException("No object found for the key '" + generatedQueryKey + "'");
+        }
+
+        EntryVersion entryVersion = EntryVersion.of(synCtx.getConfiguration().getEntryDefinition(generatedQueryKey));
+        if (previousQuery != null && previousQuery.getEntryVersion().isSameVersion(entryVersion)) {
+            return previousQuery;
+        }
+
+        String sourceCode = null;
+        InputStream inputStream = null;
+        if (o instanceof OMElement) {
+            sourceCode = ((OMElement) (o)).getText();
+        } else if (o instanceof String) {
+            sourceCode = (String) o;
+        } else if (o instanceof OMText) {
+            DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
+            if (dataHandler != null) {
+                try {
+                    inputStream = dataHandler.getInputStream();
+                    if (inputStream == null) {
+                        if (synLog.isTraceOrDebugEnabled()) {
+                            synLog.traceOrDebug("Couldn't get" +
+                                    " the stream from the xquery source with a key "
+                                    + queryKey);
+                        }
+                        return null;
+                    }
+
+                } catch (IOException e) {
+                    handleException("Error in reading content as a stream ");
+                }
+            }
+        }
+
+        if ((sourceCode == null || "".equals(sourceCode)) && inputStream == null) {
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Couldn't find the xquery source with a key "
+                        + queryKey);
+            }
+            return null;
+        }
+
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Picked up the xquery source from the " +
+                    "key " + queryKey);
+            synLog.traceOrDebug("Prepare an expression for the query ");
+        }
+
+        XQueryExecutable xQueryExecutable = null;
+        try {
+            if (sourceCode != null) {
+                //create an xQueryExecutable using the query source
+                xQueryExecutable = getQueryCompiler(synLog).compile(sourceCode);
+            } else {
+                xQueryExecutable = getQueryCompiler(synLog).compile(inputStream);
+            }
+
+        } catch (IOException e) {
+            handleException("Error during the query inputStream compilation");
+        }
+        return new CompiledQuery(xQueryExecutable, entryVersion);
+    }
+
+    /**
+     * Get the compiler of this mediator, creating the Processor and the compiler when they are
+     * first used. This must be called while holding the resource lock.
+     *
+     * @param synLog the Synapse log to use
+     * @return the XQuery compiler
+     */
+    private XQueryCompiler getQueryCompiler(SynapseLog synLog) {
+        //creating processor
+        if (cachedProcessor == null) {
+            Processor processor = new Processor(false);
+            //setting up the properties to the Processor
+            if (processorProperties != null && !processorProperties.isEmpty()) {
+                synLog.traceOrDebug("Setting up properties to the XQDataSource");
+                for (MediatorProperty processorProperty : processorProperties) {
+                    if (processorProperty != null) {
+                        processor.setConfigurationProperty(processorProperty.getName(),
+                                processorProperty.getValue());
+                    }
+                }
+            }
+            cachedProcessor = processor;
+        }
+
+        //creating XQueryCompiler
+        if (cachedQueryCompiler == null) {
+            synLog.traceOrDebug("Creating a compiler from the Processor ");
+            cachedQueryCompiler = cachedProcessor.newXQueryCompiler();
+        }
+        return cachedQueryCompiler;
+    }
+
+    public void init(SynapseEnvironment se) {
+        // nothing to initialize, queries are compiled when they are first used
+    }
+
+    /**
+     * Remove the queries compiled by this mediator from the compiled query cache
+     */
+    public void destroy() {
+        for (Iterator<String> itr = compiledQueryCache.keySet().iterator(); itr.hasNext(); ) {
+            if (itr.next().startsWith(cacheKeyPrefix)) {
+                itr.remove();
+            }
         }
     }
 
@@ -421,11 +497,12 @@ public class XQueryMediator extends AbstractMediator {
      * Binding a variable to the Dynamic Context in order to available during doing the querying
      *
      * @param queryEvaluator   The XQuery evaluator to which the variable will be added
-     * @param variable         The variable which contains the name and vaule for adding
+     * @param variable         The variable which contains the name and type for adding
+     * @param value            The value of the variable for the current message
      * @param synLog           the Synapse log to use
      * @throws SaxonApiException throws if any error occurs when adding the variable
      */
-    private void setVariable(XQueryEvaluator queryEvaluator, MediatorVariable variable,
+    private void setVariable(XQueryEvaluator queryEvaluator, MediatorVariable variable, Object value,
                              SynapseLog synLog) throws SaxonApiException {
         QName name = new QName(variable.getName().getLocalPart());
 
@@ -433,7 +510,6 @@ public class XQueryMediator extends AbstractMediator {
 
             ItemType type = variable.getType();
             XdmNodeKind nodeKind = variable.getNodeKind();
-            Object value = variable.getValue();
 
             if (value != null && (type != null || nodeKind != null)) {
 
@@ -698,4 +774,69 @@ public class XQueryMediator extends AbstractMediator {
         return true;
     }
 
+
+    /**
+     * A compiled query along with the version of the query resource it was compiled from, and a
+     * pool of idle evaluators loaded from the query.
+     */
+    private static final class CompiledQuery {
+
+        private final XQueryExecutable executable;
+
+        private final EntryVersion entryVersion;
+
+        private final ConcurrentLinkedQueue<PooledEvaluator> idleEvaluators =
+                new ConcurrentLinkedQueue<PooledEvaluator>();
+
+        private final AtomicInteger idleCount = new AtomicInteger(0);
+
+        private CompiledQuery(XQueryExecutable executable, EntryVersion entryVersion) {
+            this.executable = executable;
+            this.entryVersion = entryVersion;
+        }
+
+        private EntryVersion getEntryVersion() {
+            return entryVersion;
+        }
+
+        private PooledEvaluator borrowEvaluator() {
+            PooledEvaluator evaluator = idleEvaluators.poll();
+            if (evaluator == null) {
+                return new PooledEvaluator(executable.load());
+            }
+            idleCount.decrementAndGet();
+            return evaluator;
+        }
+
+        private void releaseEvaluator(PooledEvaluator evaluator) {
+            if (idleCount.incrementAndGet() > evaluatorPoolSize) {
+                idleCount.decrementAndGet();
+                return;
+            }
+            idleEvaluators.offer(evaluator);
+        }
+    }
+
+    /**
+     * An evaluator along with the values of the variables bound to it, so that a value which
+     * has not changed since the previous message is not bound again.
+     */
+    private static final class PooledEvaluator {
+
+        private final XQueryEvaluator evaluator;
+
+        private final Map<MediatorVariable, Object> boundValues = new IdentityHashMap<MediatorVariable, Object>();
+
+        private PooledEvaluator(XQueryEvaluator evaluator) {
+            this.evaluator = evaluator;
+        }
+
+        private boolean isBound(MediatorVariable variable, Object value) {
+            return boundValues.containsKey(variable) && boundValues.get(variable) == value;
+        }
+
+        private void setBound(MediatorVariable variable, Object value) {
+            boundValues.put(variable, value);
+        }
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bsf;
+
+import junit.framework.TestCase;
+
+import javax.script.ScriptEngine;
+
+public class ScriptEnginePoolTest extends TestCase {
+
+    /**
+     * The pool creates engines while there is no idle engine, and keeps up to the maximum number
+     * of idle engines when they are released.
+     */
+    public void testPoolGrowsUnderContention() {
+        ScriptEnginePoolMetrics metrics = ScriptEnginePool.getMetrics();
+        metrics.reset();
+        ScriptEnginePool pool = new ScriptEnginePool(2) {
+            @Override
+            protected ScriptEngine createEngine() {
+                return null;
+            }
+        };
+
+        ScriptEngineWrapper first = pool.borrowEngine();
+        ScriptEngineWrapper second = pool.borrowEngine();
+        ScriptEngineWrapper third = pool.borrowEngine();
+        assertNotSame(first, second);
+        assertEquals(3, metrics.getCreatedCount());
+
+        pool.releaseEngine(first);
+        pool.releaseEngine(second);
+        pool.releaseEngine(third);
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(1, metrics.getDiscardedCount());
+
+        assertSame(first, pool.borrowEngine());
+        assertEquals(4, metrics.getBorrowedCount());
+        assertEquals(3, metrics.getCreatedCount());
+        assertTrue(metrics.getMaxWaitTime() >= metrics.getAverageWaitTime());
+    }
+}
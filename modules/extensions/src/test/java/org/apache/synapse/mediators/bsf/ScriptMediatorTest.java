@@ -36,8 +36,11 @@ import org.apache.synapse.mediators.Value;
 
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ScriptMediatorTest extends TestCase {
 
@@ -199,11 +202,63 @@ public class ScriptMediatorTest extends TestCase {
         assertEquals(true, result);
     }
 
+    /**
+     * Runs a script loaded from the registry for concurrent messages, and checks that every
+     * message is mediated with its own payload and that the script is compiled at most once by
+     * each engine.
+     */
+    public void testConcurrentExternalScript() throws Exception {
+        String scriptSrcKey = "conf:/repository/esb/double.js";
+        Entry e = new Entry();
+        e.setKey(scriptSrcKey);
+        e.setValue("function transform(mc) {\n"
+                + "    var no = mc.getEnvelope().getBody().getFirstElement().getText();\n"
+                + "    mc.getEnvelope().getBody().getFirstElement().setText(no * 2);\n"
+                + "}");
+        final Map<String, Entry> entries = Collections.singletonMap(scriptSrcKey, e);
+        final ScriptMediator mediator = new ScriptMediator("js", new LinkedHashMap<Value, Object>(),
+                new Value(scriptSrcKey), "transform", null);
+
+        ScriptEnginePoolMetrics metrics = ScriptEnginePool.getMetrics();
+        metrics.reset();
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 1000;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            MessageContext mc = TestUtils.getTestContext("<randomNo/>", entries);
+                            mc.getEnvelope().getBody().getFirstElement().setText(String.valueOf(offset + i));
+                            mediator.mediate(mc);
+                            if ((offset + i) * 2 != Integer.parseInt(
+                                    mc.getEnvelope().getBody().getFirstElement().getText())) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception ex) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60000);
+        }
+        assertEquals(0, failures.get());
+        assertTrue(metrics.getCompiledScriptCount() <= metrics.getCreatedCount());
+    }
+
     public static Test suite() {
         TestSuite suite = new TestSuite();
         for (int i = 0; i < 10; i++) {
             suite.addTest(new RepeatedTest(new ScriptMediatorTest("testThreadSafety"), 10));
         }
+        suite.addTest(new ScriptMediatorTest("testConcurrentExternalScript"));
         return suite;
     }
 
@@ -28,6 +28,7 @@ import org.apache.synapse.mediators.TestUtils;
 import javax.xml.namespace.QName;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -271,4 +272,49 @@ public class XQueryMediatorTest extends TestCase {
         assertTrue(mediator.mediate(mc));
         assertEquals("true", mc.getEnvelope().getBody().getFirstElement().getText());
     }
+
+    /**
+     * Queries the payloads of concurrent messages with the same mediator, and checks that every
+     * message gets the result of its own payload.
+     */
+    public void testConcurrentQueries() throws Exception {
+        final XQueryMediator mediator = new XQueryMediator();
+        List<MediatorVariable> list = new ArrayList<MediatorVariable>();
+        MediatorVariable variable = new MediatorCustomVariable(new QName("payload"));
+        variable.setNodeKind(XdmNodeKind.DOCUMENT);
+        list.add(variable);
+        mediator.addAllVariables(list);
+        mediator.setQuerySource("declare namespace m0=\"http://www.apache-synapse.org/test\"; " +
+                "declare variable $payload as document-node() external;" +
+                "<symbol>{$payload//m0:CheckPriceRequest/m0:Code/child::text()}</symbol>");
+
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final String symbol = "SYM" + t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            MessageContext mc = TestUtils.getAxis2MessageContext(
+                                    sampleXml2.replace("IBM", symbol), null);
+                            mediator.mediate(mc);
+                            if (!symbol.equals(mc.getEnvelope().getBody().getFirstElement().getText())) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60000);
+        }
+        assertEquals(0, failures.get());
+    }
 }
@@ -21,10 +21,12 @@ package org.apache.synapse.transport.http.access;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
+import org.apache.http.HeaderIterator;
 import org.apache.http.HttpMessage;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.params.HttpParams;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.http.wrapper.HttpRequestWrapper;
 import org.apache.synapse.transport.http.wrapper.HttpResponseWrapper;
 
@@ -32,14 +34,15 @@ import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * The class to handle the HTTP Access Logs, patterns and the major functionality.
  * Major Code segment borrowed from Apache Tomcat's
  * org.apache.catalina.valves.AccessLogValve with thanks.
+ *
+ * The pattern is parsed once into an array of elements. The line of each access is formatted by
+ * the thread which logs it, directly into a reused buffer of the {@link AccessLogWriter}, which
+ * writes the lines to the log file on its own thread.
  */
 public class Access {
     private static Log log = LogFactory.getLog(Access.class);
@@ -53,12 +56,17 @@ public class Access {
 
     private static AccessLogger accessLogger;
 
-    private static ConcurrentLinkedQueue<HttpRequestWrapper> requestQueue;
-    private static ConcurrentLinkedQueue<HttpResponseWrapper> responseQueue;
-
-    private static final int LOG_FREQUENCY_IN_SECONDS = 30;
+    private static AccessLogWriter accessLogWriter;
 
-    private Date date;
+    /**
+     * The time of the line being formatted by the current thread
+     */
+    private static final ThreadLocal<Date> lineDate = new ThreadLocal<Date>() {
+        @Override
+        protected Date initialValue() {
+            return new Date();
+        }
+    };
 
     /**
      * Constructor of AccessLog. AccessHandler has a static object of Access.
@@ -70,8 +78,6 @@ public class Access {
         super();
         Access.log = log;
         Access.accessLogger = accessLogger;
-        requestQueue = new ConcurrentLinkedQueue<HttpRequestWrapper>();
-        responseQueue = new ConcurrentLinkedQueue<HttpResponseWrapper>();
         logElements = createLogElements();
         logAccesses();
     }
@@ -82,10 +88,9 @@ public class Access {
      * @param request - HttpRequest
      */
     public void addAccessToQueue(HttpRequest request) {
-        HttpRequestWrapper requestWrapper = new HttpRequestWrapper();
-        requestWrapper.setHttpRequest(request);
-        requestWrapper.setDate(new Date(AccessTimeUtil.getDate().getTime()));
-        requestQueue.add(requestWrapper);
+        Date date = lineDate.get();
+        date.setTime(System.currentTimeMillis());
+        writeLine(date, request, null);
     }
 
     /**
@@ -94,42 +99,26 @@ public class Access {
      * @param response - HttpResponse
      */
     public void addAccessToQueue(HttpResponse response) {
-        HttpResponseWrapper responseWrapper = new HttpResponseWrapper();
-        responseWrapper.setHttpResponse(response);
-        responseWrapper.setDate(new Date(AccessTimeUtil.getDate().getTime()));
-        responseQueue.add(responseWrapper);
+        Date date = lineDate.get();
+        date.setTime(System.currentTimeMillis());
+        writeLine(date, null, response);
     }
 
     /**
-     * logs the request and response accesses.
+     * Starts the writer which writes the logged accesses to the log file.
      */
     public void logAccesses() {
-        TimerTask logRequests = new LogRequests();
-        TimerTask logResponses = new LogResponses();
-        Timer requestTimer = new Timer();
-        Timer responseTimer = new Timer();
-        // Retry in 30 seconds
-        long retryIn = 1000 * LOG_FREQUENCY_IN_SECONDS;
-        requestTimer.schedule(logRequests, 0, retryIn);
-        responseTimer.schedule(logResponses, 0, retryIn);
-    }
-
-    private class LogRequests extends TimerTask {
-        public void run() {
-            while (!requestQueue.isEmpty()) {
-                HttpRequestWrapper req = requestQueue.poll();
-                log(req, null);
+        final AccessLogWriter writer = new AccessLogWriter(log, accessLogger,
+                AccessConstants.getBufferSize(), AccessConstants.getFlushSize(),
+                AccessConstants.getFlushInterval());
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                writer.stop();
             }
-        }
-    }
-
-    private class LogResponses extends TimerTask {
-        public void run() {
-            while (!responseQueue.isEmpty()) {
-                HttpResponseWrapper res = responseQueue.poll();
-                log(null, res);
-            }
-        }
+        }, "HTTP-Access-Log-Shutdown"));
+        MBeanRegistrar.getInstance().registerMBean(new AccessLogView(writer), "HttpAccessLog", "writer");
+        accessLogWriter = writer;
     }
 
     /**
@@ -139,17 +128,36 @@ public class Access {
      * @param response - HttpResponse
      */
     public void log(HttpRequest request, HttpResponse response) {
-        date = AccessTimeUtil.getDate();
-        //String commonLogFormatDate = AccessTimeUtil.getAccessDate(date);
-
-        StringBuilder result = new StringBuilder(128);
+        writeLine(AccessTimeUtil.getDate(), request, response);
+    }
 
-        for (AccessLogElement logElement : logElements) {
-            logElement.addElement(result, date, request, response);
+    /**
+     * Formats the line of an access into a line buffer of the writer. The line is dropped if the
+     * writer has no free line buffer.
+     *
+     * @param date     - time of the access
+     * @param request  - HttpRequest, or null if the response is logged
+     * @param response - HttpResponse, or null if the request is logged
+     */
+    private void writeLine(Date date, HttpRequest request, HttpResponse response) {
+        AccessLogWriter writer = accessLogWriter;
+        long position = writer.claim();
+        if (position < 0) {
+            return;
+        }
+        StringBuilder line = writer.getLine(position);
+        boolean formatted = false;
+        try {
+            for (AccessLogElement logElement : logElements) {
+                logElement.addElement(line, date, request, response);
+            }
+            formatted = true;
+        } finally {
+            if (!formatted) {
+                line.setLength(0);
+            }
+            writer.publish(position);
         }
-        String logString = result.toString();
-        log.debug(logString);      //log to the console
-        accessLogger.log(logString);      //log to the file
     }
 
     /**
@@ -182,6 +190,32 @@ public class Access {
         return headerValue.toString();
     }
 
+    /**
+     * appends the header values from the given message, with the given name, to the log line.
+     *
+     * @param buf     - The log line
+     * @param message - The message, HttpRequest or HttpResponse
+     * @param name    - The header, which we need to append the value of.
+     */
+    protected static void appendHeaderValues(StringBuilder buf, HttpMessage message, String name) {
+        boolean found = false;
+        try {
+            HeaderIterator headers = message.headerIterator(name);
+            while (headers.hasNext()) {
+                if (found) {
+                    buf.append(" - ");
+                }
+                buf.append(headers.nextHeader().getValue());
+                found = true;
+            }
+        } catch (Exception e) {
+            // The header doesn't exist
+        }
+        if (!found) {
+            buf.append('-');
+        }
+    }
+
     protected static String getParam(HttpMessage message, String paramName) {
         HttpParams params = message.getParams();
         String param = (String) params.getParameter(paramName);
@@ -363,8 +397,7 @@ public class Access {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
 
-            String currentDate = AccessTimeUtil.getAccessDate(date);
-            buf.append(currentDate);
+            AccessTimeUtil.appendAccessDate(buf, date.getTime());
         }
     }
 
@@ -459,8 +492,9 @@ public class Access {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
             if (request != null) {
-                String uri = request.getRequestLine().getUri().split("\\?")[0];
-                buf.append(uri);
+                String uri = request.getRequestLine().getUri();
+                int queryIndex = uri.indexOf('?');
+                buf.append(uri, 0, queryIndex < 0 ? uri.length() : queryIndex);
             } else {
                 buf.append('-');
             }
@@ -473,7 +507,7 @@ public class Access {
     protected static class LocalServerNameElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getHeaderValues(request, "server"));
+            appendHeaderValues(buf, request, "server");
         }
     }
 
@@ -505,16 +539,7 @@ public class Access {
 
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            try {
-                String value = getHeaderValues(request, header);
-                if (value == null) {
-                    buf.append('-');
-                } else {
-                    buf.append(value);
-                }
-            } catch (Exception e) {
-                buf.append('-'); //Header is null
-            }
+            appendHeaderValues(buf, request, header);
         }
     }
 
@@ -524,7 +549,7 @@ public class Access {
     protected static class CookieElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getCookieElement(request));
+            appendHeaderValues(buf, request, "Cookie");
         }
     }
 
@@ -535,7 +560,7 @@ public class Access {
     protected static class RefererElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getRefererElement(request));
+            appendHeaderValues(buf, request, "Referer");
         }
     }
 
@@ -546,7 +571,7 @@ public class Access {
     protected static class UserAgentElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getUserAgentElement(request));
+            appendHeaderValues(buf, request, "User-Agent");
         }
     }
 
@@ -556,7 +581,7 @@ public class Access {
     protected static class AcceptElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getAcceptElement(request));
+            appendHeaderValues(buf, request, "Accept");
         }
     }
 
@@ -566,7 +591,7 @@ public class Access {
     protected static class AcceptLanguageElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getAcceptLanguageElement(request));
+            appendHeaderValues(buf, request, "Accept-Language");
         }
     }
 
@@ -576,7 +601,7 @@ public class Access {
     protected static class AcceptEncodingElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getAcceptEncodingElement(request));
+            appendHeaderValues(buf, request, "Accept-Encoding");
         }
     }
 
@@ -586,7 +611,7 @@ public class Access {
     protected static class AcceptCharSetElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getAcceptCharSetElement(request));
+            appendHeaderValues(buf, request, "Accept-Charset");
         }
     }
 
@@ -596,7 +621,7 @@ public class Access {
     protected static class ConnectionElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getConnectionElement(request));
+            appendHeaderValues(buf, request, "Connection");
         }
     }
 
@@ -606,7 +631,7 @@ public class Access {
     protected static class ContentTypeElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getContentTypeElement(request));
+            appendHeaderValues(buf, request, "Content-Type");
         }
     }
 
@@ -616,7 +641,7 @@ public class Access {
     protected static class KeepAliveElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getKeepAliveElement(request));
+            appendHeaderValues(buf, request, "Keep-Alive");
         }
     }
 
@@ -626,7 +651,7 @@ public class Access {
     protected static class TransferEncodingElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getTransferEncodingElement(request));
+            appendHeaderValues(buf, request, "Transfer-Encoding");
         }
     }
 
@@ -636,7 +661,7 @@ public class Access {
     protected static class ContentEncodingElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getContentEncodingElement(request));
+            appendHeaderValues(buf, request, "Content-Encoding");
         }
     }
 
@@ -646,7 +671,7 @@ public class Access {
     protected static class VaryElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getVaryElement(request));
+            appendHeaderValues(buf, request, "Vary");
         }
     }
 
@@ -656,7 +681,7 @@ public class Access {
     protected static class ServerElement implements AccessLogElement {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
-            buf.append(getServerElement(request));
+            appendHeaderValues(buf, request, "Server");
         }
     }
 
@@ -673,7 +698,7 @@ public class Access {
         public void addElement(StringBuilder buf, Date date, HttpRequest request,
                                HttpResponse response) {
             if (null != response) {
-                buf.append(getHeaderValues(response, header));
+                appendHeaderValues(buf, response, header);
             }
             buf.append("-");
         }
@@ -862,17 +887,10 @@ public class Access {
             actualDateOfOperation = response.getDate();
         }
 
-        StringBuilder result = new StringBuilder(128);
-
-        for (AccessLogElement logElement : logElements) {
-            if (request != null)    {
-                logElement.addElement(result, actualDateOfOperation, request.getHttpRequest(), null);
-            } else if (response != null)    {
-                logElement.addElement(result, actualDateOfOperation, null, response.getHttpResponse());
-            }
+        if (request != null) {
+            writeLine(actualDateOfOperation, request.getHttpRequest(), null);
+        } else if (response != null) {
+            writeLine(actualDateOfOperation, null, response.getHttpResponse());
         }
-        String logString = result.toString();
-        log.debug(logString);      //log to the console
-        accessLogger.log(logString);      //log to the file
     }
 }
@@ -65,6 +65,21 @@ public class AccessConstants {
      */
     public static String SUFFIX = ".log";
 
+    /**
+     * Maximum number of lines waiting to be written to the log file. Lines are dropped when it is reached.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Number of written characters at which the log file is flushed.
+     */
+    public static final int FLUSH_SIZE = 65536;
+
+    /**
+     * Maximum time in milliseconds a written line stays unflushed.
+     */
+    public static final int FLUSH_INTERVAL = 1000;
+
     public static final String CONFIG_PATTERN = "access_log_pattern";
 
     public static final String CONFIG_DIRECTORY = "access_log_directory";
@@ -75,6 +90,12 @@ public class AccessConstants {
 
     public static final String CONFIG_FILE_DATE_FORMAT = "access_log_file_date_format";
 
+    public static final String CONFIG_BUFFER_SIZE = "access_log_buffer_size";
+
+    public static final String CONFIG_FLUSH_SIZE = "access_log_flush_size";
+
+    public static final String CONFIG_FLUSH_INTERVAL = "access_log_flush_interval";
+
 
     public static String getLogPattern() {
         return AccessConfiguration.getInstance().getStringProperty(CONFIG_PATTERN, LOG_PATTERN);
@@ -96,4 +117,16 @@ public class AccessConstants {
         return AccessConfiguration.getInstance().getStringProperty(CONFIG_DIRECTORY, DIRECTORY);
     }
 
+    public static int getBufferSize() {
+        return AccessConfiguration.getInstance().getIntProperty(CONFIG_BUFFER_SIZE, BUFFER_SIZE);
+    }
+
+    public static int getFlushSize() {
+        return AccessConfiguration.getInstance().getIntProperty(CONFIG_FLUSH_SIZE, FLUSH_SIZE);
+    }
+
+    public static int getFlushInterval() {
+        return AccessConfiguration.getInstance().getIntProperty(CONFIG_FLUSH_INTERVAL, FLUSH_INTERVAL);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,300 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.access;
+
+import org.apache.commons.logging.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the lines of the access log on a single writer thread. The threads which log accesses
+ * format each line directly into a slot of a bounded ring buffer, whose line buffers are reused,
+ * and the writer thread writes the lines to the log file in batches. The log file is flushed when
+ * the unflushed characters reach the flush size, or when the flush interval has passed since the
+ * last flush. When the ring buffer is full the line is dropped and counted, so that a slow disk
+ * neither blocks the IO threads nor lets the waiting lines grow without bound.
+ *
+ * Each slot of the ring buffer carries a sequence number, which tells the logging threads whether
+ * the slot is free for their position, and the writer thread whether the line has been formatted.
+ */
+public class AccessLogWriter {
+
+    /** line buffers grown beyond this length are replaced once written */
+    private static final int MAX_RETAINED_LINE_LENGTH = 8192;
+
+    /** time the writer thread waits for new lines when there is nothing to write */
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final char[] LINE_SEPARATOR = System.getProperty("line.separator", "\n").toCharArray();
+
+    private final Log log;
+
+    private final AccessLogger accessLogger;
+
+    private final int mask;
+
+    private final StringBuilder[] lines;
+
+    private final AtomicLongArray sequences;
+
+    /** position of the next line to be claimed by a logging thread */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    /** position of the next line to be written, used by the writer thread only */
+    private volatile long head = 0;
+
+    private final int flushSize;
+
+    private final long flushIntervalNanos;
+
+    /** characters of a batch of lines, written to the log file together */
+    private final char[] batch;
+
+    private int batchLength = 0;
+
+    private int unflushedLength = 0;
+
+    private long lastFlushTime = System.nanoTime();
+
+    private final LongAdder writtenLines = new LongAdder();
+
+    private final LongAdder droppedLines = new LongAdder();
+
+    private volatile boolean running = false;
+
+    private Thread writerThread;
+
+    /**
+     * @param log           log to which the lines are also written at debug level
+     * @param accessLogger  the log file
+     * @param capacity      maximum number of lines waiting to be written, rounded up to a power of two
+     * @param flushSize     number of unflushed characters at which the log file is flushed
+     * @param flushInterval maximum time in milliseconds a written line stays unflushed
+     */
+    public AccessLogWriter(Log log, AccessLogger accessLogger, int capacity, int flushSize,
+                           long flushInterval) {
+        this.log = log;
+        this.accessLogger = accessLogger;
+        int size = Integer.highestOneBit(Math.max(2, Math.min(capacity, 1 << 30)) - 1) << 1;
+        this.mask = size - 1;
+        this.lines = new StringBuilder[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            lines[i] = new StringBuilder(128);
+            sequences.set(i, i);
+        }
+        this.flushSize = Math.max(1, flushSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        this.batch = new char[Math.min(this.flushSize, 65536)];
+    }
+
+    /**
+     * Start the writer thread, which writes the lines until the writer is stopped
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(new Runnable() {
+            public void run() {
+                writeLines();
+            }
+        }, "HTTP-Access-Log-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stop the writer thread once the lines which have been logged are written and flushed
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = writerThread;
+            writerThread = null;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Claim the slot for a new line. The line has to be formatted into {@link #getLine(long)} and
+     * published with {@link #publish(long)}.
+     *
+     * @return position of the line, or -1 if the ring buffer is full and the line is dropped
+     */
+    public long claim() {
+        long position = tail.get();
+        while (true) {
+            long difference = sequences.get((int) position & mask) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    StringBuilder line = lines[(int) position & mask];
+                    line.setLength(0);
+                    return position;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                droppedLines.increment();
+                return -1;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @param position position of a claimed line
+     * @return the empty buffer into which the line is formatted
+     */
+    public StringBuilder getLine(long position) {
+        return lines[(int) position & mask];
+    }
+
+    /**
+     * Make a formatted line available to the writer thread
+     *
+     * @param position position of a claimed line
+     */
+    public void publish(long position) {
+        sequences.set((int) position & mask, position + 1);
+    }
+
+    private void writeLines() {
+        while (true) {
+            boolean stopping = !running;
+            int written = 0;
+            try {
+                written = writeBatch();
+                long now = System.nanoTime();
+                if (unflushedLength > 0 && (unflushedLength >= flushSize || stopping
+                        || now - lastFlushTime >= flushIntervalNanos)) {
+                    accessLogger.flush();
+                    unflushedLength = 0;
+                    lastFlushTime = now;
+                }
+            } catch (Throwable t) {
+                AccessTimeUtil.handleThrowable(t);
+                log.warn("Error occurred while writing the access log", t);
+            }
+            if (stopping && written == 0) {
+                return;
+            }
+            if (written == 0) {
+                LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Write the lines which have been published, up to the flush size
+     *
+     * @return the number of lines written
+     */
+    private int writeBatch() {
+        int count = 0;
+        boolean debugEnabled = log.isDebugEnabled();
+        while (unflushedLength + batchLength < flushSize) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            StringBuilder line = lines[index];
+            if (line.length() > 0) {
+                appendToBatch(line);
+                appendToBatch(LINE_SEPARATOR);
+                if (debugEnabled) {
+                    log.debug(line.toString());      //log to the console
+                }
+                count++;
+            }
+            if (line.capacity() > MAX_RETAINED_LINE_LENGTH) {
+                lines[index] = new StringBuilder(128);
+            }
+            sequences.set(index, head + mask + 1);
+            head++;
+        }
+        writeBatchToFile();
+        writtenLines.add(count);
+        return count;
+    }
+
+    private void appendToBatch(StringBuilder line) {
+        int offset = 0;
+        while (offset < line.length()) {
+            if (batchLength == batch.length) {
+                writeBatchToFile();
+            }
+            int length = Math.min(line.length() - offset, batch.length - batchLength);
+            line.getChars(offset, offset + length, batch, batchLength);
+            batchLength += length;
+            offset += length;
+        }
+    }
+
+    private void appendToBatch(char[] chars) {
+        for (char c : chars) {
+            if (batchLength == batch.length) {
+                writeBatchToFile();
+            }
+            batch[batchLength++] = c;
+        }
+    }
+
+    private void writeBatchToFile() {
+        if (batchLength > 0) {
+            accessLogger.write(batch, 0, batchLength);      //log to the file
+            unflushedLength += batchLength;
+            batchLength = 0;
+        }
+    }
+
+    public int getQueuedLineCount() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    public long getWrittenLineCount() {
+        return writtenLines.sum();
+    }
+
+    public long getDroppedLineCount() {
+        return droppedLines.sum();
+    }
+
+    public void resetCounts() {
+        writtenLines.reset();
+        droppedLines.reset();
+    }
+}
@@ -121,6 +121,51 @@ public class AccessLogger {
      * @param message Message to be logged
      */
     public void log(String message) {
+        checkLogFile();
+
+        // Log this message
+        synchronized (this) {
+            if (writer != null) {
+                writer.println(message);
+
+                if (!buffered) {
+                    writer.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a batch of lines to the log file without flushing it, switching files if the date
+     * has changed since the previous write.
+     *
+     * @param lines  characters of the lines, each followed by a line separator
+     * @param offset offset of the first character
+     * @param length number of characters
+     */
+    public void write(char[] lines, int offset, int length) {
+        checkLogFile();
+
+        synchronized (this) {
+            if (writer != null) {
+                writer.write(lines, offset, length);
+            }
+        }
+    }
+
+    /**
+     * Flush the lines written to the log file
+     */
+    public synchronized void flush() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Switch log files if the date has changed, or if the log file has been removed
+     */
+    private void checkLogFile() {
         if (isRotatable) {
             // Only do a logfile switch check once a second, max.
             long systime = System.currentTimeMillis();
@@ -163,17 +208,6 @@ public class AccessLogger {
                 }
             }
         }
-
-        // Log this message
-        synchronized (this) {
-            if (writer != null) {
-                writer.println(message);
-
-                if (!buffered) {
-                    writer.flush();
-                }
-            }
-        }
     }
 
     /**
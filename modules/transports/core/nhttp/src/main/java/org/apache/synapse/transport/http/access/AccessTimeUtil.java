@@ -76,6 +76,12 @@ public class AccessTimeUtil {
         private SimpleDateFormat yearFormatter = new SimpleDateFormat("yyyy");
 
         private SimpleDateFormat timeFormatter = new SimpleDateFormat("HH:mm:ss.SSS");
+        private SimpleDateFormat secondFormatter = new SimpleDateFormat("HH:mm:ss");
+
+        private final Date formattedDate = new Date();
+        private long formattedSecond = -1;
+        private String formattedSecondPrefix;
+        private String formattedTimeZoneSuffix;
 
         public AccessDateStruct() {
             TimeZone tz = TimeZone.getDefault();
@@ -83,6 +89,7 @@ public class AccessTimeUtil {
             monthFormatter.setTimeZone(tz);
             yearFormatter.setTimeZone(tz);
             timeFormatter.setTimeZone(tz);
+            secondFormatter.setTimeZone(tz);
         }
     }
 
@@ -160,6 +167,46 @@ public class AccessTimeUtil {
         return getAccessDateFormatted(date);
     }
 
+    /**
+     * Append the given time in the format of the access log, such as [18/Oct/2026:10:15:30.123 +0530].
+     * The part of the time up to the second is formatted once per second by each thread, so that
+     * formatting the time of a line does not allocate.
+     *
+     * @param buf  buffer of the log line
+     * @param time the time in milliseconds
+     */
+    public static void appendAccessDate(StringBuilder buf, long time) {
+        AccessDateStruct struct = currentDateStruct.get();
+        long second = Math.floorDiv(time, 1000L);
+        if (second != struct.formattedSecond) {
+            Date date = struct.formattedDate;
+            date.setTime(second * 1000);
+            StringBuilder prefix = new StringBuilder(24);
+            prefix.append('[');
+            prefix.append(struct.dayFormatter.format(date));
+            prefix.append('/');
+            prefix.append(lookup(struct.monthFormatter.format(date)));
+            prefix.append('/');
+            prefix.append(struct.yearFormatter.format(date));
+            prefix.append(':');
+            prefix.append(struct.secondFormatter.format(date));
+            prefix.append('.');
+            struct.formattedSecondPrefix = prefix.toString();
+            struct.formattedTimeZoneSuffix = " " + AccessTimeUtil.getTimeZone() + "]";
+            struct.formattedSecond = second;
+        }
+        int millis = (int) Math.floorMod(time, 1000L);
+        buf.append(struct.formattedSecondPrefix);
+        if (millis < 100) {
+            buf.append('0');
+        }
+        if (millis < 10) {
+            buf.append('0');
+        }
+        buf.append(millis);
+        buf.append(struct.formattedTimeZoneSuffix);
+    }
+
     /**
      * Checks whether the supplied Throwable is one that needs to be
      * re-thrown and swallows all others.
@@ -36,6 +36,7 @@ import org.apache.synapse.transport.passthru.config.PassThroughConfigPNames;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
 import org.apache.synapse.transport.passthru.connections.TargetConnections;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.util.TargetRequestFactory;
 
 import java.io.OutputStream;
@@ -45,6 +46,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -62,6 +64,7 @@ public class DeliveryAgent {
     private static final String SSE = "SSE";
     private static final String SSE_TARGET_CONNECTION = "SSE_TARGET_CONNECTION";
     private static final String SSE_TARGET_CONNECTIONS = "SSE_TARGET_CONNECTIONS";
+    private static final String CONNECTION_WAIT_START_TIME = "PASS_THROUGH_CONNECTION_WAIT_START_TIME";
 
     /**
      * This Map holds the messages that need to be delivered. But at the moment maximum
@@ -173,6 +176,7 @@ public class DeliveryAgent {
                     return false;
                 }
 
+                msgContext.setProperty(CONNECTION_WAIT_START_TIME, System.nanoTime());
                 queue.add(msgContext);
                 conn = targetConnections.getConnection(route, msgContext, targetErrorHandler, queue);
                 if (conn == null && msgContext != null && "true".equalsIgnoreCase(
@@ -275,6 +279,7 @@ public class DeliveryAgent {
 
     private void tryNextMessage(MessageContext messageContext, HttpRoute route, NHttpClientConnection conn) {
         if (conn != null) {
+            notifyConnectionWaitTime(messageContext);
             try {
                 HttpContext ctx = conn.getContext();
                 /*
@@ -309,6 +314,16 @@ public class DeliveryAgent {
         }
     }
 
+    private void notifyConnectionWaitTime(MessageContext messageContext) {
+        Object waitStartTime = messageContext.getProperty(CONNECTION_WAIT_START_TIME);
+        PassThroughTransportMetricsCollector metrics = targetConfiguration.getMetrics();
+        if (waitStartTime != null && metrics != null) {
+            messageContext.removeProperty(CONNECTION_WAIT_START_TIME);
+            metrics.notifyConnectionWaitTime(
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - (Long) waitStartTime));
+        }
+    }
+
     private void submitRequest(NHttpClientConnection conn, HttpRoute route, MessageContext msgContext) throws AxisFault {
         if (log.isDebugEnabled()) {
             log.debug("Submitting new request MessageID:"
@@ -92,6 +92,13 @@ public class Pipe {
      * "false"- if time out exceeds
      */
     private boolean awaitInterrupted = true;
+
+    /**
+     * Whether the content of incoming messages is read in to a {@link RingBufferPipe}
+     */
+    private static final boolean ringBufferPipeEnabled =
+            PassThroughConfiguration.getInstance().isRingBufferPipeEnabled();
+
     boolean isStale = false;
 
     private BaseConfiguration baseConfig;
@@ -120,6 +127,24 @@ public class Pipe {
         this.hasHttpProducer = false;
     }
 
+    /**
+     * Creates a pipe to read the content of an incoming message from the given producer. This returns a
+     * {@link RingBufferPipe} when it is enabled through the pass-through configuration.
+     *
+     * @param producerIoControl IOControl of the producer
+     * @param buffer buffer to hold the content
+     * @param name name to identify the buffer
+     * @param baseConfig transport configuration
+     * @return the pipe
+     */
+    public static Pipe newReaderPipe(IOControl producerIoControl, ControlledByteBuffer buffer,
+                                     String name, BaseConfiguration baseConfig) {
+        if (ringBufferPipeEnabled) {
+            return new RingBufferPipe(producerIoControl, buffer, name, baseConfig);
+        }
+        return new Pipe(producerIoControl, buffer, name, baseConfig);
+    }
+
     /**
      * Set the consumers IOControl
      * @param consumerIoControl IOControl of the consumer
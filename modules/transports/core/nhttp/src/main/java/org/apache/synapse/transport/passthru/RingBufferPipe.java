@@ -0,0 +1,487 @@
+/*
+ *  Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.passthru;
+
+import org.apache.http.TruncatedChunkException;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.synapse.transport.passthru.config.BaseConfiguration;
+import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Pipe} for the common relay case where exactly one IO reactor thread produces the content and exactly one
+ * IO reactor thread (or one worker thread reading the input stream) consumes it.
+ * <p>
+ * The underlying buffer is used as a ring with separate, monotonically increasing read and write indices, so the
+ * producer and the consumer never need to flip the buffer between input and output modes and never share a lock.
+ * The producer input is suspended only when the ring becomes full and the consumer output is suspended only when
+ * the ring becomes empty, and each side wakes the other only on those transitions.
+ * <p>
+ * Once an output stream is requested from this pipe, the serialized content is written to a separate buffer and
+ * consumed exactly as in the default {@link Pipe}.
+ */
+public class RingBufferPipe extends Pipe {
+
+    /** The byte buffer backing the ring */
+    private final ByteBuffer ring;
+
+    private final int capacity;
+
+    /** View of the ring used by the producer, only accessed by the producer thread */
+    private final ByteBuffer producerView;
+
+    /** View of the ring used by the consumer, only accessed by the consumer thread */
+    private final ByteBuffer consumerView;
+
+    /** Total number of bytes produced in to the ring, only written by the producer */
+    private volatile long writeIndex = 0;
+
+    /** Total number of bytes consumed from the ring, only written by the consumer */
+    private volatile long readIndex = 0;
+
+    private final IOControl producerIoControl;
+
+    private volatile IOControl consumerIoControl;
+
+    /** Set when the producer input is suspended since the ring is full */
+    private final AtomicBoolean producerSuspended = new AtomicBoolean(false);
+
+    /** Set when the consumer output is suspended since the ring is empty */
+    private final AtomicBoolean consumerSuspended = new AtomicBoolean(false);
+
+    /** Thread parked on the input stream of this pipe waiting for data */
+    private volatile Thread waitingReader;
+
+    private volatile boolean producerCompleted = false;
+
+    private volatile boolean producerError = false;
+
+    private volatile boolean consumerError = false;
+
+    /** Whether the content is serialized in to a separate output buffer */
+    private volatile boolean outputStreamRequested = false;
+
+    private InputStream inputStream;
+
+    public RingBufferPipe(IOControl producerIoControl, ControlledByteBuffer buffer,
+                          String name, BaseConfiguration baseConfig) {
+        super(producerIoControl, buffer, name, baseConfig);
+        this.producerIoControl = producerIoControl;
+        this.ring = buffer.getByteBuffer();
+        this.capacity = ring.capacity();
+        this.producerView = ring.duplicate();
+        this.consumerView = ring.duplicate();
+    }
+
+    @Override
+    public void attachConsumer(IOControl consumerIoControl) {
+        super.attachConsumer(consumerIoControl);
+        this.consumerIoControl = consumerIoControl;
+    }
+
+    @Override
+    public boolean isProducerCompleted() {
+        return producerCompleted;
+    }
+
+    @Override
+    public boolean isProducerError() {
+        return producerError;
+    }
+
+    @Override
+    public int produce(final ContentDecoder decoder) throws IOException {
+        if (producerIoControl == null) {
+            throw new IllegalStateException("Producer cannot be null when calling produce");
+        }
+        boolean wasEmpty = writeIndex == readIndex;
+        int totalBytesRead = 0;
+        try {
+            totalBytesRead = fill(decoder);
+        } catch (TruncatedChunkException ex) {
+            // we should add the EoF character
+            putEndOfFile();
+        }
+        producePostActions(decoder, wasEmpty);
+        return totalBytesRead;
+    }
+
+    @Override
+    public ByteBuffer copyAndProduce(final ContentDecoder decoder) throws IOException {
+        if (producerIoControl == null) {
+            throw new IllegalStateException("Producer cannot be null when calling produce");
+        }
+        boolean wasEmpty = writeIndex == readIndex;
+        long start = writeIndex;
+        try {
+            fill(decoder);
+        } catch (TruncatedChunkException ex) {
+            // we should add the EoF character
+            putEndOfFile();
+        }
+        // the produced region is only overwritten by this producer on a later call, hence it is handed out without
+        // a copy unless it wraps around the end of the ring
+        long end = writeIndex;
+        ByteBuffer produced;
+        int offset = (int) (start % capacity);
+        if (offset + (end - start) <= capacity) {
+            produced = ring.duplicate();
+            produced.limit(offset + (int) (end - start));
+            produced.position(offset);
+        } else {
+            produced = copyOf(start, end);
+        }
+        producePostActions(decoder, wasEmpty);
+        return produced;
+    }
+
+    /**
+     * Drains the decoder in to the free region of the ring, until the end of the underlying stream is found or
+     * until the ring is full.
+     *
+     * @param decoder decoder to read bytes from the underlying stream
+     * @return number of bytes read
+     * @throws IOException if an error occurs while reading data
+     */
+    private int fill(ContentDecoder decoder) throws IOException {
+        int totalBytesRead = 0;
+        while (true) {
+            long write = writeIndex;
+            int free = capacity - (int) (write - readIndex);
+            if (free == 0) {
+                break;
+            }
+            int offset = (int) (write % capacity);
+            producerView.limit(capacity);
+            producerView.position(offset);
+            producerView.limit(offset + Math.min(free, capacity - offset));
+            int bytesRead = decoder.read(producerView);
+            if (bytesRead <= 0) {
+                break;
+            }
+            writeIndex = write + bytesRead;
+            totalBytesRead += bytesRead;
+        }
+        return totalBytesRead;
+    }
+
+    private void putEndOfFile() {
+        long write = writeIndex;
+        if (capacity - (int) (write - readIndex) < 4) {
+            return;
+        }
+        for (int i = 0; i < 4; i++) {
+            ring.put((int) ((write + i) % capacity), (byte) 0xff);
+        }
+        writeIndex = write + 4;
+    }
+
+    private void producePostActions(final ContentDecoder decoder, boolean wasEmpty) {
+
+        // if consumer is at error we have to let the producer complete
+        if (consumerError) {
+            readIndex = writeIndex;
+        }
+        if (writeIndex - readIndex == capacity) {
+            // Ring is full. Suspend client input until the consumer frees up some space. The consumer may have
+            // freed up space before the flag was observed, hence check again after suspending
+            producerSuspended.set(true);
+            producerIoControl.suspendInput();
+            if (writeIndex - readIndex < capacity && producerSuspended.compareAndSet(true, false)) {
+                producerIoControl.requestInput();
+            }
+        }
+        if (decoder.isCompleted()) {
+            producerCompleted = true;
+        }
+        boolean hasData = writeIndex != readIndex;
+        if (hasData || producerCompleted) {
+            // wake up the consumer only if it may be waiting for data
+            if (consumerSuspended.compareAndSet(true, false) || (wasEmpty && hasData) || producerCompleted) {
+                IOControl consumer = consumerIoControl;
+                if (consumer != null) {
+                    consumer.requestOutput();
+                }
+            }
+            Thread reader = waitingReader;
+            if (reader != null) {
+                LockSupport.unpark(reader);
+            }
+        }
+    }
+
+    @Override
+    public int consume(final ContentEncoder encoder) throws IOException {
+        if (outputStreamRequested) {
+            return super.consume(encoder);
+        }
+        checkConsumeState();
+        // if producer at error we have to stop the encoding and return immediately
+        if (producerError) {
+            encoder.complete();
+            return -1;
+        }
+        boolean wasFull = writeIndex - readIndex == capacity;
+        int bytesWritten = drain(encoder);
+        readIndex += bytesWritten;
+        consumePostActions(encoder, bytesWritten, wasFull);
+        return bytesWritten;
+    }
+
+    @Override
+    public ByteBuffer copyAndConsume(final ContentEncoder encoder) throws IOException {
+        if (outputStreamRequested) {
+            return super.copyAndConsume(encoder);
+        }
+        checkConsumeState();
+        // if producer at error we have to stop the encoding and return immediately
+        if (producerError) {
+            encoder.complete();
+            return null;
+        }
+        boolean wasFull = writeIndex - readIndex == capacity;
+        long start = readIndex;
+        int bytesWritten = drain(encoder);
+        // the consumed region is copied before the read index is published to the producer
+        ByteBuffer copy = copyOf(start, start + bytesWritten);
+        readIndex = start + bytesWritten;
+        consumePostActions(encoder, bytesWritten, wasFull);
+        return copy;
+    }
+
+    private void checkConsumeState() {
+        if (consumerIoControl == null) {
+            throw new IllegalStateException("Consumer cannot be null when calling consume");
+        }
+        if (producerIoControl == null) {
+            throw new IllegalStateException("Producer cannot be null when calling consume");
+        }
+    }
+
+    /**
+     * Writes the available content of the ring to the encoder. The read index is published by the caller, so that
+     * the consumed content can be copied before the producer is allowed to overwrite it.
+     *
+     * @param encoder encoder used to write the data
+     * @return number of bytes written
+     * @throws IOException if an error occurs while writing data
+     */
+    private int drain(ContentEncoder encoder) throws IOException {
+        long read = readIndex;
+        long start = read;
+        long write = writeIndex;
+        while (read < write) {
+            int offset = (int) (read % capacity);
+            int available = (int) Math.min(write - read, capacity - offset);
+            consumerView.limit(capacity);
+            consumerView.position(offset);
+            consumerView.limit(offset + available);
+            int bytesWritten = encoder.write(consumerView);
+            if (bytesWritten <= 0) {
+                break;
+            }
+            read += bytesWritten;
+            if (bytesWritten < available) {
+                // the channel cannot accept more data at the moment
+                break;
+            }
+        }
+        return (int) (read - start);
+    }
+
+    private void consumePostActions(ContentEncoder encoder, int bytesWritten, boolean wasFull) throws IOException {
+        if (readIndex == writeIndex) {
+            if (producerCompleted) {
+                // the producer completes only after publishing all of the content
+                if (readIndex == writeIndex) {
+                    encoder.complete();
+                }
+            } else {
+                // Ring is empty. Wait until the producer fills up the ring. The producer may have filled it before
+                // the flag was observed, hence check again after suspending
+                consumerSuspended.set(true);
+                consumerIoControl.suspendOutput();
+                if ((readIndex != writeIndex || producerCompleted) && consumerSuspended.compareAndSet(true, false)) {
+                    consumerIoControl.requestOutput();
+                }
+            }
+        }
+        if (bytesWritten > 0 && !encoder.isCompleted() && !producerCompleted) {
+            wakeUpProducer(wasFull);
+        }
+    }
+
+    private void wakeUpProducer(boolean wasFull) {
+        if (producerSuspended.compareAndSet(true, false) || wasFull) {
+            producerIoControl.requestInput();
+        }
+    }
+
+    private ByteBuffer copyOf(long from, long to) {
+        int length = (int) (to - from);
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        for (long index = from; index < to; ) {
+            int offset = (int) (index % capacity);
+            int chunk = (int) Math.min(to - index, capacity - offset);
+            ByteBuffer view = ring.duplicate();
+            view.limit(offset + chunk);
+            view.position(offset);
+            copy.put(view);
+            index += chunk;
+        }
+        copy.flip();
+        return copy;
+    }
+
+    @Override
+    public void forceProducerComplete(final ContentDecoder decoder) {
+        //no need to mark EoS if decoder is completed
+        if (!decoder.isCompleted()) {
+            producerCompleted = true;
+            Thread reader = waitingReader;
+            if (reader != null) {
+                LockSupport.unpark(reader);
+            }
+            //let consumer complete = clear consumerIoControl.suspendOutput();
+            IOControl consumer = consumerIoControl;
+            if (consumer != null) {
+                consumerSuspended.set(false);
+                consumer.requestOutput();
+            }
+        }
+    }
+
+    @Override
+    public void consumerError() {
+        consumerError = true;
+        super.consumerError();
+    }
+
+    @Override
+    public void producerError() {
+        producerError = true;
+        super.producerError();
+        Thread reader = waitingReader;
+        if (reader != null) {
+            LockSupport.unpark(reader);
+        }
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() {
+        if (inputStream == null) {
+            inputStream = new RingInputStream();
+        }
+        return inputStream;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() {
+        outputStreamRequested = true;
+        return super.getOutputStream();
+    }
+
+    @Override
+    public synchronized OutputStream resetOutputStream() {
+        outputStreamRequested = true;
+        return super.resetOutputStream();
+    }
+
+    @Override
+    public boolean isConsumeRequired() throws IOException {
+        return readIndex != writeIndex;
+    }
+
+    /**
+     * Reads the content of the ring on a worker thread, parking the thread only while the ring is empty.
+     */
+    private class RingInputStream extends InputStream {
+
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (b == null) {
+                return 0;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (!waitForData()) {
+                return -1;
+            }
+            long read = readIndex;
+            boolean wasFull = writeIndex - read == capacity;
+            int offset = (int) (read % capacity);
+            int chunk = (int) Math.min(Math.min(writeIndex - read, capacity - offset), len);
+            ByteBuffer view = consumerView;
+            view.limit(capacity);
+            view.position(offset);
+            view.get(b, off, chunk);
+            readIndex = read + chunk;
+            if (!producerCompleted) {
+                wakeUpProducer(wasFull);
+            }
+            return chunk;
+        }
+
+        /**
+         * Waits until the ring has some data to be read.
+         *
+         * @return false if the end of the stream is reached or the producer is at error
+         * @throws IOException if interrupted while waiting
+         */
+        private boolean waitForData() throws IOException {
+            if (readIndex != writeIndex) {
+                return true;
+            }
+            waitingReader = Thread.currentThread();
+            try {
+                while (readIndex == writeIndex && !producerCompleted && !producerError) {
+                    producerIoControl.requestInput();
+                    // re-check after publishing the waiting reader, the producer unparks it only after publishing
+                    // the content
+                    if (readIndex != writeIndex || producerCompleted || producerError) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                    if (Thread.interrupted()) {
+                        throw new IOException("Interrupted while waiting for data");
+                    }
+                }
+            } finally {
+                waitingReader = null;
+            }
+            return readIndex != writeIndex && !producerError;
+        }
+    }
+}
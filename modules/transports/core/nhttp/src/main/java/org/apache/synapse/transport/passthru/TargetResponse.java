@@ -121,7 +121,7 @@ public class TargetResponse {
 
         if (expectResponseBody) {
             pipe
-                = new Pipe(conn, targetConfiguration.getBufferFactory().getBuffer(), "target", targetConfiguration);
+                = Pipe.newReaderPipe(conn, targetConfiguration.getBufferFactory().getBuffer(), "target", targetConfiguration);
 
             TargetContext.get(conn).setReader(pipe);
 
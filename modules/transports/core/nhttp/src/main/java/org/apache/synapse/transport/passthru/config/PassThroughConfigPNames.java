@@ -128,4 +128,21 @@ public interface PassThroughConfigPNames {
      * Defines whether viewing services are enabled or not
      */
     public String BLOCK_SERVICE_LIST = "http.block_service_list";
+
+    /**
+     * Defines whether the content of incoming messages is relayed through a lock-free single producer, single
+     * consumer ring buffer pipe instead of the default lock based pipe
+     */
+    public String PIPE_RING_BUFFER_ENABLED = "http.pipe.ring_buffer.enabled";
+
+    /**
+     * Defines whether the pipe buffers are allocated outside the heap, so that the relayed content is read from and
+     * written to the sockets without being copied through a temporary direct buffer by the NIO channels
+     */
+    public String PIPE_DIRECT_BUFFER_ENABLED = "http.pipe.direct_buffer.enabled";
+
+    /**
+     * Defines the number of released pipe buffers kept for reuse
+     */
+    public String PIPE_BUFFER_POOL_SIZE = "http.pipe.buffer_pool_size";
 }
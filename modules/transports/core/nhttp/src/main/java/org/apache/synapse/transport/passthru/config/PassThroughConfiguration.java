@@ -50,6 +50,7 @@ public class PassThroughConfiguration {
     private static final int DEFAULT_MAX_ACTIVE_CON = -1;
     private static final int DEFAULT_LISTENER_SHUTDOWN_WAIT_TIME = 0;
     private static final int DEFAULT_CONNECTION_GRACE_TIME = 10000;
+    private static final int DEFAULT_PIPE_BUFFER_POOL_SIZE = 512;
     private Boolean isKeepAliveDisabled = null;
 
     //additional rest dispatch handlers
@@ -295,6 +296,21 @@ public class PassThroughConfiguration {
                 .getBooleanProperty(PassThroughConfigPNames.HTTP_LISTENING_IO_REACTOR_SHARING_ENABLE, false, props);
     }
 
+    public boolean isRingBufferPipeEnabled() {
+        return ConfigurationBuilderUtil
+                .getBooleanProperty(PassThroughConfigPNames.PIPE_RING_BUFFER_ENABLED, false, props);
+    }
+
+    public boolean isDirectBufferPipeEnabled() {
+        return ConfigurationBuilderUtil
+                .getBooleanProperty(PassThroughConfigPNames.PIPE_DIRECT_BUFFER_ENABLED, false, props);
+    }
+
+    public int getPipeBufferPoolSize() {
+        return ConfigurationBuilderUtil.getIntProperty(PassThroughConfigPNames.PIPE_BUFFER_POOL_SIZE,
+                DEFAULT_PIPE_BUFFER_POOL_SIZE, props);
+    }
+
     public String getAllowedResponseProperties() {
         return ConfigurationBuilderUtil.getStringProperty(ALLOWED_RESPONSE_PROPERTIES, null, props);
     }
@@ -25,18 +25,28 @@ import org.apache.http.protocol.HttpContext;
 import org.apache.synapse.transport.http.conn.SynapseHTTPRequestFactory;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This stores connections for a particular host + port.
+ * This stores connections for a particular host + port. The pool is not locked: free connections
+ * are kept in a concurrent stack, so that the connection released last, which is the least likely
+ * to have been closed by the server, is reused first, and the connection limit is enforced with
+ * an atomic counter of the connections in use and being established.
  */
 public class HostConnections {
     private static final Log log = LogFactory.getLog(HostConnections.class);
+    /**
+     * context attribute marking a connection which was closed, and is no longer pooled
+     */
+    private static final String FORGOTTEN = "HOST_CONNECTION_FORGOTTEN";
     /**
      * route
      */
@@ -48,7 +58,11 @@ public class HostConnections {
     /**
      * number of awaiting connections
      */
-    private int pendingConnections;
+    private final AtomicInteger pendingConnections = new AtomicInteger(0);
+    /**
+     * number of connections in use and awaiting connections, which is limited by the maximum size
+     */
+    private final AtomicInteger leasedConnections = new AtomicInteger(0);
     /**
      * connection idle time for connection removal
      */
@@ -64,15 +78,19 @@ public class HostConnections {
     private int connectionGraceTime;
 
     /**
-     * list of free connections available
+     * stack of free connections available, the connection released last is on top
      */
-    private List<NHttpClientConnection> freeConnections = new ArrayList<NHttpClientConnection>();
+    private Deque<NHttpClientConnection> freeConnections = new ConcurrentLinkedDeque<NHttpClientConnection>();
     /**
-     * list of connections in use
+     * set of connections in use
      */
-    private List<NHttpClientConnection> busyConnections = new ArrayList<NHttpClientConnection>();
+    private Set<NHttpClientConnection> busyConnections =
+            Collections.newSetFromMap(new ConcurrentHashMap<NHttpClientConnection, Boolean>());
 
-    private Lock lock = new ReentrantLock();
+    /**
+     * metrics of the sender, which are notified of the utilization of the pool
+     */
+    private PassThroughTransportMetricsCollector metrics;
 
     public HostConnections(HttpRoute route, int maxSize) {
         if (log.isDebugEnabled()) {
@@ -96,40 +114,44 @@ public class HostConnections {
         this.connectionGraceTime = connectionTimeoutConfiguration.getConnectionGraceTime();
     }
 
+    public HostConnections(HttpRoute route, int maxSize, ConnectionTimeoutConfiguration
+            connectionTimeoutConfiguration, PassThroughTransportMetricsCollector metrics) {
+        this(route, maxSize, connectionTimeoutConfiguration);
+        this.metrics = metrics;
+    }
+
     /**
      * Get a connection for the host:port
      *
      * @return a connection
      */
     public NHttpClientConnection getConnection() {
-        lock.lock();
-        try {
-            while (!freeConnections.isEmpty()) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Returning an existing free connection " + route);
+        NHttpClientConnection conn;
+        while ((conn = freeConnections.pollFirst()) != null) {
+            long currentTime = System.currentTimeMillis();
+            long connectionInitTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
+                                                                                    CONNECTION_INIT_TIME);
+            long expiryTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
+                    CONNECTION_EXPIRY_TIME);
+            if (isMaximumLifeSpanExceeded(currentTime, connectionInitTime) ||  currentTime >= expiryTime
+                    || conn.isStale()) {
+                try {
+                    conn.shutdown();
+                } catch (IOException io) {
+                    log.error("Error occurred while shutting down connection." + io.getMessage(), io);
                 }
-                NHttpClientConnection conn = freeConnections.get(0);
-                long currentTime = System.currentTimeMillis();
-                long connectionInitTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
-                                                                                        CONNECTION_INIT_TIME);
-                long expiryTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
-                        CONNECTION_EXPIRY_TIME);
-                if (isMaximumLifeSpanExceeded(currentTime, connectionInitTime) ||  currentTime >= expiryTime
-                        || conn.isStale()) {
-                    freeConnections.remove(conn);
-                    try {
-                        conn.shutdown();
-                    } catch (IOException io) {
-                        log.error("Error occurred while shutting down connection." + io.getMessage(), io);
+            } else {
+                busyConnections.add(conn);
+                connectionLeased(leasedConnections.incrementAndGet());
+                // the connection may have been forgotten while it was off the free stack
+                if (!isForgotten(conn) || !busyConnections.remove(conn)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Returning an existing free connection " + route);
                     }
-                } else {
-                    freeConnections.remove(conn);
-                    busyConnections.add(conn);
                     return conn;
                 }
+                leasedConnections.decrementAndGet();
             }
-        } finally {
-            lock.unlock();
         }
         return null;
     }
@@ -146,6 +168,12 @@ public class HostConnections {
         return false;
     }
 
+    private void connectionLeased(int leased) {
+        if (metrics != null) {
+            metrics.notifyConnectionPoolUtilization(leased - pendingConnections.get(), maxSize);
+        }
+    }
+
     public void release(NHttpClientConnection conn) {
         conn.getMetrics().reset();
         HttpContext ctx = conn.getContext();
@@ -155,18 +183,17 @@ public class HostConnections {
         ctx.removeAttribute(SynapseHTTPRequestFactory.ENDPOINT_URL);
         ctx.removeAttribute(PassThroughConstants.REQUEST_MESSAGE_CONTEXT);
         ctx.removeAttribute(PassThroughConstants.RESPONSE_MESSAGE_CONTEXT);
-        lock.lock();
-        try {
-            if (busyConnections.remove(conn)) {
-                freeConnections.add(conn);
-            } else {
-                log.error("Attempted to releaseConnection connection not in the busy list");
+        if (busyConnections.remove(conn)) {
+            leasedConnections.decrementAndGet();
+            freeConnections.offerFirst(conn);
+            // the connection may have been forgotten while it was being released
+            if (isForgotten(conn)) {
+                freeConnections.remove(conn);
             }
-        } finally {
-            lock.unlock();
+        } else {
+            log.error("Attempted to releaseConnection connection not in the busy list");
         }
     }
-
     private long getExpiryTime(NHttpClientConnection connection) {
 
         long expiryTime = System.currentTimeMillis();
@@ -186,41 +213,40 @@ public class HostConnections {
     }
 
     public void forget(NHttpClientConnection conn) {
-        lock.lock();
-        try {
-            if (!freeConnections.remove(conn)) {
-                busyConnections.remove(conn);
-            }
-        } finally {
-            lock.unlock();
+        /*
+         * The connection may be moving between the free stack and the busy set, so it is marked
+         * first. Whoever moves a connection checks the mark afterwards and takes a marked
+         * connection out again, and only the one who removes it from the busy set gives its place
+         * in the pool back.
+         */
+        conn.getContext().setAttribute(FORGOTTEN, Boolean.TRUE);
+        if (!freeConnections.remove(conn) && busyConnections.remove(conn)) {
+            leasedConnections.decrementAndGet();
         }
     }
 
+    private boolean isForgotten(NHttpClientConnection conn) {
+        return conn.getContext().getAttribute(FORGOTTEN) != null;
+    }
+
     public void addConnection(NHttpClientConnection conn) {
         if (log.isDebugEnabled()) {
             log.debug("New connection " + route + " is added to the free list");
         }
-        lock.lock();
-        try {
-            pendingConnections--;
-            conn.getContext().setAttribute(PassThroughConstants.CONNECTION_INIT_TIME, System.currentTimeMillis());
-            busyConnections.add(conn);
-        } finally {
-            lock.unlock();
-        }
+        conn.getContext().setAttribute(PassThroughConstants.CONNECTION_INIT_TIME, System.currentTimeMillis());
+        busyConnections.add(conn);
+        // the awaiting connection is now in use, so the number of leased connections does not change
+        pendingConnections.decrementAndGet();
+        connectionLeased(leasedConnections.get());
     }
 
     /**
      * Indicates that a connection has been successfully established with a remote server
      * as notified by the session request call back.
      */
-    public synchronized void pendingConnectionSucceeded() {
-        lock.lock();
-        try {
-            pendingConnections--;
-        } finally {
-            lock.unlock();
-        }
+    public void pendingConnectionSucceeded() {
+        pendingConnections.decrementAndGet();
+        leasedConnections.decrementAndGet();
     }
 
     /**
@@ -228,12 +254,8 @@ public class HostConnections {
      * consecutively
      */
     public void pendingConnectionFailed() {
-        lock.lock();
-        try {
-            pendingConnections--;
-        } finally {
-            lock.unlock();
-        }
+        pendingConnections.decrementAndGet();
+        leasedConnections.decrementAndGet();
     }
 
     public HttpRoute getRoute() {
@@ -241,16 +263,28 @@ public class HostConnections {
     }
 
     public boolean checkAndIncrementPendingConnections() {
-        lock.lock();
-        int totalConnections = busyConnections.size() + pendingConnections;
-        try {
-            if (totalConnections < maxSize) {
-                //We are expecting that this check is made if and only if in the state where new connection is added
-                pendingConnections++;
+        while (true) {
+            int totalConnections = leasedConnections.get();
+            if (totalConnections >= maxSize) {
+                return false;
+            }
+            //We are expecting that this check is made if and only if in the state where new connection is added
+            if (leasedConnections.compareAndSet(totalConnections, totalConnections + 1)) {
+                pendingConnections.incrementAndGet();
+                return true;
             }
-            return totalConnections < maxSize;
-        } finally {
-            lock.unlock();
         }
     }
+
+    public int getBusyConnectionCount() {
+        return busyConnections.size();
+    }
+
+    public int getFreeConnectionCount() {
+        return freeConnections.size();
+    }
+
+    public int getPendingConnectionCount() {
+        return pendingConnections.get();
+    }
 }
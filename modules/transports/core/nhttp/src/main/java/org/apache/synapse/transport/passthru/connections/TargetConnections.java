@@ -32,6 +32,7 @@ import org.apache.synapse.transport.passthru.TargetErrorHandler;
 import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
+import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -39,6 +40,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Manages the connection from transport to the back end servers. It keeps track of the
@@ -48,7 +50,7 @@ public class TargetConnections {
     private static final Log log = LogFactory.getLog(TargetConnections.class);
 
     /** map to hold the ConnectionPools. The key is host:port */
-    private final Map<HttpRoute, HostConnections> poolMap =
+    private final ConcurrentMap<HttpRoute, HostConnections> poolMap =
             new ConcurrentHashMap<HttpRoute, HostConnections>();
 
     private final String sslSchemaName = "https";
@@ -65,6 +67,9 @@ public class TargetConnections {
 
     private ConnectionTimeoutConfiguration connectionTimeoutConfiguration;
 
+    /** metrics of the sender, which are notified of the utilization of the pools */
+    private PassThroughTransportMetricsCollector metrics;
+
     /**
      * Create a TargetConnections with the given IO-Reactor
      *
@@ -79,6 +84,7 @@ public class TargetConnections {
         this.maxConnections = targetConfiguration.getMaxConnections();
         this.ioReactor = ioReactor;
         this.callback = callback;
+        this.metrics = targetConfiguration.getMetrics();
 
         connectionTimeoutConfiguration = new ConnectionTimeoutConfiguration(PassThroughConfiguration.getInstance().
                 getConnectionIdleTime(), PassThroughConfiguration.getInstance().getMaximumConnectionLifespan(),
@@ -214,16 +220,16 @@ public class TargetConnections {
 
     private HostConnections getConnectionPool(HttpRoute route) {
         // see weather a pool already exists for this host:port
-        synchronized (poolMap) {
-            HostConnections pool = poolMap.get(route);
-
+        HostConnections pool = poolMap.get(route);
+        if (pool == null) {
+            HostConnections newPool = new HostConnections(route, maxConnections,
+                    connectionTimeoutConfiguration, metrics);
+            pool = poolMap.putIfAbsent(route, newPool);
             if (pool == null) {
-                pool = new HostConnections(route, maxConnections, connectionTimeoutConfiguration);
-                poolMap.put(route, pool);
+                pool = newPool;
             }
-            return pool;
-
         }
+        return pool;
     }
 
     /**
@@ -35,7 +35,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * the last 24 hours of execution and they get updated every 5 minutes.  In addition to the
  * connection statistics this MBean also provides information on the request and response
  * sizes received over the HTTP connections. All messages are divided into six categories
- * based on their sizes and the resulting counts are made available as a table.
+ * based on their sizes and the resulting counts are made available as a table. The time waited
+ * by requests for a connection of the sender pool, and the utilization of the pool of the
+ * route whenever a connection is leased, are made available as tables in the same way.
  */
 public class ConnectionsView implements ConnectionsViewMBean {
 
@@ -49,6 +51,22 @@ public class ConnectionsView implements ConnectionsViewMBean {
     private static final int LESS_THAN_10M      = 4;
     private static final int GREATER_THAN_10M   = 5;
 
+    // Connection wait time bucket definitions
+    private static final int WAIT_LESS_THAN_1MS     = 0;
+    private static final int WAIT_LESS_THAN_10MS    = 1;
+    private static final int WAIT_LESS_THAN_100MS   = 2;
+    private static final int WAIT_LESS_THAN_1S      = 3;
+    private static final int WAIT_LESS_THAN_10S     = 4;
+    private static final int WAIT_GREATER_THAN_10S  = 5;
+
+    // Connection pool utilization bucket definitions
+    private static final int UTILIZATION_LESS_THAN_25   = 0;
+    private static final int UTILIZATION_LESS_THAN_50   = 1;
+    private static final int UTILIZATION_LESS_THAN_75   = 2;
+    private static final int UTILIZATION_LESS_THAN_90   = 3;
+    private static final int UTILIZATION_LESS_THAN_100  = 4;
+    private static final int UTILIZATION_FULL           = 5;
+
     private static final int SHORT_DATA_COLLECTION_PERIOD = 60;
     private static final int LONG_DATA_COLLECTION_PERIOD = 60 * 5;
 
@@ -66,6 +84,8 @@ public class ConnectionsView implements ConnectionsViewMBean {
     // The array length must be equal to the number of buckets
     private AtomicInteger[] requestSizeCounters = new AtomicInteger[6];
     private AtomicInteger[] responseSizeCounters = new AtomicInteger[6];
+    private AtomicInteger[] connectionWaitTimeCounters = new AtomicInteger[6];
+    private AtomicInteger[] poolUtilizationCounters = new AtomicInteger[6];
 
     private Date resetTime = Calendar.getInstance().getTime();
 
@@ -78,6 +98,8 @@ public class ConnectionsView implements ConnectionsViewMBean {
 
         initCounters(requestSizeCounters);
         initCounters(responseSizeCounters);
+        initCounters(connectionWaitTimeCounters);
+        initCounters(poolUtilizationCounters);
 
         Runnable task = new Runnable() {
             public void run() {
@@ -179,6 +201,42 @@ public class ConnectionsView implements ConnectionsViewMBean {
         }
     }
 
+    protected void notifyConnectionWaitTime(long waitTime) {
+        if (waitTime < 1) {
+            connectionWaitTimeCounters[WAIT_LESS_THAN_1MS].incrementAndGet();
+        } else if (waitTime < 10) {
+            connectionWaitTimeCounters[WAIT_LESS_THAN_10MS].incrementAndGet();
+        } else if (waitTime < 100) {
+            connectionWaitTimeCounters[WAIT_LESS_THAN_100MS].incrementAndGet();
+        } else if (waitTime < 1000) {
+            connectionWaitTimeCounters[WAIT_LESS_THAN_1S].incrementAndGet();
+        } else if (waitTime < 10000) {
+            connectionWaitTimeCounters[WAIT_LESS_THAN_10S].incrementAndGet();
+        } else {
+            connectionWaitTimeCounters[WAIT_GREATER_THAN_10S].incrementAndGet();
+        }
+    }
+
+    protected void notifyConnectionPoolUtilization(int busyConnections, int maxConnections) {
+        if (maxConnections <= 0) {
+            return;
+        }
+        int utilization = (int) (busyConnections * 100L / maxConnections);
+        if (utilization < 25) {
+            poolUtilizationCounters[UTILIZATION_LESS_THAN_25].incrementAndGet();
+        } else if (utilization < 50) {
+            poolUtilizationCounters[UTILIZATION_LESS_THAN_50].incrementAndGet();
+        } else if (utilization < 75) {
+            poolUtilizationCounters[UTILIZATION_LESS_THAN_75].incrementAndGet();
+        } else if (utilization < 90) {
+            poolUtilizationCounters[UTILIZATION_LESS_THAN_90].incrementAndGet();
+        } else if (utilization < 100) {
+            poolUtilizationCounters[UTILIZATION_LESS_THAN_100].incrementAndGet();
+        } else {
+            poolUtilizationCounters[UTILIZATION_FULL].incrementAndGet();
+        }
+    }
+
     public int getActiveConnections() {
         return activeConnections.get();
     }
@@ -215,6 +273,28 @@ public class ConnectionsView implements ConnectionsViewMBean {
         return getCountersMap(responseSizeCounters);
     }
 
+    public Map getConnectionWaitTimesMap() {
+        Map<String,Integer> map = new LinkedHashMap<String,Integer>();
+        map.put("< 1 ms", connectionWaitTimeCounters[WAIT_LESS_THAN_1MS].get());
+        map.put("< 10 ms", connectionWaitTimeCounters[WAIT_LESS_THAN_10MS].get());
+        map.put("< 100 ms", connectionWaitTimeCounters[WAIT_LESS_THAN_100MS].get());
+        map.put("< 1 s", connectionWaitTimeCounters[WAIT_LESS_THAN_1S].get());
+        map.put("< 10 s", connectionWaitTimeCounters[WAIT_LESS_THAN_10S].get());
+        map.put("> 10 s", connectionWaitTimeCounters[WAIT_GREATER_THAN_10S].get());
+        return map;
+    }
+
+    public Map getConnectionPoolUtilizationMap() {
+        Map<String,Integer> map = new LinkedHashMap<String,Integer>();
+        map.put("< 25 %", poolUtilizationCounters[UTILIZATION_LESS_THAN_25].get());
+        map.put("< 50 %", poolUtilizationCounters[UTILIZATION_LESS_THAN_50].get());
+        map.put("< 75 %", poolUtilizationCounters[UTILIZATION_LESS_THAN_75].get());
+        map.put("< 90 %", poolUtilizationCounters[UTILIZATION_LESS_THAN_90].get());
+        map.put("< 100 %", poolUtilizationCounters[UTILIZATION_LESS_THAN_100].get());
+        map.put("100 %", poolUtilizationCounters[UTILIZATION_FULL].get());
+        return map;
+    }
+
     public Date getLastResetTime() {
         return resetTime;
     }
@@ -235,6 +315,8 @@ public class ConnectionsView implements ConnectionsViewMBean {
     public void reset() {
         initCounters(requestSizeCounters);
         initCounters(responseSizeCounters);
+        initCounters(connectionWaitTimeCounters);
+        initCounters(poolUtilizationCounters);
         shortTermDataQueue.clear();
         longTermDataQueue.clear();
         resetTime = Calendar.getInstance().getTime();
@@ -33,6 +33,8 @@ public interface ConnectionsViewMBean {
     public int getLast24HourConnections();
     public Map getRequestSizesMap();
     public Map getResponseSizesMap();
+    public Map getConnectionWaitTimesMap();
+    public Map getConnectionPoolUtilizationMap();
     public Date getLastResetTime();
 
     public void reset();
@@ -109,6 +109,29 @@ public class PassThroughTransportMetricsCollector extends MetricsCollector {
         }
     }
 
+    /**
+     * A request has got a connection from the pool of the sender
+     *
+     * @param waitTime time waited by the request for the connection, in milliseconds
+     */
+    public void notifyConnectionWaitTime(long waitTime) {
+        if (!metricsCollectionDisabled) {
+            view.notifyConnectionWaitTime(waitTime);
+        }
+    }
+
+    /**
+     * A connection of the pool of a route has been leased
+     *
+     * @param busyConnections number of connections of the route in use
+     * @param maxConnections  maximum number of connections of the route
+     */
+    public void notifyConnectionPoolUtilization(int busyConnections, int maxConnections) {
+        if (!metricsCollectionDisabled) {
+            view.notifyConnectionPoolUtilization(busyConnections, maxConnections);
+        }
+    }
+
     public int getActiveConnectionCount() {
         return view.getActiveConnections();
     }
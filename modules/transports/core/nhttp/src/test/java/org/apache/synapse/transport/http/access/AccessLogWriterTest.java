@@ -0,0 +1,134 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.access;
+
+import junit.framework.TestCase;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Test class for AccessLogWriter
+ */
+public class AccessLogWriterTest extends TestCase {
+
+    private static final Log log = LogFactory.getLog(AccessLogWriterTest.class);
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+
+    /**
+     * Lines are dropped and counted while the ring buffer is full, and the others are written in
+     * the order they were logged.
+     */
+    public void testLinesDroppedWhenFull() {
+        TestAccessLogger accessLogger = new TestAccessLogger();
+        AccessLogWriter writer = new AccessLogWriter(log, accessLogger, 3, 1024, 60000);
+        assertEquals(4, writer.getCapacity());
+
+        for (int i = 0; i < 6; i++) {
+            writeLine(writer, "line " + i);
+        }
+        assertEquals(4, writer.getQueuedLineCount());
+        assertEquals(2, writer.getDroppedLineCount());
+
+        writer.start();
+        writer.stop();
+        assertEquals("line 0" + LINE_SEPARATOR + "line 1" + LINE_SEPARATOR + "line 2" + LINE_SEPARATOR
+                + "line 3" + LINE_SEPARATOR, accessLogger.flushed.toString());
+        assertEquals(4, writer.getWrittenLineCount());
+        assertEquals(0, writer.getQueuedLineCount());
+    }
+
+    /**
+     * Lines logged concurrently are all written and flushed when the writer is stopped, including
+     * lines longer than a batch.
+     */
+    public void testConcurrentLines() throws Exception {
+        TestAccessLogger accessLogger = new TestAccessLogger();
+        final AccessLogWriter writer = new AccessLogWriter(log, accessLogger, 64, 16, 60000);
+        writer.start();
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int thread = i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 500; j++) {
+                        while (!writeLine(writer, "thread " + thread + " line " + j)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.stop();
+
+        String[] lines = accessLogger.flushed.toString().split(LINE_SEPARATOR);
+        assertEquals(2000, lines.length);
+        assertEquals(2000, writer.getWrittenLineCount());
+        int[] next = new int[threads.length];
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            int thread = Integer.parseInt(parts[1]);
+            assertEquals(next[thread]++, Integer.parseInt(parts[3]));
+        }
+    }
+
+    private static boolean writeLine(AccessLogWriter writer, String text) {
+        long position = writer.claim();
+        if (position < 0) {
+            return false;
+        }
+        writer.getLine(position).append(text);
+        writer.publish(position);
+        return true;
+    }
+
+    /**
+     * An access logger which keeps the lines in memory instead of a log file
+     */
+    private static class TestAccessLogger extends AccessLogger {
+
+        private final StringBuilder written = new StringBuilder();
+
+        private final StringBuilder flushed = new StringBuilder();
+
+        TestAccessLogger() {
+            super(log);
+        }
+
+        @Override
+        protected synchronized void open() {
+        }
+
+        @Override
+        public synchronized void write(char[] lines, int offset, int length) {
+            written.append(lines, offset, length);
+        }
+
+        @Override
+        public synchronized void flush() {
+            flushed.append(written);
+            written.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ *  Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.passthru;
+
+import junit.framework.TestCase;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test class for RingBufferPipe, which also compares the relay throughput with the default Pipe
+ */
+public class RingBufferPipeTest extends TestCase {
+
+    private static final Log log = LogFactory.getLog(RingBufferPipeTest.class);
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final byte[] PAYLOAD = new byte[1024 * 1024];
+
+    static {
+        new Random(42).nextBytes(PAYLOAD);
+    }
+
+    /**
+     * Relays a payload through the pipe with a producer and a consumer thread and checks the content.
+     */
+    public void testRelay() throws Exception {
+        TestIOControl producerControl = new TestIOControl();
+        byte[] relayed = relay(newRingBufferPipe(producerControl), producerControl);
+        assertTrue("Relayed content does not match", Arrays.equals(PAYLOAD, relayed));
+    }
+
+    /**
+     * Relays a payload through a pipe backed by a direct buffer, as allocated when direct buffer relay is enabled.
+     */
+    public void testRelayWithDirectBuffer() throws Exception {
+        TestIOControl producerControl = new TestIOControl();
+        Pipe pipe = new RingBufferPipe(producerControl,
+                new ControlledByteBuffer(ByteBuffer.allocateDirect(BUFFER_SIZE)), "test", null);
+        byte[] relayed = relay(pipe, producerControl);
+        assertTrue("Relayed content does not match", Arrays.equals(PAYLOAD, relayed));
+    }
+
+    /**
+     * Checks the content handed out to the stream interceptors, including content wrapping around the ring.
+     */
+    public void testCopyAndProduce() throws Exception {
+        TestIOControl producerControl = new TestIOControl();
+        TestIOControl consumerControl = new TestIOControl();
+        Pipe pipe = newRingBufferPipe(producerControl);
+        pipe.attachConsumer(consumerControl);
+        TestDecoder decoder = new TestDecoder(PAYLOAD, 5000);
+        TestEncoder encoder = new TestEncoder(PAYLOAD.length);
+
+        int produced = 0;
+        while (!decoder.isCompleted()) {
+            ByteBuffer chunk = pipe.copyAndProduce(decoder);
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            assertTrue("Produced content does not match",
+                    Arrays.equals(Arrays.copyOfRange(PAYLOAD, produced, produced + bytes.length), bytes));
+            produced += bytes.length;
+            pipe.consume(encoder);
+        }
+        while (!encoder.isCompleted()) {
+            pipe.consume(encoder);
+        }
+        assertEquals(PAYLOAD.length, produced);
+        assertTrue("Relayed content does not match", Arrays.equals(PAYLOAD, encoder.toByteArray()));
+    }
+
+    /**
+     * Reads the content of the pipe through its input stream as done when the message is built.
+     */
+    public void testInputStream() throws Exception {
+        final TestIOControl producerControl = new TestIOControl();
+        final Pipe pipe = newRingBufferPipe(producerControl);
+        final TestDecoder decoder = new TestDecoder(PAYLOAD, 1000);
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (!decoder.isCompleted()) {
+                        producerControl.awaitInput();
+                        pipe.produce(decoder);
+                    }
+                } catch (IOException e) {
+                    pipe.producerError();
+                }
+            }
+        });
+        producer.start();
+
+        InputStream in = pipe.getInputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[3000];
+        int read;
+        while ((read = in.read(chunk, 0, chunk.length)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        producer.join(10000);
+        assertTrue("Content read from the input stream does not match", Arrays.equals(PAYLOAD, out.toByteArray()));
+        assertFalse(pipe.isConsumeRequired());
+    }
+
+    /**
+     * Compares the throughput of relaying content through the default Pipe and the RingBufferPipe.
+     */
+    public void testThroughputComparison() throws Exception {
+        int iterations = 20;
+        // warm up both implementations before measuring
+        measure(false, 5);
+        measure(true, 5);
+
+        long lockBased = measure(false, iterations);
+        long ringBuffer = measure(true, iterations);
+        double megaBytes = (double) PAYLOAD.length * iterations / (1024 * 1024);
+        log.info(String.format("Relayed %.0f MB : Pipe %.1f MB/s, RingBufferPipe %.1f MB/s", megaBytes,
+                megaBytes / (lockBased / 1e9), megaBytes / (ringBuffer / 1e9)));
+    }
+
+    private long measure(boolean ringBuffer, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            TestIOControl producerControl = new TestIOControl();
+            Pipe pipe = ringBuffer ? newRingBufferPipe(producerControl) : new Pipe(producerControl,
+                    new ControlledByteBuffer(ByteBuffer.allocate(BUFFER_SIZE)), "test", null);
+            byte[] relayed = relay(pipe, producerControl);
+            assertEquals(PAYLOAD.length, relayed.length);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private Pipe newRingBufferPipe(IOControl producerControl) {
+        return new RingBufferPipe(producerControl, new ControlledByteBuffer(ByteBuffer.allocate(BUFFER_SIZE)),
+                "test", null);
+    }
+
+    /**
+     * Relays the payload through the pipe, emulating the IO reactor threads of the source and the target
+     * connections. Each thread only calls the pipe while its connection is not suspended.
+     */
+    private byte[] relay(final Pipe pipe, final TestIOControl producerControl) throws Exception {
+        final TestIOControl consumerControl = new TestIOControl();
+        final TestDecoder decoder = new TestDecoder(PAYLOAD, 4096);
+        final TestEncoder encoder = new TestEncoder(PAYLOAD.length);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        pipe.attachConsumer(consumerControl);
+
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (!decoder.isCompleted()) {
+                        producerControl.awaitInput();
+                        pipe.produce(decoder);
+                    }
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }
+        });
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (!encoder.isCompleted()) {
+                        consumerControl.awaitOutput();
+                        pipe.consume(encoder);
+                    }
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }
+        });
+        producer.start();
+        consumer.start();
+        producer.join(30000);
+        consumer.join(30000);
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        assertTrue("Relay did not complete", encoder.isCompleted());
+        return encoder.toByteArray();
+    }
+
+    /**
+     * IOControl which lets the emulated reactor thread wait while the input or output is suspended.
+     */
+    private static class TestIOControl implements IOControl {
+
+        private volatile boolean inputSuspended = false;
+        private volatile boolean outputSuspended = false;
+
+        public void requestInput() {
+            inputSuspended = false;
+        }
+
+        public void suspendInput() {
+            inputSuspended = true;
+        }
+
+        public void requestOutput() {
+            outputSuspended = false;
+        }
+
+        public void suspendOutput() {
+            outputSuspended = true;
+        }
+
+        public void shutdown() {
+        }
+
+        void awaitInput() {
+            while (inputSuspended) {
+                Thread.yield();
+            }
+        }
+
+        void awaitOutput() {
+            while (outputSuspended) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Decoder which reads the payload in chunks, as a network channel would.
+     */
+    private static class TestDecoder implements ContentDecoder {
+
+        private final byte[] payload;
+        private final int chunkSize;
+        private int position = 0;
+
+        TestDecoder(byte[] payload, int chunkSize) {
+            this.payload = payload;
+            this.chunkSize = chunkSize;
+        }
+
+        public int read(ByteBuffer dst) {
+            if (position == payload.length) {
+                return -1;
+            }
+            int length = Math.min(Math.min(chunkSize, dst.remaining()), payload.length - position);
+            dst.put(payload, position, length);
+            position += length;
+            // only a single chunk is available from the channel per read event
+            return length;
+        }
+
+        public boolean isCompleted() {
+            return position == payload.length;
+        }
+    }
+
+    /**
+     * Encoder which collects the written content.
+     */
+    private static class TestEncoder implements ContentEncoder {
+
+        private final byte[] content;
+        private int position = 0;
+        private boolean completed = false;
+
+        TestEncoder(int size) {
+            this.content = new byte[size];
+        }
+
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            src.get(content, position, length);
+            position += length;
+            return length;
+        }
+
+        public void complete() {
+            completed = true;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(content, position);
+        }
+    }
+}
@@ -22,17 +22,23 @@ package org.apache.synapse.transport.passthru.connections;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import org.apache.http.HttpConnectionMetrics;
 import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.powermock.api.support.membermodification.MemberModifier;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Mockito.times;
 
@@ -54,7 +60,7 @@ public class HostConnectionsTest {
                                   final int connectionGraceTime) throws Exception {
 
         NHttpClientConnection nHttpClientConnection = Mockito.mock(NHttpClientConnection.class);
-        List<NHttpClientConnection> freeConnections = new ArrayList<>();
+        Deque<NHttpClientConnection> freeConnections = new ConcurrentLinkedDeque<>();
         freeConnections.add(nHttpClientConnection);
         ConnectionTimeoutConfiguration conf = new ConnectionTimeoutConfiguration(connectionIdleTime,
                 maximumConnectionLifeSpan, connectionGraceTime);
@@ -77,4 +83,133 @@ public class HostConnectionsTest {
         hostConnections.getConnection();
         Mockito.verify(nHttpClientConnection, times(1)).shutdown();
     }
+
+    /**
+     * The connection released last is reused first.
+     */
+    @Test
+    public void testLastReleasedConnectionIsReused() {
+        HostConnections hostConnections = new HostConnections(null, 2, new ConnectionTimeoutConfiguration(
+                60000, 0, 0));
+        NHttpClientConnection first = createConnection();
+        NHttpClientConnection second = createConnection();
+        Assert.assertTrue(hostConnections.checkAndIncrementPendingConnections());
+        hostConnections.addConnection(first);
+        Assert.assertTrue(hostConnections.checkAndIncrementPendingConnections());
+        hostConnections.addConnection(second);
+
+        hostConnections.release(first);
+        hostConnections.release(second);
+        Assert.assertEquals(2, hostConnections.getFreeConnectionCount());
+        Assert.assertSame(second, hostConnections.getConnection());
+        Assert.assertSame(first, hostConnections.getConnection());
+        Assert.assertNull(hostConnections.getConnection());
+        Assert.assertEquals(2, hostConnections.getBusyConnectionCount());
+
+        hostConnections.forget(first);
+        Assert.assertEquals(1, hostConnections.getBusyConnectionCount());
+        Assert.assertTrue(hostConnections.checkAndIncrementPendingConnections());
+    }
+
+    /**
+     * Connections in use and awaiting connections are not allowed to exceed the maximum size of the
+     * pool when requested concurrently.
+     */
+    @Test
+    public void testMaximumConnectionsUnderContention() throws Exception {
+        final HostConnections hostConnections = new HostConnections(null, 5);
+        final AtomicInteger granted = new AtomicInteger(0);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 1000; j++) {
+                        if (hostConnections.checkAndIncrementPendingConnections()) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(5, granted.get());
+        Assert.assertEquals(5, hostConnections.getPendingConnectionCount());
+
+        hostConnections.pendingConnectionFailed();
+        Assert.assertEquals(4, hostConnections.getPendingConnectionCount());
+        Assert.assertTrue(hostConnections.checkAndIncrementPendingConnections());
+    }
+
+    /**
+     * Connections closed while they are being leased and released concurrently give their place in
+     * the pool back.
+     */
+    @Test
+    public void testForgetWhileLeasing() throws Exception {
+        for (int round = 0; round < 100; round++) {
+            final HostConnections hostConnections = new HostConnections(null, 4, new ConnectionTimeoutConfiguration(
+                    60000, 0, 0));
+            final NHttpClientConnection[] connections = new NHttpClientConnection[4];
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = createConnection();
+                Assert.assertTrue(hostConnections.checkAndIncrementPendingConnections());
+                hostConnections.addConnection(connections[i]);
+                hostConnections.release(connections[i]);
+            }
+            final AtomicBoolean done = new AtomicBoolean(false);
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[2];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        while (!done.get()) {
+                            NHttpClientConnection connection = hostConnections.getConnection();
+                            if (connection != null) {
+                                hostConnections.release(connection);
+                            }
+                        }
+                    }
+                });
+                threads[i].start();
+            }
+            start.countDown();
+            for (NHttpClientConnection connection : connections) {
+                hostConnections.forget(connection);
+            }
+            done.set(true);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            Assert.assertEquals(0, hostConnections.getFreeConnectionCount());
+            Assert.assertEquals(0, hostConnections.getBusyConnectionCount());
+            Assert.assertNull(hostConnections.getConnection());
+            for (int i = 0; i < connections.length; i++) {
+                Assert.assertTrue(hostConnections.checkAndIncrementPendingConnections());
+            }
+            Assert.assertFalse(hostConnections.checkAndIncrementPendingConnections());
+        }
+    }
+
+    private NHttpClientConnection createConnection() {
+        NHttpClientConnection connection = Mockito.mock(NHttpClientConnection.class);
+        Mockito.when(connection.getContext()).thenReturn(new BasicHttpContext());
+        Mockito.when(connection.getMetrics()).thenReturn(Mockito.mock(HttpConnectionMetrics.class));
+        return connection;
+    }
 }
@@ -0,0 +1,265 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches local directories with the file system watch service, and reports the directories in
+ * which files were created or written. As the watch service does not report when a file is
+ * closed, a file is only reported once it has been left unchanged for the settle time of its
+ * directory, and a directory is reported at once when the watch service lost events.
+ *
+ * The events are received and reported on a single daemon thread, so the listener should hand
+ * the work off to another thread.
+ *
+ * @param <T> the owner of a watched directory, such as a poll table entry
+ */
+public class DirectoryWatcher<T> {
+
+    private static final Log log = LogFactory.getLog(DirectoryWatcher.class);
+
+    /* The longest time the watcher thread waits for events, so that it notices it is stopped */
+    private static final long MAX_WAIT_TIME = 1000;
+
+    /**
+     * Receives the directories in which files were created or written
+     */
+    public interface Listener<T> {
+
+        /**
+         * @param owner the owner of the directory
+         */
+        void directoryChanged(T owner);
+    }
+
+    private final Listener<T> listener;
+
+    private final WatchService watchService;
+
+    private final ConcurrentMap<WatchKey, Watch<T>> watchesByKey = new ConcurrentHashMap<WatchKey, Watch<T>>();
+
+    private final ConcurrentMap<T, Watch<T>> watchesByOwner = new ConcurrentHashMap<T, Watch<T>>();
+
+    /* The files changed recently, mapped to the time they settle at */
+    private final ConcurrentMap<Path, SettlingFile<T>> settlingFiles =
+            new ConcurrentHashMap<Path, SettlingFile<T>>();
+
+    private final Thread thread;
+
+    private volatile boolean running = false;
+
+    public DirectoryWatcher(Listener<T> listener) throws IOException {
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(new Runnable() {
+            public void run() {
+                watchDirectories();
+            }
+        }, "VFSDirectoryWatcher");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.debug("Error occurred while closing the watch service.", e);
+        }
+    }
+
+    /**
+     * Start watching a directory
+     *
+     * @param owner the owner of the directory
+     * @param directory the directory
+     * @param settleTime the time in milliseconds a file must be left unchanged before it is reported
+     * @throws IOException if the directory cannot be watched
+     */
+    public void watch(T owner, Path directory, long settleTime) throws IOException {
+        WatchKey key = directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Watch<T> watch = new Watch<T>(owner, directory, key, TimeUnit.MILLISECONDS.toNanos(settleTime));
+        watchesByKey.put(key, watch);
+        Watch<T> previous = watchesByOwner.put(owner, watch);
+        if (previous != null && previous.key != key) {
+            unregister(previous);
+        }
+    }
+
+    /**
+     * Stop watching the directory of an owner
+     *
+     * @param owner the owner of the directory
+     */
+    public void unwatch(T owner) {
+        Watch<T> watch = watchesByOwner.remove(owner);
+        if (watch != null) {
+            unregister(watch);
+        }
+    }
+
+    public boolean isWatching(T owner) {
+        return watchesByOwner.containsKey(owner);
+    }
+
+    /**
+     * Check whether a file of a watched directory has changed within the settle time
+     *
+     * @param owner the owner of the directory
+     * @param fileName the name of the file
+     * @return true if the file should not be picked up yet
+     */
+    public boolean isSettling(T owner, String fileName) {
+        if (settlingFiles.isEmpty()) {
+            return false;
+        }
+        Watch<T> watch = watchesByOwner.get(owner);
+        return watch != null && settlingFiles.containsKey(watch.directory.resolve(fileName));
+    }
+
+    private void unregister(Watch<T> watch) {
+        watch.key.cancel();
+        watchesByKey.remove(watch.key);
+        for (Iterator<SettlingFile<T>> it = settlingFiles.values().iterator(); it.hasNext();) {
+            if (it.next().watch == watch) {
+                it.remove();
+            }
+        }
+    }
+
+    private void watchDirectories() {
+        while (running) {
+            Set<T> changed = new LinkedHashSet<T>();
+            WatchKey key;
+            try {
+                key = watchService.poll(getWaitTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+            if (key != null) {
+                Watch<T> watch = watchesByKey.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (watch == null) {
+                        continue;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        changed.add(watch.owner);
+                        continue;
+                    }
+                    Path file = (Path) event.context();
+                    // lock files are created by the listener itself
+                    if (!file.toString().endsWith(".lock")) {
+                        settlingFiles.put(watch.directory.resolve(file),
+                                new SettlingFile<T>(watch, System.nanoTime() + watch.settleTime));
+                    }
+                }
+                if (!key.reset() && watch != null) {
+                    log.warn("Directory : " + watch.directory + " is no longer watched, it will be polled");
+                    watchesByOwner.remove(watch.owner, watch);
+                    unregister(watch);
+                }
+            }
+
+            long now = System.nanoTime();
+            for (Iterator<SettlingFile<T>> it = settlingFiles.values().iterator(); it.hasNext();) {
+                SettlingFile<T> settlingFile = it.next();
+                if (settlingFile.settleTime - now <= 0) {
+                    it.remove();
+                    changed.add(settlingFile.watch.owner);
+                }
+            }
+            for (T owner : changed) {
+                try {
+                    listener.directoryChanged(owner);
+                } catch (Throwable t) {
+                    log.error("Error occurred while reporting a changed directory.", t);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the time in nanoseconds until the next file settles
+     */
+    private long getWaitTime() {
+        long waitTime = TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_TIME);
+        long now = System.nanoTime();
+        for (SettlingFile<T> settlingFile : settlingFiles.values()) {
+            waitTime = Math.min(waitTime, settlingFile.settleTime - now);
+        }
+        return Math.max(waitTime, 1);
+    }
+
+    /**
+     * A watched directory
+     */
+    private static final class Watch<T> {
+        private final T owner;
+        private final Path directory;
+        private final WatchKey key;
+        private final long settleTime;
+
+        private Watch(T owner, Path directory, WatchKey key, long settleTime) {
+            this.owner = owner;
+            this.directory = directory;
+            this.key = key;
+            this.settleTime = settleTime;
+        }
+    }
+
+    /**
+     * A file changed recently
+     */
+    private static final class SettlingFile<T> {
+        private final Watch<T> watch;
+        private final long settleTime;
+
+        private SettlingFile(Watch<T> watch, long settleTime) {
+            this.watch = watch;
+            this.settleTime = settleTime;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the state of the incremental scan of the directory of a {@link PollTableEntry}. The names
+ * of the files which were picked up by a scan are remembered, so that the following scans skip
+ * them without looking at the files, until they are moved or deleted after processing or no
+ * longer listed in the directory.
+ *
+ * The files picked up by a scan are processed on the worker pool, by up to the configured number
+ * of threads at the same time, including the polling thread which processes a file itself when
+ * every other permit is taken.
+ *
+ * A directory is scanned by one thread at a time. A scan requested while another scan is
+ * running is done by the running thread once it completes, so that the files reported by a
+ * {@link DirectoryWatcher} while the directory is scanned are not missed.
+ */
+public class IncrementalScanState {
+
+    private final int batchSize;
+
+    private final int parallelism;
+
+    /* The names of the files picked up, mapped to the number of the last scan which listed them */
+    private final ConcurrentMap<String, Long> seenFiles = new ConcurrentHashMap<String, Long>();
+
+    /* Permits to process files on the worker pool, besides the polling thread */
+    private final Semaphore workerPermits;
+
+    private volatile long scanCount = 0;
+
+    /* The number of files picked up by the current scan */
+    private int pickedCount = 0;
+
+    private final AtomicBoolean scanning = new AtomicBoolean(false);
+
+    private final AtomicBoolean scanRequested = new AtomicBoolean(false);
+
+    /* Whether files were left by a scan and a watched directory should be scanned on the next poll */
+    private final AtomicBoolean scanDeferred = new AtomicBoolean(false);
+
+    /**
+     * @param batchSize the maximum number of new files picked up by a scan
+     * @param parallelism the maximum number of files processed at the same time
+     */
+    public IncrementalScanState(int batchSize, int parallelism) {
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.workerPermits = new Semaphore(parallelism - 1);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getSeenFileCount() {
+        return seenFiles.size();
+    }
+
+    /**
+     * Request a scan of the directory, which is done by the thread which is scanning the directory
+     * if there is one
+     */
+    public void requestScan() {
+        scanRequested.set(true);
+    }
+
+    public boolean isScanRequested() {
+        return scanRequested.get();
+    }
+
+    /**
+     * Take the request to scan the directory
+     *
+     * @return true if a scan was requested
+     */
+    public boolean takeScanRequest() {
+        return scanRequested.getAndSet(false);
+    }
+
+    /**
+     * Become the thread which scans the directory
+     *
+     * @return true if no other thread is scanning the directory, in which case {@link #endScans()}
+     * must be called once the scans are done
+     */
+    public boolean tryStartScans() {
+        return scanning.compareAndSet(false, true);
+    }
+
+    public void endScans() {
+        scanning.set(false);
+    }
+
+    /**
+     * Request a scan of a watched directory on the next poll, for files which are not reported
+     * again by the watcher
+     */
+    public void deferScan() {
+        scanDeferred.set(true);
+    }
+
+    public boolean takeDeferredScan() {
+        return scanDeferred.getAndSet(false);
+    }
+
+    /**
+     * Start a new scan of the directory. Scans of a directory never overlap.
+     *
+     * @return the number of the new scan
+     */
+    public long startScan() {
+        pickedCount = 0;
+        return ++scanCount;
+    }
+
+    /**
+     * Record that a file is listed by a scan
+     *
+     * @param name the name of the file
+     * @param scan the number of the scan
+     * @return true if the file was already picked up, and should be skipped
+     */
+    public boolean markListed(String name, long scan) {
+        return seenFiles.replace(name, scan) != null;
+    }
+
+    /**
+     * Pick up a new file listed by the current scan, unless the scan has already picked up its
+     * batch of files, in which case the file is left for the scan on the next poll
+     *
+     * @param name the name of the file
+     * @param scan the number of the scan
+     * @param batchSize the maximum number of files picked up by the scan
+     * @return true if the file was picked up
+     */
+    public boolean pickUp(String name, long scan, int batchSize) {
+        if (pickedCount >= batchSize) {
+            deferScan();
+            return false;
+        }
+        pickedCount++;
+        markSeen(name, scan);
+        return true;
+    }
+
+    /**
+     * Record that a file is picked up by a scan
+     *
+     * @param name the name of the file
+     * @param scan the number of the scan
+     */
+    public void markSeen(String name, long scan) {
+        seenFiles.put(name, scan);
+    }
+
+    /**
+     * Forget a file, so that it is picked up again by the next scan if it is still listed
+     *
+     * @param name the name of the file
+     */
+    public void forget(String name) {
+        seenFiles.remove(name);
+    }
+
+    /**
+     * Forget the files which were not listed by a scan which listed the whole directory
+     *
+     * @param scan the number of the scan
+     */
+    public void forgetUnlisted(long scan) {
+        for (Iterator<Map.Entry<String, Long>> it = seenFiles.entrySet().iterator(); it.hasNext();) {
+            if (it.next().getValue() < scan) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Take a permit to process a file on the worker pool
+     *
+     * @return true if a permit was taken, false if the file should be processed by the caller
+     */
+    public boolean tryAcquireWorker() {
+        return workerPermits.tryAcquire();
+    }
+
+    public void releaseWorker() {
+        workerPermits.release();
+    }
+
+    /**
+     * Wait until every file processed on the worker pool has been processed
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitWorkers() throws InterruptedException {
+        if (parallelism > 1) {
+            workerPermits.acquire(parallelism - 1);
+            workerPermits.release(parallelism - 1);
+        }
+    }
+}
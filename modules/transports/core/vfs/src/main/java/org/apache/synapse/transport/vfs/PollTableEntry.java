@@ -109,6 +109,19 @@ public class PollTableEntry extends AbstractPollTableEntry {
     
     private Integer fileProcessingCount;
 
+    /* the state of the incremental scan of the directory, null if the directory is fully scanned */
+    private IncrementalScanState incrementalScanState;
+
+    private boolean watch;
+
+    private long watchSettleTime;
+
+    private boolean memoryMapped;
+
+    private boolean splitRecords;
+
+    private int maxInFlightRecords;
+
     private Map<String, String> vfsSchemeProperties;
     private boolean autoLockRelease;
 
@@ -246,6 +259,34 @@ public class PollTableEntry extends AbstractPollTableEntry {
 		return fileProcessingCount;
 	}
 
+    public boolean isIncrementalScan() {
+        return incrementalScanState != null;
+    }
+
+    public IncrementalScanState getIncrementalScanState() {
+        return incrementalScanState;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public long getWatchSettleTime() {
+        return watchSettleTime;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public boolean isSplitRecords() {
+        return splitRecords;
+    }
+
+    public int getMaxInFlightRecords() {
+        return maxInFlightRecords;
+    }
+
 	private void setMoveAfterProcess(String moveAfterProcess) throws AxisFault {
         if (moveAfterProcess == null) {
             this.moveAfterProcess = null;
@@ -669,6 +710,48 @@ public class PollTableEntry extends AbstractPollTableEntry {
                 }
             }
 
+            incrementalScanState = null;
+            String strScanMode = ParamUtils.getOptionalParam(params, VFSConstants.TRANSPORT_FILE_SCAN_MODE);
+            if (VFSConstants.TRANSPORT_FILE_SCAN_MODE_INCREMENTAL.equalsIgnoreCase(strScanMode)) {
+                int scanBatchSize = parsePositiveInt(ParamUtils.getOptionalParam(params,
+                        VFSConstants.TRANSPORT_FILE_SCAN_BATCH_SIZE),
+                        VFSConstants.DEFAULT_TRANSPORT_FILE_SCAN_BATCH_SIZE, "VFS Scan Batch Size");
+                int parallelism = parsePositiveInt(ParamUtils.getOptionalParam(params,
+                        VFSConstants.TRANSPORT_FILE_PROCESS_PARALLELISM),
+                        VFSConstants.DEFAULT_TRANSPORT_FILE_PROCESS_PARALLELISM, "VFS File Process Parallelism");
+                incrementalScanState = new IncrementalScanState(scanBatchSize, parallelism);
+            } else if (strScanMode != null
+                       && !VFSConstants.TRANSPORT_FILE_SCAN_MODE_FULL.equalsIgnoreCase(strScanMode)) {
+                log.warn("VFS Scan Mode not set correctly. Current value is : " + strScanMode
+                         + ", using the full scan mode");
+            }
+
+            watch = ParamUtils.getOptionalParamBoolean(params, VFSConstants.TRANSPORT_FILE_WATCH, false);
+            watchSettleTime = VFSConstants.DEFAULT_TRANSPORT_FILE_WATCH_SETTLE_TIME;
+            if (watch) {
+                if (incrementalScanState == null) {
+                    incrementalScanState = new IncrementalScanState(
+                            VFSConstants.DEFAULT_TRANSPORT_FILE_SCAN_BATCH_SIZE,
+                            VFSConstants.DEFAULT_TRANSPORT_FILE_PROCESS_PARALLELISM);
+                }
+                String strWatchSettleTime = ParamUtils.getOptionalParam(params,
+                                                                        VFSConstants.TRANSPORT_FILE_WATCH_SETTLE_TIME);
+                if (strWatchSettleTime != null) {
+                    try {
+                        watchSettleTime = Long.parseLong(strWatchSettleTime);
+                    } catch (NumberFormatException nfe) {
+                        log.warn("VFS Watch Settle Time not set correctly. Current value is : "
+                                 + strWatchSettleTime, nfe);
+                    }
+                }
+            }
+
+            memoryMapped = ParamUtils.getOptionalParamBoolean(params, VFSConstants.TRANSPORT_FILE_MEMORY_MAPPED, false);
+            splitRecords = ParamUtils.getOptionalParamBoolean(params, VFSConstants.TRANSPORT_FILE_SPLIT_RECORDS, false);
+            maxInFlightRecords = parsePositiveInt(ParamUtils.getOptionalParam(params,
+                    VFSConstants.TRANSPORT_FILE_MAX_IN_FLIGHT_RECORDS),
+                    VFSConstants.DEFAULT_TRANSPORT_FILE_MAX_IN_FLIGHT_RECORDS, "VFS Max In Flight Records");
+
             String strAutoLock = ParamUtils.getOptionalParam(params,
                                                              VFSConstants.TRANSPORT_AUTO_LOCK_RELEASE);
             autoLockRelease = false;
@@ -770,6 +853,21 @@ public class PollTableEntry extends AbstractPollTableEntry {
         }
     }
 
+    private int parsePositiveInt(String value, int defaultValue, String name) {
+        if (value != null) {
+            try {
+                int i = Integer.parseInt(value);
+                if (i > 0) {
+                    return i;
+                }
+            } catch (NumberFormatException ignored) {
+            }
+            log.warn(name + " not set correctly. Current value is : " + value + ", using default - "
+                     + defaultValue);
+        }
+        return defaultValue;
+    }
+
     private String resolveHostAtDeployment(String uri) throws AxisFault {
         if (!resolveHostsDynamically) {
             try {
@@ -0,0 +1,90 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit testcase to test functionality {@link DirectoryWatcher}
+ */
+public class DirectoryWatcherTest extends TestCase {
+
+    private final BlockingQueue<String> changed = new LinkedBlockingQueue<String>();
+
+    private DirectoryWatcher<String> watcher;
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("vfs-watch");
+        watcher = new DirectoryWatcher<String>(new DirectoryWatcher.Listener<String>() {
+            public void directoryChanged(String owner) {
+                changed.add(owner);
+            }
+        });
+        watcher.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        watcher.stop();
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * A new file is reported once it settled, and lock files are ignored.
+     */
+    public void testNewFileIsReported() throws Exception {
+        watcher.watch("entry", directory, 100);
+        assertTrue(watcher.isWatching("entry"));
+
+        Files.write(directory.resolve("test.txt.lock"), "lock".getBytes());
+        Files.write(directory.resolve("test.txt"), "<test/>".getBytes());
+        assertEquals("entry", changed.poll(30, TimeUnit.SECONDS));
+        assertFalse(watcher.isSettling("entry", "test.txt"));
+        assertNull(changed.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Files of a directory which is no longer watched are not reported.
+     */
+    public void testUnwatchedDirectoryIsNotReported() throws Exception {
+        watcher.watch("entry", directory, 0);
+        watcher.unwatch("entry");
+        assertFalse(watcher.isWatching("entry"));
+
+        Files.write(directory.resolve("test.txt"), "<test/>".getBytes());
+        assertNull(changed.poll(500, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit testcase to test functionality {@link IncrementalScanState}
+ */
+public class IncrementalScanStateTest extends TestCase {
+
+    /**
+     * Files picked up by a scan are skipped by the following scans, until they are forgotten or
+     * no longer listed by a scan of the whole directory.
+     */
+    public void testSeenFilesAreSkipped() {
+        IncrementalScanState scanState = new IncrementalScanState(10, 1);
+
+        long scan = scanState.startScan();
+        assertFalse(scanState.markListed("a.txt", scan));
+        scanState.markSeen("a.txt", scan);
+        assertFalse(scanState.markListed("b.txt", scan));
+        scanState.markSeen("b.txt", scan);
+        assertFalse(scanState.markListed("c.txt", scan));
+        scanState.markSeen("c.txt", scan);
+        // a.txt was moved after processing
+        scanState.forget("a.txt");
+
+        scan = scanState.startScan();
+        assertFalse(scanState.markListed("a.txt", scan));
+        assertTrue(scanState.markListed("b.txt", scan));
+        scanState.forgetUnlisted(scan);
+
+        // c.txt was not listed by the previous scan, and is picked up again
+        scan = scanState.startScan();
+        assertTrue(scanState.markListed("b.txt", scan));
+        assertFalse(scanState.markListed("c.txt", scan));
+        assertEquals(1, scanState.getSeenFileCount());
+    }
+
+    /**
+     * A scan picks up at most a batch of files, and the files left are picked up by the scans on
+     * the following polls.
+     */
+    public void testFilesBeyondBatchAreDeferred() {
+        IncrementalScanState scanState = new IncrementalScanState(2, 1);
+        String[] names = {"a.txt", "b.txt", "c.txt", "d.txt", "e.txt"};
+
+        int pickedCount = 0;
+        for (int i = 0; i < 3; i++) {
+            long scan = scanState.startScan();
+            int scanPickedCount = 0;
+            for (String name : names) {
+                if (!scanState.markListed(name, scan) && scanState.pickUp(name, scan, scanState.getBatchSize())) {
+                    scanPickedCount++;
+                }
+            }
+            assertEquals(Math.min(2, names.length - pickedCount), scanPickedCount);
+            pickedCount += scanPickedCount;
+            // a watched directory is scanned again on the next poll while files are left
+            assertEquals(pickedCount < names.length, scanState.takeDeferredScan());
+        }
+        assertEquals(names.length, scanState.getSeenFileCount());
+    }
+
+    /**
+     * Up to parallelism - 1 files are processed on the worker pool, and waiting for the workers
+     * returns once every permit is released.
+     */
+    public void testWorkerPermits() throws Exception {
+        final IncrementalScanState scanState = new IncrementalScanState(10, 3);
+        assertTrue(scanState.tryAcquireWorker());
+        assertTrue(scanState.tryAcquireWorker());
+        assertFalse(scanState.tryAcquireWorker());
+
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    scanState.awaitWorkers();
+                    done.countDown();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        };
+        waiter.start();
+        scanState.releaseWorker();
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        scanState.releaseWorker();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertTrue(scanState.tryAcquireWorker());
+        scanState.releaseWorker();
+    }
+}
@@ -19,7 +19,9 @@
 package org.apache.synapse.transport.vfs;
 
 import junit.framework.TestCase;
+import org.apache.axis2.builder.ApplicationXMLBuilder;
 import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.context.MessageContext;
 import org.apache.axis2.description.AxisService;
 import org.apache.axis2.description.Parameter;
 import org.apache.axis2.description.TransportInDescription;
@@ -34,7 +36,15 @@ import org.junit.Assert;
 import org.wso2.carbon.inbound.endpoint.protocol.file.MockFile;
 import org.wso2.carbon.inbound.endpoint.protocol.file.MockFileHolder;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Unit testcase to test functionality {@link VFSTransportListener} and {@link PollTableEntry}
@@ -113,6 +123,90 @@ public class VFSTransportListenerTest extends TestCase {
 
     }
 
+    /**
+     * Testcase to test that the records of a file are injected as separate messages, and that the
+     * file is moved after failure when a record fails
+     * @throws Exception
+     */
+    public void testSplitRecords() throws Exception {
+
+        File directory = Files.createTempDirectory("vfs-records").toFile();
+        File failDirectory = new File(directory, "FAIL");
+        File file = new File(directory, "records.xml");
+        Files.write(file.toPath(), "<record>1</record>\n<record>2</record>\n\n<record>3</record>\n".getBytes("UTF-8"));
+
+        AxisService axisService = new AxisService("testVFSRecordsService");
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_FILE_URI, "file://" + file.getAbsolutePath()));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CONTENT_TYPE, "application/xml"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_ACTION_AFTER_PROCESS, VFSTransportListener.DELETE));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_ACTION_AFTER_FAILURE, VFSTransportListener.MOVE));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_MOVE_AFTER_FAILURE,
+                "file://" + failDirectory.getAbsolutePath()));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_LOCKING, VFSConstants.TRANSPORT_FILE_LOCKING_DISABLED));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_SPLIT_RECORDS, "true"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_MAX_IN_FLIGHT_RECORDS, "2"));
+
+        final List<Long> recordNumbers = Collections.synchronizedList(new ArrayList<Long>());
+        final AtomicInteger inFlightRecords = new AtomicInteger();
+        final AtomicInteger maxInFlightRecords = new AtomicInteger();
+        VFSTransportListener vfsTransportListener = new VFSTransportListener() {
+            @Override
+            public void handleIncomingMessage(MessageContext msgCtx, Map trpHeaders, String soapAction,
+                                              String contentType) {
+                int inFlight = inFlightRecords.incrementAndGet();
+                try {
+                    if (inFlight > maxInFlightRecords.get()) {
+                        maxInFlightRecords.set(inFlight);
+                    }
+                    Long recordNumber = (Long) trpHeaders.get(VFSConstants.RECORD_NUMBER);
+                    recordNumbers.add(recordNumber);
+                    Assert.assertEquals("record", msgCtx.getEnvelope().getBody().getFirstElement().getLocalName());
+                    Assert.assertEquals("records.xml", trpHeaders.get(VFSConstants.FILE_NAME));
+                    if (recordNumber == 2) {
+                        // the sender failed for the second record
+                        trpHeaders.put(VFSConstants.ERROR_CODE, "500");
+                    }
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlightRecords.decrementAndGet();
+                }
+            }
+        };
+
+        TransportInDescription transportInDescription = new VFSTransportDescriptionFactory().createTransportInDescription();
+        transportInDescription.setReceiver(vfsTransportListener);
+        AxisConfiguration axisConfiguration = new AxisConfiguration();
+        axisConfiguration.addMessageBuilder("application/xml", new ApplicationXMLBuilder());
+        vfsTransportListener.init(new ConfigurationContext(axisConfiguration), transportInDescription);
+        vfsTransportListener.start();
+
+        try {
+            PollTableEntry pollTableEntry = vfsTransportListener.createEndpoint();
+            pollTableEntry.loadConfiguration(axisService);
+            populatePollTableEntry(pollTableEntry, axisService, vfsTransportListener);
+            Assert.assertTrue(pollTableEntry.isSplitRecords());
+            Assert.assertEquals(2, pollTableEntry.getMaxInFlightRecords());
+
+            vfsTransportListener.poll(pollTableEntry);
+
+            List<Long> sortedRecordNumbers = new ArrayList<Long>(recordNumbers);
+            Collections.sort(sortedRecordNumbers);
+            Assert.assertEquals(Arrays.asList(1L, 2L, 3L), sortedRecordNumbers);
+            Assert.assertTrue("Too many records in flight : " + maxInFlightRecords.get(), maxInFlightRecords.get() <= 2);
+            Assert.assertEquals(PollTableEntry.FAILED, pollTableEntry.getLastPollState());
+            Assert.assertFalse("File not moved after failure", file.exists());
+            Assert.assertTrue("File not moved after failure", new File(failDirectory, "records.xml").exists());
+        } finally {
+            vfsTransportListener.stop();
+            new File(failDirectory, "records.xml").delete();
+            failDirectory.delete();
+            file.delete();
+            directory.delete();
+        }
+    }
+
     /**
      * Function to extract {@link VFSTransportListener} object resides as private field withing
      * {@link TransportInDescription} object